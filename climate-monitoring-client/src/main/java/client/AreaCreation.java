@@ -228,7 +228,7 @@ public class AreaCreation extends ViewState {
 			confirm.setPositionX(panel.getPositionX() + panel.getWidth() / 2.0f);
 			if (confirm.render()) {
 
-				geonameIDResult = CheckMT.geonameID(geonameIDInputText.getString());
+				geonameIDResult = validation.geonameID(geonameIDInputText.getString());
 				checkData = true;
 			}
 
@@ -253,6 +253,7 @@ public class AreaCreation extends ViewState {
 			if (addAreaResult != null && addAreaResult.ready()) {
 
 				addAreaResult.get();
+				Validation.clear();
 				resetStateData(new AreaCreation());
 				returnToPreviousState();
 			}
@@ -425,6 +426,7 @@ public class AreaCreation extends ViewState {
 	private InputText countryCodeInputText = new InputText("Country code", "", "", 2);
 	private InputText latitudeInputText = new InputText("Latitude");
 	private InputText longitudeInputText = new InputText("Longitude");
+	private Validation validation = new Validation();
 	private Result<String> geonameIDResult;
 	private boolean checkData = false;
 	private Text loadingText = new Text("Loading...");
@@ -0,0 +1,168 @@
+/*
+
+Alessandro della Frattina 753073 VA
+Cristian Capiferri 752918 VA
+Francesco Lops 753175 VA
+Dariia Sniezhko 753057 VA
+
+*/
+
+package client;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import climatemonitoring.core.ConnectionLostException;
+import climatemonitoring.core.DatabaseRequestException;
+
+/**
+ * A read-through cache of the answers of the server. The entries expire after a
+ * time to live, the least recently used ones are evicted when the cache is full,
+ * and every entry remembers the version stamp its data was read with: when
+ * the server sends a newer stamp the entry is not used anymore
+ *
+ * @author francescolops
+ * @version 1.0-SNAPSHOT
+ */
+public class Cache<K, V> {
+
+	/**
+	 * Reads the data from the server when it is not cached
+	 */
+	@FunctionalInterface
+	public interface Loader<V> {
+
+		public V load() throws ConnectionLostException, DatabaseRequestException;
+	}
+
+	/**
+	 * Creates an empty cache
+	 * @param name The name shown in the statistics
+	 * @param capacity The maximum number of entries
+	 * @param ttl_millis How long an entry stays valid, in milliseconds
+	 */
+	public Cache(String name, int capacity, long ttl_millis) {
+
+		m_name = name;
+		m_capacity = capacity;
+		m_ttl = ttl_millis;
+		m_entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+
+				if (size() <= m_capacity)
+					return false;
+
+				m_evictions++;
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * Returns the cached data, or reads it through the loader. The stamp has to be
+	 * taken before the call, so that a change committed while the data is being read
+	 * makes the entry outdated instead of hiding it. Null values are cached too
+	 * @param key The key of the data
+	 * @param stamp The current version stamp of the kind of data
+	 * @param loader Reads the data from the server
+	 * @return The data
+	 * @throws ConnectionLostException If the loader loses the connection
+	 * @throws DatabaseRequestException If the loader fails, the failure is not cached
+	 */
+	public V get(K key, int stamp, Loader<V> loader) throws ConnectionLostException, DatabaseRequestException {
+
+		synchronized (this) {
+
+			Entry<V> entry = m_entries.get(key);
+
+			if (entry != null && entry.stamp == stamp && entry.expiration > System.currentTimeMillis()) {
+
+				m_hits++;
+				return entry.value;
+			}
+
+			if (entry == null)
+				m_misses++;
+			else if (entry.stamp != stamp)
+				m_invalidations++;
+			else
+				m_expirations++;
+		}
+
+		// The server is not called while holding the lock
+		V value = loader.load();
+
+		synchronized (this) {
+
+			m_entries.put(key, new Entry<V>(value, stamp, System.currentTimeMillis() + m_ttl));
+		}
+
+		return value;
+	}
+
+	/**
+	 * Removes every entry
+	 */
+	public synchronized void clear() {
+
+		m_entries.clear();
+	}
+
+	/**
+	 *
+	 * @return The number of requests served by the cache
+	 */
+	public synchronized long getHits() {
+
+		return m_hits;
+	}
+
+	/**
+	 *
+	 * @return The number of requests that reached the server
+	 */
+	public synchronized long getMisses() {
+
+		return m_misses + m_invalidations + m_expirations;
+	}
+
+	/**
+	 * A summary of the usage of the cache
+	 */
+	@Override
+	public synchronized String toString() {
+
+		long requests = m_hits + getMisses();
+
+		return String.format("%s: %d/%d entries, %d hits, %d misses (%d new, %d outdated, %d expired), %d evicted, hit rate %.1f%%",
+			m_name, m_entries.size(), m_capacity, m_hits, getMisses(), m_misses, m_invalidations, m_expirations, m_evictions,
+			requests == 0 ? 0.0 : 100.0 * m_hits / requests);
+	}
+
+	private static class Entry<V> {
+
+		Entry(V value, int stamp, long expiration) {
+
+			this.value = value;
+			this.stamp = stamp;
+			this.expiration = expiration;
+		}
+
+		final V value;
+		final int stamp;
+		final long expiration;
+	}
+
+	private final String m_name;
+	private final int m_capacity;
+	private final long m_ttl;
+	private final LinkedHashMap<K, Entry<V>> m_entries;
+
+	private long m_hits;
+	private long m_misses;
+	private long m_invalidations;
+	private long m_expirations;
+	private long m_evictions;
+}
@@ -0,0 +1,159 @@
+/*
+
+Alessandro della Frattina 753073 VA
+Cristian Capiferri 752918 VA
+Francesco Lops 753175 VA
+Dariia Sniezhko 753057 VA
+
+*/
+
+package client;
+
+import climatemonitoring.core.Area;
+import climatemonitoring.core.Category;
+import climatemonitoring.core.Center;
+import climatemonitoring.core.ConnectionLostException;
+import climatemonitoring.core.DatabaseRequestException;
+import climatemonitoring.core.headless.Console;
+import climatemonitoring.core.network.Protocol;
+
+/**
+ * The proxy used by the application. It keeps a copy of the reference data,
+ * which barely changes, so that the screens do not ask the server for it every time.
+ * The copies are dropped when the server sends a newer version stamp of their data
+ * (after an addArea, addCenter or includeAreaToCenter committed by any client), or
+ * after their time to live when the server does not send stamps.
+ * The ProxyMT built on top of this proxy uses the same copies
+ * 
+ * @author francescolops
+ * @version 1.0-SNAPSHOT
+ */
+public class CachedProxy extends ProxyImpl {
+
+	/**
+	 * Allows the connection to the desired address, forgetting the data of the previous server.
+	 * Return true if the connection was succesfull, false if not
+	 * @param address the address the user wants to connect to
+	 * @param port the port the user wants to connect to
+	 * @throws ConnectionLostException If the client loses connection during the operation
+	 */
+	@Override
+	public boolean connect(String address, short port) throws ConnectionLostException {
+
+		m_areas.clear();
+		m_center.clear();
+		m_centers.clear();
+		m_associatedCenters.clear();
+		m_categories.clear();
+
+		return super.connect(address, port);
+	}
+
+	/**
+	 * Close the connection between the socket and the server
+	 * @throws ConnectionLostException If the client loses connection during the operation
+	 */
+	@Override
+	public void close() throws ConnectionLostException {
+
+		Console.debug(getStatistics());
+		super.close();
+	}
+
+	/**
+	 * To get an area by its geoname id
+	 * 
+	 * @param geoname_id The geoname id of the area to be searched
+	 * @return The area that corresponds to the given geoname id
+	 * @throws ConnectionLostException If the client loses connection during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request
+	 */
+	@Override
+	public Area getArea(int geoname_id) throws ConnectionLostException, DatabaseRequestException {
+
+		return m_areas.get(geoname_id, getStamp(Protocol.AREAS_STAMP), () -> super.getArea(geoname_id));
+	}
+
+	/**
+	 * To get a center by its ID
+	 * 
+	 * @param center_id The center's ID
+	 * @return The center with the given ID
+	 * @throws ConnectionLostException If the client loses connection during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request
+	 */
+	@Override
+	public Center getCenter(String center_id) throws ConnectionLostException, DatabaseRequestException {
+
+		return m_center.get(center_id, getStamp(Protocol.CENTERS_STAMP), () -> super.getCenter(center_id));
+	}
+
+	/**
+	 * To get all the centers
+	 * 
+	 * @return An array of all centers
+	 * @throws ConnectionLostException If the client loses connection during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request
+	 */
+	@Override
+	public Center[] getCenters() throws ConnectionLostException, DatabaseRequestException {
+
+		return copy(m_centers.get(ALL, getStamp(Protocol.CENTERS_STAMP), () -> super.getCenters()));
+	}
+
+	/**
+	 * To get the centers that monitor an area
+	 * 
+	 * @param geoname_id The area's ID
+	 * @return An array of the centers that monitor the area
+	 * @throws ConnectionLostException If the client loses connection during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request
+	 */
+	@Override
+	public Center[] getAssociatedCenters(int geoname_id) throws ConnectionLostException, DatabaseRequestException {
+
+		return copy(m_associatedCenters.get(geoname_id, getStamp(Protocol.MONITORS_STAMP), () -> super.getAssociatedCenters(geoname_id)));
+	}
+
+	/**
+	 * Get all the categories and their explanation. They can not be changed by the clients,
+	 * so they only expire
+	 * 
+	 * @return An array of all categories with relative descriptions
+	 * @throws ConnectionLostException If the client loses connection during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request
+	 */
+	@Override
+	public Category[] getCategories() throws ConnectionLostException, DatabaseRequestException {
+
+		return copy(m_categories.get(ALL, 0, () -> super.getCategories()));
+	}
+
+	/**
+	 * 
+	 * @return A summary of the usage of every cache
+	 */
+	public String getStatistics() {
+
+		return String.join("\n", m_areas.toString(), m_center.toString(), m_centers.toString(), m_associatedCenters.toString(), m_categories.toString());
+	}
+
+	/**
+	 * The callers get their own array, so that they can not change the cached one
+	 */
+	private static <T> T[] copy(T[] array) {
+
+		return array != null ? array.clone() : null;
+	}
+
+	private final Cache<Integer, Area> m_areas = new Cache<Integer, Area>("Areas", 1024, 5 * 60 * 1000);
+	private final Cache<String, Center> m_center = new Cache<String, Center>("Centers by ID", 256, 60 * 1000);
+	private final Cache<Integer, Center[]> m_centers = new Cache<Integer, Center[]>("All centers", 1, 60 * 1000);
+	private final Cache<Integer, Center[]> m_associatedCenters = new Cache<Integer, Center[]>("Associated centers", 256, 60 * 1000);
+	private final Cache<Integer, Category[]> m_categories = new Cache<Integer, Category[]>("Categories", 1, 10 * 60 * 1000);
+
+	/**
+	 * The key of the caches that hold a single list
+	 */
+	private static final Integer ALL = 0;
+}
@@ -249,8 +249,8 @@ public class CenterCreation extends ViewState {
 				else
 					m_showErrorMessage = true;
 
-				m_centerIDResult = CheckMT.creationCenterID(m_centerIDInputText.getString());
-				m_addressResult = CheckMT.address(area.trim(), m_streetInputText.getString().trim(), m_houseNumberInputText.getString().trim());
+				m_centerIDResult = m_validation.creationCenterID(m_centerIDInputText.getString());
+				m_addressResult = m_validation.address(area.trim(), m_streetInputText.getString().trim(), m_houseNumberInputText.getString().trim());
 
 				m_checkData = true;
 			}
@@ -287,6 +287,7 @@ public class CenterCreation extends ViewState {
 
 				m_addCenterResult.get();
 				m_editOperatorResult.get();
+				Validation.clear();
 
 				resetStateData(new CenterCreation());
 				returnToPreviousState();
@@ -466,6 +467,7 @@ public class CenterCreation extends ViewState {
 	private SearchArea m_searchArea = new SearchArea();
 
 	private boolean m_checkData = false;
+	private Validation m_validation = new Validation();
 	private Result<String> m_centerIDResult;
 	private Result<String[]> m_addressResult;
 	private Result<Boolean> m_addCenterResult;
@@ -289,7 +289,7 @@ public class Check {
 		try {
 
 			if (Handler.getProxyServer().getOperator(user_id) != null)
-				msg = "There is already another operator with the same user id";
+				msg = USER_ID_TAKEN;
 		}
 
 		catch (DatabaseRequestException e) {
@@ -310,16 +310,13 @@ public class Check {
 
 		String msg = null;
 
-		if ((msg = isEmpty(s)) != null)
+		if ((msg = ssidFormat(s)) != null)
 			return msg;
 
-		if (s.length() != 16)
-			return "The SSID must be 16 characters (" + s.length() + "/16)";
-
 		try {
 
 			if (Handler.getProxyServer().getOperatorBySSID(s) != null)
-				msg = "There is already another operator with this SSID";
+				msg = SSID_TAKEN;
 		}
 
 		catch (DatabaseRequestException e) {
@@ -350,16 +347,13 @@ public class Check {
 
 		String msg = null;
 
-		if ((msg = isEmpty(e)) != null)
+		if ((msg = emailFormat(e)) != null)
 			return msg;
 
-		if (!Pattern.compile("^(.+)@(.+)$").matcher(e).matches())
-			return "The value is not a valid e-mail";
-
 		try {
 
 			if (Handler.getProxyServer().getOperatorByEmail(e) != null)
-				msg = "This email is already used by another operator";
+				msg = EMAIL_TAKEN;
 		}
 
 		catch (DatabaseRequestException ex) {
@@ -370,6 +364,42 @@ public class Check {
 		return msg;
 	}
 
+	/**
+	 * Checks if the SSID is empty or has contiguous dashes or does not have 16 characters, without asking the server
+	 * @param s The SSID
+	 * @return Null if the parameter is valid, an error message as string if not
+	 */
+	public static String ssidFormat(String s) {
+
+		String msg = null;
+
+		if ((msg = isEmpty(s)) != null)
+			return msg;
+
+		if (s.length() != 16)
+			return "The SSID must be 16 characters (" + s.length() + "/16)";
+
+		return null;
+	}
+
+	/**
+	 * Checks if the email is empty or has contiguous dashes or is not a valid email, without asking the server
+	 * @param e The email
+	 * @return Null if the parameter is valid, an error message as string if not
+	 */
+	public static String emailFormat(String e) {
+
+		String msg = null;
+
+		if ((msg = isEmpty(e)) != null)
+			return msg;
+
+		if (!Pattern.compile("^(.+)@(.+)$").matcher(e).matches())
+			return "The value is not a valid e-mail";
+
+		return null;
+	}
+
 	/**
 	 * Checks if the password is empty or has contiguous dashes or has spaces
 	 * @param p The password
@@ -608,4 +638,8 @@ public class Check {
 
 		return str.contains("--") ? "Contiguous dashes are not allowed" : null;
 	}
+
+	static final String USER_ID_TAKEN = "There is already another operator with the same user id";
+	static final String EMAIL_TAKEN = "This email is already used by another operator";
+	static final String SSID_TAKEN = "There is already another operator with this SSID";
 }
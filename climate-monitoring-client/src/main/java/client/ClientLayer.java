@@ -189,6 +189,8 @@ public class ClientLayer extends Layer {
 
 	public void onDetach() {
 
+		Console.debug(Result.getStatistics());
+
 		try {
 			Handler.getProxyServer().close();
 		} catch (ConnectionLostException e) {
@@ -369,9 +369,7 @@ public class EditProfile extends ViewState {
 			confirm.setPositionX(panel.getPositionX() + panel.getWidth() / 2.0f);
 			if (confirm.render()) {
 
-				checkUserIDResult = CheckMT.userID(userIDInputText.getString());
-				checkEmailResult = CheckMT.email(emailInputText.getString());
-				checkSSIDResult = CheckMT.ssid(ssidInputText.getString());
+				checkResult = validation.registration(userIDInputText.getString(), emailInputText.getString(), ssidInputText.getString(), Handler.getLoggedOperator().getUserID());
 				checkData = true;
 			}
 
@@ -398,6 +396,7 @@ public class EditProfile extends ViewState {
 			if (editOperatorResult != null && editOperatorResult.ready()) {
 
 				editOperatorResult.get();
+				Validation.clear();
 				Handler.setLoggedOperator(operator);
 				resetStateData(new EditProfile());
 				setCurrentState(ViewType.MASTER);
@@ -429,18 +428,15 @@ public class EditProfile extends ViewState {
 
 		int failure = -1;
 
-		if (checkUserIDResult != null && checkUserIDResult.ready() &&
-			checkEmailResult != null && checkEmailResult.ready() &&
-			checkSSIDResult != null && checkSSIDResult.ready())
-
-		{
+		if (checkResult != null && checkResult.ready()) {
 
 			failure = 0;
 
+			String[] errorMsgs = checkResult.get();
 			String errorMsg = null;
 
 			// User ID
-			errorMsg = checkUserIDResult.get();
+			errorMsg = errorMsgs[0];
 			if (errorMsg == null || userIDInputText.getString().equals(m_userID)) {
 
 				m_userID = userIDInputText.getString();
@@ -455,7 +451,7 @@ public class EditProfile extends ViewState {
 			}
 
 			// Email
-			errorMsg = checkEmailResult.get();
+			errorMsg = errorMsgs[1];
 			if (errorMsg == null || emailInputText.getString().equals(m_email)) {
 
 				m_email = emailInputText.getString();
@@ -485,7 +481,7 @@ public class EditProfile extends ViewState {
 			}
 
 			// SSID
-			errorMsg = checkSSIDResult.get();
+			errorMsg = errorMsgs[2];
 			if (errorMsg == null || ssidInputText.getString().equals(m_SSID)) {
 
 				m_SSID = ssidInputText.getString();
@@ -543,12 +539,10 @@ public class EditProfile extends ViewState {
 				failure++;
 			}
 
-			checkUserIDResult = null;
-			checkEmailResult = null;
-			checkSSIDResult = null;
+			checkResult = null;
 		}
 
-		else if (checkUserIDResult != null && checkEmailResult != null && checkSSIDResult != null) {
+		else if (checkResult != null) {
 
 			loadingText.setOriginX(loadingText.getWidth() / 2.0f);
 			loadingText.setPositionX(panel.getPositionX());
@@ -587,9 +581,8 @@ public class EditProfile extends ViewState {
 	private Text centerNotSelectedText = new Text("");
 	private Text selectCenterText = new Text("Center");
 	private boolean checkData = false;
-	private Result<String> checkUserIDResult;
-	private Result<String> checkEmailResult;
-	private Result<String> checkSSIDResult;
+	private Validation validation = new Validation();
+	private Result<String[]> checkResult;
 	private Text loadingText = new Text("Loading..");
 	private Result<Boolean> editOperatorResult;
 	private Operator operator;
@@ -193,7 +193,7 @@ public class Handler {
 			return;
 		}
 
-		m_proxy = new ProxyImpl();
+		m_proxy = new CachedProxy();
 		m_proxyMT = new ProxyMTImpl(m_proxy);
 		m_view = new View();
 
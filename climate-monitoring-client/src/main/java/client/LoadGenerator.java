@@ -0,0 +1,511 @@
+/*
+
+Alessandro della Frattina 753073 VA
+Cristian Capiferri 752918 VA
+Francesco Lops 753175 VA
+Dariia Sniezhko 753057 VA
+
+*/
+
+package client;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import climatemonitoring.core.ConnectionLostException;
+import climatemonitoring.core.DatabaseRequestException;
+import climatemonitoring.core.Operator;
+import climatemonitoring.core.Parameter;
+import climatemonitoring.core.headless.Console;
+
+/**
+ * Puts a server under load through the same proxy the client application uses.
+ * Every simulated user has a connection of its own: the browsers only read, the
+ * operators log in first and then also add parameters. Each user picks its next
+ * operation from a weighted mix and waits a random think time (exponentially
+ * distributed around the given mean) between two operations. The users start
+ * evenly spread over the ramp-up, so the server is not hit by all the handshakes at once.
+ *
+ * The requests refer to the dataset generated by the server's SchemaMigrationBenchmark,
+ * where area g is monitored by center (g - 1) % centers + 1. Before the users start, the
+ * generator registers through the proxy an operator of its own for every center the
+ * operators use: "load" followed by the number of the center, with the given password.
+ * An operator registered by a previous run is kept, so the password must not change.
+ *
+ * A local run, with the jars built by mvn package:
+ * 1. java -cp climate-monitoring-server/target/serverCM.jar server.SchemaMigrationBenchmark --keep
+ *    on an empty PostgreSQL database, which leaves the dataset in the climate_benchmark schema
+ * 2. java -jar climate-monitoring-server/target/serverCM.jar, giving the URL of the same
+ *    database followed by ?currentSchema=climate_benchmark
+ * 3. java -cp climate-monitoring-client/target/clientCM.jar client.LoadGenerator --areas=2000 --centers=200
+ *    with the sizes given to the benchmark (2000 areas and 200 centers by default)
+ *
+ * Usage: LoadGenerator [--host=H] [--port=N] [--operators=N] [--browsers=N] [--duration=S]
+ * [--rampUp=S] [--think=MS] [--mix=search:40,getParameters:40,addParameter:10,validateCredentials:10]
+ * [--areas=N] [--centers=N] [--password=P]
+ *
+ * @author francescolops
+ * @version 1.0-SNAPSHOT
+ */
+public class LoadGenerator {
+
+	/**
+	 * The operations a simulated user can make
+	 */
+	private enum Operation {
+
+		SEARCH("search", false),
+		GET_PARAMETERS("getParameters", false),
+		ADD_PARAMETER("addParameter", true),
+		VALIDATE_CREDENTIALS("validateCredentials", true);
+
+		Operation(String name, boolean operator_only) {
+
+			this.name = name;
+			this.operatorOnly = operator_only;
+		}
+
+		static Operation of(String name) {
+
+			for (Operation operation : values())
+				if (operation.name.equalsIgnoreCase(name))
+					return operation;
+
+			throw new IllegalArgumentException("Unknown operation: " + name);
+		}
+
+		final String name;
+		final boolean operatorOnly;
+	}
+
+	public static void main(String[] args) throws Exception {
+
+		LoadGenerator generator = new LoadGenerator();
+		String mix = "search:40,getParameters:40,addParameter:10,validateCredentials:10";
+
+		for (String arg : args) {
+
+			String name = arg.substring(0, arg.indexOf('=') < 0 ? arg.length() : arg.indexOf('='));
+			String value = arg.substring(arg.indexOf('=') + 1);
+
+			switch (name) {
+
+				case "--host": generator.m_host = value; break;
+				case "--port": generator.m_port = Short.parseShort(value); break;
+				case "--operators": generator.m_operators = Integer.parseInt(value); break;
+				case "--browsers": generator.m_browsers = Integer.parseInt(value); break;
+				case "--duration": generator.m_duration = Long.parseLong(value) * 1000L; break;
+				case "--rampUp": generator.m_rampUp = Long.parseLong(value) * 1000L; break;
+				case "--think": generator.m_think = Long.parseLong(value); break;
+				case "--mix": mix = value; break;
+				case "--areas": generator.m_areas = Integer.parseInt(value); break;
+				case "--centers": generator.m_centers = Integer.parseInt(value); break;
+				case "--password": generator.m_password = value; break;
+				default: Console.warn("Ignoring argument: " + arg);
+			}
+		}
+
+		for (String entry : mix.split(",")) {
+
+			String[] weight = entry.split(":");
+			generator.m_weights.put(Operation.of(weight[0].trim()), Integer.parseInt(weight[1].trim()));
+		}
+
+		generator.run();
+	}
+
+	/**
+	 * Runs the users until the end of the test and prints the report
+	 */
+	private void run() throws InterruptedException {
+
+		int users = m_operators + m_browsers;
+		Thread[] threads = new Thread[users];
+		User[] simulated = new User[users];
+
+		for (Operation operation : Operation.values())
+			m_stats.put(operation, new Stats());
+
+		if (!seed())
+			return;
+
+		Console.info("Starting " + m_operators + " operators and " + m_browsers + " browsers on " + m_host + ":" + m_port + " for " + m_duration / 1000 + " s, ramp-up " + m_rampUp / 1000 + " s");
+
+		m_start = System.currentTimeMillis();
+		m_end = m_start + m_duration;
+
+		for (int i = 0; i < users; i++) {
+
+			simulated[i] = new User(i, i < m_operators, m_start + (users > 1 ? m_rampUp * i / (users - 1) : 0));
+			threads[i] = new Thread(simulated[i], "LoadGenerator-user-" + i);
+			threads[i].setDaemon(true);
+			threads[i].start();
+		}
+
+		long report = m_start + PROGRESS_INTERVAL;
+
+		while (System.currentTimeMillis() < m_end) {
+
+			Thread.sleep(Math.max(1, Math.min(report, m_end) - System.currentTimeMillis()));
+
+			if (System.currentTimeMillis() >= report) {
+
+				long requests = 0;
+				long errors = 0;
+
+				for (Stats stats : m_stats.values()) {
+
+					requests += stats.count.sum();
+					errors += stats.errors.sum();
+				}
+
+				Console.info(String.format("%5d s: %d requests (%.0f req/s), %d errors", (report - m_start) / 1000, requests, requests * 1000.0 / (report - m_start), errors));
+				report += PROGRESS_INTERVAL;
+			}
+		}
+
+		for (Thread thread : threads)
+			thread.join(10000);
+
+		long elapsed = System.currentTimeMillis() - m_start;
+		Console.write(String.format("%-20s %10s %10s %8s %10s %10s %10s %10s %10s", "operation", "requests", "req/s", "errors", "mean ms", "p50 ms", "p90 ms", "p99 ms", "max ms"));
+
+		for (Operation operation : Operation.values()) {
+
+			Stats stats = m_stats.get(operation);
+			long[] latencies = new long[0];
+
+			for (User user : simulated)
+				latencies = concat(latencies, user.latencies(operation));
+
+			if (latencies.length == 0 && stats.errors.sum() == 0)
+				continue;
+
+			Arrays.sort(latencies);
+
+			Console.write(String.format("%-20s %10d %10.1f %8d %10.2f %10.2f %10.2f %10.2f %10.2f", operation.name, stats.count.sum(), stats.count.sum() * 1000.0 / elapsed, stats.errors.sum(),
+				Arrays.stream(latencies).average().orElse(0) / 1e6, percentile(latencies, 50), percentile(latencies, 90), percentile(latencies, 99), percentile(latencies, 100)));
+		}
+	}
+
+	/**
+	 * Registers the operators of the centers the simulated operators use
+	 *
+	 * @return False if the server cannot be reached
+	 */
+	private boolean seed() {
+
+		ProxyImpl proxy = new ProxyImpl();
+		int registered = 0;
+		int kept = 0;
+
+		try {
+
+			proxy.connect(m_host, m_port);
+
+			for (int center = 1; center <= Math.min(m_operators, m_centers); center++) {
+
+				Operator operator = new Operator(operatorID(center), String.format("LOAD%012d", center).toCharArray(), "Operator", "Load",
+					operatorID(center) + "@example.com", m_password, "center" + center);
+
+				try {
+
+					proxy.addOperator(operator);
+					registered++;
+				}
+
+				// Registered by a previous run
+				catch (DatabaseRequestException e) {
+
+					kept++;
+				}
+			}
+
+			proxy.close();
+			Console.info("Registered " + registered + " operators, " + kept + " already registered");
+			return true;
+		}
+
+		catch (ConnectionLostException e) {
+
+			Console.error("Could not register the operators on " + m_host + ":" + m_port);
+			proxy.forceClose();
+			return false;
+		}
+	}
+
+	private static String operatorID(int center) {
+
+		return "load" + center;
+	}
+
+	/**
+	 * A simulated client with its own connection
+	 */
+	private class User implements Runnable {
+
+		User(int id, boolean operator, long start) {
+
+			m_id = id;
+			m_operator = operator;
+			m_startTime = start;
+			m_center = id % m_centers + 1;
+		}
+
+		@Override
+		public void run() {
+
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+
+			try {
+
+				Thread.sleep(Math.max(0, m_startTime - System.currentTimeMillis()));
+
+				if (!connect())
+					return;
+
+				if (m_operator)
+					execute(Operation.VALIDATE_CREDENTIALS, random);
+
+				while (System.currentTimeMillis() < m_end) {
+
+					Thread.sleep(think(random));
+
+					if (System.currentTimeMillis() >= m_end)
+						break;
+
+					if (m_proxy == null && !connect()) {
+
+						Thread.sleep(RECONNECT_DELAY);
+						continue;
+					}
+
+					execute(next(random), random);
+				}
+			}
+
+			catch (InterruptedException e) {
+
+				Thread.currentThread().interrupt();
+			}
+
+			finally {
+
+				disconnect();
+			}
+		}
+
+		/**
+		 * Makes an operation, counting its latency or its failure
+		 */
+		private void execute(Operation operation, ThreadLocalRandom random) {
+
+			Stats stats = m_stats.get(operation);
+			int area = area(random);
+			long start = System.nanoTime();
+
+			try {
+
+				boolean success = true;
+
+				switch (operation) {
+
+					case SEARCH:
+						m_proxy.searchAreasByName("area " + area);
+						break;
+
+					case GET_PARAMETERS:
+						m_proxy.getParameters(area, "center" + ((area - 1) % m_centers + 1), CATEGORIES[random.nextInt(CATEGORIES.length)]);
+						break;
+
+					case ADD_PARAMETER:
+						success = m_proxy.addParameter(new Parameter(area, "center" + m_center, operatorID(m_center), CATEGORIES[random.nextInt(CATEGORIES.length)], LocalDateTime.now(), 1 + random.nextInt(5), "Load test"));
+						break;
+
+					case VALIDATE_CREDENTIALS:
+						success = m_proxy.validateCredentials(operatorID(m_center), m_password) != null;
+						break;
+				}
+
+				record(operation, System.nanoTime() - start);
+				stats.count.increment();
+
+				if (!success)
+					stats.errors.increment();
+			}
+
+			catch (DatabaseRequestException e) {
+
+				stats.count.increment();
+				stats.errors.increment();
+			}
+
+			catch (ConnectionLostException e) {
+
+				stats.errors.increment();
+				m_proxy.forceClose();
+				m_proxy = null;
+			}
+		}
+
+		private boolean connect() {
+
+			ProxyImpl proxy = new ProxyImpl();
+
+			try {
+
+				proxy.connect(m_host, m_port);
+				m_proxy = proxy;
+				return true;
+			}
+
+			catch (ConnectionLostException e) {
+
+				Console.error("User " + m_id + " could not connect to " + m_host + ":" + m_port);
+				return false;
+			}
+		}
+
+		private void disconnect() {
+
+			if (m_proxy == null)
+				return;
+
+			try {
+
+				m_proxy.close();
+			}
+
+			catch (ConnectionLostException e) {
+
+				m_proxy.forceClose();
+			}
+		}
+
+		/**
+		 * Picks the next operation from the mix
+		 */
+		private Operation next(ThreadLocalRandom random) {
+
+			int total = 0;
+
+			for (Map.Entry<Operation, Integer> weight : m_weights.entrySet())
+				if (m_operator || !weight.getKey().operatorOnly)
+					total += weight.getValue();
+
+			int pick = random.nextInt(Math.max(1, total));
+
+			for (Map.Entry<Operation, Integer> weight : m_weights.entrySet()) {
+
+				if (!m_operator && weight.getKey().operatorOnly)
+					continue;
+
+				pick -= weight.getValue();
+
+				if (pick < 0)
+					return weight.getKey();
+			}
+
+			return Operation.SEARCH;
+		}
+
+		/**
+		 * An area of the operator's center, any area for a browser
+		 */
+		private int area(ThreadLocalRandom random) {
+
+			if (!m_operator)
+				return 1 + random.nextInt(m_areas);
+
+			int monitored = Math.max(1, (m_areas - m_center) / m_centers + 1);
+			return m_center + m_centers * random.nextInt(monitored);
+		}
+
+		private long think(ThreadLocalRandom random) {
+
+			return m_think > 0 ? (long) (-m_think * Math.log(1.0 - random.nextDouble())) : 0;
+		}
+
+		private void record(Operation operation, long nanos) {
+
+			long[] latencies = m_latencies.get(operation);
+			int count = m_counts.getOrDefault(operation, 0);
+
+			if (latencies == null || count == latencies.length) {
+
+				latencies = latencies == null ? new long[1024] : Arrays.copyOf(latencies, count * 2);
+				m_latencies.put(operation, latencies);
+			}
+
+			latencies[count] = nanos;
+			m_counts.put(operation, count + 1);
+		}
+
+		/**
+		 *
+		 * @return The latencies of the operation in nanoseconds, to be read once the user has stopped
+		 */
+		long[] latencies(Operation operation) {
+
+			long[] latencies = m_latencies.get(operation);
+			return latencies == null ? new long[0] : Arrays.copyOf(latencies, m_counts.get(operation));
+		}
+
+		private final int m_id;
+		private final boolean m_operator;
+		private final long m_startTime;
+		private final int m_center;
+		private final Map<Operation, long[]> m_latencies = new EnumMap<Operation, long[]>(Operation.class);
+		private final Map<Operation, Integer> m_counts = new EnumMap<Operation, Integer>(Operation.class);
+		private ProxyImpl m_proxy;
+	}
+
+	private static class Stats {
+
+		final LongAdder count = new LongAdder();
+		final LongAdder errors = new LongAdder();
+	}
+
+	private static long[] concat(long[] a, long[] b) {
+
+		long[] result = Arrays.copyOf(a, a.length + b.length);
+		System.arraycopy(b, 0, result, a.length, b.length);
+		return result;
+	}
+
+	/**
+	 *
+	 * @return The percentile of the sorted latencies in milliseconds
+	 */
+	private static double percentile(long[] sorted, int percentile) {
+
+		if (sorted.length == 0)
+			return 0;
+
+		int index = (int) Math.ceil(sorted.length * percentile / 100.0) - 1;
+		return sorted[Math.max(0, index)] / 1e6;
+	}
+
+	private static final long PROGRESS_INTERVAL = 5000;
+	private static final long RECONNECT_DELAY = 1000;
+	private static final String[] CATEGORIES = { "Wind", "Humidity", "Pressure", "Temperature", "Precipitation", "Glacier Altitude", "Glacier Mass" };
+
+	private String m_host = "localhost";
+	private short m_port = 25565;
+	private int m_operators = 10;
+	private int m_browsers = 40;
+	private long m_duration = 60000;
+	private long m_rampUp = 10000;
+	private long m_think = 500;
+	private int m_areas = 2000;
+	private int m_centers = 200;
+	private String m_password = "password";
+	private final Map<Operation, Integer> m_weights = new EnumMap<Operation, Integer>(Operation.class);
+	private final Map<Operation, Stats> m_stats = new EnumMap<Operation, Stats>(Operation.class);
+	private long m_start;
+	private volatile long m_end;
+}
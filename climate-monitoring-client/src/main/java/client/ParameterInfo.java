@@ -22,6 +22,7 @@ import imgui.extension.implot.flag.ImPlotMarker;
 
 import climatemonitoring.core.Application;
 import climatemonitoring.core.Area;
+import climatemonitoring.core.AreaDashboard;
 import climatemonitoring.core.Category;
 import climatemonitoring.core.Center;
 import climatemonitoring.core.ConnectionLostException;
@@ -71,7 +72,10 @@ public class ParameterInfo {
 
 			m_geonameID = Integer.parseInt(geonameID);
 
-			if (Handler.getProxyServer().getLatestCenter(m_geonameID) == null) {
+			// The defaults (latest center and category) and the lists used to validate the input
+			AreaDashboard dashboard = Handler.getProxyServer().getAreaDashboard(m_geonameID, null, null);
+
+			if (dashboard.getLatestCenter() == null) {
 
 				Console.write("This area does not have any parameters / is not monitored by any center");
 				return;
@@ -80,16 +84,14 @@ public class ParameterInfo {
 			Console.write("(You can leave blank to get the latest parameters)");
 
 			// Center ID
+			m_centerID = null;
 			do {
 
 				errorMsg = null;
 				String centerID = Console.read("Center ID > ").trim().toLowerCase();
 
-				if (Check.isEmpty(centerID) != null) {
-
-					m_centerID = Handler.getProxyServer().getLatestCenter(m_geonameID).getCenterID();
+				if (Check.isEmpty(centerID) != null)
 					break;
-				}
 
 				if ((errorMsg = Check.registrationCenterID(centerID)) != null) {
 
@@ -97,55 +99,44 @@ public class ParameterInfo {
 					continue;
 				}
 
-				if ((errorMsg = Check.monitors(centerID, geonameID)) != null) {
+				for (Center center : dashboard.getCenters())
+					if (center.getCenterID().trim().toLowerCase().equals(centerID))
+						m_centerID = center.getCenterID();
 
-					Console.write(errorMsg);
-					continue;
-				}
-
-				else {
+				if (m_centerID == null) {
 
-					m_geonameID = Integer.parseInt(geonameID);
+					errorMsg = "The center does not monitor the specified area";
+					Console.write(errorMsg);
 				}
 
-				if (errorMsg == null)
-					m_centerID = Handler.getProxyServer().getCenter(centerID).getCenterID();
-
 			} while (errorMsg != null);
 
 			// Category
+			m_category = null;
 			do {
 
 				errorMsg = null;
 				String category = Console.read("Category > ").trim().toLowerCase();
 
-				if (Check.isEmpty(category) != null) {
-
-					m_category = Handler.getProxyServer().getLatestCategory(m_geonameID, m_centerID).getCategory();
+				if (Check.isEmpty(category) != null)
 					break;
-				}
-
-				if ((errorMsg = Check.category(category)) == null) {
-
-					Category[] categories = Handler.getProxyServer().getCategories();
-					for (Category c : categories) {
 
-						if (c.getCategory().trim().toLowerCase().equals(category)) {
+				for (Category c : dashboard.getCategories())
+					if (c.getCategory().trim().toLowerCase().equals(category))
+						m_category = c.getCategory();
 
-							m_category = c.getCategory();
-							break;
-						}
-					}
-
-					break;
-				}
+				if (m_category == null) {
 
-				else
+					errorMsg = "The value must be a valid category";
 					Console.write(errorMsg);
+				}
 
 			} while (errorMsg != null);
 
-			get().parameters = Handler.getProxyServer().getParameters(m_geonameID, m_centerID, m_category);
+			if (m_centerID != null || m_category != null)
+				dashboard = Handler.getProxyServer().getAreaDashboard(m_geonameID, m_centerID, m_category);
+
+			get().parameters = dashboard.getParameters();
 
 			if (get().parameters == null || get().parameters.length == 0) {
 
@@ -154,10 +145,10 @@ public class ParameterInfo {
 			}
 
 			Console.write("--- " + Handler.getProxyServer().getArea(m_geonameID).getAsciiName() + " parameters ---");
-			Console.write("From " + m_centerID);
-			Console.write("Grouped by " + m_category);
+			Console.write("From " + dashboard.getCenter().getCenterID());
+			Console.write("Grouped by " + dashboard.getCategory().getCategory());
 			Console.write("Count: " + get().parameters.length);
-			Console.write("Average: " + Handler.getProxyServer().getParametersAverage(m_geonameID, m_centerID, m_category));
+			Console.write("Average: " + dashboard.getAverage());
 
 			// Show parameters
 			for (Parameter parameter : get().parameters)
@@ -353,132 +344,56 @@ public class ParameterInfo {
 		if (requestInitialData) {
 
 			selectedArea = Master.getSearchArea().getSelectedArea();
-			associatedCentersResult = Handler.getProxyServerMT().getAssociatedCenters(selectedArea.getGeonameID());
-			latestCenterResult = Handler.getProxyServerMT().getLatestCenter(selectedArea.getGeonameID());
-			categoriesResult = Handler.getProxyServerMT().getCategories();
+			dashboardResult = Handler.getProxyServerMT().getAreaDashboard(selectedArea.getGeonameID(), null, null);
 
 			requestInitialData = false;
 		}
 
-		if (associatedCentersResult != null && associatedCentersResult.ready()) {
+		if (dashboardResult != null && dashboardResult.ready()) {
 
-			if (associatedCentersResult.get() == null || associatedCentersResult.get().length == 0) {
+			AreaDashboard dashboard = dashboardResult.get();
+			dashboardResult = null;
 
+			if (dashboard.getCenters() == null || dashboard.getCenters().length == 0)
 				notMonitored = true;
-				loadInitialData = false;
-			}
 
-			else
-				centers = associatedCentersResult.get();
-
-			associatedCentersResult = null;
-		}
-
-		else if (associatedCentersResult == null) {
-
-			// Last center
-			if (latestCenterResult != null && latestCenterResult.ready()) {
+			else {
 
+				// Centers, the latest one is selected
+				Center[] centers = dashboard.getCenters();
 				String[] centerIDs = new String[centers.length];
 				int index = 0;
 
-				if (latestCenterResult.get() == null) {
+				for (int i = 0; i < centerIDs.length; i++) {
 
-					index = 0;
-					for (int i = 0; i < centerIDs.length; i++)
-						centerIDs[i] = centers[i].getCenterID();
-				}
-
-				else {
-
-					for (int i = 0; i < centerIDs.length; i++) {
-
-						centerIDs[i] = centers[i].getCenterID();
-						if (centerIDs[i].equals(latestCenterResult.get().getCenterID()))
-							index = i;
-					}
+					centerIDs[i] = centers[i].getCenterID();
+					if (centerIDs[i].equals(dashboard.getCenter().getCenterID()))
+						index = i;
 				}
 
 				selectCenter = new Dropdown("Select center:	  ", centerIDs);
 				selectCenter.setCurrentItem(index);
-				selectedCenter = centers[index];
-
-				latestCategoryResult = Handler.getProxyServerMT().getLatestCategory(selectedArea.getGeonameID(), selectedCenter.getCenterID());
-				latestCenterResult = null;
-			}
-
-			else if (latestCenterResult == null) {
-
-				// Last category
-				if (categoriesResult != null && categoriesResult.ready() && latestCategoryResult != null && latestCategoryResult.ready()) {
 
-					Category[] categories = categoriesResult.get();
-					String[] categoriesName = new String[categories.length];
-					int index = 0;
+				// Categories, the latest one is selected
+				Category[] categories = dashboard.getCategories();
+				String[] categoriesName = new String[categories.length];
+				index = 0;
 
-					if (latestCategoryResult.get() == null) {
+				for (int i = 0; i < categoriesName.length; i++) {
 
-						index = 0;
-						for (int i = 0; i < categoriesName.length; i++)
-							categoriesName[i] = categories[i].getCategory();
-					}
-
-					else {
-
-						for (int i = 0; i < categoriesName.length; i++) {
-
-							categoriesName[i] = categories[i].getCategory();
-							if (categoriesName[i].equals(latestCategoryResult.get().getCategory()))
-								index = i;
-						}
-					}
-
-					selectCategory = new Dropdown("Select category: ", categoriesName);
-					selectCategory.setCurrentItem(index);
-					selectedCategory = categories[index];
-
-					parametersResult = Handler.getProxyServerMT().getParameters(selectedArea.getGeonameID(), selectedCenter.getCenterID(), selectedCategory.getCategory());
-					latestCategoryResult = null;
-					categoriesResult = null;
+					categoriesName[i] = categories[i].getCategory();
+					if (dashboard.getCategory() != null && categoriesName[i].equals(dashboard.getCategory().getCategory()))
+						index = i;
 				}
 
-				else if (categoriesResult == null && latestCategoryResult == null) {
-
-					// Parameters
-					if (parametersResult != null && parametersResult.ready()) {
-
-						parameters = parametersResult.get();
-						if (parameters != null && parameters.length != 0)
-							averageResult = Handler.getProxyServerMT().getParametersAverage(selectedArea.getGeonameID(), selectedCenter.getCenterID(), selectedCategory.getCategory());
-
-						else {
-
-							dataNotFound = true;
-							loadInitialData = false;
-							requestInitialData = true;
-						}
-
-						parametersResult = null;
-					}
-
-					else if (parametersResult == null) {
-
-						// Parameters average
-						if (averageResult != null && averageResult.ready()) {
-
-							average = averageResult.get();
-							setUpParametersData();
-							averageResult = null;
-						}
-
-						else if (averageResult == null) {
+				selectCategory = new Dropdown("Select category: ", categoriesName);
+				selectCategory.setCurrentItem(index);
 
-							loadInitialData = false;
-							requestInitialData = true;
-						}
-					}
-				}
+				setDashboard(dashboard);
 			}
+
+			loadInitialData = false;
+			requestInitialData = true;
 		}
 
 		loadingText.setOrigin(loadingText.getWidth() / 2.0f, loadingText.getHeight() / 2.0f);
@@ -490,57 +405,34 @@ public class ParameterInfo {
 
 		if (requestNewData) {
 
-			currentCenterResult = Handler.getProxyServerMT().getCenter(selectCenter.getList()[current_center_index]);
-			categoriesResult = Handler.getProxyServerMT().getCategories();
-			parametersResult = Handler.getProxyServerMT().getParameters(selectedArea.getGeonameID(), selectCenter.getList()[current_center_index], selectCategory.getList()[current_category_index]);
+			dashboardResult = Handler.getProxyServerMT().getAreaDashboard(selectedArea.getGeonameID(), selectCenter.getList()[current_center_index], selectCategory.getList()[current_category_index]);
 			requestNewData = false;
 		}
 
-		if (currentCenterResult != null && currentCenterResult.ready() && categoriesResult != null && categoriesResult.ready() && parametersResult != null && parametersResult.ready()) {
-
-			// Center
-			selectedCenter = currentCenterResult.get();
-
-			// Category
-			Category[] categories = categoriesResult.get();
-			selectedCategory = categories[current_category_index];
-
-			// Parameters
-			parameters = parametersResult.get();
-			if (parameters != null && parameters.length != 0) {
-
-				dataNotFound = false;
-				averageResult = Handler.getProxyServerMT().getParametersAverage(selectedArea.getGeonameID(), selectedCenter.getCenterID(), selectedCategory.getCategory());
-			}
+		if (dashboardResult != null && dashboardResult.ready()) {
 
-			else
-				dataNotFound = true;
-
-			currentCenterResult = null;
-			categoriesResult = null;
-			parametersResult = null;
+			setDashboard(dashboardResult.get());
+			dashboardResult = null;
+			loadNewData = false;
+			requestNewData = true;
 		}
+	}
 
-		else if (currentCenterResult == null && categoriesResult == null && parametersResult == null) {
-
-			if (dataNotFound) {
+	private void setDashboard(AreaDashboard dashboard) {
 
-				loadNewData = false;
-				requestNewData = true;
-				averageResult = null;
-				return;
-			}
+		selectedCenter = dashboard.getCenter();
+		selectedCategory = dashboard.getCategory();
+		parameters = dashboard.getParameters();
 
-			if (averageResult != null && averageResult.ready()) {
+		if (parameters != null && parameters.length != 0) {
 
-				// Parameters average
-				average = averageResult.get();
-				setUpParametersData();
-				loadNewData = false;
-				requestNewData = true;
-				averageResult = null;
-			}
+			dataNotFound = false;
+			average = dashboard.getAverage();
+			setUpParametersData();
 		}
+
+		else
+			dataNotFound = true;
 	}
 
 	private void setUpParametersData() {
@@ -600,17 +492,10 @@ public class ParameterInfo {
 	private Area selectedArea;
 	private Dropdown selectCenter;
 	private Dropdown selectCategory;
-	private Result<Center[]> associatedCentersResult;
-	private Result<Center> latestCenterResult;
-	private Result<Center> currentCenterResult;
-	private Center[] centers;
+	private Result<AreaDashboard> dashboardResult;
 	private Center selectedCenter;
-	private Result<Category[]> categoriesResult;
-	private Result<Category> latestCategoryResult;
 	private Category selectedCategory;
-	private Result<Double> averageResult;
 	private double average;
-	private Result<Parameter[]> parametersResult;
 	private Table table;
 	private Panel tablePanel = new Panel();
 	private Text tablePanelLabel = new Text("Recordings");
@@ -10,19 +10,28 @@ Dariia Sniezhko 753057 VA
 package client;
 
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.net.Socket;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 
 import climatemonitoring.core.Area;
+import climatemonitoring.core.AreaDashboard;
 import climatemonitoring.core.Category;
 import climatemonitoring.core.Center;
 import climatemonitoring.core.ConnectionLostException;
 import climatemonitoring.core.DatabaseRequestException;
 import climatemonitoring.core.Operator;
+import climatemonitoring.core.Page;
 import climatemonitoring.core.Parameter;
+import climatemonitoring.core.ParameterBucket;
+import climatemonitoring.core.ParameterStats;
 import climatemonitoring.core.RequestType;
+import climatemonitoring.core.network.Channel;
+import climatemonitoring.core.network.Protocol;
 
 
 /**
@@ -45,9 +54,7 @@ public class ProxyImpl implements Proxy{
 		
 		try {
 
-			s = new Socket(address, port);
-			out = new ObjectOutputStream(s.getOutputStream());
-			in = new ObjectInputStream(s.getInputStream());
+			m_channel = new Channel(address, port);
 
 			return true;
 		} catch (Exception e) {
@@ -63,14 +70,14 @@ public class ProxyImpl implements Proxy{
 	@Override
 	public void close() throws ConnectionLostException {
 
-		if(s != null && !s.isClosed()){
+		if(m_channel != null && !m_channel.isClosed()){
 
 			try {
 
-				out.writeObject(RequestType.DISCONNECT);
-				out.flush();
+				ObjectOutput out = m_channel.request(RequestType.DISCONNECT);
+				ObjectInput in = m_channel.send(out);
 				in.readObject();
-				s.close();
+				m_channel.close();
 				System.out.println("Connection closed");
 			} catch (IOException e) {
 				throw new ConnectionLostException();
@@ -87,11 +94,11 @@ public class ProxyImpl implements Proxy{
 	@Override
 	public void forceClose() {
 
-		if(s != null){
+		if(m_channel != null){
 
 			try {
-				s.close();
-				s = null;
+				m_channel.close();
+				m_channel = null;
 			} catch (IOException e) {
 
 				e.printStackTrace();
@@ -100,21 +107,34 @@ public class ProxyImpl implements Proxy{
 		}
 	}
 
+	/**
+	 * The latest version stamp of a kind of reference data sent by the server
+	 * @param kind One of the stamps defined by the Protocol class
+	 * @return The stamp, 0 when there is no connection
+	 */
+	public int getStamp(int kind) {
+
+		Channel channel = m_channel;
+		return channel != null ? channel.getStamp(kind) : 0;
+	}
+
 	/**
 	 * To start a transaction
 	 * 
 	 * @throws ConnectionLostException If the client loses connection during the operation
 	 * @throws DatabaseRequestException If the database fails to process the given request
 	 */
-	public synchronized void begin() throws ConnectionLostException, DatabaseRequestException {
+	public void begin() throws ConnectionLostException, DatabaseRequestException {
 
 		try {
 			
-			out.writeObject(RequestType.BEGIN);
+			ObjectOutput out = m_channel.request(RequestType.BEGIN);
+			ObjectInput in = m_channel.send(out);
 			boolean success = (boolean) in.readObject();
 
 			if(success == true){
 
+				m_transaction = true;
 				return;
 			}else{
 
@@ -134,13 +154,17 @@ public class ProxyImpl implements Proxy{
 	 * @throws ConnectionLostException If the client loses connection during the operation
 	 * @throws DatabaseRequestException If the database fails to process the given request
 	 */
-	public synchronized void end() throws ConnectionLostException, DatabaseRequestException {
+	public void end() throws ConnectionLostException, DatabaseRequestException {
 
 		try {
 			
-			out.writeObject(RequestType.END);
+			ObjectOutput out = m_channel.request(RequestType.END);
+			ObjectInput in = m_channel.send(out);
 			boolean success = (boolean) in.readObject();
 
+			// The server ends the transaction even if the commit fails
+			m_transaction = false;
+
 			if(success == true){
 
 				return;
@@ -156,6 +180,37 @@ public class ProxyImpl implements Proxy{
 		}
 	}
 	
+	/**
+	 * To abandon a transaction, undoing its changes
+	 * 
+	 * @throws ConnectionLostException If the client loses connection during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request
+	 */
+	public void rollback() throws ConnectionLostException, DatabaseRequestException {
+
+		try {
+
+			ObjectOutput out = m_channel.request(RequestType.ROLLBACK);
+			ObjectInput in = m_channel.send(out);
+			boolean success = (boolean) in.readObject();
+
+			m_transaction = false;
+
+			if(success == true){
+
+				return;
+			}else{
+
+				DatabaseRequestException e = (DatabaseRequestException) in.readObject();
+				throw e;
+			}
+		} catch (IOException e) {
+			throw new ConnectionLostException();
+		} catch (ClassNotFoundException e) {
+			e.printStackTrace();
+		}
+	}
+
 	/**
 	 * Returns in alphabetical order an array of areas which have a name that
 	 * contains the input string.
@@ -176,15 +231,16 @@ public class ProxyImpl implements Proxy{
 	 * @throws DatabaseRequestException If the database fails to process the given request
 	 */
 	@Override
-	public synchronized Area[] searchAreasByName(String str) throws ConnectionLostException, DatabaseRequestException {
+	public Area[] searchAreasByName(String str) throws ConnectionLostException, DatabaseRequestException {
 
 		Area[] areafoundbyname = null;
 
 		try {
 			
-			out.writeObject(RequestType.SEARCH_AREAS_BY_NAME);
+			ObjectOutput out = m_channel.request(RequestType.SEARCH_AREAS_BY_NAME);
 			out.writeObject(str);
 			
+			ObjectInput in = m_channel.send(out);
 			boolean success = (boolean) in.readObject();
 
 			if(success == true){
@@ -213,15 +269,16 @@ public class ProxyImpl implements Proxy{
 	 * @throws DatabaseRequestException If the database fails to process the given request
 	 */
 	@Override
-	public synchronized Area[] searchAreasByCountry(String str) throws ConnectionLostException, DatabaseRequestException {
+	public Area[] searchAreasByCountry(String str) throws ConnectionLostException, DatabaseRequestException {
 
 		Area[] areafoundbycountry = null;
 
 		try {
 			
-			out.writeObject(RequestType.SEARCH_AREAS_BY_COUNTRY);
+			ObjectOutput out = m_channel.request(RequestType.SEARCH_AREAS_BY_COUNTRY);
 			out.writeObject(str);
 	
+			ObjectInput in = m_channel.send(out);
 			boolean success = (boolean) in.readObject();
 
 			if(success == true){
@@ -241,9 +298,9 @@ public class ProxyImpl implements Proxy{
 	}
 	
 	/**
-	 * Returns in alphabetical order an array of areas which can be
-	 * found around the specified coordinates. The around is about 0.5
-	 * degrees for both latitude and longitude
+	 * Returns an array of areas which can be found around the specified
+	 * coordinates, from the nearest. The around is about 0.5 degrees for
+	 * both latitude and longitude
 	 * 
 	 * @param latitude Value between -90 and 90
 	 * @param longitude Value between -180 and 180
@@ -252,16 +309,17 @@ public class ProxyImpl implements Proxy{
 	 * @throws DatabaseRequestException If the database fails to process the given request
 	 */
 	@Override
-	public synchronized Area[] searchAreasByCoords(double latitude, double longitude) throws ConnectionLostException, DatabaseRequestException {
+	public Area[] searchAreasByCoords(double latitude, double longitude) throws ConnectionLostException, DatabaseRequestException {
 
 		Area[] areafoundbycoords = null;
 
 		try {
 			
-			out.writeObject(RequestType.SEARCH_AREAS_BY_COORDS);
+			ObjectOutput out = m_channel.request(RequestType.SEARCH_AREAS_BY_COORDS);
 			out.writeObject(latitude);
 			out.writeObject(longitude);
 
+			ObjectInput in = m_channel.send(out);
 			boolean success = (boolean) in.readObject();
 
 			if(success == true){
@@ -280,6 +338,128 @@ public class ProxyImpl implements Proxy{
 		return areafoundbycoords;
 	}
 
+	/**
+	 * Returns the areas inside a box, from the nearest to its center
+	 * 
+	 * @param min_latitude The southern latitude
+	 * @param max_latitude The northern latitude
+	 * @param west The western longitude, if greater than the eastern one the box crosses the antimeridian
+	 * @param east The eastern longitude
+	 * @return The result of the search as an array of areas
+	 * @throws ConnectionLostException If the client loses connection during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request
+	 */
+	public Area[] searchAreasInBox(double min_latitude, double max_latitude, double west, double east) throws ConnectionLostException, DatabaseRequestException {
+
+		Area[] searchAreasInBox = null;
+
+		try {
+
+			ObjectOutput out = m_channel.request(RequestType.SEARCH_AREAS_IN_BOX);
+			out.writeObject(min_latitude);
+			out.writeObject(max_latitude);
+			out.writeObject(west);
+			out.writeObject(east);
+
+			ObjectInput in = m_channel.send(out);
+			boolean success = (boolean) in.readObject();
+
+			if(success == true){
+				searchAreasInBox = (Area[]) in.readObject();
+			}else{
+				DatabaseRequestException e = (DatabaseRequestException) in.readObject();
+				throw e;
+			}
+			
+		} catch (IOException e) {
+			throw new ConnectionLostException();
+		} catch (ClassNotFoundException e){
+			e.printStackTrace();
+		}
+
+		return searchAreasInBox;
+	}
+
+	/**
+	 * Returns the areas within a great-circle distance from a point, from the nearest
+	 * 
+	 * @param latitude Value between -90 and 90
+	 * @param longitude Value between -180 and 180
+	 * @param radius The distance in kilometers
+	 * @return The result of the search as an array of areas
+	 * @throws ConnectionLostException If the client loses connection during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request
+	 */
+	public Area[] searchAreasInRadius(double latitude, double longitude, double radius) throws ConnectionLostException, DatabaseRequestException {
+
+		Area[] searchAreasInRadius = null;
+
+		try {
+
+			ObjectOutput out = m_channel.request(RequestType.SEARCH_AREAS_IN_RADIUS);
+			out.writeObject(latitude);
+			out.writeObject(longitude);
+			out.writeObject(radius);
+
+			ObjectInput in = m_channel.send(out);
+			boolean success = (boolean) in.readObject();
+
+			if(success == true){
+				searchAreasInRadius = (Area[]) in.readObject();
+			}else{
+				DatabaseRequestException e = (DatabaseRequestException) in.readObject();
+				throw e;
+			}
+			
+		} catch (IOException e) {
+			throw new ConnectionLostException();
+		} catch (ClassNotFoundException e){
+			e.printStackTrace();
+		}
+
+		return searchAreasInRadius;
+	}
+
+	/**
+	 * Returns the nearest areas to a point, from the nearest
+	 * 
+	 * @param latitude Value between -90 and 90
+	 * @param longitude Value between -180 and 180
+	 * @param count The number of areas
+	 * @return The result of the search as an array of areas
+	 * @throws ConnectionLostException If the client loses connection during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request
+	 */
+	public Area[] searchNearestAreas(double latitude, double longitude, int count) throws ConnectionLostException, DatabaseRequestException {
+
+		Area[] searchNearestAreas = null;
+
+		try {
+
+			ObjectOutput out = m_channel.request(RequestType.SEARCH_NEAREST_AREAS);
+			out.writeObject(latitude);
+			out.writeObject(longitude);
+			out.writeObject(count);
+
+			ObjectInput in = m_channel.send(out);
+			boolean success = (boolean) in.readObject();
+
+			if(success == true){
+				searchNearestAreas = (Area[]) in.readObject();
+			}else{
+				DatabaseRequestException e = (DatabaseRequestException) in.readObject();
+				throw e;
+			}
+			
+		} catch (IOException e) {
+			throw new ConnectionLostException();
+		} catch (ClassNotFoundException e){
+			e.printStackTrace();
+		}
+
+		return searchNearestAreas;
+	}
+
 	/**
 	 * Returns in alphabetical order an array of centers which have
 	 * a name that contains the input string
@@ -299,15 +479,16 @@ public class ProxyImpl implements Proxy{
 	 * @throws ConnectionLostException If the client loses connection during the operation
 	 * @throws DatabaseRequestException If the database fails to process the given request
 	 */
-	public synchronized Center[] searchCentersByName(String str) throws ConnectionLostException, DatabaseRequestException {
+	public Center[] searchCentersByName(String str) throws ConnectionLostException, DatabaseRequestException {
 
 		Center[] searchCentersByName = null;
 
 		try {
 
-			out.writeObject(RequestType.SEARCH_CENTERS_BY_NAME);
+			ObjectOutput out = m_channel.request(RequestType.SEARCH_CENTERS_BY_NAME);
 			out.writeObject(str);
 
+			ObjectInput in = m_channel.send(out);
 			boolean success = (boolean) in.readObject();
 
 			if(success == true){
@@ -326,6 +507,172 @@ public class ProxyImpl implements Proxy{
 		return searchCentersByName;
 	}
 
+	/**
+	 * Returns one page of the areas which have a name that contains the input string
+	 * 
+	 * @param str The input string the search is based on
+	 * @param page_size The maximum number of areas in the page
+	 * @param cursor The cursor returned with the previous page, null for the first page
+	 * @return A page of the results of the search
+	 * @throws ConnectionLostException If the client loses connection during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request or the cursor is not valid
+	 */
+	@SuppressWarnings("unchecked")
+	public Page<Area> searchAreasByName(String str, int page_size, String cursor) throws ConnectionLostException, DatabaseRequestException {
+
+		Page<Area> searchAreasByNamePage = null;
+
+		try {
+
+			ObjectOutput out = m_channel.request(RequestType.SEARCH_AREAS_BY_NAME_PAGED);
+			out.writeObject(str);
+			out.writeObject(page_size);
+			out.writeObject(cursor);
+
+			ObjectInput in = m_channel.send(out);
+			boolean success = (boolean) in.readObject();
+
+			if(success == true){
+				searchAreasByNamePage = (Page<Area>) in.readObject();
+			}else{
+				DatabaseRequestException e = (DatabaseRequestException) in.readObject();
+				throw e;
+			}
+			
+		} catch (IOException e) {
+			throw new ConnectionLostException();
+		} catch (ClassNotFoundException e){
+			e.printStackTrace();
+		}
+
+		return searchAreasByNamePage;
+	}
+
+	/**
+	 * Returns one page of the areas which belong to the country whose name contains the input string
+	 * 
+	 * @param str The input string the search is based on
+	 * @param page_size The maximum number of areas in the page
+	 * @param cursor The cursor returned with the previous page, null for the first page
+	 * @return A page of the results of the search
+	 * @throws ConnectionLostException If the client loses connection during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request or the cursor is not valid
+	 */
+	@SuppressWarnings("unchecked")
+	public Page<Area> searchAreasByCountry(String str, int page_size, String cursor) throws ConnectionLostException, DatabaseRequestException {
+
+		Page<Area> searchAreasByCountryPage = null;
+
+		try {
+
+			ObjectOutput out = m_channel.request(RequestType.SEARCH_AREAS_BY_COUNTRY_PAGED);
+			out.writeObject(str);
+			out.writeObject(page_size);
+			out.writeObject(cursor);
+
+			ObjectInput in = m_channel.send(out);
+			boolean success = (boolean) in.readObject();
+
+			if(success == true){
+				searchAreasByCountryPage = (Page<Area>) in.readObject();
+			}else{
+				DatabaseRequestException e = (DatabaseRequestException) in.readObject();
+				throw e;
+			}
+			
+		} catch (IOException e) {
+			throw new ConnectionLostException();
+		} catch (ClassNotFoundException e){
+			e.printStackTrace();
+		}
+
+		return searchAreasByCountryPage;
+	}
+
+	/**
+	 * Returns one page of the areas which can be found around the specified coordinates
+	 * 
+	 * @param latitude Value between -90 and 90
+	 * @param longitude Value between -180 and 180
+	 * @param page_size The maximum number of areas in the page
+	 * @param cursor The cursor returned with the previous page, null for the first page
+	 * @return A page of the results of the search
+	 * @throws ConnectionLostException If the client loses connection during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request or the cursor is not valid
+	 */
+	@SuppressWarnings("unchecked")
+	public Page<Area> searchAreasByCoords(double latitude, double longitude, int page_size, String cursor) throws ConnectionLostException, DatabaseRequestException {
+
+		Page<Area> searchAreasByCoordsPage = null;
+
+		try {
+
+			ObjectOutput out = m_channel.request(RequestType.SEARCH_AREAS_BY_COORDS_PAGED);
+			out.writeObject(latitude);
+			out.writeObject(longitude);
+			out.writeObject(page_size);
+			out.writeObject(cursor);
+
+			ObjectInput in = m_channel.send(out);
+			boolean success = (boolean) in.readObject();
+
+			if(success == true){
+				searchAreasByCoordsPage = (Page<Area>) in.readObject();
+			}else{
+				DatabaseRequestException e = (DatabaseRequestException) in.readObject();
+				throw e;
+			}
+			
+		} catch (IOException e) {
+			throw new ConnectionLostException();
+		} catch (ClassNotFoundException e){
+			e.printStackTrace();
+		}
+
+		return searchAreasByCoordsPage;
+	}
+
+	/**
+	 * Returns one page of the centers which have a name that contains the input string
+	 * 
+	 * @param str The input string the search is based on
+	 * @param page_size The maximum number of centers in the page
+	 * @param cursor The cursor returned with the previous page, null for the first page
+	 * @return A page of the results of the search
+	 * @throws ConnectionLostException If the client loses connection during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request or the cursor is not valid
+	 */
+	@SuppressWarnings("unchecked")
+	public Page<Center> searchCentersByName(String str, int page_size, String cursor) throws ConnectionLostException, DatabaseRequestException {
+
+		Page<Center> searchCentersByNamePage = null;
+
+		try {
+
+			ObjectOutput out = m_channel.request(RequestType.SEARCH_CENTERS_BY_NAME_PAGED);
+			out.writeObject(str);
+			out.writeObject(page_size);
+			out.writeObject(cursor);
+
+			ObjectInput in = m_channel.send(out);
+			boolean success = (boolean) in.readObject();
+
+			if(success == true){
+				searchCentersByNamePage = (Page<Center>) in.readObject();
+			}else{
+				DatabaseRequestException e = (DatabaseRequestException) in.readObject();
+				throw e;
+			}
+			
+		} catch (IOException e) {
+			throw new ConnectionLostException();
+		} catch (ClassNotFoundException e){
+			e.printStackTrace();
+		}
+
+		return searchCentersByNamePage;
+	}
+
 	/**
 	 * To get an area by its geoname id
 	 * 
@@ -334,15 +681,16 @@ public class ProxyImpl implements Proxy{
 	 * @throws ConnectionLostException If the client loses connection during the operation
 	 * @throws DatabaseRequestException If the database fails to process the given request
 	 */
-	public synchronized Area getArea (int geoname_id) throws ConnectionLostException, DatabaseRequestException {
+	public Area getArea (int geoname_id) throws ConnectionLostException, DatabaseRequestException {
 
 		Area getarea = null;
 
 		try {
 
-			out.writeObject(RequestType.GET_AREA);
+			ObjectOutput out = m_channel.request(RequestType.GET_AREA);
 			out.writeObject(geoname_id);
 
+			ObjectInput in = m_channel.send(out);
 			boolean success = (boolean) in.readObject();
 
 			if(success == true){
@@ -369,15 +717,16 @@ public class ProxyImpl implements Proxy{
 	 * @throws ConnectionLostException If the client loses connection during the operation
 	 * @throws DatabaseRequestException If the database fails to process the given request
 	 */
-	public synchronized Area[] getMonitoredAreas (String center_id) throws ConnectionLostException, DatabaseRequestException {
+	public Area[] getMonitoredAreas (String center_id) throws ConnectionLostException, DatabaseRequestException {
 
 		Area[] monitoredareas = null;
 
 		try {
 
-			out.writeObject(RequestType.GET_MONITORED_AREAS);
+			ObjectOutput out = m_channel.request(RequestType.GET_MONITORED_AREAS);
 			out.writeObject(center_id);
 
+			ObjectInput in = m_channel.send(out);
 			boolean success = (boolean) in.readObject();
 
 			if(success == true){
@@ -405,15 +754,16 @@ public class ProxyImpl implements Proxy{
 	 * @throws ConnectionLostException If the client loses connection during the operation
 	 * @throws DatabaseRequestException If the database fails to process the given request
 	 */
-	public synchronized Center getCenter (String center_id) throws ConnectionLostException, DatabaseRequestException {
+	public Center getCenter (String center_id) throws ConnectionLostException, DatabaseRequestException {
 
 		Center getcenter = null;
 
 		try {
 
-			out.writeObject(RequestType.GET_CENTER);
+			ObjectOutput out = m_channel.request(RequestType.GET_CENTER);
 			out.writeObject(center_id);
 
+			ObjectInput in = m_channel.send(out);
 			boolean success = (boolean) in.readObject();
 
 			if(success == true){
@@ -440,13 +790,14 @@ public class ProxyImpl implements Proxy{
 	 * @throws DatabaseRequestException If the database fails to process the given request
 	 */
 	@Override
-	public synchronized Center[] getCenters() throws ConnectionLostException, DatabaseRequestException {
+	public Center[] getCenters() throws ConnectionLostException, DatabaseRequestException {
 		
 		Center[] getcenters = null;
 
 		try {
-			out.writeObject(RequestType.GET_CENTERS);
+			ObjectOutput out = m_channel.request(RequestType.GET_CENTERS);
 	
+			ObjectInput in = m_channel.send(out);
 			boolean success = (boolean) in.readObject();
 
 			if(success == true){
@@ -474,17 +825,18 @@ public class ProxyImpl implements Proxy{
 	 * @throws ConnectionLostException If the client loses connection during the operation
 	 * @throws DatabaseRequestException If the database fails to process the given request
 	 */
-	public synchronized Center getCenterByAddress(int city, String street, int house_number) throws ConnectionLostException, DatabaseRequestException {
+	public Center getCenterByAddress(int city, String street, int house_number) throws ConnectionLostException, DatabaseRequestException {
 
 		Center center = null;
 	
 		try {
 
-			out.writeObject(RequestType.GET_CENTER_BY_ADDRESS);
+			ObjectOutput out = m_channel.request(RequestType.GET_CENTER_BY_ADDRESS);
 			out.writeObject(city);
 			out.writeObject(street);
 			out.writeObject(house_number);
 	
+			ObjectInput in = m_channel.send(out);
 			boolean success = (boolean) in.readObject();
 	
 			if (success == true) {
@@ -515,15 +867,16 @@ public class ProxyImpl implements Proxy{
 	 * @throws DatabaseRequestException If the database fails to process the given request
 	 */
 	@Override
-	public synchronized Center getLatestCenter(int geoname_id) throws ConnectionLostException, DatabaseRequestException {
+	public Center getLatestCenter(int geoname_id) throws ConnectionLostException, DatabaseRequestException {
 		
 		Center getlatestcenter = null;
 
 		try {
 
-			out.writeObject(RequestType.GET_LATEST_CENTER);
+			ObjectOutput out = m_channel.request(RequestType.GET_LATEST_CENTER);
 			out.writeObject(geoname_id);
 
+			ObjectInput in = m_channel.send(out);
 			boolean success = (boolean) in.readObject();
 
 			if(success == true){
@@ -550,15 +903,16 @@ public class ProxyImpl implements Proxy{
 	 * @throws ConnectionLostException If the client loses connection during the operation
 	 * @throws DatabaseRequestException If the database fails to process the given request
 	 */
-	public synchronized Center[] getAssociatedCenters(int geoname_id) throws ConnectionLostException, DatabaseRequestException {
+	public Center[] getAssociatedCenters(int geoname_id) throws ConnectionLostException, DatabaseRequestException {
 
 		Center[] center = null;
 	
 		try {
 
-			out.writeObject(RequestType.GET_ASSOCIATED_CENTERS);
+			ObjectOutput out = m_channel.request(RequestType.GET_ASSOCIATED_CENTERS);
 			out.writeObject(geoname_id);
 	
+			ObjectInput in = m_channel.send(out);
 			boolean success = (boolean) in.readObject();
 	
 			if (success == true) {
@@ -588,13 +942,14 @@ public class ProxyImpl implements Proxy{
 	 * @throws ConnectionLostException If the client loses connection during the operation
 	 * @throws DatabaseRequestException If the database fails to process the given request
 	 */
-	public synchronized Operator getOperator(String user_id) throws ConnectionLostException, DatabaseRequestException {
+	public Operator getOperator(String user_id) throws ConnectionLostException, DatabaseRequestException {
 		Operator operator = null;
 	
 		try {
-			out.writeObject(RequestType.GET_OPERATOR);
+			ObjectOutput out = m_channel.request(RequestType.GET_OPERATOR);
 			out.writeObject(user_id);
 	
+			ObjectInput in = m_channel.send(out);
 			boolean success = (boolean) in.readObject();
 	
 			if (success == true) {
@@ -620,15 +975,16 @@ public class ProxyImpl implements Proxy{
 	 * @throws ConnectionLostException If the client loses connection during the operation
 	 * @throws DatabaseRequestException If the database fails to process the given request
 	 */
-	public synchronized Operator getOperatorBySSID(String ssid) throws ConnectionLostException, DatabaseRequestException {
+	public Operator getOperatorBySSID(String ssid) throws ConnectionLostException, DatabaseRequestException {
 
 		Operator operator = null;
 	
 		try {
 
-			out.writeObject(RequestType.GET_OPERATOR_BY_SSID);
+			ObjectOutput out = m_channel.request(RequestType.GET_OPERATOR_BY_SSID);
 			out.writeObject(ssid);
 	
+			ObjectInput in = m_channel.send(out);
 			boolean success = (boolean) in.readObject();
 	
 			if (success == true) {
@@ -651,15 +1007,16 @@ public class ProxyImpl implements Proxy{
 	}
 
 	
-	public synchronized Operator getOperatorByEmail(String email) throws ConnectionLostException, DatabaseRequestException {
+	public Operator getOperatorByEmail(String email) throws ConnectionLostException, DatabaseRequestException {
 
 		Operator operator = null;
 	
 		try {
 
-			out.writeObject(RequestType.GET_OPERATOR_BY_EMAIL);
+			ObjectOutput out = m_channel.request(RequestType.GET_OPERATOR_BY_EMAIL);
 			out.writeObject(email);
 	
+			ObjectInput in = m_channel.send(out);
 			boolean success = (boolean) in.readObject();
 	
 			if (success == true) {
@@ -693,17 +1050,18 @@ public class ProxyImpl implements Proxy{
 	 * @throws DatabaseRequestException If the database fails to process the given request
 	 */
 	@Override
-	public synchronized Parameter[] getParameters(int geoname_id, String center_id, String category) throws ConnectionLostException, DatabaseRequestException {
+	public Parameter[] getParameters(int geoname_id, String center_id, String category) throws ConnectionLostException, DatabaseRequestException {
 
 		Parameter[] getparameters = null;
 
 		try {
 
-			out.writeObject(RequestType.GET_PARAMETERS);
+			ObjectOutput out = m_channel.request(RequestType.GET_PARAMETERS);
 			out.writeObject(geoname_id);
 			out.writeObject(center_id);
 			out.writeObject(category);
 
+			ObjectInput in = m_channel.send(out);
 			boolean success = (boolean) in.readObject();
 
 			if(success == true){
@@ -734,17 +1092,18 @@ public class ProxyImpl implements Proxy{
 	 * @throws DatabaseRequestException If the database fails to process the given request
 	 */
 	@Override
-	public synchronized double getParametersAverage(int geoname_id, String center_id, String category) throws ConnectionLostException, DatabaseRequestException {
+	public double getParametersAverage(int geoname_id, String center_id, String category) throws ConnectionLostException, DatabaseRequestException {
 
 		double getparametersaverage = 0.0;
 
 		try {
 
-			out.writeObject(RequestType.GET_PARAMETERS_AVERAGE);
+			ObjectOutput out = m_channel.request(RequestType.GET_PARAMETERS_AVERAGE);
 			out.writeObject(geoname_id);
 			out.writeObject(center_id);
 			out.writeObject(category);
 
+			ObjectInput in = m_channel.send(out);
 			boolean success = (boolean) in.readObject();
 
 			if(success == true){
@@ -763,6 +1122,225 @@ public class ProxyImpl implements Proxy{
 		return getparametersaverage;
 	}
 
+	/**
+	 * To get the statistics of the recordings of a specific area,
+	 * of a specific center about a specific category
+	 * 
+	 * @param geoname_id The area's ID
+	 * @param center_id The center's ID
+	 * @param category The parameter's category
+	 * @return The count, the sum, the lowest, the highest and the latest score and the score histogram
+	 * @throws ConnectionLostException If the client loses connection during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request
+	 */
+	@Override
+	public ParameterStats getParameterStats(int geoname_id, String center_id, String category) throws ConnectionLostException, DatabaseRequestException {
+
+		ParameterStats getparameterstats = null;
+
+		try {
+
+			ObjectOutput out = m_channel.request(RequestType.GET_PARAMETER_STATS);
+			out.writeObject(geoname_id);
+			out.writeObject(center_id);
+			out.writeObject(category);
+
+			ObjectInput in = m_channel.send(out);
+			boolean success = (boolean) in.readObject();
+
+			if(success == true){
+				getparameterstats = (ParameterStats) in.readObject();
+			}else{
+				DatabaseRequestException e = (DatabaseRequestException) in.readObject();
+				throw e;
+			}
+			
+		} catch (IOException e) {
+			throw new ConnectionLostException();
+		} catch (ClassNotFoundException e){
+			e.printStackTrace();
+		}
+
+		return getparameterstats;
+	}
+
+	/**
+	 * Returns the recordings of a specified area by the desired center about a specific category,
+	 * from the oldest, recorded within a time range
+	 * 
+	 * @param geoname_id The area's ID
+	 * @param center_id The center's ID
+	 * @param category The parameter's category
+	 * @param from The beginning of the range, included (null for no beginning)
+	 * @param to The end of the range, excluded (null for no end)
+	 * @return The result of the search as an array of parameters
+	 * @throws ConnectionLostException If the client loses connection during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request
+	 */
+	@Override
+	public Parameter[] getParametersInRange(int geoname_id, String center_id, String category, LocalDateTime from, LocalDateTime to) throws ConnectionLostException, DatabaseRequestException {
+
+		Parameter[] getparametersinrange = null;
+
+		try {
+
+			ObjectOutput out = m_channel.request(RequestType.GET_PARAMETERS_IN_RANGE);
+			out.writeObject(geoname_id);
+			out.writeObject(center_id);
+			out.writeObject(category);
+			out.writeObject(from);
+			out.writeObject(to);
+
+			ObjectInput in = m_channel.send(out);
+			boolean success = (boolean) in.readObject();
+
+			if(success == true){
+				getparametersinrange = (Parameter[]) in.readObject();
+			}else{
+				DatabaseRequestException e = (DatabaseRequestException) in.readObject();
+				throw e;
+			}
+			
+		} catch (IOException e) {
+			throw new ConnectionLostException();
+		} catch (ClassNotFoundException e){
+			e.printStackTrace();
+		}
+
+		return getparametersinrange;
+	}
+
+	/**
+	 * Returns the summaries (count, average, lowest and highest score) of the recordings
+	 * of a specified area by the desired center, one for every hour, day or month with
+	 * recordings, ordered by category and by time. The range is rounded to whole buckets
+	 * 
+	 * @param geoname_id The area's ID
+	 * @param center_id The center's ID
+	 * @param category The parameter's category, or null for every category
+	 * @param size The size of the buckets: ParameterBucket.HOUR, DAY or MONTH
+	 * @param from The beginning of the range, its bucket included (null for no beginning)
+	 * @param to The end of the range, excluded (null for no end)
+	 * @return The buckets
+	 * @throws ConnectionLostException If the client loses connection during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request
+	 */
+	@Override
+	public ParameterBucket[] getParameterTrend(int geoname_id, String center_id, String category, String size, LocalDateTime from, LocalDateTime to) throws ConnectionLostException, DatabaseRequestException {
+
+		ParameterBucket[] getparametertrend = null;
+
+		try {
+
+			ObjectOutput out = m_channel.request(RequestType.GET_PARAMETER_TREND);
+			out.writeObject(geoname_id);
+			out.writeObject(center_id);
+			out.writeObject(category);
+			out.writeObject(size);
+			out.writeObject(from);
+			out.writeObject(to);
+
+			ObjectInput in = m_channel.send(out);
+			boolean success = (boolean) in.readObject();
+
+			if(success == true){
+				getparametertrend = (ParameterBucket[]) in.readObject();
+			}else{
+				DatabaseRequestException e = (DatabaseRequestException) in.readObject();
+				throw e;
+			}
+			
+		} catch (IOException e) {
+			throw new ConnectionLostException();
+		} catch (ClassNotFoundException e){
+			e.printStackTrace();
+		}
+
+		return getparametertrend;
+	}
+
+	/**
+	 * To get everything needed to show the parameters of an area in a single request
+	 * 
+	 * @param geoname_id The area's ID
+	 * @param center_id The center's ID, or null for the center with the most recent recording
+	 * @param category The parameter's category, or null for the category with the most recent recording
+	 * @return The area dashboard
+	 * @throws ConnectionLostException If the client loses connection during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request
+	 */
+	@Override
+	public AreaDashboard getAreaDashboard(int geoname_id, String center_id, String category) throws ConnectionLostException, DatabaseRequestException {
+
+		AreaDashboard getareadashboard = null;
+
+		try {
+
+			ObjectOutput out = m_channel.request(RequestType.GET_AREA_DASHBOARD);
+			out.writeObject(geoname_id);
+			out.writeObject(center_id);
+			out.writeObject(category);
+
+			ObjectInput in = m_channel.send(out);
+			boolean success = (boolean) in.readObject();
+
+			if(success == true){
+				getareadashboard = (AreaDashboard) in.readObject();
+			}else{
+				DatabaseRequestException e = (DatabaseRequestException) in.readObject();
+				throw e;
+			}
+			
+		} catch (IOException e) {
+			throw new ConnectionLostException();
+		} catch (ClassNotFoundException e){
+			e.printStackTrace();
+		}
+
+		return getareadashboard;
+	}
+
+	/**
+	 * To check in a single request whether the user id, the email and the SSID of an operator are already taken
+	 * 
+	 * @param user_id The operator's user id
+	 * @param email The operator's email
+	 * @param ssid The operator's SSID
+	 * @return The user ids of the operators that already use the user id, the email and the SSID, in this order (null where the value is free)
+	 * @throws ConnectionLostException If the client loses connection during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request
+	 */
+	@Override
+	public String[] validateRegistration(String user_id, String email, String ssid) throws ConnectionLostException, DatabaseRequestException {
+
+		String[] validateregistration = null;
+
+		try {
+
+			ObjectOutput out = m_channel.request(RequestType.VALIDATE_REGISTRATION);
+			out.writeObject(user_id);
+			out.writeObject(email);
+			out.writeObject(ssid);
+
+			ObjectInput in = m_channel.send(out);
+			boolean success = (boolean) in.readObject();
+
+			if(success == true){
+				validateregistration = (String[]) in.readObject();
+			}else{
+				DatabaseRequestException e = (DatabaseRequestException) in.readObject();
+				throw e;
+			}
+			
+		} catch (IOException e) {
+			throw new ConnectionLostException();
+		} catch (ClassNotFoundException e){
+			e.printStackTrace();
+		}
+
+		return validateregistration;
+	}
+
 	/**
 	 * Get all the categories and their explanation
 	 * 
@@ -771,13 +1349,14 @@ public class ProxyImpl implements Proxy{
 	 * @throws DatabaseRequestException If the database fails to process the given request
 	 */
 	@Override
-	public synchronized Category[] getCategories() throws ConnectionLostException, DatabaseRequestException {
+	public Category[] getCategories() throws ConnectionLostException, DatabaseRequestException {
 
 		Category[] getcategories = null;
 
 		try {
-			out.writeObject(RequestType.GET_CATEGORIES);
+			ObjectOutput out = m_channel.request(RequestType.GET_CATEGORIES);
 	
+			ObjectInput in = m_channel.send(out);
 			boolean success = (boolean) in.readObject();
 
 			if(success == true){
@@ -805,16 +1384,17 @@ public class ProxyImpl implements Proxy{
 	 * @throws DatabaseRequestException If the database fails to process the given request
 	 */
 	@Override
-	public synchronized Category getLatestCategory(int geoname_id, String center_id) throws ConnectionLostException, DatabaseRequestException {
+	public Category getLatestCategory(int geoname_id, String center_id) throws ConnectionLostException, DatabaseRequestException {
 		
 		Category getlatestcategory = null;
 
 		try {
 
-			out.writeObject(RequestType.GET_LATEST_CATEGORY);
+			ObjectOutput out = m_channel.request(RequestType.GET_LATEST_CATEGORY);
 			out.writeObject(geoname_id);
 			out.writeObject(center_id);
 
+			ObjectInput in = m_channel.send(out);
 			boolean success = (boolean) in.readObject();
 
 			if(success == true){
@@ -842,13 +1422,14 @@ public class ProxyImpl implements Proxy{
 	 * @throws DatabaseRequestException If the database fails to process the given request
 	 */
 	@Override
-	public synchronized boolean addArea(Area area) throws ConnectionLostException, DatabaseRequestException {
+	public boolean addArea(Area area) throws ConnectionLostException, DatabaseRequestException {
 
 		try {
 			
-			out.writeObject(RequestType.ADD_AREA);
+			ObjectOutput out = m_channel.request(RequestType.ADD_AREA);
 			out.writeObject(area);
 
+			ObjectInput in = m_channel.send(out);
 			boolean success = (boolean) in.readObject();
 
 			if(success == true){
@@ -876,12 +1457,13 @@ public class ProxyImpl implements Proxy{
 	 * @throws DatabaseRequestException If the database fails to process the given request
 	 */
 	@Override
-	public synchronized boolean addCenter(Center center) throws ConnectionLostException, DatabaseRequestException {
+	public boolean addCenter(Center center) throws ConnectionLostException, DatabaseRequestException {
 
 		try {
-			out.writeObject(RequestType.ADD_CENTER);
+			ObjectOutput out = m_channel.request(RequestType.ADD_CENTER);
 			out.writeObject(center);
 
+			ObjectInput in = m_channel.send(out);
 			boolean success = (boolean) in.readObject();
 
 			if(success == true){
@@ -909,12 +1491,13 @@ public class ProxyImpl implements Proxy{
 	 * @throws DatabaseRequestException If the database fails to process the given request
 	 */
 	@Override
-	public synchronized boolean addOperator(Operator operator) throws ConnectionLostException, DatabaseRequestException {
+	public boolean addOperator(Operator operator) throws ConnectionLostException, DatabaseRequestException {
 
 		try {
-			out.writeObject(RequestType.ADD_OPERATOR);
+			ObjectOutput out = m_channel.request(RequestType.ADD_OPERATOR);
 			out.writeObject(operator);
 			
+			ObjectInput in = m_channel.send(out);
 			boolean success = (boolean) in.readObject();
 			
 			if(success == true){
@@ -942,12 +1525,13 @@ public class ProxyImpl implements Proxy{
 	 * @throws DatabaseRequestException If the database fails to process the given request
 	 */
 	@Override
-	public synchronized boolean addParameter(Parameter parameter) throws ConnectionLostException, DatabaseRequestException {
+	public boolean addParameter(Parameter parameter) throws ConnectionLostException, DatabaseRequestException {
 
 		try {
-			out.writeObject(RequestType.ADD_PARAMETER);
+			ObjectOutput out = m_channel.request(RequestType.ADD_PARAMETER);
 			out.writeObject(parameter);
 	
+			ObjectInput in = m_channel.send(out);
 			boolean success = (boolean) in.readObject();
 			
 			if(success == true){
@@ -965,6 +1549,158 @@ public class ProxyImpl implements Proxy{
 
 		return false;
 	}
+
+	/**
+	 * Adds many parameters to the database, for example the recordings of a station
+	 * after a connectivity gap. The parameters that are not valid are reported and
+	 * skipped, the others are added together in one transaction. A batch too large
+	 * for a single request is sent in several requests inside a transaction, which is
+	 * rolled back if one of them fails, so the batch is still added as a whole.
+	 * Inside a transaction started by the caller the requests join it, and the caller
+	 * decides whether to end it or roll it back
+	 * 
+	 * @param parameters The parameters that need to be added to the database
+	 * @return The error message of every parameter, in the same order (null where the parameter was added)
+	 * @throws ConnectionLostException If the client loses connection during the operation. The message tells whether any parameter may have been added
+	 * @throws DatabaseRequestException If the database fails to process the given request, or a parameter is too large to be sent. No parameter has been added,
+	 * unless the caller's transaction is in progress: then the message tells which parameters are in it
+	 */
+	@Override
+	public String[] addParameters(Parameter[] parameters) throws ConnectionLostException, DatabaseRequestException {
+
+		int[] ends = split(parameters);
+
+		if (ends.length <= 1)
+			return sendParameters(parameters);
+
+		String[] addparameters = new String[parameters.length];
+		boolean own = !m_transaction;
+		int start = 0;
+
+		if (own)
+			begin();
+
+		try {
+
+			for (int end : ends) {
+
+				String[] errors = sendParameters(Arrays.copyOfRange(parameters, start, end));
+				System.arraycopy(errors, 0, addparameters, start, errors.length);
+				start = end;
+			}
+		}
+
+		catch (ConnectionLostException e) {
+
+			// The server rolls back the transaction of a client that disconnects
+			throw new ConnectionLostException(own ? "No parameter has been added" : "The transaction in progress has been lost");
+		}
+
+		catch (DatabaseRequestException e) {
+
+			if (!own)
+				throw new DatabaseRequestException(e.getMessage() + " (the parameters before " + start + " are in the transaction in progress)");
+
+			rollback();
+			throw new DatabaseRequestException(e.getMessage() + " (no parameter has been added)");
+		}
+
+		if (!own)
+			return addparameters;
+
+		try {
+
+			end();
+		}
+
+		catch (ConnectionLostException e) {
+
+			throw new ConnectionLostException("The connection was lost while committing, the parameters may have been added");
+		}
+
+		catch (DatabaseRequestException e) {
+
+			// The server gives back the connection of a failed commit, which rolls it back
+			throw new DatabaseRequestException(e.getMessage() + " (no parameter has been added)");
+		}
+
+		return addparameters;
+	}
+
+	/**
+	 * Splits a batch into requests whose estimated size stays under {@link #MAX_BATCH_SIZE}
+	 *
+	 * @return The index after the last parameter of every request
+	 * @throws DatabaseRequestException If a parameter is too large to be sent
+	 */
+	private static int[] split(Parameter[] parameters) throws DatabaseRequestException {
+
+		List<Integer> ends = new ArrayList<Integer>();
+		int start = 0;
+
+		while (start < parameters.length) {
+
+			int end = start;
+			long size = 0;
+
+			while (end < parameters.length && (end == start || size + encodedSize(parameters[end]) <= MAX_BATCH_SIZE))
+				size += encodedSize(parameters[end++]);
+
+			if (size > MAX_BATCH_SIZE)
+				throw new DatabaseRequestException("The parameter " + start + " is too large to be sent");
+
+			ends.add(end);
+			start = end;
+		}
+
+		return ends.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	private String[] sendParameters(Parameter[] parameters) throws ConnectionLostException, DatabaseRequestException {
+
+		String[] addparameters = null;
+
+		try {
+
+			ObjectOutput out = m_channel.request(RequestType.ADD_PARAMETERS);
+			out.writeObject(parameters);
+
+			ObjectInput in = m_channel.send(out);
+			boolean success = (boolean) in.readObject();
+
+			if(success == true){
+				addparameters = (String[]) in.readObject();
+			}else{
+				DatabaseRequestException e = (DatabaseRequestException) in.readObject();
+				throw e;
+			}
+			
+		} catch (IOException e) {
+			throw new ConnectionLostException();
+		} catch (ClassNotFoundException e){
+			// A null result would read as a batch without errors
+			throw new DatabaseRequestException("The response to the parameters cannot be decoded");
+		}
+
+		return addparameters;
+	}
+
+	/**
+	 * An upper bound of the bytes a parameter takes in a request: the fixed
+	 * fields plus three bytes per character, the most UTF-8 needs for a char
+	 */
+	private static long encodedSize(Parameter parameter) {
+
+		if (parameter == null)
+			return 1;
+
+		return 64 + 3L * (length(parameter.getCenterID()) + length(parameter.getUserID()) + length(parameter.getCategory()) + length(parameter.getNotes()));
+	}
+
+	private static int length(String str) {
+
+		return str != null ? str.length() : 0;
+	}
 	
 	/**
 	 * Edits an existing operator
@@ -976,12 +1712,13 @@ public class ProxyImpl implements Proxy{
 	 * @throws DatabaseRequestException If the database fails to process the given request
 	 */
 	@Override
-	public synchronized boolean editOperator(String user_id, Operator operator) throws ConnectionLostException, DatabaseRequestException {
+	public boolean editOperator(String user_id, Operator operator) throws ConnectionLostException, DatabaseRequestException {
 
 		try {
-			out.writeObject(RequestType.EDIT_OPERATOR);
+			ObjectOutput out = m_channel.request(RequestType.EDIT_OPERATOR);
 			out.writeObject(user_id);
 			out.writeObject(operator);
+			ObjectInput in = m_channel.send(out);
 			boolean success = (boolean) in.readObject();
 			
 			if(success == true){
@@ -1010,13 +1747,14 @@ public class ProxyImpl implements Proxy{
 	 * @throws DatabaseRequestException If the database fails to process the given request
 	 */
 	@Override
-	public synchronized boolean includeAreaToCenter(int geoname_id, String center_id)throws ConnectionLostException, DatabaseRequestException {
+	public boolean includeAreaToCenter(int geoname_id, String center_id)throws ConnectionLostException, DatabaseRequestException {
 
 		try {
 	
-			out.writeObject(RequestType.INCLUDE_AREA_TO_CENTER);
+			ObjectOutput out = m_channel.request(RequestType.INCLUDE_AREA_TO_CENTER);
 			out.writeObject(geoname_id);
 			out.writeObject(center_id);
+			ObjectInput in = m_channel.send(out);
 			boolean success = (boolean) in.readObject();
 
 			if(success == true){
@@ -1045,13 +1783,14 @@ public class ProxyImpl implements Proxy{
 	 * @throws DatabaseRequestException If the database fails to process the given request
 	 */
 	@Override
-	public synchronized boolean monitors(String center_id, int geoname_id) throws ConnectionLostException, DatabaseRequestException {
+	public boolean monitors(String center_id, int geoname_id) throws ConnectionLostException, DatabaseRequestException {
 
 		try {
 			
-			out.writeObject(RequestType.MONITORS);
+			ObjectOutput out = m_channel.request(RequestType.MONITORS);
 			out.writeObject(center_id);
 			out.writeObject(geoname_id);
+			ObjectInput in = m_channel.send(out);
 			boolean success = (boolean) in.readObject();
 
 			if(success == true){
@@ -1080,13 +1819,14 @@ public class ProxyImpl implements Proxy{
 	 * @throws DatabaseRequestException If the database fails to process the given request
 	 */
 	@Override
-	public synchronized boolean employs(String center_id, String user_id) throws ConnectionLostException, DatabaseRequestException {
+	public boolean employs(String center_id, String user_id) throws ConnectionLostException, DatabaseRequestException {
 
 		try {
 			
-			out.writeObject(RequestType.EMPLOYS);
+			ObjectOutput out = m_channel.request(RequestType.EMPLOYS);
 			out.writeObject(center_id);
 			out.writeObject(user_id);
+			ObjectInput in = m_channel.send(out);
 			boolean success = (boolean) in.readObject();
 
 			if(success == true){
@@ -1116,15 +1856,16 @@ public class ProxyImpl implements Proxy{
 	 * @throws DatabaseRequestException If the database fails to process the given request
 	 */
 	@Override
-	public synchronized Operator validateCredentials(String user_id, String password) throws ConnectionLostException, DatabaseRequestException {
+	public Operator validateCredentials(String user_id, String password) throws ConnectionLostException, DatabaseRequestException {
 		
 		Operator op = null;
 
 		try {
-			out.writeObject(RequestType.VALIDATE_CREDENTIALS);
+			ObjectOutput out = m_channel.request(RequestType.VALIDATE_CREDENTIALS);
 			out.writeObject(user_id);
 			out.writeObject(password);
 			
+			ObjectInput in = m_channel.send(out);
 			boolean success = (boolean) in.readObject();
 
 			if(success == true){
@@ -1147,12 +1888,13 @@ public class ProxyImpl implements Proxy{
 	 * Sends a ping request. 
 	 * @return The time (in milliseconds) elapsed between sending the ping packet and receiving it from the server
 	 */
-	public synchronized long ping() throws ConnectionLostException {
+	public long ping() throws ConnectionLostException {
 
 		try {
 
-			out.writeObject(RequestType.PING);
+			ObjectOutput out = m_channel.request(RequestType.PING);
 			long start_time = System.nanoTime();
+			ObjectInput in = m_channel.send(out);
 			in.readObject();
 			long end_time = System.nanoTime();
 
@@ -1169,9 +1911,18 @@ public class ProxyImpl implements Proxy{
 		return -1;
 	}
 	
-	private Socket s;
-	private ObjectInputStream in;
-	private ObjectOutputStream out;
+	/**
+	 * The size of the parameters sent in a request, well below the frame limit
+	 * so that the encoding overhead of any protocol version fits
+	 */
+	private static final long MAX_BATCH_SIZE = Protocol.MAX_REQUEST_SIZE / 2;
+
+	private volatile Channel m_channel;
+
+	/**
+	 * True between a successful begin() and the following end() or rollback()
+	 */
+	private volatile boolean m_transaction;
 	
 
 }
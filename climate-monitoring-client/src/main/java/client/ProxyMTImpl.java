@@ -9,13 +9,19 @@ Dariia Sniezhko 753057 VA
 
 package client;
 
+import java.time.LocalDateTime;
+
 import climatemonitoring.core.Area;
+import climatemonitoring.core.AreaDashboard;
 import climatemonitoring.core.Category;
 import climatemonitoring.core.Center;
 import climatemonitoring.core.ConnectionLostException;
 import climatemonitoring.core.DatabaseRequestException;
 import climatemonitoring.core.Operator;
+import climatemonitoring.core.Page;
 import climatemonitoring.core.Parameter;
+import climatemonitoring.core.ParameterBucket;
+import climatemonitoring.core.ParameterStats;
 import climatemonitoring.core.Result;
 
 /**
@@ -81,6 +87,20 @@ public class ProxyMTImpl implements ProxyMT {
 		};
 	}
 
+	/**
+	 * To abandon a transaction, undoing its changes
+	 */
+	@Override
+	public Result<Boolean> rollback() {
+
+		return new Result<Boolean>() {
+			public Boolean exec() throws ConnectionLostException, DatabaseRequestException{
+				m_proxy.rollback();
+				return null;
+			}
+		};
+	}
+
 	/**
 	 * Returns in alphabetical order an array of areas which have a name that
 	 * contains the input string.
@@ -130,9 +150,9 @@ public class ProxyMTImpl implements ProxyMT {
 	}
 
 	/**
-	 * Returns in alphabetical order an array of areas which can be
-	 * found around the specified coordinates. The around is about 0.5
-	 * degrees for both latitude and longitude.
+	 * Returns an array of areas which can be found around the specified
+	 * coordinates, from the nearest. The around is about 0.5 degrees for
+	 * both latitude and longitude.
 	 * This method will be executed in another thread, so the method is non-blocking.
 	 * 
 	 * @param latitude Value between -90 and 90
@@ -149,6 +169,58 @@ public class ProxyMTImpl implements ProxyMT {
 		};
 	}
 
+	/**
+	 * Returns the areas inside a box, from the nearest to its center
+	 * 
+	 * @param min_latitude The southern latitude
+	 * @param max_latitude The northern latitude
+	 * @param west The western longitude, if greater than the eastern one the box crosses the antimeridian
+	 * @param east The eastern longitude
+	 * @return The result of the search as an array of areas
+	 */
+	public Result<Area[]> searchAreasInBox(double min_latitude, double max_latitude, double west, double east) {
+
+		return new Result<Area[]>() {
+			public Area[] exec() throws ConnectionLostException, DatabaseRequestException{
+				return m_proxy.searchAreasInBox(min_latitude, max_latitude, west, east);
+			}
+		};
+	}
+
+	/**
+	 * Returns the areas within a great-circle distance from a point, from the nearest
+	 * 
+	 * @param latitude Value between -90 and 90
+	 * @param longitude Value between -180 and 180
+	 * @param radius The distance in kilometers
+	 * @return The result of the search as an array of areas
+	 */
+	public Result<Area[]> searchAreasInRadius(double latitude, double longitude, double radius) {
+
+		return new Result<Area[]>() {
+			public Area[] exec() throws ConnectionLostException, DatabaseRequestException{
+				return m_proxy.searchAreasInRadius(latitude, longitude, radius);
+			}
+		};
+	}
+
+	/**
+	 * Returns the nearest areas to a point, from the nearest
+	 * 
+	 * @param latitude Value between -90 and 90
+	 * @param longitude Value between -180 and 180
+	 * @param count The number of areas
+	 * @return The result of the search as an array of areas
+	 */
+	public Result<Area[]> searchNearestAreas(double latitude, double longitude, int count) {
+
+		return new Result<Area[]>() {
+			public Area[] exec() throws ConnectionLostException, DatabaseRequestException{
+				return m_proxy.searchNearestAreas(latitude, longitude, count);
+			}
+		};
+	}
+
 	/**
 	 * Returns in alphabetical order an array of centers which have
 	 * a name that contains the input string
@@ -175,6 +247,75 @@ public class ProxyMTImpl implements ProxyMT {
 		};
 	}
 
+	/**
+	 * Returns one page of the areas which have a name that contains the input string
+	 * 
+	 * @param str The input string the search is based on
+	 * @param page_size The maximum number of areas in the page
+	 * @param cursor The cursor returned with the previous page, null for the first page
+	 * @return A page of the results of the search
+	 */
+	public Result<Page<Area>> searchAreasByName(String str, int page_size, String cursor) {
+
+		return new Result<Page<Area>>() {
+			public Page<Area> exec() throws ConnectionLostException, DatabaseRequestException{
+				return m_proxy.searchAreasByName(str, page_size, cursor);
+			}
+		};
+	}
+
+	/**
+	 * Returns one page of the areas which belong to the country whose name contains the input string
+	 * 
+	 * @param str The input string the search is based on
+	 * @param page_size The maximum number of areas in the page
+	 * @param cursor The cursor returned with the previous page, null for the first page
+	 * @return A page of the results of the search
+	 */
+	public Result<Page<Area>> searchAreasByCountry(String str, int page_size, String cursor) {
+
+		return new Result<Page<Area>>() {
+			public Page<Area> exec() throws ConnectionLostException, DatabaseRequestException{
+				return m_proxy.searchAreasByCountry(str, page_size, cursor);
+			}
+		};
+	}
+
+	/**
+	 * Returns one page of the areas which can be found around the specified coordinates
+	 * 
+	 * @param latitude Value between -90 and 90
+	 * @param longitude Value between -180 and 180
+	 * @param page_size The maximum number of areas in the page
+	 * @param cursor The cursor returned with the previous page, null for the first page
+	 * @return A page of the results of the search
+	 */
+	public Result<Page<Area>> searchAreasByCoords(double latitude, double longitude, int page_size, String cursor) {
+
+		return new Result<Page<Area>>() {
+			public Page<Area> exec() throws ConnectionLostException, DatabaseRequestException{
+				return m_proxy.searchAreasByCoords(latitude, longitude, page_size, cursor);
+			}
+		};
+	}
+
+	/**
+	 * Returns one page of the centers which have a name that contains the input string
+	 * 
+	 * @param str The input string the search is based on
+	 * @param page_size The maximum number of centers in the page
+	 * @param cursor The cursor returned with the previous page, null for the first page
+	 * @return A page of the results of the search
+	 */
+	public Result<Page<Center>> searchCentersByName(String str, int page_size, String cursor) {
+
+		return new Result<Page<Center>>() {
+			public Page<Center> exec() throws ConnectionLostException, DatabaseRequestException{
+				return m_proxy.searchCentersByName(str, page_size, cursor);
+			}
+		};
+	}
+
 	/**
 	 * To get an area by its geoname id
 	 * 
@@ -370,6 +511,110 @@ public class ProxyMTImpl implements ProxyMT {
 		};
 	}
 
+	/**
+	 * To get the statistics of the recordings of a specific area,
+	 * of a specific center about a specific category.
+	 * This method will be executed in another thread, so the method is non-blocking.
+	 * 
+	 * @param geoname_id The area's ID
+	 * @param center_id The center's ID
+	 * @param category The parameter's category
+	 * @return The count, the sum, the lowest, the highest and the latest score and the score histogram
+	 */
+	@Override
+	public Result<ParameterStats> getParameterStats(int geoname_id, String center_id, String category) {
+
+		return new Result<ParameterStats>() {
+			public ParameterStats exec() throws ConnectionLostException, DatabaseRequestException{
+				return m_proxy.getParameterStats(geoname_id, center_id, category);
+			}
+		};
+	}
+
+	/**
+	 * Returns the recordings of a specified area by the desired center about a specific category,
+	 * from the oldest, recorded within a time range.
+	 * This method will be executed in another thread, so the method is non-blocking.
+	 * 
+	 * @param geoname_id The area's ID
+	 * @param center_id The center's ID
+	 * @param category The parameter's category
+	 * @param from The beginning of the range, included (null for no beginning)
+	 * @param to The end of the range, excluded (null for no end)
+	 * @return The result of the search as an array of parameters
+	 */
+	@Override
+	public Result<Parameter[]> getParametersInRange(int geoname_id, String center_id, String category, LocalDateTime from, LocalDateTime to) {
+
+		return new Result<Parameter[]>() {
+			public Parameter[] exec() throws ConnectionLostException, DatabaseRequestException{
+				return m_proxy.getParametersInRange(geoname_id, center_id, category, from, to);
+			}
+		};
+	}
+
+	/**
+	 * Returns the summaries (count, average, lowest and highest score) of the recordings
+	 * of a specified area by the desired center, one for every hour, day or month with
+	 * recordings, ordered by category and by time. The range is rounded to whole buckets.
+	 * This method will be executed in another thread, so the method is non-blocking.
+	 * 
+	 * @param geoname_id The area's ID
+	 * @param center_id The center's ID
+	 * @param category The parameter's category, or null for every category
+	 * @param size The size of the buckets: ParameterBucket.HOUR, DAY or MONTH
+	 * @param from The beginning of the range, its bucket included (null for no beginning)
+	 * @param to The end of the range, excluded (null for no end)
+	 * @return The buckets
+	 */
+	@Override
+	public Result<ParameterBucket[]> getParameterTrend(int geoname_id, String center_id, String category, String size, LocalDateTime from, LocalDateTime to) {
+
+		return new Result<ParameterBucket[]>() {
+			public ParameterBucket[] exec() throws ConnectionLostException, DatabaseRequestException{
+				return m_proxy.getParameterTrend(geoname_id, center_id, category, size, from, to);
+			}
+		};
+	}
+
+	/**
+	 * To get everything needed to show the parameters of an area in a single request.
+	 * This method will be executed in another thread, so the method is non-blocking.
+	 * 
+	 * @param geoname_id The area's ID
+	 * @param center_id The center's ID, or null for the center with the most recent recording
+	 * @param category The parameter's category, or null for the category with the most recent recording
+	 * @return The area dashboard
+	 */
+	@Override
+	public Result<AreaDashboard> getAreaDashboard(int geoname_id, String center_id, String category) {
+
+		return new Result<AreaDashboard>() {
+			public AreaDashboard exec() throws ConnectionLostException, DatabaseRequestException{
+				return m_proxy.getAreaDashboard(geoname_id, center_id, category);
+			}
+		};
+	}
+
+	/**
+	 * To check in a single request whether the user id, the email and the SSID of an operator are already taken.
+	 * This method will be executed in another thread, so the method is non-blocking.
+	 * 
+	 * @param user_id The operator's user id
+	 * @param email The operator's email
+	 * @param ssid The operator's SSID
+	 * @return The user ids of the operators that already use the user id, the email and the SSID, in this order (null where the value is free)
+	 */
+	@Override
+	public Result<String[]> validateRegistration(String user_id, String email, String ssid) {
+
+		return new Result<String[]>() {
+			public String[] exec() throws ConnectionLostException, DatabaseRequestException{
+				return m_proxy.validateRegistration(user_id, email, ssid);
+			}
+		};
+	}
+
 	/**
 	 * Get all the categories and their explanation.
 	 * This method will be executed in another thread, so the method is non-blocking.
@@ -471,6 +716,25 @@ public class ProxyMTImpl implements ProxyMT {
 		};
 	}
 
+	/**
+	 * Adds many parameters to the database with a single request, for example
+	 * the recordings of a station after a connectivity gap. The parameters that
+	 * are not valid are reported and skipped, the others are added together.
+	 * This method will be executed in another thread, so the method is non-blocking.
+	 * 
+	 * @param parameters The parameters that need to be added to the database
+	 * @return The error message of every parameter, in the same order (null where the parameter was added)
+	 */
+	@Override
+	public Result<String[]> addParameters(Parameter[] parameters) {
+
+		return new Result<String[]>() {
+			public String[] exec() throws ConnectionLostException, DatabaseRequestException{
+				return m_proxy.addParameters(parameters);
+			}
+		};
+	}
+
 	/**
 	 * Edits an existing operator.
 	 * This method will be executed in another thread, so the method is non-blocking.
@@ -168,7 +168,11 @@ public class Registration extends ViewState {
 
 				if (verification.clicked()) {
 
-					getCenterResult = Handler.getProxyServerMT().getCenter(m_centerID);
+					// The center gets created only if it does not exist yet, then the operator
+					final Center newCenter = ((CenterCreation) getView().getState(ViewType.CENTER_CREATION)).newCenter;
+					createOperatorResult = Handler.getProxyServerMT().getCenter(m_centerID)
+						.thenCompose((Center center) -> center == null ? Handler.getProxyServerMT().addCenter(newCenter) : Result.completed(true))
+						.thenCompose((Boolean added) -> Handler.getProxyServerMT().addOperator(operator));
 					showVerification = false;
 					createOperator = true;
 				}
@@ -178,46 +182,17 @@ public class Registration extends ViewState {
 
 			if (createOperator) {
 
-				if (getCenterResult != null && getCenterResult.ready()) {
+				if (createOperatorResult != null && createOperatorResult.ready()) {
 
-					if (getCenterResult.get() == null) {
-
-						CenterCreation cc = (CenterCreation) getView().getState(ViewType.CENTER_CREATION);
-						addCenterResult = Handler.getProxyServerMT().addCenter(cc.newCenter);
-					}
-
-					else {
-
-						addOperatorResult = Handler.getProxyServerMT().addOperator(operator);
-						addCenterResult = null;
-					}
-
-					getCenterResult = null;
-				}
-
-				else if (getCenterResult == null) {
-
-					if (addCenterResult != null && addCenterResult.ready()) {
-
-						addCenterResult.get();
-						addOperatorResult = Handler.getProxyServerMT().addOperator(operator);
-						addCenterResult = null;
-					}
-
-					else if (addCenterResult == null) {
-
-						if (addOperatorResult != null && addOperatorResult.ready()) {
-
-							addOperatorResult.get();
-							addOperatorResult = null;
-							Handler.setLoggedOperator(operator);
-							setCurrentState(ViewType.MASTER);
-							createOperator = false;
-						}
-					}
+					createOperatorResult.get();
+					createOperatorResult = null;
+					Validation.clear();
+					Handler.setLoggedOperator(operator);
+					setCurrentState(ViewType.MASTER);
+					createOperator = false;
 				}
 
-				else if (addCenterResult != null || addOperatorResult != null || getCenterResult != null) {
+				else {
 
 					loadingText.setOrigin(loadingText.getWidth() / 2.0f, loadingText.getHeight() / 2.0f);
 					loadingText.setPosition(ImGui.getWindowWidth() / 2.0f, ImGui.getWindowHeight() / 2.0f);
@@ -239,7 +214,9 @@ public class Registration extends ViewState {
 			userIDInputText.setOriginX(userIDInputText.getWidth() / 2.0f);
 			userIDInputText.setPositionX(panel.getWidth() / 2.0f);
 			userIDInputText.setNoSpaces(true);
-			userIDInputText.render();
+			if (userIDInputText.render())
+				liveUserIDResult = liveValidation.userID(userIDInputText.getString());
+			liveUserIDResult = showLiveCheck(userIDInputText, liveUserIDResult);
 
 			ImGui.newLine();
 
@@ -248,7 +225,9 @@ public class Registration extends ViewState {
 			emailInputText.setOriginX(emailInputText.getWidth() / 2.0f);
 			emailInputText.setPositionX(panel.getWidth() / 2.0f);
 			emailInputText.setNoSpaces(true);
-			emailInputText.render();
+			if (emailInputText.render())
+				liveEmailResult = liveValidation.email(emailInputText.getString());
+			liveEmailResult = showLiveCheck(emailInputText, liveEmailResult);
 
 			ImGui.newLine();
 
@@ -270,7 +249,9 @@ public class Registration extends ViewState {
 			ssidInputText.setPositionX(panel.getWidth() / 2.0f);
 			ssidInputText.setAlwaysUpperCase(true);
 			ssidInputText.setNoSpaces(true);
-			ssidInputText.render();
+			if (ssidInputText.render())
+				liveSSIDResult = liveValidation.ssid(ssidInputText.getString());
+			liveSSIDResult = showLiveCheck(ssidInputText, liveSSIDResult);
 
 			ImGui.newLine();
 
@@ -381,9 +362,7 @@ public class Registration extends ViewState {
 			confirm.setPositionX(panel.getPositionX() + panel.getWidth() / 2.0f);
 			if (confirm.render()) {
 
-				checkUserIDResult = CheckMT.userID(userIDInputText.getString());
-				checkEmailResult = CheckMT.email(emailInputText.getString());
-				checkSSIDResult = CheckMT.ssid(ssidInputText.getString());
+				checkResult = validation.registration(userIDInputText.getString(), emailInputText.getString(), ssidInputText.getString(), null);
 				checkData = true;
 			}
 
@@ -417,22 +396,34 @@ public class Registration extends ViewState {
 		}
 	}
 
+	/**
+	 * Shows the answer of the check made while the user was typing, once it arrives
+	 * @return The check if it is still running, null otherwise
+	 */
+	private Result<String> showLiveCheck(InputText input_text, Result<String> live_result) throws Exception {
+
+		if (live_result == null || !live_result.ready())
+			return live_result;
+
+		String errorMsg = live_result.get();
+		input_text.setErrorMsg(errorMsg != null ? errorMsg : "");
+		input_text.showErrorMsg(errorMsg != null);
+		return null;
+	}
+
 	private int checkData() throws ConnectionLostException, Exception {
 
 		int failure = -1;
 
-		if (checkUserIDResult != null && checkUserIDResult.ready() &&
-			checkEmailResult != null && checkEmailResult.ready() &&
-			checkSSIDResult != null && checkSSIDResult.ready())
-
-		{
+		if (checkResult != null && checkResult.ready()) {
 
 			failure = 0;
 
+			String[] errorMsgs = checkResult.get();
 			String errorMsg = null;
 
 			// User ID
-			errorMsg = checkUserIDResult.get();
+			errorMsg = errorMsgs[0];
 			if (errorMsg == null) {
 
 				m_userID = userIDInputText.getString();
@@ -447,7 +438,7 @@ public class Registration extends ViewState {
 			}
 
 			// Email
-			errorMsg = checkEmailResult.get();
+			errorMsg = errorMsgs[1];
 			if (errorMsg == null) {
 
 				m_email = emailInputText.getString();
@@ -477,7 +468,7 @@ public class Registration extends ViewState {
 			}
 
 			// SSID
-			errorMsg = checkSSIDResult.get();
+			errorMsg = errorMsgs[2];
 			if (errorMsg == null) {
 
 				m_SSID = ssidInputText.getString();
@@ -535,12 +526,10 @@ public class Registration extends ViewState {
 				failure++;
 			}
 
-			checkUserIDResult = null;
-			checkEmailResult = null;
-			checkSSIDResult = null;
+			checkResult = null;
 		}
 
-		else if (checkUserIDResult != null && checkEmailResult != null && checkSSIDResult != null) {
+		else if (checkResult != null) {
 
 			loadingText.setOriginX(loadingText.getWidth() / 2.0f);
 			loadingText.setPositionX(panel.getPositionX());
@@ -579,15 +568,18 @@ public class Registration extends ViewState {
 	private Text centerNotSelectedText = new Text("");
 	private Text selectCenterText = new Text("Center");
 	private boolean checkData = false;
-	private Result<String> checkUserIDResult;
-	private Result<String> checkEmailResult;
-	private Result<String> checkSSIDResult;
+	private Validation validation = new Validation();
+	private Validation liveValidation = new Validation(LIVE_CHECK_DELAY);
+	private Result<String[]> checkResult;
+	private Result<String> liveUserIDResult;
+	private Result<String> liveEmailResult;
+	private Result<String> liveSSIDResult;
 	private Text loadingText = new Text("Loading..");
 	private boolean showVerification = false;
 	private Verification verification = new Verification();
 	private Operator operator;
-	private Result<Boolean> addCenterResult;
-	private Result<Boolean> addOperatorResult;
-	private Result<Center> getCenterResult;
+	private Result<Boolean> createOperatorResult;
 	private boolean createOperator = false;
+
+	private static final long LIVE_CHECK_DELAY = 300;
 }
@@ -9,6 +9,8 @@ Dariia Sniezhko 753057 VA
 
 package client;
 
+import java.util.Arrays;
+
 import imgui.ImGui;
 import imgui.type.ImDouble;
 
@@ -16,6 +18,7 @@ import climatemonitoring.core.Application;
 import climatemonitoring.core.Area;
 import climatemonitoring.core.ConnectionLostException;
 import climatemonitoring.core.DatabaseRequestException;
+import climatemonitoring.core.Page;
 import climatemonitoring.core.Result;
 import climatemonitoring.core.gui.Button;
 import climatemonitoring.core.gui.Dropdown;
@@ -38,34 +41,64 @@ public class SearchArea {
 		try {
 
 			m_foundAreas = null;
+			Page<Area> page = null;
+			double latitude = 0.0;
+			double longitude = 0.0;
 
 			// <by>
 			switch (by) {
 	
 				case "name":
-					m_foundAreas = Handler.getProxyServer().searchAreasByName(args);
+					page = Handler.getProxyServer().searchAreasByName(args, PAGE_SIZE, null);
 					break;
 				case "country":
-					m_foundAreas = Handler.getProxyServer().searchAreasByCountry(args);
+					page = Handler.getProxyServer().searchAreasByCountry(args, PAGE_SIZE, null);
 					break;
 				case "coords":
 					String[] coords = args.split(" ");
 					if (coords.length < 2)
 						throw new NumberFormatException();
-					double latitude = Double.parseDouble(coords[0]);
-					double longitude = Double.parseDouble(coords[1]);
-					m_foundAreas = Handler.getProxyServer().searchAreasByCoords(latitude, longitude);
+					latitude = Double.parseDouble(coords[0]);
+					longitude = Double.parseDouble(coords[1]);
+					page = Handler.getProxyServer().searchAreasByCoords(latitude, longitude, PAGE_SIZE, null);
 					break;
 				default:
 					Console.write("Incorrect command syntax -->'" + by + "', expected [name, country, coords]");
 					return;
 			}
 
-			int i = 0;
-			if (m_foundAreas != null && m_foundAreas.length != 0)
-				for (Area area : m_foundAreas)
-					Console.write(i++ + ". " + area.getGeonameID() + " - " + area.getAsciiName() + ", " + area.getCountryCode());
-			else
+			m_foundAreas = new Area[0];
+
+			while (true) {
+
+				int i = m_foundAreas.length;
+				m_foundAreas = append(m_foundAreas, page.getItems());
+
+				for (; i < m_foundAreas.length; i++)
+					Console.write(i + ". " + m_foundAreas[i].getGeonameID() + " - " + m_foundAreas[i].getAsciiName() + ", " + m_foundAreas[i].getCountryCode());
+
+				if (!page.hasMore())
+					break;
+
+				String answer = Console.read("Show more? [y/N] > ").trim().toLowerCase();
+				if (!answer.equals("y"))
+					break;
+
+				switch (by) {
+
+					case "name":
+						page = Handler.getProxyServer().searchAreasByName(args, PAGE_SIZE, page.getCursor());
+						break;
+					case "country":
+						page = Handler.getProxyServer().searchAreasByCountry(args, PAGE_SIZE, page.getCursor());
+						break;
+					default:
+						page = Handler.getProxyServer().searchAreasByCoords(latitude, longitude, PAGE_SIZE, page.getCursor());
+						break;
+				}
+			}
+
+			if (m_foundAreas.length == 0)
 				Console.write("No matching areas");
 		}
 
@@ -91,6 +124,7 @@ public class SearchArea {
 				latitude = new ImDouble(0.0);
 				longitude = new ImDouble(0.0);
 				foundAreasResult = null;
+				m_foundAreas = null;
 				resultBox.setList(null);
 				resultBox.setCurrentItem(-1);
 				currentSearchMethod = searchMethod;
@@ -103,8 +137,9 @@ public class SearchArea {
 					searchBar.setEnterReturnsTrue(true);
 					if (searchBar.render() || searchBar.isButtonPressed()) {
 		
-						foundAreasResult = Handler.getProxyServerMT().searchAreasByName(searchBar.getString());
-						createResultBox = true;
+						searchString = searchBar.getString();
+						foundAreasResult = Handler.getProxyServerMT().searchAreasByName(searchString, PAGE_SIZE, null);
+						m_foundAreas = null;
 						resultBox.setList(null);
 						resultBox.setCurrentItem(-1);
 					}
@@ -115,8 +150,9 @@ public class SearchArea {
 					searchBar.setEnterReturnsTrue(true);
 					if (searchBar.render() || searchBar.isButtonPressed()) {
 		
-						foundAreasResult = Handler.getProxyServerMT().searchAreasByCountry(searchBar.getString());
-						createResultBox = true;
+						searchString = searchBar.getString();
+						foundAreasResult = Handler.getProxyServerMT().searchAreasByCountry(searchString, PAGE_SIZE, null);
+						m_foundAreas = null;
 						resultBox.setList(null);
 						resultBox.setCurrentItem(-1);
 					}
@@ -138,8 +174,10 @@ public class SearchArea {
 					searchCoords.setPosition(searchBar.getPositionX() - searchBar.getOriginX() + searchBar.getWidth() / 2.0f, Widget.SAME_LINE_Y);
 					if (searchCoords.render()) {
 
-						foundAreasResult = Handler.getProxyServerMT().searchAreasByCoords(latitude.doubleValue(), longitude.doubleValue());
-						createResultBox = true;
+						searchLatitude = latitude.doubleValue();
+						searchLongitude = longitude.doubleValue();
+						foundAreasResult = Handler.getProxyServerMT().searchAreasByCoords(searchLatitude, searchLongitude, PAGE_SIZE, null);
+						m_foundAreas = null;
 						resultBox.setList(null);
 						resultBox.setCurrentItem(-1);
 					}
@@ -155,46 +193,54 @@ public class SearchArea {
 					break;
 			}
 
-			if (foundAreasResult == null)
+			if (foundAreasResult == null && m_foundAreas == null)
 				return;
 
-			if (foundAreasResult.ready()) {
+			if (foundAreasResult != null && foundAreasResult.ready()) {
 
-				if (createResultBox) {
+				Page<Area> page = foundAreasResult.get();
+				Area[] previous = m_foundAreas != null ? m_foundAreas : new Area[0];
+				m_foundAreas = append(previous, page.getItems());
+				nextPage = page.getCursor();
+				foundAreasResult = null;
 
-					m_foundAreas = foundAreasResult.get();
-					String[] tmp = new String[m_foundAreas.length];
-	
-					for (int i = 0; i < tmp.length; i++)
-						tmp[i] = m_foundAreas[i].getName() + ", " + m_foundAreas[i].getCountryCode();
-	
+				String[] tmp = new String[m_foundAreas.length];
+
+				for (int i = 0; i < tmp.length; i++)
+					tmp[i] = m_foundAreas[i].getName() + ", " + m_foundAreas[i].getCountryCode();
+
+				// The following pages keep the scroll where the user left it
+				if (previous.length == 0)
 					resultBox.setList(tmp);
-					createResultBox = false;
-				}
+				else
+					resultBox.extendList(tmp);
+			}
 
-				if (m_foundAreas != null && m_foundAreas.length > 0) {
+			if (m_foundAreas == null) {
 
-					resultBox.setWidth(searchBar.getWidth());
-					resultBox.setPositionX(searchBar.getPositionX());
-					resultBox.render();
-					if (resultBox.getCurrentItem() != -1)
-						m_selectedArea = m_foundAreas[resultBox.getCurrentItem()];
-				}
+				loadingText.setOriginX(loadingText.getWidth() / 2.0f);
+				loadingText.setPositionX(searchBar.getPositionX() + searchBar.getWidth() / 2.0f);
+				loadingText.render();
+			}
 
-				else {
+			else if (m_foundAreas.length > 0) {
 
-					errorText.setColor(255, 0, 0, 255);
-					errorText.setOriginX(errorText.getWidth() / 2.0f);
-					errorText.setPositionX(searchBar.getPositionX() + searchBar.getWidth() / 2.0f);
-					errorText.render();
-				}
+				resultBox.setWidth(searchBar.getWidth());
+				resultBox.setPositionX(searchBar.getPositionX());
+				resultBox.render();
+				if (resultBox.getCurrentItem() != -1)
+					m_selectedArea = m_foundAreas[resultBox.getCurrentItem()];
+
+				if (resultBox.isScrolledToEnd() && nextPage != null && foundAreasResult == null)
+					foundAreasResult = requestNextPage();
 			}
 
 			else {
 
-				loadingText.setOriginX(loadingText.getWidth() / 2.0f);
-				loadingText.setPositionX(searchBar.getPositionX() + searchBar.getWidth() / 2.0f);
-				loadingText.render();
+				errorText.setColor(255, 0, 0, 255);
+				errorText.setOriginX(errorText.getWidth() / 2.0f);
+				errorText.setPositionX(searchBar.getPositionX() + searchBar.getWidth() / 2.0f);
+				errorText.render();
 			}
 		}
 
@@ -210,6 +256,29 @@ public class SearchArea {
 		}
 	}
 
+	/**
+	 * Asks for the page that follows the last one received, with the same search arguments
+	 */
+	private Result<Page<Area>> requestNextPage() {
+
+		switch (selectSearchMethod.getList()[currentSearchMethod]) {
+
+			case "name":
+				return Handler.getProxyServerMT().searchAreasByName(searchString, PAGE_SIZE, nextPage);
+			case "country":
+				return Handler.getProxyServerMT().searchAreasByCountry(searchString, PAGE_SIZE, nextPage);
+			default:
+				return Handler.getProxyServerMT().searchAreasByCoords(searchLatitude, searchLongitude, PAGE_SIZE, nextPage);
+		}
+	}
+
+	private static Area[] append(Area[] areas, Area[] page) {
+
+		Area[] result = Arrays.copyOf(areas, areas.length + page.length);
+		System.arraycopy(page, 0, result, areas.length, page.length);
+		return result;
+	}
+
 	public synchronized Area[] getFoundAreas() {
 
 		return m_foundAreas;
@@ -229,9 +298,12 @@ public class SearchArea {
 	private Dropdown selectSearchMethod = new Dropdown("Search area by ", new String[] { "name", "country", "coords" });
 	private InputTextButton searchBar = new InputTextButton(null, "", "No matching areas", 300, "Search");
 	private Text loadingText = new Text("Loading...");
-	private boolean createResultBox = false;
 	private ResultBox resultBox = new ResultBox("##");
-	private Result<Area[]> foundAreasResult;
+	private Result<Page<Area>> foundAreasResult;
+	private String nextPage;
+	private String searchString;
+	private double searchLatitude;
+	private double searchLongitude;
 	private Text latitudeLabel = new Text("Latitude");
 	private Text longitudeLabel = new Text("Longitude");
 	private ImDouble latitude = new ImDouble();
@@ -241,4 +313,6 @@ public class SearchArea {
 
 	private Area[] m_foundAreas;
 	private Area m_selectedArea;
+
+	private static final int PAGE_SIZE = 100;
 }
@@ -9,11 +9,14 @@ Dariia Sniezhko 753057 VA
 
 package client;
 
+import java.util.Arrays;
+
 import climatemonitoring.core.Application;
 import climatemonitoring.core.Area;
 import climatemonitoring.core.Center;
 import climatemonitoring.core.ConnectionLostException;
 import climatemonitoring.core.DatabaseRequestException;
+import climatemonitoring.core.Page;
 import climatemonitoring.core.Result;
 import climatemonitoring.core.gui.Dropdown;
 import climatemonitoring.core.gui.InputTextButton;
@@ -32,29 +35,44 @@ public class SearchCenter {
 	public synchronized void onHeadlessRender(final String by, final String args) throws ConnectionLostException, DatabaseRequestException {
 
 		m_foundCenters = null;
+		Page<Center> page = null;
 
 		// <by>
 		switch (by) {
 
 			case "name":
-				m_foundCenters = Handler.getProxyServer().searchCentersByName(args);
+				page = Handler.getProxyServer().searchCentersByName(args, PAGE_SIZE, null);
 				break;
 			default:
 				Console.write("Incorrect command syntax -->'" + by + "', expected [name]");
 				return;
 		}
 
-		if (m_foundCenters != null && m_foundCenters.length != 0) {
+		m_foundCenters = new Center[0];
+
+		while (true) {
+
+			int i = m_foundCenters.length;
+			m_foundCenters = append(m_foundCenters, page.getItems());
 
-			int i = 0;
-			for (Center center : m_foundCenters) {
+			for (; i < m_foundCenters.length; i++) {
 
+				Center center = m_foundCenters[i];
 				Area area = Handler.getProxyServer().getArea(center.getCity());
-				Console.write(i++ + ". " + center.getCenterID() + " - (" + area.getGeonameID() + ") " + area.getAsciiName() + " " + center.getStreet() + ", " + center.getHouseNumber());
+				Console.write(i + ". " + center.getCenterID() + " - (" + area.getGeonameID() + ") " + area.getAsciiName() + " " + center.getStreet() + ", " + center.getHouseNumber());
 			}
+
+			if (!page.hasMore())
+				break;
+
+			String answer = Console.read("Show more? [y/N] > ").trim().toLowerCase();
+			if (!answer.equals("y"))
+				break;
+
+			page = Handler.getProxyServer().searchCentersByName(args, PAGE_SIZE, page.getCursor());
 		}
 
-		else
+		if (m_foundCenters.length == 0)
 			Console.write("No matching centers");
 	}
 
@@ -72,6 +90,7 @@ public class SearchCenter {
 
 				searchBar.setString("");
 				foundCentersResult = null;
+				m_foundCenters = null;
 				resultBox.setList(null);
 				resultBox.setCurrentItem(-1);
 				currentSearchMethod = searchMethod;
@@ -84,8 +103,9 @@ public class SearchCenter {
 					searchBar.setEnterReturnsTrue(true);
 					if (searchBar.render() || searchBar.isButtonPressed()) {
 		
-						foundCentersResult = Handler.getProxyServerMT().searchCentersByName(searchBar.getString());
-						createResultBox = true;
+						searchString = searchBar.getString();
+						foundCentersResult = Handler.getProxyServerMT().searchCentersByName(searchString, PAGE_SIZE, null);
+						m_foundCenters = null;
 						resultBox.setList(null);
 						resultBox.setCurrentItem(-1);
 					}
@@ -93,46 +113,54 @@ public class SearchCenter {
 					break;
 			}
 
-			if (foundCentersResult == null)
+			if (foundCentersResult == null && m_foundCenters == null)
 				return;
 
-			if (foundCentersResult.ready()) {
+			if (foundCentersResult != null && foundCentersResult.ready()) {
 
-				if (createResultBox) {
+				Page<Center> page = foundCentersResult.get();
+				Center[] previous = m_foundCenters != null ? m_foundCenters : new Center[0];
+				m_foundCenters = append(previous, page.getItems());
+				nextPage = page.getCursor();
+				foundCentersResult = null;
 
-					m_foundCenters = foundCentersResult.get();
-					String[] tmp = new String[m_foundCenters.length];
+				String[] tmp = new String[m_foundCenters.length];
 
-					for (int i = 0; i < tmp.length; i++)
-						tmp[i] = m_foundCenters[i].getCenterID() + " (" + m_foundCenters[i].getStreet() + ", " + m_foundCenters[i].getHouseNumber() + ")";
+				for (int i = 0; i < tmp.length; i++)
+					tmp[i] = m_foundCenters[i].getCenterID() + " (" + m_foundCenters[i].getStreet() + ", " + m_foundCenters[i].getHouseNumber() + ")";
 
+				// The following pages keep the scroll where the user left it
+				if (previous.length == 0)
 					resultBox.setList(tmp);
-					createResultBox = false;
-				}
+				else
+					resultBox.extendList(tmp);
+			}
+
+			if (m_foundCenters == null) {
 
-				if (m_foundCenters != null && m_foundCenters.length > 0) {
+				loadingText.setOriginX(loadingText.getWidth() / 2.0f);
+				loadingText.setPositionX(searchBar.getPositionX() + searchBar.getWidth() / 2.0f);
+				loadingText.render();
+			}
 
-					resultBox.setWidth(searchBar.getWidth());
-					resultBox.setPositionX(searchBar.getPositionX());
-					resultBox.render();
-					if (resultBox.getCurrentItem() != -1)
-						m_selectedCenter = m_foundCenters[resultBox.getCurrentItem()];
-				}
+			else if (m_foundCenters.length > 0) {
 
-				else {
+				resultBox.setWidth(searchBar.getWidth());
+				resultBox.setPositionX(searchBar.getPositionX());
+				resultBox.render();
+				if (resultBox.getCurrentItem() != -1)
+					m_selectedCenter = m_foundCenters[resultBox.getCurrentItem()];
 
-					errorText.setColor(255, 0, 0, 255);
-					errorText.setOriginX(errorText.getWidth() / 2.0f);
-					errorText.setPositionX(searchBar.getPositionX() + searchBar.getWidth() / 2.0f);
-					errorText.render();
-				}
+				if (resultBox.isScrolledToEnd() && nextPage != null && foundCentersResult == null)
+					foundCentersResult = Handler.getProxyServerMT().searchCentersByName(searchString, PAGE_SIZE, nextPage);
 			}
 
 			else {
 
-				loadingText.setOriginX(loadingText.getWidth() / 2.0f);
-				loadingText.setPositionX(searchBar.getPositionX() + searchBar.getWidth() / 2.0f);
-				loadingText.render();
+				errorText.setColor(255, 0, 0, 255);
+				errorText.setOriginX(errorText.getWidth() / 2.0f);
+				errorText.setPositionX(searchBar.getPositionX() + searchBar.getWidth() / 2.0f);
+				errorText.render();
 			}
 		}
 
@@ -148,6 +176,13 @@ public class SearchCenter {
 		}
 	}
 
+	private static Center[] append(Center[] centers, Center[] page) {
+
+		Center[] result = Arrays.copyOf(centers, centers.length + page.length);
+		System.arraycopy(page, 0, result, centers.length, page.length);
+		return result;
+	}
+
 	public synchronized Center[] getFoundCenters() {
 
 		return m_foundCenters;
@@ -167,11 +202,14 @@ public class SearchCenter {
 	private Dropdown selectSearchMethod = new Dropdown("Search center by ", new String[] { "name" });
 	private InputTextButton searchBar = new InputTextButton(null, "", "No matching centers", 300, "Search");
 	private Text loadingText = new Text("Loading...");
-	private boolean createResultBox = false;
 	private ResultBox resultBox = new ResultBox("##");
-	private Result<Center[]> foundCentersResult;
+	private Result<Page<Center>> foundCentersResult;
+	private String nextPage;
+	private String searchString;
 	private Text errorText = new Text("No matching centers");
 
 	private Center[] m_foundCenters;
 	private Center m_selectedCenter;
+
+	private static final int PAGE_SIZE = 100;
 }
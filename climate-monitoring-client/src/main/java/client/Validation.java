@@ -0,0 +1,356 @@
+/*
+
+Alessandro della Frattina 753073 VA
+Cristian Capiferri 752918 VA
+Francesco Lops 753175 VA
+Dariia Sniezhko 753057 VA
+
+*/
+
+package client;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+import climatemonitoring.core.ConnectionLostException;
+import climatemonitoring.core.DatabaseRequestException;
+import climatemonitoring.core.Result;
+
+/**
+ * The Validation class runs the same checks of CheckMT, but for the forms that check
+ * the same fields over and over:
+ * identical checks that are still running are shared instead of being sent again,
+ * a new check of a field replaces the previous one (which is dropped before reaching
+ * the server if it is still waiting), checks can wait for the user to stop typing
+ * and the answers are remembered for a few seconds.
+ * Every form owns an instance, the answers and the running checks are shared by all of them
+ *
+ * @author adellafrattina
+ * @version 1.0-SNAPSHOT
+ * @see CheckMT
+ */
+public class Validation {
+
+	/**
+	 * Creates a validation service that sends the checks right away
+	 */
+	public Validation() {
+
+		this(0);
+	}
+
+	/**
+	 * Creates a validation service for checks driven by keystrokes
+	 * @param debounce_millis How long a check waits for a newer one of the same field before being sent
+	 */
+	public Validation(long debounce_millis) {
+
+		m_debounce = debounce_millis;
+	}
+
+	/**
+	 * Checks if the user id is already taken or is empty or has contiguous dashes
+	 * @param user_id The user id
+	 * @return A result that contains an error message as string if the parameter is already taken, null if it is unique
+	 */
+	public Result<String> userID(String user_id) {
+
+		if (Check.isEmpty(user_id) != null)
+			return replace("userID", Result.completed(Check.isEmpty(user_id)));
+
+		return check("userID", key("userID", user_id), () -> Check.userID(user_id));
+	}
+
+	/**
+	 * Checks if the email is already taken or is empty or has contiguous dashes or is not a valid email
+	 * @param email The email
+	 * @return A result that contains an error message as string if the parameter is already taken / is not valid, null if it is unique
+	 */
+	public Result<String> email(String email) {
+
+		if (Check.emailFormat(email) != null)
+			return replace("email", Result.completed(Check.emailFormat(email)));
+
+		return check("email", key("email", email), () -> Check.email(email));
+	}
+
+	/**
+	 * Checks if the SSID is already present in the database or is empty or has contiguous dashes or does not have 16 characters
+	 * @param ssid The SSID
+	 * @return A result that contains an error message as string if the parameter is already taken, null if it is unique
+	 */
+	public Result<String> ssid(String ssid) {
+
+		if (Check.ssidFormat(ssid) != null)
+			return replace("ssid", Result.completed(Check.ssidFormat(ssid)));
+
+		return check("ssid", key("ssid", ssid), () -> Check.ssid(ssid));
+	}
+
+	/**
+	 * Checks if the center id is already taken or is empty or has contiguous dashes
+	 * @param center_id The center id
+	 * @return A result that contains an error message as string if the parameter is already taken, null if it is unique
+	 */
+	public Result<String> creationCenterID(String center_id) {
+
+		return check("creationCenterID", key("creationCenterID", center_id), () -> Check.creationCenterID(center_id));
+	}
+
+	/**
+	 * Checks if the address is already taken or is empty or has contiguous dashes
+	 * @param city The geoname id of the center's city
+	 * @param street The address' street
+	 * @param house_number The address' house number
+	 * @return A result that contains the error messages, as described by {@link Check#address(String, String, String)}
+	 */
+	public Result<String[]> address(String city, String street, String house_number) {
+
+		return check("address", key("address", city, street, house_number), () -> Check.address(city, street, house_number));
+	}
+
+	/**
+	 * Checks if the geoname id is already taken
+	 * @param geoname_id The geoname id
+	 * @return A result that contains an error message as string if the parameter is already taken, null if it is unique
+	 */
+	public Result<String> geonameID(String geoname_id) {
+
+		return check("geonameID", key("geonameID", geoname_id), () -> Check.geonameID(geoname_id));
+	}
+
+	/**
+	 * Checks the user id, the email and the SSID of an operator with a single request to the server.
+	 * The values that are not valid are not sent
+	 * @param user_id The user id
+	 * @param email The email
+	 * @param ssid The SSID
+	 * @param current_user_id The user id of the operator being edited, whose own values are not taken (null for a new operator)
+	 * @return A result that contains the error messages of the user id, the email and the SSID, in this order (null where the value is valid)
+	 */
+	public Result<String[]> registration(String user_id, String email, String ssid, String current_user_id) {
+
+		final String[] msgs = { Check.isEmpty(user_id), Check.emailFormat(email), Check.ssidFormat(ssid) };
+		final String userID = msgs[0] == null ? user_id : null;
+		final String userEmail = msgs[1] == null ? email : null;
+		final String userSSID = msgs[2] == null ? ssid : null;
+
+		// The fourth element holds the error message from the database, if any
+		Result<String[]> owners = check("registration", key("registration", userID, userEmail, userSSID), () -> {
+
+			try {
+
+				String[] result = Handler.getProxyServer().validateRegistration(userID, userEmail, userSSID);
+				return new String[] { result[0], result[1], result[2], null };
+			}
+
+			catch (DatabaseRequestException e) {
+
+				return new String[] { null, null, null, e.getMessage() };
+			}
+		});
+
+		return owners.then((String[] result) -> {
+
+			String[] taken = { Check.USER_ID_TAKEN, Check.EMAIL_TAKEN, Check.SSID_TAKEN };
+			String[] errors = msgs.clone();
+
+			for (int i = 0; i < errors.length; i++) {
+
+				if (errors[i] != null)
+					continue;
+
+				if (result[3] != null)
+					errors[i] = result[3];
+				else if (result[i] != null && !result[i].equals(current_user_id))
+					errors[i] = taken[i];
+			}
+
+			return errors;
+		});
+	}
+
+	/**
+	 * Forgets every remembered answer. To be called after adding or editing a resource,
+	 * so that the following checks see the change
+	 */
+	public static void clear() {
+
+		synchronized (s_lock) {
+
+			s_answers.clear();
+		}
+	}
+
+	/**
+	 * A check of the Check class
+	 */
+	@FunctionalInterface
+	private interface Lookup<T> {
+
+		public T get() throws ConnectionLostException;
+	}
+
+	/**
+	 * A check that is waiting or running, shared by all the fields that asked for it
+	 */
+	private static class Pending {
+
+		Pending(String key) {
+
+			this.key = key;
+		}
+
+		final String key;
+		volatile boolean dropped;
+		Result<?> result;
+		int users;
+	}
+
+	/**
+	 * An answer and the moment it stops being valid
+	 */
+	private static class Answer {
+
+		Answer(Object value) {
+
+			this.value = value;
+			expiration = System.currentTimeMillis() + ANSWER_TTL;
+		}
+
+		final Object value;
+		final long expiration;
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> Result<T> check(String field, String key, Lookup<T> lookup) {
+
+		synchronized (s_lock) {
+
+			Answer answer = s_answers.get(key);
+
+			if (answer != null && answer.expiration > System.currentTimeMillis())
+				return replace(field, Result.completed((T) answer.value));
+
+			Pending pending = s_pending.get(key);
+
+			if (pending == null) {
+
+				pending = new Pending(key);
+				s_pending.put(key, pending);
+				pending.result = submit(pending, lookup);
+			}
+
+			if (m_fields.get(field) != pending) {
+
+				pending.users++;
+				release(m_fields.put(field, pending));
+			}
+
+			return (Result<T>) pending.result;
+		}
+	}
+
+	/**
+	 * Sets a field to an answer that does not need the server, dropping its previous check
+	 */
+	private <T> Result<T> replace(String field, Result<T> result) {
+
+		synchronized (s_lock) {
+
+			release(m_fields.remove(field));
+		}
+
+		return result;
+	}
+
+	/**
+	 * A field does not need the check anymore: if no one else does, it gets dropped
+	 */
+	private static void release(Pending pending) {
+
+		if (pending == null || --pending.users > 0)
+			return;
+
+		pending.dropped = true;
+		s_pending.remove(pending.key, pending);
+	}
+
+	private <T> Result<T> submit(Pending pending, Lookup<T> lookup) {
+
+		// The debounce delay is waited on a timer, not on a worker thread
+		Result<Void> delay = m_debounce > 0 ? Result.delayed(m_debounce) : Result.completed(null);
+
+		Result<T> result = delay.thenCompose((Void nothing) -> {
+
+			if (pending.dropped)
+				throw new CancellationException("The check was replaced by a newer one");
+
+			return new Result<T>() {
+
+				@Override
+				public T exec() throws Exception {
+
+					T value = lookup.get();
+					remember(pending.key, value);
+					return value;
+				}
+			};
+		});
+
+		return result.onComplete((T value, Exception e) -> {
+
+			synchronized (s_lock) {
+
+				s_pending.remove(pending.key, pending);
+			}
+		});
+	}
+
+	private static void remember(String key, Object value) {
+
+		synchronized (s_lock) {
+
+			if (s_answers.size() >= MAX_ANSWERS) {
+
+				long now = System.currentTimeMillis();
+				Iterator<Answer> iterator = s_answers.values().iterator();
+
+				while (iterator.hasNext())
+					if (iterator.next().expiration <= now)
+						iterator.remove();
+
+				if (s_answers.size() >= MAX_ANSWERS)
+					s_answers.clear();
+			}
+
+			s_answers.put(key, new Answer(value));
+		}
+	}
+
+	private static String key(String kind, String... values) {
+
+		StringBuilder builder = new StringBuilder(kind);
+
+		for (String value : values)
+			builder.append('\u0000').append(value);
+
+		return builder.toString();
+	}
+
+	private final long m_debounce;
+
+	/**
+	 * The last check asked by every field of the form
+	 */
+	private final Map<String, Pending> m_fields = new HashMap<String, Pending>();
+
+	private static final Object s_lock = new Object();
+	private static final Map<String, Pending> s_pending = new HashMap<String, Pending>();
+	private static final Map<String, Answer> s_answers = new HashMap<String, Answer>();
+
+	private static final long ANSWER_TTL = 5000;
+	private static final int MAX_ANSWERS = 256;
+}
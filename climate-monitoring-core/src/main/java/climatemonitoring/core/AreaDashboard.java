@@ -0,0 +1,129 @@
+/*
+
+Alessandro della Frattina 753073 VA
+Cristian Capiferri 752918 VA
+Francesco Lops 753175 VA
+Dariia Sniezhko 753057 VA
+
+*/
+
+package climatemonitoring.core;
+
+import java.io.Serializable;
+
+/**
+ * Everything needed to show the parameters of an area:
+ * the centers that monitor it, the available categories and the
+ * recordings of the selected center about the selected category
+ *
+ * @author dariiasniezhkoinsubria
+ * @version 1.0-SNAPSHOT
+ */
+public class AreaDashboard implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Initializes dashboard fields
+	 * @param centers The centers that monitor the area
+	 * @param latest_center The center with the most recent recording about the area (null if there are no recordings)
+	 * @param center The selected center (null if the area is not monitored)
+	 * @param categories All the categories
+	 * @param latest_category The category with the most recent recording of the selected center (null if there are no recordings)
+	 * @param category The selected category (null if the area is not monitored)
+	 * @param parameters The recordings of the selected center about the selected category, from the oldest
+	 * @param average The average of the recordings scores (0 if there are no recordings)
+	 */
+	public AreaDashboard(Center[] centers, Center latest_center, Center center, Category[] categories, Category latest_category, Category category, Parameter[] parameters, double average) {
+
+		m_centers = centers;
+		m_latestCenter = latest_center;
+		m_center = center;
+		m_categories = categories;
+		m_latestCategory = latest_category;
+		m_category = category;
+		m_parameters = parameters;
+		m_average = average;
+	}
+
+	/**
+	 *
+	 * @return The centers that monitor the area
+	 */
+	public Center[] getCenters() {
+
+		return m_centers;
+	}
+
+	/**
+	 *
+	 * @return The center with the most recent recording about the area
+	 */
+	public Center getLatestCenter() {
+
+		return m_latestCenter;
+	}
+
+	/**
+	 *
+	 * @return The selected center
+	 */
+	public Center getCenter() {
+
+		return m_center;
+	}
+
+	/**
+	 *
+	 * @return All the categories
+	 */
+	public Category[] getCategories() {
+
+		return m_categories;
+	}
+
+	/**
+	 *
+	 * @return The category with the most recent recording of the selected center
+	 */
+	public Category getLatestCategory() {
+
+		return m_latestCategory;
+	}
+
+	/**
+	 *
+	 * @return The selected category
+	 */
+	public Category getCategory() {
+
+		return m_category;
+	}
+
+	/**
+	 *
+	 * @return The recordings of the selected center about the selected category
+	 */
+	public Parameter[] getParameters() {
+
+		return m_parameters;
+	}
+
+	/**
+	 *
+	 * @return The average of the recordings scores
+	 */
+	public double getAverage() {
+
+		return m_average;
+	}
+
+	private Center[] m_centers;
+	private Center m_latestCenter;
+	private Center m_center;
+	private Category[] m_categories;
+	private Category m_latestCategory;
+	private Category m_category;
+	private Parameter[] m_parameters;
+	private double m_average;
+}
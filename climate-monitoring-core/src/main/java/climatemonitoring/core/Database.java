@@ -9,6 +9,8 @@ Dariia Sniezhko 753057 VA
 
 package climatemonitoring.core;
 
+import java.time.LocalDateTime;
+
 /**
  * The database interface is responsible for communication between the application
  * and the database. It allows to perform specific operations, but not to execute
@@ -37,6 +39,14 @@ public interface Database {
 	 */
 	public void end() throws ConnectionLostException, DatabaseRequestException;
 
+	/**
+	 * To abandon a transaction, undoing its changes
+	 * 
+	 * @throws ConnectionLostException If the client loses connection during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request
+	 */
+	public void rollback() throws ConnectionLostException, DatabaseRequestException;
+
 
 	/**
 	 * Returns in alphabetical order an array of areas which have a name that
@@ -71,9 +81,9 @@ public interface Database {
 	public Area[] searchAreasByCountry(String str) throws ConnectionLostException, DatabaseRequestException;
 
 	/**
-	 * Returns in alphabetical order an array of areas which can be
-	 * found around the specified coordinates. The around is about 0.5
-	 * degrees for both latitude and longitude
+	 * Returns an array of areas which can be found around the specified
+	 * coordinates, from the nearest. The around is about 0.5 degrees for
+	 * both latitude and longitude
 	 * 
 	 * @param latitude Value between -90 and 90
 	 * @param longitude Value between -180 and 180
@@ -83,6 +93,44 @@ public interface Database {
 	 */
 	public Area[] searchAreasByCoords(double latitude, double longitude) throws ConnectionLostException, DatabaseRequestException;
 
+	/**
+	 * Returns the areas inside a box, from the nearest to its center.
+	 * The box can cross the antimeridian
+	 * 
+	 * @param min_latitude The southern latitude
+	 * @param max_latitude The northern latitude
+	 * @param west The western longitude, if greater than the eastern one the box crosses the antimeridian
+	 * @param east The eastern longitude
+	 * @return The result of the search as an array of areas
+	 * @throws ConnectionLostException If the client loses connection during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request
+	 */
+	public Area[] searchAreasInBox(double min_latitude, double max_latitude, double west, double east) throws ConnectionLostException, DatabaseRequestException;
+
+	/**
+	 * Returns the areas within a great-circle distance from a point, from the nearest
+	 * 
+	 * @param latitude Value between -90 and 90
+	 * @param longitude Value between -180 and 180
+	 * @param radius The distance in kilometers
+	 * @return The result of the search as an array of areas
+	 * @throws ConnectionLostException If the client loses connection during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request
+	 */
+	public Area[] searchAreasInRadius(double latitude, double longitude, double radius) throws ConnectionLostException, DatabaseRequestException;
+
+	/**
+	 * Returns the nearest areas to a point, from the nearest
+	 * 
+	 * @param latitude Value between -90 and 90
+	 * @param longitude Value between -180 and 180
+	 * @param count The number of areas
+	 * @return The result of the search as an array of areas
+	 * @throws ConnectionLostException If the client loses connection during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request
+	 */
+	public Area[] searchNearestAreas(double latitude, double longitude, int count) throws ConnectionLostException, DatabaseRequestException;
+
 	/**
 	 * Returns in alphabetical order an array of centers which have
 	 * a name that contains the input string
@@ -104,6 +152,60 @@ public interface Database {
 	 */
 	public Center[] searchCentersByName(String str) throws ConnectionLostException, DatabaseRequestException;
 
+	/**
+	 * Same as {@link #searchAreasByName(String)}, but returns one page of the
+	 * results at a time. The first page is requested with a null cursor, the
+	 * following ones with the cursor of the previous page
+	 * 
+	 * @param str The input string the search is based on
+	 * @param page_size The maximum number of areas in the page
+	 * @param cursor The cursor returned with the previous page, null for the first page
+	 * @return A page of the results of the search
+	 * @throws ConnectionLostException If the client loses connection during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request or the cursor is not valid
+	 */
+	public Page<Area> searchAreasByName(String str, int page_size, String cursor) throws ConnectionLostException, DatabaseRequestException;
+
+	/**
+	 * Same as {@link #searchAreasByCountry(String)}, but returns one page of the
+	 * results at a time
+	 * 
+	 * @param str The input string the search is based on
+	 * @param page_size The maximum number of areas in the page
+	 * @param cursor The cursor returned with the previous page, null for the first page
+	 * @return A page of the results of the search
+	 * @throws ConnectionLostException If the client loses connection during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request or the cursor is not valid
+	 */
+	public Page<Area> searchAreasByCountry(String str, int page_size, String cursor) throws ConnectionLostException, DatabaseRequestException;
+
+	/**
+	 * Same as {@link #searchAreasByCoords(double, double)}, but returns one page of the
+	 * results at a time
+	 * 
+	 * @param latitude Value between -90 and 90
+	 * @param longitude Value between -180 and 180
+	 * @param page_size The maximum number of areas in the page
+	 * @param cursor The cursor returned with the previous page, null for the first page
+	 * @return A page of the results of the search
+	 * @throws ConnectionLostException If the client loses connection during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request or the cursor is not valid
+	 */
+	public Page<Area> searchAreasByCoords(double latitude, double longitude, int page_size, String cursor) throws ConnectionLostException, DatabaseRequestException;
+
+	/**
+	 * Same as {@link #searchCentersByName(String)}, but returns one page of the
+	 * results at a time
+	 * 
+	 * @param str The input string the search is based on
+	 * @param page_size The maximum number of centers in the page
+	 * @param cursor The cursor returned with the previous page, null for the first page
+	 * @return A page of the results of the search
+	 * @throws ConnectionLostException If the client loses connection during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request or the cursor is not valid
+	 */
+	public Page<Center> searchCentersByName(String str, int page_size, String cursor) throws ConnectionLostException, DatabaseRequestException;
+
 
 	/**
 	 * To get an area by its geoname id
@@ -232,6 +334,76 @@ public interface Database {
 	 */
 	public double getParametersAverage(int geoname_id, String center_id, String category) throws ConnectionLostException, DatabaseRequestException;
 
+	/**
+	 * To get the statistics of the recordings of a specific area,
+	 * of a specific center about a specific category
+	 * 
+	 * @param geoname_id The area's ID
+	 * @param center_id The center's ID
+	 * @param category The parameter's category
+	 * @return The count, the sum, the lowest, the highest and the latest score and the score histogram
+	 * @throws ConnectionLostException If the client loses connection during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request
+	 */
+	public ParameterStats getParameterStats(int geoname_id, String center_id, String category) throws ConnectionLostException, DatabaseRequestException;
+
+	/**
+	 * Returns the recordings of a specified area by the desired center about a specific category,
+	 * from the oldest, recorded within a time range
+	 * 
+	 * @param geoname_id The area's ID
+	 * @param center_id The center's ID
+	 * @param category The parameter's category
+	 * @param from The beginning of the range, included (null for no beginning)
+	 * @param to The end of the range, excluded (null for no end)
+	 * @return The result of the search as an array of parameters
+	 * @throws ConnectionLostException If the client loses connection during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request
+	 */
+	public Parameter[] getParametersInRange(int geoname_id, String center_id, String category, LocalDateTime from, LocalDateTime to) throws ConnectionLostException, DatabaseRequestException;
+
+	/**
+	 * Returns the summaries (count, average, lowest and highest score) of the recordings
+	 * of a specified area by the desired center, one for every hour, day or month with
+	 * recordings, ordered by category and by time. The range is rounded to whole buckets
+	 * 
+	 * @param geoname_id The area's ID
+	 * @param center_id The center's ID
+	 * @param category The parameter's category, or null for every category
+	 * @param size The size of the buckets: ParameterBucket.HOUR, DAY or MONTH
+	 * @param from The beginning of the range, its bucket included (null for no beginning)
+	 * @param to The end of the range, excluded (null for no end)
+	 * @return The buckets
+	 * @throws ConnectionLostException If the client loses connection during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request
+	 */
+	public ParameterBucket[] getParameterTrend(int geoname_id, String center_id, String category, String size, LocalDateTime from, LocalDateTime to) throws ConnectionLostException, DatabaseRequestException;
+
+	/**
+	 * To get everything needed to show the parameters of an area in a single request.
+	 * The data is read within a single transaction
+	 * 
+	 * @param geoname_id The area's ID
+	 * @param center_id The center's ID, or null for the center with the most recent recording
+	 * @param category The parameter's category, or null for the category with the most recent recording
+	 * @return The area dashboard
+	 * @throws ConnectionLostException If the client loses connection during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request
+	 */
+	public AreaDashboard getAreaDashboard(int geoname_id, String center_id, String category) throws ConnectionLostException, DatabaseRequestException;
+
+	/**
+	 * To check in a single request whether the user id, the email and the SSID of an operator are already taken
+	 * 
+	 * @param user_id The operator's user id
+	 * @param email The operator's email
+	 * @param ssid The operator's SSID
+	 * @return The user ids of the operators that already use the user id, the email and the SSID, in this order (null where the value is free)
+	 * @throws ConnectionLostException If the client loses connection during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request
+	 */
+	public String[] validateRegistration(String user_id, String email, String ssid) throws ConnectionLostException, DatabaseRequestException;
+
 	/**
 	 * Get all the categories and their explanation
 	 * 
@@ -293,6 +465,18 @@ public interface Database {
 	 */
 	public boolean addParameter(Parameter parameter) throws ConnectionLostException, DatabaseRequestException;
 
+	/**
+	 * Adds many parameters to the database with a single request, for example
+	 * the recordings of a station after a connectivity gap. The parameters that
+	 * are not valid are reported and skipped, the others are added together
+	 * 
+	 * @param parameters The parameters that need to be added to the database
+	 * @return The error message of every parameter, in the same order (null where the parameter was added)
+	 * @throws ConnectionLostException If the client loses connection during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request
+	 */
+	public String[] addParameters(Parameter[] parameters) throws ConnectionLostException, DatabaseRequestException;
+
 
 	/**
 	 * Edits an existing operator
@@ -9,6 +9,8 @@ Dariia Sniezhko 753057 VA
 
 package climatemonitoring.core;
 
+import java.time.LocalDateTime;
+
 /**
  * The database multithreaded interface has the same responsibilities
  * as the non-threaded interface (Database). Every operation returns
@@ -34,6 +36,13 @@ public interface DatabaseMT {
 	 */
 	public Result<Boolean> end();
 
+	/**
+	 * To abandon a transaction, undoing its changes
+	 * 
+	 * @return Success or failure of the operation
+	 */
+	public Result<Boolean> rollback();
+
 	/**
 	 * Returns in alphabetical order an array of areas which have a name that
 	 * contains the input string.
@@ -63,9 +72,9 @@ public interface DatabaseMT {
 	public Result<Area[]> searchAreasByCountry(String str);
 
 	/**
-	 * Returns in alphabetical order an array of areas which can be
-	 * found around the specified coordinates. The around is about 0.5
-	 * degrees for both latitude and longitude
+	 * Returns an array of areas which can be found around the specified
+	 * coordinates, from the nearest. The around is about 0.5 degrees for
+	 * both latitude and longitude
 	 * 
 	 * @param latitude Value between -90 and 90
 	 * @param longitude Value between -180 and 180
@@ -73,6 +82,38 @@ public interface DatabaseMT {
 	 */
 	public Result<Area[]> searchAreasByCoords(double latitude, double longitude);
 
+	/**
+	 * Returns the areas inside a box, from the nearest to its center.
+	 * The box can cross the antimeridian
+	 * 
+	 * @param min_latitude The southern latitude
+	 * @param max_latitude The northern latitude
+	 * @param west The western longitude, if greater than the eastern one the box crosses the antimeridian
+	 * @param east The eastern longitude
+	 * @return The result of the search as an array of areas
+	 */
+	public Result<Area[]> searchAreasInBox(double min_latitude, double max_latitude, double west, double east);
+
+	/**
+	 * Returns the areas within a great-circle distance from a point, from the nearest
+	 * 
+	 * @param latitude Value between -90 and 90
+	 * @param longitude Value between -180 and 180
+	 * @param radius The distance in kilometers
+	 * @return The result of the search as an array of areas
+	 */
+	public Result<Area[]> searchAreasInRadius(double latitude, double longitude, double radius);
+
+	/**
+	 * Returns the nearest areas to a point, from the nearest
+	 * 
+	 * @param latitude Value between -90 and 90
+	 * @param longitude Value between -180 and 180
+	 * @param count The number of areas
+	 * @return The result of the search as an array of areas
+	 */
+	public Result<Area[]> searchNearestAreas(double latitude, double longitude, int count);
+
 	/**
 	 * Returns in alphabetical order an array of centers which have
 	 * a name that contains the input string
@@ -92,6 +133,52 @@ public interface DatabaseMT {
 	 */
 	public Result<Center[]> searchCentersByName(String str);
 
+	/**
+	 * Same as {@link #searchAreasByName(String)}, but returns one page of the
+	 * results at a time. The first page is requested with a null cursor, the
+	 * following ones with the cursor of the previous page
+	 * 
+	 * @param str The input string the search is based on
+	 * @param page_size The maximum number of areas in the page
+	 * @param cursor The cursor returned with the previous page, null for the first page
+	 * @return A page of the results of the search
+	 */
+	public Result<Page<Area>> searchAreasByName(String str, int page_size, String cursor);
+
+	/**
+	 * Same as {@link #searchAreasByCountry(String)}, but returns one page of the
+	 * results at a time
+	 * 
+	 * @param str The input string the search is based on
+	 * @param page_size The maximum number of areas in the page
+	 * @param cursor The cursor returned with the previous page, null for the first page
+	 * @return A page of the results of the search
+	 */
+	public Result<Page<Area>> searchAreasByCountry(String str, int page_size, String cursor);
+
+	/**
+	 * Same as {@link #searchAreasByCoords(double, double)}, but returns one page of the
+	 * results at a time
+	 * 
+	 * @param latitude Value between -90 and 90
+	 * @param longitude Value between -180 and 180
+	 * @param page_size The maximum number of areas in the page
+	 * @param cursor The cursor returned with the previous page, null for the first page
+	 * @return A page of the results of the search
+	 */
+	public Result<Page<Area>> searchAreasByCoords(double latitude, double longitude, int page_size, String cursor);
+
+	/**
+	 * Same as {@link #searchCentersByName(String)}, but returns one page of the
+	 * results at a time
+	 * 
+	 * @param str The input string the search is based on
+	 * @param page_size The maximum number of centers in the page
+	 * @param cursor The cursor returned with the previous page, null for the first page
+	 * @return A page of the results of the search
+	 */
+	public Result<Page<Center>> searchCentersByName(String str, int page_size, String cursor);
+
 
 	/**
 	 * To get an area by its geoname id
@@ -196,6 +283,66 @@ public interface DatabaseMT {
 	 */
 	public Result<Double> getParametersAverage(int geoname_id, String center_id, String category);
 
+	/**
+	 * To get the statistics of the recordings of a specific area,
+	 * of a specific center about a specific category
+	 * 
+	 * @param geoname_id The area's ID
+	 * @param center_id The center's ID
+	 * @param category The parameter's category
+	 * @return The count, the sum, the lowest, the highest and the latest score and the score histogram
+	 */
+	public Result<ParameterStats> getParameterStats(int geoname_id, String center_id, String category);
+
+	/**
+	 * Returns the recordings of a specified area by the desired center about a specific category,
+	 * from the oldest, recorded within a time range
+	 * 
+	 * @param geoname_id The area's ID
+	 * @param center_id The center's ID
+	 * @param category The parameter's category
+	 * @param from The beginning of the range, included (null for no beginning)
+	 * @param to The end of the range, excluded (null for no end)
+	 * @return The result of the search as an array of parameters
+	 */
+	public Result<Parameter[]> getParametersInRange(int geoname_id, String center_id, String category, LocalDateTime from, LocalDateTime to);
+
+	/**
+	 * Returns the summaries (count, average, lowest and highest score) of the recordings
+	 * of a specified area by the desired center, one for every hour, day or month with
+	 * recordings, ordered by category and by time. The range is rounded to whole buckets
+	 * 
+	 * @param geoname_id The area's ID
+	 * @param center_id The center's ID
+	 * @param category The parameter's category, or null for every category
+	 * @param size The size of the buckets: ParameterBucket.HOUR, DAY or MONTH
+	 * @param from The beginning of the range, its bucket included (null for no beginning)
+	 * @param to The end of the range, excluded (null for no end)
+	 * @return The buckets
+	 */
+	public Result<ParameterBucket[]> getParameterTrend(int geoname_id, String center_id, String category, String size, LocalDateTime from, LocalDateTime to);
+
+	/**
+	 * To get everything needed to show the parameters of an area in a single request.
+	 * The data is read within a single transaction
+	 * 
+	 * @param geoname_id The area's ID
+	 * @param center_id The center's ID, or null for the center with the most recent recording
+	 * @param category The parameter's category, or null for the category with the most recent recording
+	 * @return The area dashboard
+	 */
+	public Result<AreaDashboard> getAreaDashboard(int geoname_id, String center_id, String category);
+
+	/**
+	 * To check in a single request whether the user id, the email and the SSID of an operator are already taken
+	 * 
+	 * @param user_id The operator's user id
+	 * @param email The operator's email
+	 * @param ssid The operator's SSID
+	 * @return The user ids of the operators that already use the user id, the email and the SSID, in this order (null where the value is free)
+	 */
+	public Result<String[]> validateRegistration(String user_id, String email, String ssid);
+
 	/**
 	 * Get all the categories and their explanation
 	 * 
@@ -245,6 +392,16 @@ public interface DatabaseMT {
 	 */
 	public Result<Boolean> addParameter(Parameter parameter);
 
+	/**
+	 * Adds many parameters to the database with a single request, for example
+	 * the recordings of a station after a connectivity gap. The parameters that
+	 * are not valid are reported and skipped, the others are added together
+	 * 
+	 * @param parameters The parameters that need to be added to the database
+	 * @return The error message of every parameter, in the same order (null where the parameter was added)
+	 */
+	public Result<String[]> addParameters(Parameter[] parameters);
+
 
 	/**
 	 * Edits an existing operator
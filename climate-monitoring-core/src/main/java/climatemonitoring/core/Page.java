@@ -0,0 +1,65 @@
+/*
+
+Alessandro della Frattina 753073 VA
+Cristian Capiferri 752918 VA
+Francesco Lops 753175 VA
+Dariia Sniezhko 753057 VA
+
+*/
+
+package climatemonitoring.core;
+
+import java.io.Serializable;
+
+/**
+ * A page of the results of a search. The cursor is opaque to the
+ * client: it only needs to be sent back to get the following page
+ *
+ * @author dariiasniezhkoinsubria
+ * @version 1.0-SNAPSHOT
+ */
+public class Page<T> implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Initializes page fields
+	 * @param items The results of the page
+	 * @param cursor The cursor of the following page, null if this is the last page
+	 */
+	public Page(T[] items, String cursor) {
+
+		m_items = items;
+		m_cursor = cursor;
+	}
+
+	/**
+	 *
+	 * @return The results of the page
+	 */
+	public T[] getItems() {
+
+		return m_items;
+	}
+
+	/**
+	 *
+	 * @return The cursor of the following page, null if this is the last page
+	 */
+	public String getCursor() {
+
+		return m_cursor;
+	}
+
+	/**
+	 *
+	 * @return True if there are more results after this page
+	 */
+	public boolean hasMore() {
+
+		return m_cursor != null;
+	}
+
+	private T[] m_items;
+	private String m_cursor;
+}
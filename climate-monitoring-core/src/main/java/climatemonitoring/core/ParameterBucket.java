@@ -0,0 +1,149 @@
+/*
+
+Alessandro della Frattina 753073 VA
+Cristian Capiferri 752918 VA
+Francesco Lops 753175 VA
+Dariia Sniezhko 753057 VA
+
+*/
+
+package climatemonitoring.core;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * The summary of the recordings of a center about a category of an area
+ * within an hour, a day or a month, to draw a trend without the recordings
+ *
+ * @author dariiasniezhkoinsubria
+ * @version 1.0-SNAPSHOT
+ */
+public class ParameterBucket implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Buckets of one hour
+	 */
+	public static final String HOUR = "hour";
+
+	/**
+	 * Buckets of one day
+	 */
+	public static final String DAY = "day";
+
+	/**
+	 * Buckets of one calendar month
+	 */
+	public static final String MONTH = "month";
+
+	/**
+	 * Initializes bucket fields
+	 * @param category The parameter's category
+	 * @param start The beginning of the bucket
+	 * @param count The number of recordings
+	 * @param sum The sum of the scores
+	 * @param min The lowest score
+	 * @param max The highest score
+	 */
+	public ParameterBucket(String category, LocalDateTime start, int count, long sum, int min, int max) {
+
+		m_category = category;
+		m_start = start;
+		m_count = count;
+		m_sum = sum;
+		m_min = min;
+		m_max = max;
+	}
+
+	/**
+	 * The beginning of the bucket of the given size that contains a time
+	 *
+	 * @param size HOUR, DAY or MONTH
+	 * @param timestamp The time
+	 * @return The beginning of the bucket
+	 * @throws IllegalArgumentException If the size is not valid
+	 */
+	public static LocalDateTime truncate(String size, LocalDateTime timestamp) {
+
+		switch (size) {
+
+			case HOUR: return timestamp.truncatedTo(ChronoUnit.HOURS);
+			case DAY: return timestamp.truncatedTo(ChronoUnit.DAYS);
+			case MONTH: return timestamp.truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1);
+			default: throw new IllegalArgumentException("Invalid bucket size: " + size);
+		}
+	}
+
+	/**
+	 *
+	 * @return The parameter's category
+	 */
+	public String getCategory() {
+
+		return m_category;
+	}
+
+	/**
+	 *
+	 * @return The beginning of the bucket
+	 */
+	public LocalDateTime getStart() {
+
+		return m_start;
+	}
+
+	/**
+	 *
+	 * @return The number of recordings
+	 */
+	public int getCount() {
+
+		return m_count;
+	}
+
+	/**
+	 *
+	 * @return The sum of the scores
+	 */
+	public long getSum() {
+
+		return m_sum;
+	}
+
+	/**
+	 *
+	 * @return The average of the scores
+	 */
+	public double getAverage() {
+
+		return m_count == 0 ? 0.0 : (double) m_sum / m_count;
+	}
+
+	/**
+	 *
+	 * @return The lowest score
+	 */
+	public int getMin() {
+
+		return m_min;
+	}
+
+	/**
+	 *
+	 * @return The highest score
+	 */
+	public int getMax() {
+
+		return m_max;
+	}
+
+	private String m_category;
+	private LocalDateTime m_start;
+	private int m_count;
+	private long m_sum;
+	private int m_min;
+	private int m_max;
+}
@@ -0,0 +1,173 @@
+/*
+
+Alessandro della Frattina 753073 VA
+Cristian Capiferri 752918 VA
+Francesco Lops 753175 VA
+Dariia Sniezhko 753057 VA
+
+*/
+
+package climatemonitoring.core;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * The statistics of the recordings of a center about a category of an area:
+ * how many there are, their sum, the lowest and the highest score,
+ * the most recent score and how many recordings have each score
+ *
+ * @author dariiasniezhkoinsubria
+ * @version 1.0-SNAPSHOT
+ */
+public class ParameterStats implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The lowest score a recording can have
+	 */
+	public static final int MIN_SCORE = 1;
+
+	/**
+	 * The highest score a recording can have
+	 */
+	public static final int MAX_SCORE = 5;
+
+	/**
+	 * Initializes statistics fields
+	 * @param geoname_id The area's ID
+	 * @param center_id The center's ID
+	 * @param category The parameter's category
+	 * @param count The number of recordings
+	 * @param sum The sum of the scores
+	 * @param min The lowest score (0 if there are no recordings)
+	 * @param max The highest score (0 if there are no recordings)
+	 * @param latest_score The score of the most recent recording (0 if there are no recordings)
+	 * @param latest_timestamp The time of the most recent recording (null if there are no recordings)
+	 * @param histogram The number of recordings of every score, from MIN_SCORE to MAX_SCORE
+	 */
+	public ParameterStats(int geoname_id, String center_id, String category, int count, long sum, int min, int max, int latest_score, LocalDateTime latest_timestamp, int[] histogram) {
+
+		m_geonameID = geoname_id;
+		m_centerID = center_id;
+		m_category = category;
+		m_count = count;
+		m_sum = sum;
+		m_min = min;
+		m_max = max;
+		m_latestScore = latest_score;
+		m_latestTimestamp = latest_timestamp;
+		m_histogram = histogram;
+	}
+
+	/**
+	 *
+	 * @return The area's ID
+	 */
+	public int getGeonameID() {
+
+		return m_geonameID;
+	}
+
+	/**
+	 *
+	 * @return The center's ID
+	 */
+	public String getCenterID() {
+
+		return m_centerID;
+	}
+
+	/**
+	 *
+	 * @return The parameter's category
+	 */
+	public String getCategory() {
+
+		return m_category;
+	}
+
+	/**
+	 *
+	 * @return The number of recordings
+	 */
+	public int getCount() {
+
+		return m_count;
+	}
+
+	/**
+	 *
+	 * @return The sum of the scores
+	 */
+	public long getSum() {
+
+		return m_sum;
+	}
+
+	/**
+	 *
+	 * @return The average of the scores (0 if there are no recordings)
+	 */
+	public double getAverage() {
+
+		return m_count == 0 ? 0.0 : (double) m_sum / m_count;
+	}
+
+	/**
+	 *
+	 * @return The lowest score
+	 */
+	public int getMin() {
+
+		return m_min;
+	}
+
+	/**
+	 *
+	 * @return The highest score
+	 */
+	public int getMax() {
+
+		return m_max;
+	}
+
+	/**
+	 *
+	 * @return The score of the most recent recording
+	 */
+	public int getLatestScore() {
+
+		return m_latestScore;
+	}
+
+	/**
+	 *
+	 * @return The time of the most recent recording
+	 */
+	public LocalDateTime getLatestTimestamp() {
+
+		return m_latestTimestamp;
+	}
+
+	/**
+	 *
+	 * @return The number of recordings of every score, the first element being MIN_SCORE
+	 */
+	public int[] getHistogram() {
+
+		return m_histogram;
+	}
+
+	private int m_geonameID;
+	private String m_centerID;
+	private String m_category;
+	private int m_count;
+	private long m_sum;
+	private int m_min;
+	private int m_max;
+	private int m_latestScore;
+	private LocalDateTime m_latestTimestamp;
+	private int[] m_histogram;
+}
@@ -12,7 +12,9 @@ package climatemonitoring.core;
 /**
  * This class contains enumeration constants that are used
  * to send a request from the proxy (client) to the skeleton
- * (server). Every enum corresponds to a Database class method
+ * (server). Every enum corresponds to a Database class method.
+ * The binary protocol sends the ordinal of the constant, so new
+ * constants are appended at the end
  * 
  * @author ccapiferri
  * @version 1.0-SNAPSHOT
@@ -180,5 +182,80 @@ public enum RequestType {
 	/**
 	 * To safely disconnect from the server
 	 */
-	DISCONNECT
+	DISCONNECT,
+
+	/**
+	 * To get everything needed to show the parameters of an area
+	 */
+	GET_AREA_DASHBOARD,
+
+	/**
+	 * To search areas by name one page at a time
+	 */
+	SEARCH_AREAS_BY_NAME_PAGED,
+
+	/**
+	 * To search areas by country one page at a time
+	 */
+	SEARCH_AREAS_BY_COUNTRY_PAGED,
+
+	/**
+	 * To search areas by coordinates one page at a time
+	 */
+	SEARCH_AREAS_BY_COORDS_PAGED,
+
+	/**
+	 * To search centers by name one page at a time
+	 */
+	SEARCH_CENTERS_BY_NAME_PAGED,
+
+	/**
+	 * To search the areas inside a box
+	 */
+	SEARCH_AREAS_IN_BOX,
+
+	/**
+	 * To search the areas within a distance from a point
+	 */
+	SEARCH_AREAS_IN_RADIUS,
+
+	/**
+	 * To search the nearest areas to a point
+	 */
+	SEARCH_NEAREST_AREAS,
+
+	/**
+	 * To check the user id, the email and the SSID of a new operator at once
+	 */
+	VALIDATE_REGISTRATION,
+
+	/**
+	 * To get the statistics of the recordings of a center about a category of an area
+	 */
+	GET_PARAMETER_STATS,
+
+	/**
+	 * To get the recordings of a center about a category of an area within a time range
+	 */
+	GET_PARAMETERS_IN_RANGE,
+
+	/**
+	 * To get the hourly, daily or monthly summaries of the recordings of a center about an area
+	 */
+	GET_PARAMETER_TREND,
+
+	/**
+	 * To add many parameters at once
+	 */
+	ADD_PARAMETERS,
+
+	/**
+	 * To get the request metrics of the server, for local clients only
+	 */
+	GET_SERVER_METRICS,
+
+	/**
+	 * To abandon a transaction, undoing its changes
+	 */
+	ROLLBACK
 }
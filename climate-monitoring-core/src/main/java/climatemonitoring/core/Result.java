@@ -9,62 +9,105 @@ Dariia Sniezhko 753057 VA
 
 package climatemonitoring.core;
 
+import java.lang.reflect.Method;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * The result class is used to keep track of the data to be
  * returned by a function that is being executed on a different
  * thread. ready() is used to check if the function has completed
- * its task and get() is used to retrieve the result
- * 
+ * its task and get() is used to retrieve the result.
+ * All the results share one bounded pool of worker threads (virtual threads
+ * when the JVM provides them), and can be chained with then() and
+ * thenCompose() instead of polling one result before starting the next
+ *
  * @author ccapiferri
  * @version 1.0-SNAPSHOT
  */
 public abstract class Result<T> {
 
 	/**
-	 * Initializes a new working thread and starts its execution.
+	 * Submits exec() to the shared pool of worker threads.
 	 * After finishing, collects the data returned
 	 */
 	public Result() {
 
-		m_thread = new Thread() {
+		m_future = new CompletableFuture<T>();
+		final long submitted = System.nanoTime();
+		s_submitted.incrementAndGet();
 
-			@Override
-			public void run() {
+		m_task = s_executor.submit(() -> {
 
-				try {
+			try {
 
-					m_returnData = exec();
-				}
+				m_future.complete(exec());
+			}
 
-				catch (Exception e) {
+			catch (Exception e) {
 
-					m_exception = e;
-				}
+				m_future.completeExceptionally(e);
 			}
-		};
 
-		m_thread.start();
+			catch (Error e) {
+
+				m_future.completeExceptionally(e);
+				throw e;
+			}
+
+			finally {
+
+				long latency = System.nanoTime() - submitted;
+				s_completed.incrementAndGet();
+				s_totalLatency.addAndGet(latency);
+				s_maxLatency.accumulateAndGet(latency, Math::max);
+			}
+		});
+	}
+
+	/**
+	 * Wraps a future that is completed by someone else, used by the chained results
+	 */
+	private Result(CompletableFuture<T> future) {
+
+		m_future = future;
+		m_task = null;
 	}
 
 	/**
 	 * Needs to be overwritten with the code that is going to be
-	 * executed on a different thread
-	 * 
+	 * executed on a different thread. Only the results created with the
+	 * public constructor run it, the chained ones have no work of their own
+	 *
 	 * @throws Exception If anything goes wrong, at the moment of calling the get() function,
 	 * an exception gets thrown
-	 * @returns The result of the function executed from the other thread
+	 * @returns The result of the function executed from the other thread, null if not overwritten
 	 */
-	public abstract T exec() throws Exception;
+	protected T exec() throws Exception {
+
+		return null;
+	}
 
 	/**
 	 * Checks whether the working thread has finished its execution.
 	 * If so, the function get() can be called to retrieve the returned data
-	 * 
+	 *
 	 * @return True if the thread has finished its execution, false otherwise
 	 */
 	public boolean ready() {
 
-		return !m_thread.isAlive();
+		return m_future.isDone();
 	}
 
 	/**
@@ -74,47 +117,337 @@ public abstract class Result<T> {
 
 		try {
 
-			m_thread.join();
+			m_future.get();
 		}
 
 		catch (InterruptedException e) {
 
 			e.printStackTrace();
 		}
+
+		catch (ExecutionException | CancellationException e) {
+
+		}
 	}
 
 	/**
-	 * To interrupt the thread
+	 * To interrupt the thread. The result gets completed with an InterruptedException
 	 */
 	public void interrupt() {
 
-		m_thread.interrupt();
+		m_interrupted = true;
+
+		if (m_task != null)
+			m_task.cancel(true);
+
+		m_future.completeExceptionally(new InterruptedException());
 	}
 
 	/**
-	 * 
+	 *
 	 * @return True if the thread was interrupted
 	 */
 	public boolean interrupted() {
 
-		return m_thread.isInterrupted();
+		return m_interrupted;
 	}
 
 	/**
 	 * Keeps track of the returned data after the working thread has finished
 	 * its execution
-	 * 
+	 *
 	 * @return The data returned by the working thread
 	 * @throws Exception If anything went wrong with the exec() function
 	 */
 	public T get() throws Exception {
 
-		if (m_exception != null) throw m_exception;
+		try {
+
+			return m_future.get();
+		}
+
+		catch (ExecutionException e) {
+
+			throw unwrap(e);
+		}
+	}
+
+	/**
+	 * Waits at most the given time for the data returned by the working thread
+	 *
+	 * @param timeout_millis The time to wait in milliseconds
+	 * @return The data returned by the working thread
+	 * @throws TimeoutException If the thread did not finish in time
+	 * @throws Exception If anything went wrong with the exec() function
+	 */
+	public T get(long timeout_millis) throws TimeoutException, Exception {
+
+		try {
+
+			return m_future.get(timeout_millis, TimeUnit.MILLISECONDS);
+		}
+
+		catch (ExecutionException e) {
+
+			throw unwrap(e);
+		}
+	}
+
+	/**
+	 * A function applied to the data of a finished result
+	 */
+	@FunctionalInterface
+	public interface Step<T, U> {
+
+		public U apply(T value) throws Exception;
+	}
+
+	/**
+	 * A function called when a result finishes
+	 */
+	@FunctionalInterface
+	public interface Callback<T> {
+
+		/**
+		 * @param value The data returned, null if an exception was thrown
+		 * @param exception The exception thrown, null if the data was returned
+		 */
+		public void accept(T value, Exception exception);
+	}
+
+	/**
+	 * Calls the callback when the result finishes, on the thread that finished it
+	 * (or on the calling one if it has already finished). Widgets must not
+	 * be touched from the callback, the GUI still has to poll ready()
+	 *
+	 * @param callback The function to call
+	 * @return This result
+	 */
+	public Result<T> onComplete(Callback<? super T> callback) {
+
+		m_future.whenComplete((T value, Throwable throwable) -> {
+
+			if (throwable == null)
+				callback.accept(value, null);
+			else if (unwrap(throwable) instanceof Exception)
+				callback.accept(null, unwrap(throwable));
+		});
+
+		return this;
+	}
+
+	/**
+	 * Transforms the data of this result when it is ready
+	 *
+	 * @param step The transformation, if it throws the new result fails with the same exception
+	 * @return A result with the transformed data, it fails if this one fails
+	 */
+	public <U> Result<U> then(Step<? super T, ? extends U> step) {
+
+		return new Chained<U>(m_future.thenApply((T value) -> {
+
+			try {
+
+				return step.apply(value);
+			}
+
+			catch (Exception e) {
+
+				throw new CompletionException(e);
+			}
+		}));
+	}
+
+	/**
+	 * Starts another asynchronous operation with the data of this result,
+	 * without blocking any thread while this one runs
+	 *
+	 * @param step Returns the result of the following operation
+	 * @return A result that finishes when the following operation finishes
+	 */
+	public <U> Result<U> thenCompose(Step<? super T, Result<U>> step) {
+
+		return new Chained<U>(m_future.thenCompose((T value) -> {
+
+			try {
+
+				return step.apply(value).m_future;
+			}
+
+			catch (Exception e) {
+
+				throw new CompletionException(e);
+			}
+		}));
+	}
+
+	/**
+	 * Limits the time this result can take
+	 *
+	 * @param timeout_millis The time in milliseconds
+	 * @return A result that fails with a TimeoutException if this one does not finish in time
+	 */
+	public Result<T> withTimeout(long timeout_millis) {
+
+		return new Chained<T>(m_future.copy().orTimeout(timeout_millis, TimeUnit.MILLISECONDS));
+	}
+
+	/**
+	 * A result that is already finished
+	 *
+	 * @param value The data to return
+	 * @return The result
+	 */
+	public static <T> Result<T> completed(T value) {
+
+		return new Chained<T>(CompletableFuture.completedFuture(value));
+	}
+
+	/**
+	 * A result that finishes after a delay, without holding a worker thread while waiting
+	 *
+	 * @param delay_millis The delay in milliseconds
+	 * @return The result, its data is null
+	 */
+	public static Result<Void> delayed(long delay_millis) {
+
+		CompletableFuture<Void> future = new CompletableFuture<Void>();
+		s_timer.schedule(() -> future.complete(null), delay_millis, TimeUnit.MILLISECONDS);
+
+		return new Chained<Void>(future);
+	}
+
+	/**
+	 *
+	 * @return The number of worker threads created since the start of the application
+	 */
+	public static long getThreadsCreated() {
+
+		return s_threadsCreated.get();
+	}
+
+	/**
+	 *
+	 * @return The number of results submitted to the worker threads
+	 */
+	public static long getSubmittedCount() {
+
+		return s_submitted.get();
+	}
+
+	/**
+	 *
+	 * @return The average time in milliseconds from the creation of a result to its completion
+	 */
+	public static double getAverageLatency() {
+
+		long completed = s_completed.get();
+		return completed == 0 ? 0.0 : s_totalLatency.get() / (completed * 1000000.0);
+	}
 
-		return m_returnData;
+	/**
+	 * A summary of the worker threads usage
+	 */
+	public static String getStatistics() {
+
+		return String.format("Results: %d submitted, %d completed, %d queued, %d threads created, latency avg %.2f ms max %.2f ms",
+			s_submitted.get(), s_completed.get(), s_executor.getQueue().size(), s_threadsCreated.get(), getAverageLatency(), s_maxLatency.get() / 1000000.0);
 	}
 
-	private Thread m_thread;
-	private T m_returnData;
-	private Exception m_exception;
+	/**
+	 * The result of then(), thenCompose() and withTimeout(), it has no work of its own
+	 */
+	private static final class Chained<T> extends Result<T> {
+
+		private Chained(CompletableFuture<T> future) {
+
+			super(future);
+		}
+	}
+
+	private static Exception unwrap(Throwable throwable) {
+
+		while ((throwable instanceof ExecutionException || throwable instanceof CompletionException) && throwable.getCause() != null)
+			throwable = throwable.getCause();
+
+		if (throwable instanceof Error)
+			throw (Error) throwable;
+
+		return (Exception) throwable;
+	}
+
+	/**
+	 * Virtual threads are looked up at runtime, so the core still runs on JVMs
+	 * that do not provide them. Platform threads are daemons, so that they
+	 * do not keep a closed application alive
+	 */
+	private static ThreadFactory createThreadFactory() {
+
+		ThreadFactory factory = null;
+
+		try {
+
+			Method ofVirtual = Thread.class.getMethod("ofVirtual");
+			Class<?> builder = Class.forName("java.lang.Thread$Builder");
+
+			Object virtualBuilder = ofVirtual.invoke(null);
+			virtualBuilder = builder.getMethod("name", String.class, long.class).invoke(virtualBuilder, "Result-", 0L);
+			factory = (ThreadFactory) builder.getMethod("factory").invoke(virtualBuilder);
+		}
+
+		catch (ReflectiveOperationException | RuntimeException e) {
+
+			factory = null;
+		}
+
+		final ThreadFactory virtual = factory;
+
+		return (Runnable task) -> {
+
+			Thread thread = null;
+
+			if (virtual != null)
+				thread = virtual.newThread(task);
+
+			else {
+
+				thread = new Thread(task, "Result-" + s_threadsCreated.get());
+				thread.setDaemon(true);
+			}
+
+			s_threadsCreated.incrementAndGet();
+			return thread;
+		};
+	}
+
+	private final CompletableFuture<T> m_future;
+	private final Future<?> m_task;
+	private volatile boolean m_interrupted;
+
+	/**
+	 * The most operations that run at the same time, the others wait in the queue
+	 */
+	private static final int MAX_THREADS = Math.max(16, 4 * Runtime.getRuntime().availableProcessors());
+
+	private static final AtomicLong s_threadsCreated = new AtomicLong();
+	private static final AtomicLong s_submitted = new AtomicLong();
+	private static final AtomicLong s_completed = new AtomicLong();
+	private static final AtomicLong s_totalLatency = new AtomicLong();
+	private static final AtomicLong s_maxLatency = new AtomicLong();
+	private static final ThreadPoolExecutor s_executor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), createThreadFactory());
+
+	/**
+	 * Completes the delayed results, its thread only hands them over
+	 */
+	private static final ScheduledExecutorService s_timer = Executors.newSingleThreadScheduledExecutor((Runnable task) -> {
+
+		Thread thread = new Thread(task, "Result-timer");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	static {
+
+		s_executor.allowCoreThreadTimeOut(true);
+	}
 }
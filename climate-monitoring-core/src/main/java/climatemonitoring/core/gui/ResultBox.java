@@ -50,6 +50,7 @@ public class ResultBox extends Widget {
 	public int render() {
 
 		m_isAnyItemSelected = false;
+		m_isScrolledToEnd = false;
 		if (m_list == null || m_list.length == 0)
 			return -1;
 
@@ -78,6 +79,7 @@ public class ResultBox extends Widget {
 				}
 			});
 
+			m_isScrolledToEnd = ImGui.getScrollY() >= ImGui.getScrollMaxY() - END_THRESHOLD;
 			ImGui.endListBox();
 		}
 
@@ -93,6 +95,17 @@ public class ResultBox extends Widget {
 		m_list = list;
 	}
 
+	/**
+	 * Replaces the list with a longer one that starts with the same items,
+	 * without bringing the scroll back to the top
+	 * @param list The desired list
+	 */
+	public void extendList(String[] list) {
+
+		m_list = list;
+		m_oldListPtr = list;
+	}
+
 	/**
 	 * Sets the current selected item
 	 * @param current_item The desired value for the current item index
@@ -120,9 +133,21 @@ public class ResultBox extends Widget {
 		return m_isAnyItemSelected;
 	}
 
+	/**
+	 * 
+	 * @return True if the last rendered items are the last ones of the list (or close to them)
+	 */
+	public boolean isScrolledToEnd() {
+
+		return m_isScrolledToEnd;
+	}
+
+	private static final float END_THRESHOLD = 100.0f;
+
 	private String m_label;
 	private String[] m_list;
 	private String[] m_oldListPtr;
 	private int m_currentItem = -1;
 	private boolean m_isAnyItemSelected = false;
+	private boolean m_isScrolledToEnd = false;
 }
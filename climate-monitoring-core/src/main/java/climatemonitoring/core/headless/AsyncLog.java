@@ -0,0 +1,211 @@
+/*
+
+Alessandro della Frattina 753073 VA
+Cristian Capiferri 752918 VA
+Francesco Lops 753175 VA
+Dariia Sniezhko 753057 VA
+
+*/
+
+package climatemonitoring.core.headless;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands the log messages over to a background writer through a bounded ring buffer,
+ * so that logging costs the callers a slot claim instead of the formatting and the I/O.
+ * Every slot has a sequence number that tells whether it is free or holds a message
+ * (a bounded multi-producer queue): the callers claim a slot with a CAS on the tail
+ * and publish it by setting its sequence, the writer drains the published slots in order.
+ * Nothing is allocated or locked on the way.
+ *
+ * When the buffer is full the caller either waits for a free slot or, with the drop
+ * policy, gives up its message unless it is a warning or an error. The number of
+ * dropped messages gets logged by the writer
+ *
+ * @author adellafrattina
+ * @version 1.0-SNAPSHOT
+ * @see Console#setAsync(int, boolean)
+ */
+final class AsyncLog {
+
+	/**
+	 * Starts the writer thread
+	 *
+	 * @param writer Where the messages get written
+	 * @param capacity The number of messages the buffer can hold, rounded up to a power of two
+	 * @param drop True to drop the debug and info messages when the buffer is full, false to wait
+	 */
+	AsyncLog(LogWriter writer, int capacity, boolean drop) {
+
+		int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+
+		m_writer = writer;
+		m_drop = drop;
+		m_mask = size - 1;
+		m_levels = new int[size];
+		m_times = new long[size];
+		m_messages = new String[size];
+		m_sequences = new AtomicLongArray(size);
+
+		for (int i = 0; i < size; i++)
+			m_sequences.set(i, i);
+
+		m_thread = new Thread(this::drain, "Console-writer");
+		m_thread.setDaemon(true);
+		m_thread.start();
+	}
+
+	/**
+	 * Queues a message
+	 *
+	 * @param level The log level, or {@link LogWriter#PLAIN}
+	 * @param time The time of the message in milliseconds
+	 * @param message The message
+	 * @return False if the message has been dropped
+	 */
+	boolean offer(int level, long time, String message) {
+
+		long position;
+
+		while (true) {
+
+			position = m_tail.get();
+			long difference = m_sequences.get((int) position & m_mask) - position;
+
+			if (difference == 0) {
+
+				if (m_tail.compareAndSet(position, position + 1))
+					break;
+			}
+
+			// Full: the slot still holds the message of the previous lap
+			else if (difference < 0) {
+
+				if (m_drop && level != LogWriter.PLAIN && level < Console.WARN) {
+
+					m_dropped.increment();
+					return false;
+				}
+
+				wake();
+				LockSupport.parkNanos(WAIT_NANOS);
+			}
+		}
+
+		int slot = (int) position & m_mask;
+		m_levels[slot] = level;
+		m_times[slot] = time;
+		m_messages[slot] = message;
+
+		// Publishes the message, the volatile write orders the plain ones before it
+		m_sequences.set(slot, position + 1);
+
+		if (m_sleeping)
+			wake();
+
+		return true;
+	}
+
+	/**
+	 * Waits until the messages queued so far have been written
+	 */
+	void flush() {
+
+		long target = m_tail.get();
+
+		while (m_head < target && m_thread.isAlive()) {
+
+			wake();
+			LockSupport.parkNanos(WAIT_NANOS);
+		}
+	}
+
+	/**
+	 *
+	 * @return The number of messages dropped because the buffer was full
+	 */
+	long getDropped() {
+
+		return m_dropped.sum();
+	}
+
+	private void wake() {
+
+		LockSupport.unpark(m_thread);
+	}
+
+	/**
+	 * The loop of the writer thread
+	 */
+	private void drain() {
+
+		long reported = 0;
+
+		while (true) {
+
+			long position = m_head;
+			int written = 0;
+
+			while (m_sequences.get((int) position & m_mask) == position + 1) {
+
+				int slot = (int) position & m_mask;
+				m_writer.append(m_levels[slot], m_times[slot], m_messages[slot]);
+				m_messages[slot] = null;
+
+				// Frees the slot for the next lap
+				m_sequences.set(slot, position + m_mask + 1);
+				m_head = ++position;
+
+				// Keeps the terminal moving during a long burst
+				if (++written == BATCH) {
+
+					m_writer.flush();
+					written = 0;
+				}
+			}
+
+			long dropped = m_dropped.sum();
+
+			if (dropped > reported) {
+
+				m_writer.append(Console.WARN, System.currentTimeMillis(), (dropped - reported) + " log messages dropped, the log buffer was full");
+				reported = dropped;
+			}
+
+			m_writer.flush();
+
+			m_sleeping = true;
+
+			// A message published before the flag was set would not wake the writer
+			if (m_sequences.get((int) m_head & m_mask) != m_head + 1)
+				LockSupport.parkNanos(this, IDLE_NANOS);
+
+			m_sleeping = false;
+		}
+	}
+
+	private static final long WAIT_NANOS = 50_000;
+	private static final long IDLE_NANOS = 100_000_000;
+	private static final int BATCH = 256;
+
+	private final LogWriter m_writer;
+	private final boolean m_drop;
+	private final int m_mask;
+	private final int[] m_levels;
+	private final long[] m_times;
+	private final String[] m_messages;
+	private final AtomicLongArray m_sequences;
+	private final AtomicLong m_tail = new AtomicLong();
+	private final LongAdder m_dropped = new LongAdder();
+	private final Thread m_thread;
+
+	/**
+	 * Only written by the writer thread
+	 */
+	private volatile long m_head;
+	private volatile boolean m_sleeping;
+}
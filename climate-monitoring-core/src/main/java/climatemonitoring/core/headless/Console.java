@@ -10,12 +10,16 @@ Dariia Sniezhko 753057 VA
 package climatemonitoring.core.headless;
 
 import java.io.IOException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.Scanner;
+import java.util.function.Supplier;
 
 /**
- * Console is used to log messages or to request input from the user through the terminal. It is mainly used for a headless application
+ * Console is used to log messages or to request input from the user through the terminal. It is mainly used for a headless application.
+ * 
+ * The messages are written by the calling thread, unless the asynchronous pipeline is started
+ * with {@link #setAsync(int, boolean)}: then they are queued and written by a background thread,
+ * and read() waits for them to be written before prompting the user. The log messages can also
+ * go to a rolling file (see {@link #setLogFile(String, long, int)})
  * 
  * @author adellafrattina
  * @version 1.0-SNAPSHOT
@@ -92,9 +96,71 @@ public class Console {
 	 * <p> {@link Console#DISABLE} = to disable all messages </p>
 	 * @param level The log level
 	 */
-	public void setLogLevel(int level) {
+	public static void setLogLevel(int level) {
+
+		s_instance.m_logLevel = level;
+	}
+
+	/**
+	 * 
+	 * @param level The log level
+	 * @return True if the messages of the level are written
+	 */
+	public static boolean isEnabled(int level) {
+
+		return s_instance.m_logLevel <= level;
+	}
+
+	/**
+	 * Starts writing the messages on a background thread. The messages queued when
+	 * the application exits are written by a shutdown hook
+	 * 
+	 * @param capacity The number of messages that can be waiting to be written
+	 * @param drop What to do when the queue is full: true to drop the debug and info messages, false to wait.
+	 * Warnings and errors always wait
+	 */
+	public static synchronized void setAsync(int capacity, boolean drop) {
+
+		if (s_async != null)
+			return;
+
+		s_async = new AsyncLog(s_writer, capacity, drop);
+		Runtime.getRuntime().addShutdownHook(new Thread(Console::flush, "Console-flush"));
+	}
+
+	/**
+	 * Writes the log messages to a file too, without colors. When the file grows beyond
+	 * the given size it gets renamed to path.1 (path.1 to path.2 and so on) and a new one is started
+	 * 
+	 * @param path The file path, null to only write to the terminal
+	 * @param max_bytes The size after which the file gets rotated
+	 * @param files The number of files kept, the current one included
+	 * @throws IOException If the file cannot be opened
+	 */
+	public static void setLogFile(String path, long max_bytes, int files) throws IOException {
 
-		m_logLevel = level;
+		s_writer.setFile(path != null ? new RollingFile(path, max_bytes, files) : null);
+	}
+
+	/**
+	 * Waits until the queued messages have been written
+	 */
+	public static void flush() {
+
+		AsyncLog async = s_async;
+
+		if (async != null)
+			async.flush();
+	}
+
+	/**
+	 * 
+	 * @return The number of messages dropped because the queue was full
+	 */
+	public static long getDropped() {
+
+		AsyncLog async = s_async;
+		return async != null ? async.getDropped() : 0;
 	}
 
 	/**
@@ -105,6 +171,9 @@ public class Console {
 	 */
 	public static String read(String str, String color) {
 
+		// The prompt comes after the messages written before it
+		flush();
+
 		if (str != null && !str.isEmpty() && !str.isBlank())
 			System.out.print(color + str + RESET);
 
@@ -137,7 +206,7 @@ public class Console {
 	 */
 	public static void write(String str, String color) {
 
-		System.out.println(color + str + RESET);
+		log(LogWriter.PLAIN, color + str + RESET);
 	}
 
 	/**
@@ -154,6 +223,8 @@ public class Console {
 	 */
 	public static void deletePreviousLine() {
 
+		flush();
+
 		System.out.print("\033[1A");
 		System.out.print("\033[2K");
 	}
@@ -167,7 +238,19 @@ public class Console {
 		if (s_instance.m_logLevel > DEBUG)
 			return;
 
-		write("[" + new SimpleDateFormat("HH:mm:ss dd-MM-yyyy").format(new Date()) + "][" + CYAN + "debug" + RESET + "] " + msg);
+		log(DEBUG, msg);
+	}
+
+	/**
+	 * To print out debug messages, the message is only built if they are enabled
+	 * @param msg The supplier of the desired message
+	 */
+	public static void debug(Supplier<String> msg) {
+
+		if (s_instance.m_logLevel > DEBUG)
+			return;
+
+		log(DEBUG, msg.get());
 	}
 
 	/**
@@ -179,7 +262,19 @@ public class Console {
 		if (s_instance.m_logLevel > INFO)
 			return;
 
-		write("[" + new SimpleDateFormat("HH:mm:ss dd-MM-yyyy").format(new Date()) + "][" + GREEN + "info" + RESET + "] " + msg);
+		log(INFO, msg);
+	}
+
+	/**
+	 * To print out info messages, the message is only built if they are enabled
+	 * @param msg The supplier of the desired message
+	 */
+	public static void info(Supplier<String> msg) {
+
+		if (s_instance.m_logLevel > INFO)
+			return;
+
+		log(INFO, msg.get());
 	}
 
 	/**
@@ -191,7 +286,19 @@ public class Console {
 		if (s_instance.m_logLevel > WARN)
 			return;
 
-		write("[" + new SimpleDateFormat("HH:mm:ss dd-MM-yyyy").format(new Date()) + "][" + YELLOW + "warn" + RESET + "] " + msg);
+		log(WARN, msg);
+	}
+
+	/**
+	 * To print out warning messages, the message is only built if they are enabled
+	 * @param msg The supplier of the desired message
+	 */
+	public static void warn(Supplier<String> msg) {
+
+		if (s_instance.m_logLevel > WARN)
+			return;
+
+		log(WARN, msg.get());
 	}
 
 	/**
@@ -203,7 +310,19 @@ public class Console {
 		if (s_instance.m_logLevel > ERROR)
 			return;
 
-		write("[" + new SimpleDateFormat("HH:mm:ss dd-MM-yyyy").format(new Date()) + "][" + RED + "error" + RESET + "] " + msg);
+		log(ERROR, msg);
+	}
+
+	/**
+	 * To print out error messages, the message is only built if they are enabled
+	 * @param msg The supplier of the desired message
+	 */
+	public static void error(Supplier<String> msg) {
+
+		if (s_instance.m_logLevel > ERROR)
+			return;
+
+		log(ERROR, msg.get());
 	}
 
 	/**
@@ -215,6 +334,17 @@ public class Console {
 		activateANSICmd();
 	}
 
+	private static void log(int level, String msg) {
+
+		long time = System.currentTimeMillis();
+		AsyncLog async = s_async;
+
+		if (async == null)
+			s_writer.write(level, time, msg);
+		else
+			async.offer(level, time, msg);
+	}
+
 	private static boolean isWindows() {
 
 		return System.getProperty("os.name").toLowerCase().contains("windows");
@@ -247,10 +377,12 @@ public class Console {
 	/**
 	 * To revert to deafult color
 	 */
-	private static final String RESET = isWindows() ? "\033[0m" : "\u001B[0m";
+	static final String RESET = isWindows() ? "\033[0m" : "\u001B[0m";
 
 	private static Console s_instance = new Console();
+	private static final LogWriter s_writer = new LogWriter();
+	private static volatile AsyncLog s_async;
 
-	private int m_logLevel = 1;
+	private volatile int m_logLevel = 1;
 	private Scanner m_in;
 }
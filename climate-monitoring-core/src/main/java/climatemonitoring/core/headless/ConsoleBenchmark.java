@@ -0,0 +1,119 @@
+/*
+
+Alessandro della Frattina 753073 VA
+Cristian Capiferri 752918 VA
+Francesco Lops 753175 VA
+Dariia Sniezhko 753057 VA
+
+*/
+
+package climatemonitoring.core.headless;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * Measures the log calls per second that many threads can make at the same time:
+ * with the messages written by the callers, with a disabled level and with the
+ * asynchronous pipeline. The messages go to a discarded output (and to the file,
+ * if one is given), so the terminal does not slow the measure down.
+ * The pipeline cannot be stopped, so it is measured last.
+ * Usage: ConsoleBenchmark [--threads=N] [--calls=N] [--buffer=N] [--drop] [--file=PATH]
+ *
+ * @author adellafrattina
+ * @version 1.0-SNAPSHOT
+ */
+public class ConsoleBenchmark {
+
+	public static void main(String[] args) throws Exception {
+
+		int threads = 8;
+		int calls = 200000;
+		int buffer = 8192;
+		boolean drop = false;
+		String file = null;
+
+		for (String arg : args) {
+
+			String name = arg.substring(0, arg.indexOf('=') < 0 ? arg.length() : arg.indexOf('='));
+			String value = arg.substring(arg.indexOf('=') + 1);
+
+			switch (name) {
+
+				case "--threads": threads = Integer.parseInt(value); break;
+				case "--calls": calls = Integer.parseInt(value); break;
+				case "--buffer": buffer = Integer.parseInt(value); break;
+				case "--drop": drop = true; break;
+				case "--file": file = value; break;
+				default: Console.warn("Ignoring argument: " + arg);
+			}
+		}
+
+		PrintStream terminal = System.out;
+		String[] results = new String[3];
+
+		if (file != null)
+			Console.setLogFile(file, 64L * 1024L * 1024L, 2);
+
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+		try {
+
+			Console.setLogLevel(Console.DEBUG);
+			results[0] = report("synchronous", threads, calls, run(threads, calls));
+
+			Console.setLogLevel(Console.INFO);
+			results[1] = report("disabled level", threads, calls, run(threads, calls));
+
+			Console.setLogLevel(Console.DEBUG);
+			Console.setAsync(buffer, drop);
+			results[2] = report("asynchronous" + (drop ? " (drop)" : ""), threads, calls, run(threads, calls)) + ", " + Console.getDropped() + " dropped";
+		}
+
+		finally {
+
+			System.setOut(terminal);
+		}
+
+		for (String result : results)
+			Console.write(result);
+	}
+
+	/**
+	 * Logs from every thread at once and waits until the messages have been written
+	 *
+	 * @return The elapsed time in nanoseconds
+	 */
+	private static long run(int threads, int calls) throws InterruptedException {
+
+		Thread[] workers = new Thread[threads];
+		long start = System.nanoTime();
+
+		for (int t = 0; t < threads; t++) {
+
+			final int id = t;
+
+			workers[t] = new Thread(() -> {
+
+				for (int i = 0; i < calls; i++) {
+
+					final int call = i;
+					Console.debug(() -> "Client [worker-" + id + "] issued request " + call);
+				}
+			});
+
+			workers[t].start();
+		}
+
+		for (Thread worker : workers)
+			worker.join();
+
+		Console.flush();
+		return System.nanoTime() - start;
+	}
+
+	private static String report(String mode, int threads, int calls, long nanos) {
+
+		return String.format("%-22s %2d threads, %10.0f calls/s", mode, threads, (double) threads * calls / (nanos / 1e9));
+	}
+}
@@ -0,0 +1,160 @@
+/*
+
+Alessandro della Frattina 753073 VA
+Cristian Capiferri 752918 VA
+Francesco Lops 753175 VA
+Dariia Sniezhko 753057 VA
+
+*/
+
+package climatemonitoring.core.headless;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Formats the log messages and writes them to the terminal and, if one is set,
+ * to a rolling file. The timestamp is formatted once per second and reused.
+ * The methods are synchronized: without the asynchronous pipeline the callers
+ * write here themselves, with it only the writer thread does
+ *
+ * @author adellafrattina
+ * @version 1.0-SNAPSHOT
+ * @see Console
+ */
+final class LogWriter {
+
+	/**
+	 * Level of the lines written by {@link Console#write(String, String)}, which
+	 * are already formatted and only go to the terminal
+	 */
+	static final int PLAIN = 0;
+
+	/**
+	 * Writes a message and flushes it
+	 *
+	 * @param level The log level, or PLAIN
+	 * @param time The time of the message in milliseconds
+	 * @param message The message
+	 */
+	synchronized void write(int level, long time, String message) {
+
+		append(level, time, message);
+		flush();
+	}
+
+	/**
+	 * Buffers a message until the next {@link #flush()}
+	 *
+	 * @param level The log level, or PLAIN
+	 * @param time The time of the message in milliseconds
+	 * @param message The message
+	 */
+	synchronized void append(int level, long time, String message) {
+
+		if (level == PLAIN) {
+
+			m_terminal.append(message).append(System.lineSeparator());
+			return;
+		}
+
+		String stamp = stamp(time);
+
+		m_terminal.append(Console.WHITE).append('[').append(stamp).append("][").append(COLORS[level]).append(LABELS[level])
+			.append(Console.RESET).append("] ").append(message).append(Console.RESET).append(System.lineSeparator());
+
+		if (m_file == null)
+			return;
+
+		try {
+
+			m_file.write("[" + stamp + "][" + LABELS[level] + "] " + message);
+		}
+
+		catch (IOException e) {
+
+			// The terminal still gets the messages
+			m_file = null;
+			m_terminal.append(Console.RED).append("Log file disabled: ").append(e.getMessage()).append(Console.RESET).append(System.lineSeparator());
+		}
+	}
+
+	/**
+	 * Writes the buffered messages
+	 */
+	synchronized void flush() {
+
+		if (m_terminal.length() > 0) {
+
+			System.out.print(m_terminal);
+			System.out.flush();
+
+			m_terminal.setLength(0);
+
+			// Keeps the buffer from holding on to a burst forever
+			if (m_terminal.capacity() > MAX_BUFFER)
+				m_terminal.trimToSize();
+		}
+
+		if (m_file == null)
+			return;
+
+		try {
+
+			m_file.flush();
+		}
+
+		catch (IOException e) {
+
+			m_file = null;
+		}
+	}
+
+	/**
+	 * Sets the file the log messages are written to, closing the previous one
+	 *
+	 * @param file The file, null to only write to the terminal
+	 */
+	synchronized void setFile(RollingFile file) {
+
+		if (m_file != null) {
+
+			try {
+
+				m_file.close();
+			}
+
+			catch (IOException e) {
+
+				System.err.println("Failed to close the log file: " + e.getMessage());
+			}
+		}
+
+		m_file = file;
+	}
+
+	private String stamp(long time) {
+
+		long second = time / 1000;
+
+		if (second != m_second) {
+
+			m_second = second;
+			m_stamp = FORMATTER.format(Instant.ofEpochSecond(second));
+		}
+
+		return m_stamp;
+	}
+
+	private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("HH:mm:ss dd-MM-yyyy").withZone(ZoneId.systemDefault());
+	private static final String[] LABELS = { "", "debug", "info", "warn", "error" };
+	private static final String[] COLORS = { "", Console.CYAN, Console.GREEN, Console.YELLOW, Console.RED };
+	private static final int MAX_BUFFER = 1 << 20;
+
+	private final StringBuilder m_terminal = new StringBuilder();
+	private RollingFile m_file;
+	private long m_second = -1;
+	private String m_stamp;
+}
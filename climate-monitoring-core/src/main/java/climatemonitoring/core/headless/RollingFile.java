@@ -0,0 +1,112 @@
+/*
+
+Alessandro della Frattina 753073 VA
+Cristian Capiferri 752918 VA
+Francesco Lops 753175 VA
+Dariia Sniezhko 753057 VA
+
+*/
+
+package climatemonitoring.core.headless;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A log file that gets rotated once it grows beyond a size: server.log becomes
+ * server.log.1, server.log.1 becomes server.log.2 and so on, the oldest one being deleted
+ *
+ * @author adellafrattina
+ * @version 1.0-SNAPSHOT
+ * @see Console#setLogFile(String, long, int)
+ */
+final class RollingFile {
+
+	/**
+	 * Opens the file, appending to it if it exists
+	 *
+	 * @param path The file path
+	 * @param max_bytes The size after which the file gets rotated
+	 * @param files The number of files kept, the current one included
+	 * @throws IOException If the file cannot be opened
+	 */
+	RollingFile(String path, long max_bytes, int files) throws IOException {
+
+		m_path = Paths.get(path);
+		m_maxBytes = max_bytes;
+		m_files = Math.max(1, files);
+		open();
+	}
+
+	/**
+	 * Writes a line, rotating the file first if it is full
+	 *
+	 * @param line The line, without the line separator
+	 * @throws IOException If the file cannot be written or rotated
+	 */
+	void write(String line) throws IOException {
+
+		if (m_size >= m_maxBytes)
+			rotate();
+
+		m_writer.write(line);
+		m_writer.newLine();
+
+		// Characters, not bytes, but close enough for a rotation threshold
+		m_size += line.length() + 1;
+	}
+
+	void flush() throws IOException {
+
+		m_writer.flush();
+	}
+
+	void close() throws IOException {
+
+		m_writer.close();
+	}
+
+	private void open() throws IOException {
+
+		m_writer = Files.newBufferedWriter(m_path, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+		m_size = Files.size(m_path);
+	}
+
+	private void rotate() throws IOException {
+
+		m_writer.close();
+
+		if (m_files == 1)
+			Files.delete(m_path);
+
+		else {
+
+			Files.deleteIfExists(sibling(m_files - 1));
+
+			for (int i = m_files - 2; i >= 1; i--)
+				if (Files.exists(sibling(i)))
+					Files.move(sibling(i), sibling(i + 1), StandardCopyOption.REPLACE_EXISTING);
+
+			Files.move(m_path, sibling(1), StandardCopyOption.REPLACE_EXISTING);
+		}
+
+		open();
+	}
+
+	private Path sibling(int index) {
+
+		return index == 0 ? m_path : m_path.resolveSibling(m_path.getFileName() + "." + index);
+	}
+
+	private final Path m_path;
+	private final long m_maxBytes;
+	private final int m_files;
+	private BufferedWriter m_writer;
+	private long m_size;
+}
@@ -0,0 +1,373 @@
+/*
+
+Alessandro della Frattina 753073 VA
+Cristian Capiferri 752918 VA
+Francesco Lops 753175 VA
+Dariia Sniezhko 753057 VA
+
+*/
+
+package climatemonitoring.core.network;
+
+import static climatemonitoring.core.network.BinaryOutput.*;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInput;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import climatemonitoring.core.Area;
+import climatemonitoring.core.AreaDashboard;
+import climatemonitoring.core.Category;
+import climatemonitoring.core.Center;
+import climatemonitoring.core.DatabaseRequestException;
+import climatemonitoring.core.Operator;
+import climatemonitoring.core.Page;
+import climatemonitoring.core.Parameter;
+import climatemonitoring.core.ParameterBucket;
+import climatemonitoring.core.ParameterStats;
+import climatemonitoring.core.RequestType;
+
+/**
+ * Decodes the values written by {@link BinaryOutput}. Only the known types
+ * can be instantiated, and every length is checked against the bytes left
+ * in the frame before allocating anything
+ *
+ * @author francescolops
+ * @version 1.0-SNAPSHOT
+ */
+public class BinaryInput extends DataInputStream implements ObjectInput {
+
+	/**
+	 * Creates a decoder
+	 *
+	 * @param in The stream holding a whole frame
+	 */
+	public BinaryInput(InputStream in) {
+
+		super(in);
+	}
+
+	/**
+	 * Reads the request type at the start of a payload without decoding the rest
+	 *
+	 * @param payload The payload
+	 * @param offset Where the request starts
+	 * @return The request type, null if the payload does not start with one
+	 */
+	public static RequestType peekRequest(byte[] payload, int offset) {
+
+		if (offset < 0 || payload.length - offset < 3 || payload[offset] != REQUEST)
+			return null;
+
+		int ordinal = (payload[offset + 1] & 0xFF) << 8 | payload[offset + 2] & 0xFF;
+		return ordinal < s_requests.length ? s_requests[ordinal] : null;
+	}
+
+	/**
+	 * Decodes a value
+	 *
+	 * @return The decoded value, it can be null
+	 * @throws StreamCorruptedException If the data does not match the codec
+	 * @throws IOException If the underlying stream fails
+	 */
+	@Override
+	public Object readObject() throws IOException {
+
+		byte tag = readByte();
+
+		switch (tag) {
+
+			case NULL: return null;
+			case BOOLEAN: return readBoolean();
+			case INTEGER: return readInt();
+			case LONG: return readLong();
+			case DOUBLE: return readDouble();
+			case STRING: return readString();
+			case CHARS: return readChars();
+			case TIMESTAMP: return readTimestamp();
+			case REQUEST: return readRequest();
+			case EXCEPTION: return new DatabaseRequestException(readString());
+			case ARRAY: return readArray();
+			case DASHBOARD: return readDashboard();
+			case PAGE: return readPage();
+			case STATS: return readStats();
+			default: return readModel(tag);
+		}
+	}
+
+	private Object readModel(byte tag) throws IOException {
+
+		switch (tag) {
+
+			case AREA: return readArea();
+			case CENTER: return readCenter();
+			case OPERATOR: return readOperator();
+			case PARAMETER: return readParameter();
+			case CATEGORY: return readCategory();
+			case BUCKET: return readBucket();
+			default: throw new StreamCorruptedException("Unknown type tag: " + tag);
+		}
+	}
+
+	/**
+	 * Reads a tagged array of the given models
+	 *
+	 * @return The array, it can be null
+	 */
+	private Object[] readArray(byte element) throws IOException {
+
+		byte tag = readByte();
+
+		if (tag == NULL)
+			return null;
+
+		if (tag != ARRAY)
+			throw new StreamCorruptedException("Expected an array, found type tag: " + tag);
+
+		tag = readByte();
+
+		if (tag != element)
+			throw new StreamCorruptedException("Unexpected array type tag: " + tag);
+
+		return readElements(tag);
+	}
+
+	private Object[] readArray() throws IOException {
+
+		return readElements(readByte());
+	}
+
+	private Object[] readElements(byte tag) throws IOException {
+
+		int length = readLength(1);
+		Object[] array = null;
+
+		switch (tag) {
+
+			case AREA: array = new Area[length]; break;
+			case CENTER: array = new Center[length]; break;
+			case OPERATOR: array = new Operator[length]; break;
+			case PARAMETER: array = new Parameter[length]; break;
+			case CATEGORY: array = new Category[length]; break;
+			case BUCKET: array = new ParameterBucket[length]; break;
+			case STRING: array = new String[length]; break;
+			default: throw new StreamCorruptedException("Unknown array type tag: " + tag);
+		}
+
+		for (int i = 0; i < length; i++)
+			if (readBoolean())
+				array[i] = tag == STRING ? readString() : readModel(tag);
+
+		return array;
+	}
+
+	/**
+	 * Reads a tagged model of the given type
+	 *
+	 * @return The model, it can be null
+	 */
+	private Object readTagged(byte expected) throws IOException {
+
+		byte tag = readByte();
+
+		if (tag == NULL)
+			return null;
+
+		if (tag != expected)
+			throw new StreamCorruptedException("Unexpected type tag: " + tag);
+
+		return readModel(tag);
+	}
+
+	private RequestType readRequest() throws IOException {
+
+		int ordinal = readUnsignedShort();
+
+		if (ordinal >= s_requests.length)
+			throw new StreamCorruptedException("Unknown request: " + ordinal);
+
+		return s_requests[ordinal];
+	}
+
+	private Area readArea() throws IOException {
+
+		return new Area(readInt(), readString(), readString(), readString(), readString(), readDouble(), readDouble());
+	}
+
+	private Center readCenter() throws IOException {
+
+		return new Center(readString(), readString(), readInt(), readInt(), readInt(), readString());
+	}
+
+	private Operator readOperator() throws IOException {
+
+		return new Operator(readString(), readChars(), readString(), readString(), readString(), readString(), readString());
+	}
+
+	private Parameter readParameter() throws IOException {
+
+		return new Parameter(readInt(), readString(), readString(), readString(), readTimestamp(), readInt(), readString());
+	}
+
+	private Category readCategory() throws IOException {
+
+		return new Category(readString(), readString());
+	}
+
+	/**
+	 * Reads the fields by their type, so a dashboard cannot nest other values
+	 */
+	private AreaDashboard readDashboard() throws IOException {
+
+		Center[] centers = (Center[]) readArray(CENTER);
+		Center latestCenter = (Center) readTagged(CENTER);
+		Center center = (Center) readTagged(CENTER);
+		Category[] categories = (Category[]) readArray(CATEGORY);
+		Category latestCategory = (Category) readTagged(CATEGORY);
+		Category category = (Category) readTagged(CATEGORY);
+		Parameter[] parameters = (Parameter[]) readArray(PARAMETER);
+
+		return new AreaDashboard(centers, latestCenter, center, categories, latestCategory, category, parameters, readDouble());
+	}
+
+	private ParameterBucket readBucket() throws IOException {
+
+		return new ParameterBucket(readString(), readTimestamp(), readInt(), readLong(), readInt(), readInt());
+	}
+
+	private ParameterStats readStats() throws IOException {
+
+		int geonameID = readInt();
+		String centerID = readString();
+		String category = readString();
+		int count = readInt();
+		long sum = readLong();
+		int min = readInt();
+		int max = readInt();
+		int latestScore = readInt();
+		LocalDateTime latestTimestamp = readTimestamp();
+		int[] histogram = new int[readLength(4)];
+
+		for (int i = 0; i < histogram.length; i++)
+			histogram[i] = readInt();
+
+		return new ParameterStats(geonameID, centerID, category, count, sum, min, max, latestScore, latestTimestamp, histogram);
+	}
+
+	/**
+	 * Reads the items as an array of models, so a page cannot nest other values
+	 */
+	private Page<Object> readPage() throws IOException {
+
+		byte tag = readByte();
+
+		if (tag != NULL && tag != ARRAY)
+			throw new StreamCorruptedException("Invalid page");
+
+		return new Page<Object>(tag == NULL ? null : readArray(), readString());
+	}
+
+	private String readString() throws IOException {
+
+		int header = readVarInt();
+
+		if (header == 0)
+			return null;
+
+		if ((header & 1) == 1) {
+
+			int index = header >>> 1;
+			if (index >= m_strings.size())
+				throw new StreamCorruptedException("Invalid string reference: " + index);
+
+			return m_strings.get(index);
+		}
+
+		byte[] bytes = new byte[checkLength((header >>> 1) - 1, 1)];
+		readFully(bytes);
+
+		String str = new String(bytes, StandardCharsets.UTF_8);
+
+		// Must mirror the encoder, which shares short strings only
+		if (str.length() <= MAX_SHARED_LENGTH && m_strings.size() < MAX_SHARED_STRINGS)
+			m_strings.add(str);
+
+		return str;
+	}
+
+	private char[] readChars() throws IOException {
+
+		int length = readVarInt();
+		if (length == 0)
+			return null;
+
+		char[] chars = new char[checkLength(length - 1, Character.BYTES)];
+		for (int i = 0; i < chars.length; i++)
+			chars[i] = readChar();
+
+		return chars;
+	}
+
+	private int readVarInt() throws IOException {
+
+		int value = 0;
+
+		for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+
+			int b = readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+
+			if ((b & 0x80) == 0)
+				return value;
+		}
+
+		throw new StreamCorruptedException("Malformed varint");
+	}
+
+	private LocalDateTime readTimestamp() throws IOException {
+
+		if (!readBoolean())
+			return null;
+
+		try {
+
+			return LocalDateTime.ofEpochSecond(readLong(), readInt(), ZoneOffset.UTC);
+		}
+
+		catch (DateTimeException e) {
+
+			throw new StreamCorruptedException("Invalid timestamp: " + e.getMessage());
+		}
+	}
+
+	private int readLength(int min_element_size) throws IOException {
+
+		return checkLength(readVarInt(), min_element_size);
+	}
+
+	/**
+	 * Makes sure a length can be satisfied by the bytes left in the frame
+	 */
+	private int checkLength(int length, int min_element_size) throws IOException {
+
+		if (length < 0 || (long) length * min_element_size > available())
+			throw new StreamCorruptedException("Invalid length: " + length);
+
+		return length;
+	}
+
+	/**
+	 * The strings read so far, in the same order as the encoder
+	 */
+	private final List<String> m_strings = new ArrayList<String>();
+
+	private static final RequestType[] s_requests = RequestType.values();
+}
@@ -0,0 +1,429 @@
+/*
+
+Alessandro della Frattina 753073 VA
+Cristian Capiferri 752918 VA
+Francesco Lops 753175 VA
+Dariia Sniezhko 753057 VA
+
+*/
+
+package climatemonitoring.core.network;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectOutput;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+
+import climatemonitoring.core.Area;
+import climatemonitoring.core.AreaDashboard;
+import climatemonitoring.core.Category;
+import climatemonitoring.core.Center;
+import climatemonitoring.core.DatabaseRequestException;
+import climatemonitoring.core.Operator;
+import climatemonitoring.core.Page;
+import climatemonitoring.core.Parameter;
+import climatemonitoring.core.ParameterBucket;
+import climatemonitoring.core.ParameterStats;
+import climatemonitoring.core.RequestType;
+
+/**
+ * Encodes the requests and the responses with the compact binary codec.
+ * Only the types exchanged by the proxy and the skeleton are supported, every
+ * value is preceded by a one byte tag (see {@link BinaryInput} for the decoder)
+ *
+ * @author francescolops
+ * @version 1.0-SNAPSHOT
+ */
+public class BinaryOutput extends DataOutputStream implements ObjectOutput {
+
+	/**
+	 * Creates an encoder
+	 *
+	 * @param out The stream the encoded values are written to
+	 */
+	public BinaryOutput(OutputStream out) {
+
+		super(out);
+	}
+
+	/**
+	 * Encodes a value
+	 *
+	 * @param obj The value to be encoded, it can be null
+	 * @throws NotSerializableException If the codec does not support the type of the value
+	 * @throws IOException If the underlying stream fails
+	 */
+	@Override
+	public void writeObject(Object obj) throws IOException {
+
+		if (obj == null)
+			writeByte(NULL);
+
+		else if (obj instanceof Boolean) {
+
+			writeByte(BOOLEAN);
+			writeBoolean((Boolean) obj);
+		}
+
+		else if (obj instanceof Integer) {
+
+			writeByte(INTEGER);
+			writeInt((Integer) obj);
+		}
+
+		else if (obj instanceof Long) {
+
+			writeByte(LONG);
+			writeLong((Long) obj);
+		}
+
+		else if (obj instanceof Double) {
+
+			writeByte(DOUBLE);
+			writeDouble((Double) obj);
+		}
+
+		else if (obj instanceof String) {
+
+			writeByte(STRING);
+			writeString((String) obj);
+		}
+
+		else if (obj instanceof char[]) {
+
+			writeByte(CHARS);
+			writeChars((char[]) obj);
+		}
+
+		else if (obj instanceof LocalDateTime) {
+
+			writeByte(TIMESTAMP);
+			writeTimestamp((LocalDateTime) obj);
+		}
+
+		else if (obj instanceof RequestType) {
+
+			writeByte(REQUEST);
+			writeShort(((RequestType) obj).ordinal());
+		}
+
+		else if (obj instanceof Area) {
+
+			writeByte(AREA);
+			writeArea((Area) obj);
+		}
+
+		else if (obj instanceof Center) {
+
+			writeByte(CENTER);
+			writeCenter((Center) obj);
+		}
+
+		else if (obj instanceof Operator) {
+
+			writeByte(OPERATOR);
+			writeOperator((Operator) obj);
+		}
+
+		else if (obj instanceof Parameter) {
+
+			writeByte(PARAMETER);
+			writeParameter((Parameter) obj);
+		}
+
+		else if (obj instanceof Category) {
+
+			writeByte(CATEGORY);
+			writeCategory((Category) obj);
+		}
+
+		else if (obj instanceof AreaDashboard) {
+
+			writeByte(DASHBOARD);
+			writeDashboard((AreaDashboard) obj);
+		}
+
+		else if (obj instanceof ParameterBucket) {
+
+			writeByte(BUCKET);
+			writeBucket((ParameterBucket) obj);
+		}
+
+		else if (obj instanceof ParameterStats) {
+
+			writeByte(STATS);
+			writeStats((ParameterStats) obj);
+		}
+
+		else if (obj instanceof Page) {
+
+			writeByte(PAGE);
+			writePage((Page<?>) obj);
+		}
+
+		else if (obj instanceof DatabaseRequestException) {
+
+			writeByte(EXCEPTION);
+			writeString(((DatabaseRequestException) obj).getMessage());
+		}
+
+		else if (obj instanceof Object[])
+			writeArray((Object[]) obj);
+
+		else
+			throw new NotSerializableException(obj.getClass().getName());
+	}
+
+	/**
+	 * Writes an array of models. The component tag is written once,
+	 * the elements are written without their own tag
+	 */
+	private void writeArray(Object[] array) throws IOException {
+
+		Class<?> type = array.getClass().getComponentType();
+		byte tag = 0;
+
+		if (type == Area.class)
+			tag = AREA;
+		else if (type == Center.class)
+			tag = CENTER;
+		else if (type == Operator.class)
+			tag = OPERATOR;
+		else if (type == Parameter.class)
+			tag = PARAMETER;
+		else if (type == Category.class)
+			tag = CATEGORY;
+		else if (type == ParameterBucket.class)
+			tag = BUCKET;
+		else if (type == String.class)
+			tag = STRING;
+		else
+			throw new NotSerializableException(array.getClass().getName());
+
+		writeByte(ARRAY);
+		writeByte(tag);
+		writeVarInt(array.length);
+
+		for (Object element : array) {
+
+			writeBoolean(element != null);
+			if (element == null)
+				continue;
+
+			switch (tag) {
+
+				case AREA: writeArea((Area) element); break;
+				case CENTER: writeCenter((Center) element); break;
+				case OPERATOR: writeOperator((Operator) element); break;
+				case PARAMETER: writeParameter((Parameter) element); break;
+				case CATEGORY: writeCategory((Category) element); break;
+				case BUCKET: writeBucket((ParameterBucket) element); break;
+				default: writeString((String) element); break;
+			}
+		}
+	}
+
+	private void writeArea(Area area) throws IOException {
+
+		writeInt(area.getGeonameID());
+		writeString(area.getName());
+		writeString(area.getAsciiName());
+		writeString(area.getCountryCode());
+		writeString(area.getCountryName());
+		writeDouble(area.getLatitude());
+		writeDouble(area.getLongitude());
+	}
+
+	private void writeCenter(Center center) throws IOException {
+
+		writeString(center.getCenterID());
+		writeString(center.getStreet());
+		writeInt(center.getHouseNumber());
+		writeInt(center.getPostalCode());
+		writeInt(center.getCity());
+		writeString(center.getDistrict());
+	}
+
+	private void writeOperator(Operator operator) throws IOException {
+
+		writeString(operator.getUserID());
+		writeChars(operator.getSSID());
+		writeString(operator.getSurname());
+		writeString(operator.getName());
+		writeString(operator.getEmail());
+		writeString(operator.getPassword());
+		writeString(operator.getCenterID());
+	}
+
+	private void writeParameter(Parameter parameter) throws IOException {
+
+		writeInt(parameter.getGeonameID());
+		writeString(parameter.getCenterID());
+		writeString(parameter.getUserID());
+		writeString(parameter.getCategory());
+		writeTimestamp(parameter.getTimestamp());
+		writeInt(parameter.getScore());
+		writeString(parameter.getNotes());
+	}
+
+	private void writeCategory(Category category) throws IOException {
+
+		writeString(category.getCategory());
+		writeString(category.getExplanation());
+	}
+
+	private void writeDashboard(AreaDashboard dashboard) throws IOException {
+
+		writeObject(dashboard.getCenters());
+		writeObject(dashboard.getLatestCenter());
+		writeObject(dashboard.getCenter());
+		writeObject(dashboard.getCategories());
+		writeObject(dashboard.getLatestCategory());
+		writeObject(dashboard.getCategory());
+		writeObject(dashboard.getParameters());
+		writeDouble(dashboard.getAverage());
+	}
+
+	private void writeBucket(ParameterBucket bucket) throws IOException {
+
+		writeString(bucket.getCategory());
+		writeTimestamp(bucket.getStart());
+		writeInt(bucket.getCount());
+		writeLong(bucket.getSum());
+		writeInt(bucket.getMin());
+		writeInt(bucket.getMax());
+	}
+
+	private void writeStats(ParameterStats stats) throws IOException {
+
+		writeInt(stats.getGeonameID());
+		writeString(stats.getCenterID());
+		writeString(stats.getCategory());
+		writeInt(stats.getCount());
+		writeLong(stats.getSum());
+		writeInt(stats.getMin());
+		writeInt(stats.getMax());
+		writeInt(stats.getLatestScore());
+		writeTimestamp(stats.getLatestTimestamp());
+
+		int[] histogram = stats.getHistogram();
+		writeVarInt(histogram.length);
+
+		for (int count : histogram)
+			writeInt(count);
+	}
+
+	private void writePage(Page<?> page) throws IOException {
+
+		writeObject(page.getItems());
+		writeString(page.getCursor());
+	}
+
+	/**
+	 * A nullable UTF-8 string. The header is a varint: 0 for null, an odd number
+	 * for a string already written in this payload (its index), an even number
+	 * for a new string (its length in bytes), followed by the bytes.
+	 * Repeated values such as country names are written only once
+	 */
+	private void writeString(String str) throws IOException {
+
+		if (str == null) {
+
+			writeVarInt(0);
+			return;
+		}
+
+		Integer index = m_strings.get(str);
+
+		if (index != null) {
+
+			writeVarInt(index << 1 | 1);
+			return;
+		}
+
+		if (str.length() <= MAX_SHARED_LENGTH && m_strings.size() < MAX_SHARED_STRINGS)
+			m_strings.put(str, m_strings.size());
+
+		byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+		writeVarInt((bytes.length + 1) << 1);
+		write(bytes);
+	}
+
+	/**
+	 * A nullable char array: its length plus one (0 if null) followed by the chars
+	 */
+	private void writeChars(char[] chars) throws IOException {
+
+		if (chars == null) {
+
+			writeVarInt(0);
+			return;
+		}
+
+		writeVarInt(chars.length + 1);
+		for (char c : chars)
+			writeChar(c);
+	}
+
+	/**
+	 * An unsigned int written 7 bits at a time, lowest bits first
+	 */
+	private void writeVarInt(int value) throws IOException {
+
+		while ((value & ~0x7F) != 0) {
+
+			writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+
+		writeByte(value);
+	}
+
+	/**
+	 * A nullable timestamp: the seconds since the epoch and the nanoseconds
+	 */
+	private void writeTimestamp(LocalDateTime timestamp) throws IOException {
+
+		writeBoolean(timestamp != null);
+		if (timestamp == null)
+			return;
+
+		writeLong(timestamp.toEpochSecond(ZoneOffset.UTC));
+		writeInt(timestamp.getNano());
+	}
+
+	/**
+	 * The strings written so far, strings can be referenced by their index
+	 */
+	private final Map<String, Integer> m_strings = new HashMap<String, Integer>();
+
+	static final int MAX_SHARED_LENGTH = 64;
+	static final int MAX_SHARED_STRINGS = 1 << 16;
+
+	static final byte NULL = 0;
+	static final byte BOOLEAN = 1;
+	static final byte INTEGER = 2;
+	static final byte LONG = 3;
+	static final byte DOUBLE = 4;
+	static final byte STRING = 5;
+	static final byte CHARS = 6;
+	static final byte TIMESTAMP = 7;
+	static final byte REQUEST = 8;
+	static final byte AREA = 9;
+	static final byte CENTER = 10;
+	static final byte OPERATOR = 11;
+	static final byte PARAMETER = 12;
+	static final byte CATEGORY = 13;
+	static final byte EXCEPTION = 14;
+	static final byte ARRAY = 15;
+	static final byte DASHBOARD = 16;
+	static final byte PAGE = 17;
+	static final byte STATS = 18;
+	static final byte BUCKET = 19;
+}
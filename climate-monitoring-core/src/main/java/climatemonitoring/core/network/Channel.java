@@ -0,0 +1,306 @@
+/*
+
+Alessandro della Frattina 753073 VA
+Cristian Capiferri 752918 VA
+Francesco Lops 753175 VA
+Dariia Sniezhko 753057 VA
+
+*/
+
+package climatemonitoring.core.network;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
+import java.net.Socket;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import climatemonitoring.core.RequestType;
+
+/**
+ * The client side of the framed protocol. A request is built through
+ * {@link #request(RequestType)}, filled with its arguments and then
+ * sent with {@link #send(ObjectOutput)}, which returns the response.
+ *
+ * When the server supports pipelining, many threads can send their requests
+ * at the same time: every request carries an ID and a reader thread hands
+ * each response to the thread waiting for it, in whatever order they arrive
+ *
+ * @author francescolops
+ * @version 1.0-SNAPSHOT
+ * @see Protocol
+ */
+public class Channel {
+
+	/**
+	 * Connects to the server and negotiates the protocol version
+	 *
+	 * @param address The server address
+	 * @param port The server port
+	 * @throws IOException If the connection or the negotiation fails
+	 */
+	public Channel(String address, int port) throws IOException {
+
+		m_socket = new Socket(address, port);
+		m_socket.setTcpNoDelay(true);
+
+		try {
+
+			m_out = new DataOutputStream(new BufferedOutputStream(m_socket.getOutputStream()));
+			m_in = new DataInputStream(new BufferedInputStream(m_socket.getInputStream()));
+
+			m_out.writeInt(Protocol.MAGIC);
+			m_out.writeInt(Protocol.VERSION);
+			m_out.flush();
+
+			m_version = m_in.readInt();
+			if (m_version < 1 || m_version > Protocol.VERSION)
+				throw new IOException("Unsupported protocol version: " + m_version);
+
+			if (m_version >= Protocol.PIPELINED_VERSION) {
+
+				m_reader = new Thread(this::receive, "Channel-reader");
+				m_reader.setDaemon(true);
+				m_reader.start();
+			}
+		}
+
+		catch (IOException e) {
+
+			m_socket.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Starts building a new request
+	 *
+	 * @param request The request type
+	 * @return The output the request arguments need to be written to
+	 * @throws IOException If the request cannot be encoded
+	 */
+	public ObjectOutput request(RequestType request) throws IOException {
+
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		ObjectOutput out = m_version >= Protocol.BINARY_VERSION ? new BinaryRequest(buffer) : new SerializedRequest(buffer);
+		out.writeObject(request);
+
+		return out;
+	}
+
+	/**
+	 * Sends a request and waits for its response
+	 *
+	 * @param request The output returned by {@link #request(RequestType)}
+	 * @return The input the response can be read from
+	 * @throws IOException If the connection is lost
+	 */
+	public ObjectInput send(ObjectOutput request) throws IOException {
+
+		request.flush();
+		ByteArrayOutputStream buffer = ((Request) request).getBuffer();
+
+		if (m_version < Protocol.PIPELINED_VERSION)
+			return roundTrip(buffer);
+
+		int id = m_nextID.incrementAndGet();
+		CompletableFuture<byte[]> response = new CompletableFuture<byte[]>();
+		m_pending.put(id, response);
+
+		try {
+
+			// The reader may have failed before the request got registered
+			if (m_failure != null)
+				throw new IOException("Connection lost", m_failure);
+
+			synchronized (m_out) {
+
+				m_out.writeInt(Integer.BYTES + buffer.size());
+				m_out.writeInt(id);
+				buffer.writeTo(m_out);
+				m_out.flush();
+			}
+
+			byte[] frame = response.get();
+			int header = Protocol.responseHeaderSize(m_version);
+			return Protocol.decoder(m_version, new ByteArrayInputStream(frame, header, frame.length - header));
+		}
+
+		catch (InterruptedException e) {
+
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the response");
+		}
+
+		catch (ExecutionException e) {
+
+			throw new IOException("Connection lost", e.getCause());
+		}
+
+		finally {
+
+			m_pending.remove(id);
+		}
+	}
+
+	/**
+	 *
+	 * @return The negotiated protocol version
+	 */
+	public int getVersion() {
+
+		return m_version;
+	}
+
+	/**
+	 * The latest version stamp of a kind of reference data received from the server.
+	 * It never changes if the server does not send stamps (before protocol version 4)
+	 *
+	 * @param kind One of the stamps defined by {@link Protocol}, for example {@link Protocol#AREAS_STAMP}
+	 * @return The stamp
+	 */
+	public int getStamp(int kind) {
+
+		return m_stamps.get(kind);
+	}
+
+	/**
+	 *
+	 * @return True if the underlying socket has been closed
+	 */
+	public boolean isClosed() {
+
+		return m_socket.isClosed();
+	}
+
+	/**
+	 * Closes the underlying socket
+	 *
+	 * @throws IOException If the socket fails to close
+	 */
+	public void close() throws IOException {
+
+		m_socket.close();
+	}
+
+	/**
+	 * Sends a request and reads its response, one request at a time
+	 */
+	private synchronized ObjectInput roundTrip(ByteArrayOutputStream buffer) throws IOException {
+
+		Protocol.writeFrame(m_out, buffer.toByteArray(), buffer.size());
+		m_out.flush();
+
+		byte[] response = Protocol.readFrame(m_in, Protocol.MAX_RESPONSE_SIZE);
+
+		return Protocol.decoder(m_version, new ByteArrayInputStream(response));
+	}
+
+	/**
+	 * The loop of the reader thread, it matches the responses with the pending requests
+	 */
+	private void receive() {
+
+		try {
+
+			while (true) {
+
+				int header = Protocol.responseHeaderSize(m_version);
+				byte[] frame = Protocol.readFrame(m_in, header + Protocol.MAX_RESPONSE_SIZE);
+				if (frame.length < header)
+					throw new IOException("Invalid response frame");
+
+				int id = readInt(frame, 0);
+
+				// Responses can arrive in any order, the stamps only move forward
+				for (int kind = 0; header > Integer.BYTES && kind < Protocol.STAMPS; kind++) {
+
+					int stamp = readInt(frame, Integer.BYTES * (1 + kind));
+					m_stamps.accumulateAndGet(kind, stamp, Math::max);
+				}
+
+				CompletableFuture<byte[]> response = m_pending.get(id);
+
+				if (response != null)
+					response.complete(frame);
+			}
+		}
+
+		catch (IOException e) {
+
+			m_failure = e;
+
+			for (CompletableFuture<byte[]> response : m_pending.values())
+				response.completeExceptionally(e);
+		}
+	}
+
+	private static int readInt(byte[] frame, int offset) {
+
+		return (frame[offset] & 0xFF) << 24 | (frame[offset + 1] & 0xFF) << 16 | (frame[offset + 2] & 0xFF) << 8 | (frame[offset + 3] & 0xFF);
+	}
+
+	/**
+	 * A request being built, it remembers the buffer it writes to
+	 */
+	private interface Request {
+
+		ByteArrayOutputStream getBuffer();
+	}
+
+	private static class SerializedRequest extends ObjectOutputStream implements Request {
+
+		SerializedRequest(ByteArrayOutputStream buffer) throws IOException {
+
+			super(buffer);
+			m_buffer = buffer;
+		}
+
+		public ByteArrayOutputStream getBuffer() {
+
+			return m_buffer;
+		}
+
+		private final ByteArrayOutputStream m_buffer;
+	}
+
+	private static class BinaryRequest extends BinaryOutput implements Request {
+
+		BinaryRequest(ByteArrayOutputStream buffer) {
+
+			super(buffer);
+			m_buffer = buffer;
+		}
+
+		public ByteArrayOutputStream getBuffer() {
+
+			return m_buffer;
+		}
+
+		private final ByteArrayOutputStream m_buffer;
+	}
+
+	private Socket m_socket;
+	private DataInputStream m_in;
+	private DataOutputStream m_out;
+	private int m_version;
+
+	private Thread m_reader;
+	private final AtomicInteger m_nextID = new AtomicInteger();
+	private final Map<Integer, CompletableFuture<byte[]>> m_pending = new ConcurrentHashMap<Integer, CompletableFuture<byte[]>>();
+	private volatile IOException m_failure;
+	private final AtomicIntegerArray m_stamps = new AtomicIntegerArray(Protocol.STAMPS);
+}
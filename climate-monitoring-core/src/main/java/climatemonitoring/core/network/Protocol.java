@@ -0,0 +1,194 @@
+/*
+
+Alessandro della Frattina 753073 VA
+Cristian Capiferri 752918 VA
+Francesco Lops 753175 VA
+Dariia Sniezhko 753057 VA
+
+*/
+
+package climatemonitoring.core.network;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInput;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+
+/**
+ * The Protocol class holds the constants and the helpers of the framed protocol
+ * spoken between the proxy (client) and the skeleton (server).
+ *
+ * After connecting, the client sends {@link #MAGIC} followed by the highest protocol
+ * version it supports and the server answers with the version that will be used.
+ * From then on every request and every response is a frame: an int holding the payload
+ * length followed by the payload itself. A request payload contains the RequestType
+ * followed by its arguments, a response payload contains what the skeleton used to write
+ * on the object stream (success flag, result or exception).
+ *
+ * Version 1 payloads are written with Java serialization, from version 2 on they are
+ * written with the binary codec (see {@link BinaryOutput} and {@link BinaryInput}).
+ * From version 3 on every frame starts with a request ID, see {@link #PIPELINED_VERSION}.
+ * From version 4 on every response carries the version stamps of the reference data, see {@link #STAMPED_VERSION}.
+ *
+ * Clients that start with a plain Java serialization stream (see {@link #STREAM_MAGIC})
+ * are still served with the original unframed protocol
+ *
+ * @author ccapiferri
+ * @version 1.0-SNAPSHOT
+ */
+public class Protocol {
+
+	/**
+	 * The first int sent by a client that speaks the framed protocol ("CMNP")
+	 */
+	public static final int MAGIC = 0x434D4E50;
+
+	/**
+	 * The first int sent by a client that speaks the legacy protocol
+	 * (the header of a Java serialization stream)
+	 */
+	public static final int STREAM_MAGIC = 0xACED0005;
+
+	/**
+	 * The highest protocol version supported by this build
+	 */
+	public static final int VERSION = 4;
+
+	/**
+	 * The first protocol version whose payloads are written with the binary codec
+	 */
+	public static final int BINARY_VERSION = 2;
+
+	/**
+	 * The first protocol version whose frames start with a request ID
+	 * (an int echoed in the response). Requests can be in flight at the
+	 * same time and their responses can arrive in any order
+	 */
+	public static final int PIPELINED_VERSION = 3;
+
+	/**
+	 * The first protocol version whose response frames carry, right after the
+	 * request ID, one int stamp for every kind of reference data. The server
+	 * increments a stamp whenever a change to that kind of data gets committed,
+	 * so the clients know when the copies they keep are outdated
+	 */
+	public static final int STAMPED_VERSION = 4;
+
+	/**
+	 * The stamp of the areas, changed by addArea
+	 */
+	public static final int AREAS_STAMP = 0;
+
+	/**
+	 * The stamp of the centers, changed by addCenter
+	 */
+	public static final int CENTERS_STAMP = 1;
+
+	/**
+	 * The stamp of the areas monitored by the centers, changed by addCenter and includeAreaToCenter
+	 */
+	public static final int MONITORS_STAMP = 2;
+
+	/**
+	 * The number of stamps carried by a response
+	 */
+	public static final int STAMPS = 3;
+
+	/**
+	 * The maximum size (in bytes) of a request payload
+	 */
+	public static final int MAX_REQUEST_SIZE = 1 << 20;
+
+	/**
+	 * The maximum size (in bytes) of a response payload
+	 */
+	public static final int MAX_RESPONSE_SIZE = 1 << 28;
+
+	/**
+	 * The size of what precedes the payload in a response frame
+	 *
+	 * @param version The negotiated protocol version
+	 * @return The size in bytes of the request ID and of the stamps
+	 */
+	public static int responseHeaderSize(int version) {
+
+		if (version >= STAMPED_VERSION)
+			return Integer.BYTES * (1 + STAMPS);
+
+		return version >= PIPELINED_VERSION ? Integer.BYTES : 0;
+	}
+
+	/**
+	 * Reads a whole frame
+	 *
+	 * @param in The stream the frame is read from
+	 * @param max_size The maximum payload size allowed
+	 * @return The frame payload
+	 * @throws IOException If the stream fails or the frame is bigger than the maximum size
+	 */
+	public static byte[] readFrame(DataInputStream in, int max_size) throws IOException {
+
+		int length = in.readInt();
+
+		if (length < 0 || length > max_size)
+			throw new IOException("Invalid frame length: " + length);
+
+		byte[] payload = new byte[length];
+		in.readFully(payload);
+
+		return payload;
+	}
+
+	/**
+	 * Writes a whole frame. The stream is not flushed
+	 *
+	 * @param out The stream the frame is written to
+	 * @param payload The frame payload
+	 * @param length The number of bytes of the payload to be sent
+	 * @throws IOException If the stream fails
+	 */
+	public static void writeFrame(DataOutputStream out, byte[] payload, int length) throws IOException {
+
+		out.writeInt(length);
+		out.write(payload, 0, length);
+	}
+
+	/**
+	 * Creates the encoder of a payload
+	 *
+	 * @param version The negotiated protocol version
+	 * @param out The stream the payload is written to
+	 * @return The encoder used by the given version
+	 * @throws IOException If the encoder fails to write its header
+	 */
+	public static ObjectOutput encoder(int version, OutputStream out) throws IOException {
+
+		if (version >= BINARY_VERSION)
+			return new BinaryOutput(out);
+
+		return new ObjectOutputStream(out);
+	}
+
+	/**
+	 * Creates the decoder of a payload
+	 *
+	 * @param version The negotiated protocol version
+	 * @param in The stream holding the payload
+	 * @return The decoder used by the given version
+	 * @throws IOException If the decoder fails to read its header
+	 */
+	public static ObjectInput decoder(int version, InputStream in) throws IOException {
+
+		if (version >= BINARY_VERSION)
+			return new BinaryInput(in);
+
+		return new ObjectInputStream(in);
+	}
+
+	private Protocol() {}
+}
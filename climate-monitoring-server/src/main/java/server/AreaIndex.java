@@ -0,0 +1,762 @@
+/*
+
+Alessandro della Frattina 753073 VA
+Cristian Capiferri 752918 VA
+Francesco Lops 753175 VA
+Dariia Sniezhko 753057 VA
+
+*/
+
+package server;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+import climatemonitoring.core.Area;
+import climatemonitoring.core.DatabaseRequestException;
+import climatemonitoring.core.Page;
+
+/**
+ * An in-memory trigram index over the area names and the country names.
+ * It answers the substring searches with the same matching and ranking as
+ * the SQL queries (LOWER(column) LIKE '%str%', prefixes first, then by the
+ * position of the match and by name) without scanning the whole area table.
+ * The index is loaded once at startup and kept current by addArea, so it is
+ * shared by every session.
+ *
+ * Every area keeps its ordinal in the alphabetical order of the column, so
+ * a match is ranked by a single long (rank, position, ordinal) and the
+ * searches never compare strings
+ *
+ * @author ccapiferri
+ * @version 1.0-SNAPSHOT
+ */
+public class AreaIndex {
+
+	/**
+	 * Reads every area from the database and indexes it
+	 *
+	 * @param pool The connection pool
+	 * @param fetch_size The number of rows fetched at a time
+	 * @return The index
+	 * @throws SQLException If the areas can not be read
+	 */
+	public static AreaIndex load(ConnectionPool pool, int fetch_size) throws SQLException {
+
+		AreaIndex index = new AreaIndex();
+		index.addAll(readAreas(pool, fetch_size));
+		return index;
+	}
+
+	/**
+	 * Reads every area from the database, to build the in-memory indexes
+	 *
+	 * @param pool The connection pool
+	 * @param fetch_size The number of rows fetched at a time
+	 * @return The areas
+	 * @throws SQLException If the areas can not be read
+	 */
+	public static List<Area> readAreas(ConnectionPool pool, int fetch_size) throws SQLException {
+
+		List<Area> areas = new ArrayList<Area>();
+		Connection connection = pool.acquire();
+
+		try {
+
+			// Fetching in batches needs a transaction, the pool rolls it back on release
+			connection.setAutoCommit(false);
+
+			PreparedStatement pst = connection.prepareStatement("SELECT * FROM area;", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			pst.setFetchSize(fetch_size);
+
+			try (ResultSet query = pst.executeQuery()) {
+
+				while (query.next()) {
+
+					int geonameID = query.getInt("geoname_id");
+					String areaName = query.getString("area_name");
+					String areaAsciiName = query.getString("area_ascii_name");
+					String countryCode = query.getString("country_code");
+					String countryName = query.getString("country_name");
+					double latitude = query.getDouble("latitude");
+					double longitude = query.getDouble("longitude");
+
+					areas.add(new Area(geonameID, areaName, areaAsciiName, countryCode, countryName, latitude, longitude));
+				}
+			}
+		}
+
+		finally {
+
+			pool.release(connection);
+		}
+
+		return areas;
+	}
+
+	/**
+	 * Adds an area to the index
+	 *
+	 * @param area The area
+	 */
+	public void add(Area area) {
+
+		m_lock.writeLock().lock();
+
+		try {
+
+			int id = m_areas.size();
+			m_areas.add(area);
+			m_names.add(area.getName(), id);
+			m_names.insert(id);
+			m_countries.add(area.getCountryName(), id);
+			m_countries.insert(id);
+		}
+
+		finally {
+
+			m_lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Adds many areas at once, sorting them only once at the end
+	 *
+	 * @param areas The areas
+	 */
+	public void addAll(List<Area> areas) {
+
+		m_lock.writeLock().lock();
+
+		try {
+
+			for (Area area : areas) {
+
+				int id = m_areas.size();
+				m_areas.add(area);
+				m_names.add(area.getName(), id);
+				m_countries.add(area.getCountryName(), id);
+			}
+
+			m_names.sort();
+			m_countries.sort();
+		}
+
+		finally {
+
+			m_lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Whether the index can answer a search string. LIKE wildcards
+	 * have to be handled by the database
+	 *
+	 * @param str The search string
+	 * @return True if the search can be served by the index
+	 */
+	public static boolean supports(String str) {
+
+		return str != null && str.indexOf('%') < 0 && str.indexOf('_') < 0 && str.indexOf('\\') < 0;
+	}
+
+	/**
+	 * Same as the SQL search of the areas by name
+	 *
+	 * @param str The search string
+	 * @param limit The maximum number of areas (0 for no limit)
+	 * @return The matching areas, ranked
+	 */
+	public List<Area> searchByName(String str, int limit) {
+
+		return search(m_names, str, limit);
+	}
+
+	/**
+	 * Same as the SQL search of the areas by country
+	 *
+	 * @param str The search string
+	 * @param limit The maximum number of areas (0 for no limit)
+	 * @return The matching areas, ranked
+	 */
+	public List<Area> searchByCountry(String str, int limit) {
+
+		return search(m_countries, str, limit);
+	}
+
+	/**
+	 * Same as the paged SQL search of the areas by name. The cursors are
+	 * interchangeable with the ones of the SQL search
+	 *
+	 * @param str The search string
+	 * @param page_size The maximum number of areas in the page
+	 * @param cursor The cursor of the previous page, null for the first page
+	 * @return A page of the matching areas
+	 * @throws DatabaseRequestException If the cursor is not valid
+	 */
+	public Page<Area> searchByName(String str, int page_size, String cursor) throws DatabaseRequestException {
+
+		return search(m_names, "name", str, page_size, cursor);
+	}
+
+	/**
+	 * Same as the paged SQL search of the areas by country
+	 *
+	 * @param str The search string
+	 * @param page_size The maximum number of areas in the page
+	 * @param cursor The cursor of the previous page, null for the first page
+	 * @return A page of the matching areas
+	 * @throws DatabaseRequestException If the cursor is not valid
+	 */
+	public Page<Area> searchByCountry(String str, int page_size, String cursor) throws DatabaseRequestException {
+
+		return search(m_countries, "country", str, page_size, cursor);
+	}
+
+	/**
+	 *
+	 * @return The number of indexed areas
+	 */
+	public int size() {
+
+		m_lock.readLock().lock();
+
+		try {
+
+			return m_areas.size();
+		}
+
+		finally {
+
+			m_lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * An estimate of the heap used by the index structures, the areas excluded
+	 *
+	 * @return The size in bytes
+	 */
+	public long getIndexMemory() {
+
+		m_lock.readLock().lock();
+
+		try {
+
+			return m_names.getMemory() + m_countries.getMemory() + REFERENCE * (long) m_areas.size();
+		}
+
+		finally {
+
+			m_lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * An estimate of the heap used by the indexed areas
+	 *
+	 * @return The size in bytes
+	 */
+	public long getAreaMemory() {
+
+		m_lock.readLock().lock();
+
+		try {
+
+			long bytes = 0;
+
+			for (Area area : m_areas)
+				bytes += OBJECT + 4 + 2 * 8 + 4 * REFERENCE + string(area.getName()) + string(area.getAsciiName()) + string(area.getCountryCode()) + string(area.getCountryName());
+
+			return bytes;
+		}
+
+		finally {
+
+			m_lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * A summary of the size of the index
+	 */
+	@Override
+	public String toString() {
+
+		int areas = size();
+		long index = getIndexMemory();
+		long total = index + getAreaMemory();
+		long perMillion = areas > 0 ? total * 1000000L / areas : 0;
+
+		return String.format("Area index: %d areas, %d name trigrams, %d country trigrams, %.1f MB (index %.1f MB), about %.0f MB per million areas",
+			areas, m_names.getTrigramCount(), m_countries.getTrigramCount(), total / MEGABYTE, index / MEGABYTE, perMillion / MEGABYTE);
+	}
+
+	private List<Area> search(Column column, String str, int limit) {
+
+		m_lock.readLock().lock();
+
+		try {
+
+			long[] keys = column.select(str, 0, limit);
+			List<Area> result = new ArrayList<Area>(keys.length);
+
+			for (long key : keys)
+				result.add(m_areas.get(column.area(key)));
+
+			return result;
+		}
+
+		finally {
+
+			m_lock.readLock().unlock();
+		}
+	}
+
+	private Page<Area> search(Column column, String kind, String str, int page_size, String cursor) throws DatabaseRequestException {
+
+		String[] last = cursor != null ? Cursor.decode(cursor, kind, str, 4) : null;
+
+		m_lock.readLock().lock();
+
+		try {
+
+			long after = 0;
+
+			// Every key from the last one of the previous page (excluded) onwards
+			if (last != null)
+				after = key(Cursor.parseInt(last[0]), Cursor.parseInt(last[1]), column.countUpTo(last[2], Cursor.parseInt(last[3])));
+
+			long[] keys = column.select(str, after, page_size + 1);
+			int size = Math.min(page_size, keys.length);
+			Area[] items = new Area[size];
+
+			for (int i = 0; i < size; i++)
+				items[i] = m_areas.get(column.area(keys[i]));
+
+			String next = null;
+
+			if (keys.length > page_size) {
+
+				Area area = items[size - 1];
+				long key = keys[size - 1];
+				next = Cursor.encode(kind, str, rank(key), position(key), column.value(area), area.getGeonameID());
+			}
+
+			return new Page<Area>(items, next);
+		}
+
+		finally {
+
+			m_lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * The sort key of a match: the rank in the two highest bits, then the
+	 * position of the match, then the alphabetical ordinal of the area
+	 */
+	private static long key(int rank, int position, int ordinal) {
+
+		return (long) rank << 62 | (long) position << 32 | ordinal;
+	}
+
+	private static int rank(long key) {
+
+		return (int) (key >>> 62);
+	}
+
+	private static int position(long key) {
+
+		return (int) (key >>> 32) & 0x3FFFFFFF;
+	}
+
+	private static int ordinal(long key) {
+
+		return (int) key;
+	}
+
+	/**
+	 * Moves the smallest count keys to the front of the array, in no particular order
+	 */
+	private static void select(long[] keys, int length, int count) {
+
+		int low = 0;
+		int high = length - 1;
+
+		while (low < high) {
+
+			long pivot = keys[(low + high) >>> 1];
+			int i = low;
+			int j = high;
+
+			while (i <= j) {
+
+				while (keys[i] < pivot)
+					i++;
+
+				while (keys[j] > pivot)
+					j--;
+
+				if (i <= j) {
+
+					long tmp = keys[i];
+					keys[i++] = keys[j];
+					keys[j--] = tmp;
+				}
+			}
+
+			if (count - 1 <= j)
+				high = j;
+			else if (count - 1 >= i)
+				low = i;
+			else
+				return;
+		}
+	}
+
+	private static long string(String str) {
+
+		return str == null ? 0 : OBJECT + 8 + ARRAY + str.length();
+	}
+
+	/**
+	 * A growable array of ints, kept sorted by construction
+	 */
+	private static class IntList {
+
+		void add(int value) {
+
+			if (m_size == m_data.length)
+				m_data = Arrays.copyOf(m_data, m_size + (m_size >> 1) + 1);
+
+			m_data[m_size++] = value;
+		}
+
+		boolean contains(int value) {
+
+			return Arrays.binarySearch(m_data, 0, m_size, value) >= 0;
+		}
+
+		long getMemory() {
+
+			return OBJECT + 4 + REFERENCE + ARRAY + 4L * m_data.length;
+		}
+
+		int[] m_data = new int[1];
+		int m_size = 0;
+	}
+
+	/**
+	 * Indexes the distinct lowercase values of a column. Every trigram points
+	 * to the values that contain it, every value points to its areas.
+	 * The areas are also kept in the alphabetical order of the column
+	 */
+	private class Column {
+
+		Column(boolean name) {
+
+			m_name = name;
+		}
+
+		String value(Area area) {
+
+			String value = m_name ? area.getName() : area.getCountryName();
+			return value != null ? value : "";
+		}
+
+		void add(String value, int area) {
+
+			if (value == null)
+				return;
+
+			String lower = value.toLowerCase(Locale.ROOT);
+			Integer id = m_ids.get(lower);
+
+			if (id == null) {
+
+				id = m_values.size();
+				m_ids.put(lower, id);
+				m_values.add(lower);
+				m_areas.add(new IntList());
+
+				for (int i = 0; i + 3 <= lower.length(); i++) {
+
+					long trigram = trigram(lower, i);
+					IntList postings = m_trigrams.get(trigram);
+
+					if (postings == null) {
+
+						postings = new IntList();
+						m_trigrams.put(trigram, postings);
+					}
+
+					// Values are added in increasing order, repeated trigrams are next to each other
+					if (postings.m_size == 0 || postings.m_data[postings.m_size - 1] != id)
+						postings.add(id);
+				}
+			}
+
+			m_areas.get(id).add(area);
+		}
+
+		/**
+		 * Sorts every area, comparing precomputed collation keys. Building a key
+		 * is the slow part, so it is done once per distinct value and in parallel
+		 */
+		void sort() {
+
+			int count = AreaIndex.this.m_areas.size();
+			Map<String, Integer> distinct = new HashMap<String, Integer>();
+			List<String> values = new ArrayList<String>();
+			int[] valueOf = new int[count];
+			Integer[] order = new Integer[count];
+
+			for (int i = 0; i < count; i++) {
+
+				String value = value(AreaIndex.this.m_areas.get(i));
+				Integer id = distinct.get(value);
+
+				if (id == null) {
+
+					id = values.size();
+					distinct.put(value, id);
+					values.add(value);
+				}
+
+				valueOf[i] = id;
+				order[i] = i;
+			}
+
+			CollationKey[] keys = new CollationKey[values.size()];
+			ThreadLocal<Collator> collators = ThreadLocal.withInitial(() -> (Collator) m_collator.clone());
+			IntStream.range(0, keys.length).parallel().forEach(i -> keys[i] = collators.get().getCollationKey(values.get(i)));
+
+			Arrays.sort(order, (a, b) -> {
+
+				int result = keys[valueOf[a]].compareTo(keys[valueOf[b]]);
+				return result != 0 ? result : Integer.compare(AreaIndex.this.m_areas.get(a).getGeonameID(), AreaIndex.this.m_areas.get(b).getGeonameID());
+			});
+
+			m_sorted = new int[count + count / 8 + 1];
+			m_ordinals = new int[m_sorted.length];
+			m_sortedSize = count;
+
+			for (int i = 0; i < count; i++) {
+
+				m_sorted[i] = order[i];
+				m_ordinals[order[i]] = i;
+			}
+		}
+
+		/**
+		 * Puts a single area in the alphabetical order, shifting the ones that follow
+		 */
+		void insert(int area) {
+
+			Area inserted = AreaIndex.this.m_areas.get(area);
+			int position = countUpTo(value(inserted), inserted.getGeonameID());
+
+			if (m_sortedSize == m_sorted.length) {
+
+				m_sorted = Arrays.copyOf(m_sorted, m_sortedSize + (m_sortedSize >> 1) + 1);
+				m_ordinals = Arrays.copyOf(m_ordinals, m_sorted.length);
+			}
+
+			System.arraycopy(m_sorted, position, m_sorted, position + 1, m_sortedSize - position);
+			m_sorted[position] = area;
+			m_sortedSize++;
+
+			for (int i = position; i < m_sortedSize; i++)
+				m_ordinals[m_sorted[i]] = i;
+		}
+
+		/**
+		 * The number of areas that sort before the given value and geoname id, or with them
+		 */
+		int countUpTo(String value, int geoname_id) {
+
+			Collator collator = (Collator) m_collator.clone();
+			int low = 0;
+			int high = m_sortedSize;
+
+			while (low < high) {
+
+				int middle = (low + high) >>> 1;
+				Area area = AreaIndex.this.m_areas.get(m_sorted[middle]);
+				int result = collator.compare(value(area), value);
+
+				if (result == 0)
+					result = Integer.compare(area.getGeonameID(), geoname_id);
+
+				if (result <= 0)
+					low = middle + 1;
+				else
+					high = middle;
+			}
+
+			return low;
+		}
+
+		int area(long key) {
+
+			return m_sorted[ordinal(key)];
+		}
+
+		/**
+		 * Finds the areas whose value contains the string and returns the smallest
+		 * sort keys, from the given one (included), in ascending order
+		 */
+		long[] select(String str, long from, int count) {
+
+			long[] keys = new long[16];
+			int size = 0;
+
+			for (int id : candidates(str)) {
+
+				int position = m_values.get(id).indexOf(str);
+				if (position < 0)
+					continue;
+
+				IntList areas = m_areas.get(id);
+
+				for (int i = 0; i < areas.m_size; i++) {
+
+					long key = key(position == 0 ? 0 : 1, position + 1, m_ordinals[areas.m_data[i]]);
+					if (key < from)
+						continue;
+
+					if (size == keys.length)
+						keys = Arrays.copyOf(keys, size * 2);
+
+					keys[size++] = key;
+				}
+			}
+
+			if (count > 0 && size > count) {
+
+				AreaIndex.select(keys, size, count);
+				size = count;
+			}
+
+			Arrays.sort(keys, 0, size);
+			return Arrays.copyOf(keys, size);
+		}
+
+		/**
+		 * The values that contain every trigram of the string. Strings shorter
+		 * than a trigram are checked against every value
+		 */
+		private int[] candidates(String str) {
+
+			if (str.length() < 3) {
+
+				int[] all = new int[m_values.size()];
+				for (int i = 0; i < all.length; i++)
+					all[i] = i;
+
+				return all;
+			}
+
+			IntList[] postings = new IntList[str.length() - 2];
+
+			for (int i = 0; i < postings.length; i++) {
+
+				postings[i] = m_trigrams.get(trigram(str, i));
+				if (postings[i] == null)
+					return new int[0];
+			}
+
+			Arrays.sort(postings, (a, b) -> Integer.compare(a.m_size, b.m_size));
+
+			int[] candidates = new int[postings[0].m_size];
+			int size = 0;
+
+			for (int i = 0; i < postings[0].m_size; i++) {
+
+				int id = postings[0].m_data[i];
+				boolean candidate = true;
+
+				for (int j = 1; j < postings.length && candidate; j++)
+					candidate = postings[j].contains(id);
+
+				if (candidate)
+					candidates[size++] = id;
+			}
+
+			return Arrays.copyOf(candidates, size);
+		}
+
+		int getTrigramCount() {
+
+			m_lock.readLock().lock();
+
+			try {
+
+				return m_trigrams.size();
+			}
+
+			finally {
+
+				m_lock.readLock().unlock();
+			}
+		}
+
+		long getMemory() {
+
+			long bytes = 2 * (ARRAY + 4L * m_sorted.length);
+
+			for (IntList postings : m_trigrams.values())
+				bytes += MAP_ENTRY + OBJECT + 8 + postings.getMemory();
+
+			for (int id = 0; id < m_values.size(); id++)
+				bytes += MAP_ENTRY + OBJECT + 4 + string(m_values.get(id)) + 2 * REFERENCE + m_areas.get(id).getMemory();
+
+			return bytes;
+		}
+
+		private long trigram(String str, int start) {
+
+			return (long) str.charAt(start) << 32 | (long) str.charAt(start + 1) << 16 | str.charAt(start + 2);
+		}
+
+		private final boolean m_name;
+		private final List<String> m_values = new ArrayList<String>();
+		private final Map<String, Integer> m_ids = new HashMap<String, Integer>();
+		private final List<IntList> m_areas = new ArrayList<IntList>();
+		private final Map<Long, IntList> m_trigrams = new HashMap<Long, IntList>();
+
+		/**
+		 * The areas in alphabetical order, and the position of every area in it
+		 */
+		private int[] m_sorted = new int[0];
+		private int[] m_ordinals = new int[0];
+		private int m_sortedSize = 0;
+	}
+
+	private final ReadWriteLock m_lock = new ReentrantReadWriteLock();
+	private final List<Area> m_areas = new ArrayList<Area>();
+	private final Collator m_collator = Collator.getInstance(Locale.ROOT);
+	private final Column m_names = new Column(true);
+	private final Column m_countries = new Column(false);
+
+	// Rough sizes of a 64-bit JVM with compressed references
+	private static final long OBJECT = 12;
+	private static final long ARRAY = 16;
+	private static final long REFERENCE = 4;
+	private static final long MAP_ENTRY = 32 + REFERENCE;
+	private static final double MEGABYTE = 1024.0 * 1024.0;
+}
@@ -0,0 +1,159 @@
+/*
+
+Alessandro della Frattina 753073 VA
+Cristian Capiferri 752918 VA
+Francesco Lops 753175 VA
+Dariia Sniezhko 753057 VA
+
+*/
+
+package server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import climatemonitoring.core.Area;
+import climatemonitoring.core.ConnectionLostException;
+import climatemonitoring.core.DatabaseRequestException;
+import climatemonitoring.core.headless.Console;
+
+/**
+ * Compares the area searches served by the {@link AreaIndex} with the SQL
+ * queries on the same database, and reports the memory used by the index.
+ * Usage: AreaIndexBenchmark [query...]
+ * With --synthetic=N no database is needed: N random areas get indexed and
+ * only the index is measured
+ *
+ * @author ccapiferri
+ * @version 1.0-SNAPSHOT
+ */
+public class AreaIndexBenchmark {
+
+	public static void main(String[] args) throws Exception {
+
+		String[] queries = { "a", "va", "var", "vares", "san", "ber", "new y", "zzz" };
+		int synthetic = 0;
+
+		if (args.length > 0 && args[0].startsWith("--synthetic="))
+			synthetic = Integer.parseInt(args[0].substring(args[0].indexOf('=') + 1));
+		else if (args.length > 0)
+			queries = args;
+
+		if (synthetic > 0) {
+
+			long start = System.nanoTime();
+			AreaIndex index = generate(synthetic);
+			Console.write("Indexed in " + (System.nanoTime() - start) / 1000000 + " ms. " + index);
+
+			for (String query : queries)
+				report(query, "index", measure(() -> index.searchByName(query, 10000).size()));
+
+			return;
+		}
+
+		String url = Console.read("Database URL > ");
+		String username = Console.read("Username > ");
+		String password = Console.read("Password > ");
+
+		ConnectionPool pool = new ConnectionPool(url, username, password, 2, 5000, 60000, 64);
+
+		try {
+
+			long start = System.nanoTime();
+			AreaIndex index = AreaIndex.load(pool, 500);
+			Console.write("Loaded in " + (System.nanoTime() - start) / 1000000 + " ms. " + index);
+
+			ServerDatabaseImpl sql = new ServerDatabaseImpl(pool, 500, 10000, null, null, null, null);
+			ServerDatabaseImpl indexed = new ServerDatabaseImpl(pool, 500, 10000, index, null, null, null);
+
+			for (String query : queries) {
+
+				int expected = sql.searchAreasByName(query).length;
+				int actual = indexed.searchAreasByName(query).length;
+
+				if (expected != actual)
+					Console.warn("Different results for '" + query + "': " + expected + " from SQL, " + actual + " from the index");
+
+				report(query, "sql", measure(() -> sql.searchAreasByName(query).length));
+				report(query, "index", measure(() -> indexed.searchAreasByName(query).length));
+			}
+		}
+
+		finally {
+
+			pool.close();
+		}
+	}
+
+	private interface Search {
+
+		int run() throws ConnectionLostException, DatabaseRequestException;
+	}
+
+	/**
+	 * Runs a search until it is warm, then returns the latency of every run in nanoseconds
+	 */
+	private static long[] measure(Search search) throws ConnectionLostException, DatabaseRequestException {
+
+		for (int i = 0; i < WARMUP; i++)
+			search.run();
+
+		long[] times = new long[RUNS];
+
+		for (int i = 0; i < RUNS; i++) {
+
+			long start = System.nanoTime();
+			search.run();
+			times[i] = System.nanoTime() - start;
+		}
+
+		Arrays.sort(times);
+		return times;
+	}
+
+	private static void report(String query, String path, long[] times) {
+
+		Console.write(String.format("%-8s %-6s median %9.1f us   p99 %9.1f us", "'" + query + "'", path,
+			times[times.length / 2] / 1000.0, times[times.length * 99 / 100] / 1000.0));
+	}
+
+	/**
+	 * Random pronounceable names spread over a few hundred countries
+	 */
+	private static AreaIndex generate(int count) {
+
+		Random random = new Random(42);
+		String[] syllables = { "va", "re", "se", "no", "san", "ber", "lin", "to", "ri", "mi", "la", "new", " york", "ca", "stel", "mon", "te", "ga", "po", "li" };
+		String[] countries = new String[250];
+
+		for (int i = 0; i < countries.length; i++)
+			countries[i] = name(random, syllables, 2 + random.nextInt(3));
+
+		List<Area> areas = new ArrayList<Area>(count);
+
+		for (int i = 0; i < count; i++) {
+
+			String name = name(random, syllables, 2 + random.nextInt(4));
+			areas.add(new Area(i, name, name, "XX", countries[random.nextInt(countries.length)], random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180));
+		}
+
+		AreaIndex index = new AreaIndex();
+		index.addAll(areas);
+		return index;
+	}
+
+	private static String name(Random random, String[] syllables, int length) {
+
+		StringBuilder builder = new StringBuilder();
+
+		for (int i = 0; i < length; i++)
+			builder.append(syllables[random.nextInt(syllables.length)]);
+
+		return Character.toUpperCase(builder.charAt(0)) + builder.substring(1);
+	}
+
+	private static final int WARMUP = 20;
+	private static final int RUNS = 200;
+}
@@ -0,0 +1,121 @@
+/*
+
+Alessandro della Frattina 753073 VA
+Cristian Capiferri 752918 VA
+Francesco Lops 753175 VA
+Dariia Sniezhko 753057 VA
+
+*/
+
+package server;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Random;
+
+import climatemonitoring.core.Area;
+import climatemonitoring.core.headless.Console;
+import climatemonitoring.core.network.Protocol;
+
+/**
+ * Compares the payloads of Java serialization (protocol version 1) and of the binary
+ * codec (version 2) on the response to an area search: the success flag followed by an
+ * array of random areas. The report gives the bytes of the payload and the mean time
+ * to encode and to decode it, measured after the warmup runs.
+ * Usage: CodecBenchmark [areas] [runs]
+ *
+ * @author ccapiferri
+ * @version 1.0-SNAPSHOT
+ */
+public class CodecBenchmark {
+
+	public static void main(String[] args) throws Exception {
+
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+		int runs = args.length > 1 ? Integer.parseInt(args[1]) : 40;
+		Area[] areas = generate(count);
+
+		Console.write(String.format("Area[%d], %d runs after %d warmup runs", count, runs, WARMUP));
+		Console.write(String.format("%-14s %10s %12s %12s", "codec", "bytes", "encode ms", "decode ms"));
+
+		report("serialization", 1, areas, runs);
+		report("binary", Protocol.BINARY_VERSION, areas, runs);
+	}
+
+	private static void report(String codec, int version, Area[] areas, int runs) throws IOException, ClassNotFoundException {
+
+		byte[] payload = null;
+		long encode = 0;
+		long decode = 0;
+
+		for (int i = -WARMUP; i < runs; i++) {
+
+			long start = System.nanoTime();
+			payload = encode(version, areas);
+			long encoded = System.nanoTime();
+
+			if (decode(version, payload).length != areas.length)
+				throw new IOException("The areas have not been decoded");
+
+			if (i >= 0) {
+
+				encode += encoded - start;
+				decode += System.nanoTime() - encoded;
+			}
+		}
+
+		Console.write(String.format("%-14s %10d %12.2f %12.2f", codec, payload.length, encode / 1e6 / runs, decode / 1e6 / runs));
+	}
+
+	private static byte[] encode(int version, Area[] areas) throws IOException {
+
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		ObjectOutput out = Protocol.encoder(version, buffer);
+		out.writeObject(true);
+		out.writeObject(areas);
+		out.flush();
+
+		return buffer.toByteArray();
+	}
+
+	private static Area[] decode(int version, byte[] payload) throws IOException, ClassNotFoundException {
+
+		ObjectInput in = Protocol.decoder(version, new ByteArrayInputStream(payload));
+
+		if (!(Boolean) in.readObject())
+			throw new IOException("The success flag has not been decoded");
+
+		return (Area[]) in.readObject();
+	}
+
+	/**
+	 * Areas with names of 4 to 15 letters, spread over a few countries like a search result
+	 */
+	private static Area[] generate(int count) {
+
+		Random random = new Random(42);
+		Area[] areas = new Area[count];
+
+		for (int i = 0; i < count; i++) {
+
+			StringBuilder name = new StringBuilder();
+			int length = 4 + random.nextInt(12);
+
+			for (int c = 0; c < length; c++)
+				name.append((char) ((c == 0 ? 'A' : 'a') + random.nextInt(26)));
+
+			int country = random.nextInt(COUNTRY_CODES.length);
+			areas[i] = new Area(1 + random.nextInt(10000000), name.toString(), name.toString(), COUNTRY_CODES[country], COUNTRY_NAMES[country],
+				-90 + random.nextDouble() * 180, -180 + random.nextDouble() * 360);
+		}
+
+		return areas;
+	}
+
+	private static final int WARMUP = 10;
+	private static final String[] COUNTRY_CODES = { "IT", "CH", "FR", "DE", "AT" };
+	private static final String[] COUNTRY_NAMES = { "Italy", "Switzerland", "France", "Germany", "Austria" };
+}
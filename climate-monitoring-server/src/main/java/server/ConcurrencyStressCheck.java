@@ -0,0 +1,165 @@
+/*
+
+Alessandro della Frattina 753073 VA
+Cristian Capiferri 752918 VA
+Francesco Lops 753175 VA
+Dariia Sniezhko 753057 VA
+
+*/
+
+package server;
+
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import climatemonitoring.core.Parameter;
+import climatemonitoring.core.ParameterStats;
+import climatemonitoring.core.headless.Console;
+
+/**
+ * Runs many sessions at the same time on a small pool, the way the server does,
+ * mixing reads with transactions that commit or get abandoned, then checks that
+ * the database, the shared aggregates and the pool agree: only the committed
+ * recordings exist and are counted, and every connection has been given back.
+ * The recordings are made for an existing area, center, operator and category,
+ * far in the future, and deleted at the end.
+ * Usage: ConcurrencyStressCheck [sessions] [operations]
+ *
+ * @author ccapiferri
+ * @version 1.0-SNAPSHOT
+ */
+public class ConcurrencyStressCheck {
+
+	public static void main(String[] args) throws Exception {
+
+		int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+		int operations = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+
+		String url = Console.read("Database URL > ");
+		String username = Console.read("Username > ");
+		String password = Console.read("Password > ");
+		int geonameID = Integer.parseInt(Console.read("Geoname ID of a monitored area > ").trim());
+		String centerID = Console.read("Center ID that monitors it > ").trim();
+		String userID = Console.read("User ID of an operator of the center > ").trim();
+		String category = Console.read("Category > ").trim();
+
+		// Fewer connections than sessions, so the sessions contend for them
+		ConnectionPool pool = new ConnectionPool(url, username, password, Math.max(2, sessions / 4), 30000, 60000, 64);
+		ParameterAggregates aggregates = ParameterAggregates.load(pool, 500);
+		ResultCache cache = new ResultCache(16L * 1024L * 1024L);
+		int before = aggregates.get(geonameID, centerID, category).getCount();
+
+		AtomicLong minutes = new AtomicLong();
+		AtomicLong committed = new AtomicLong();
+		AtomicLong abandoned = new AtomicLong();
+		AtomicLong reads = new AtomicLong();
+		AtomicLong failures = new AtomicLong();
+		Thread[] threads = new Thread[sessions];
+		long start = System.nanoTime();
+
+		try {
+
+			for (int t = 0; t < sessions; t++) {
+
+				final Random random = new Random(t);
+
+				threads[t] = new Thread(() -> {
+
+					ServerDatabaseImpl database = new ServerDatabaseImpl(pool, 500, 10000, null, null, cache, aggregates);
+
+					for (int i = 0; i < operations; i++) {
+
+						try {
+
+							int operation = random.nextInt(10);
+
+							if (operation < 6) {
+
+								if (database.getArea(geonameID) == null)
+									throw new IllegalStateException("Area " + geonameID + " not found");
+
+								database.getParameters(geonameID, centerID, category);
+								database.getParameterStats(geonameID, centerID, category);
+								reads.incrementAndGet();
+							}
+
+							else {
+
+								database.begin();
+								database.addParameter(new Parameter(geonameID, centerID, userID, category, START.plusMinutes(minutes.getAndIncrement()), 1 + i % 5, "Stress"));
+
+								// Inside the transaction the session reads its own recording
+								database.getParameters(geonameID, centerID, category);
+
+								if (operation < 9) {
+
+									database.end();
+									committed.incrementAndGet();
+								}
+
+								else {
+
+									// Like a client that disconnects in the middle of a transaction
+									database.shutdown();
+									abandoned.incrementAndGet();
+								}
+							}
+						}
+
+						catch (Exception e) {
+
+							if (failures.getAndIncrement() < 10)
+								Console.error("Session " + Thread.currentThread().getName() + ": " + e.getMessage());
+						}
+					}
+
+					database.shutdown();
+
+				}, "session-" + t);
+
+				threads[t].start();
+			}
+
+			for (Thread thread : threads)
+				thread.join();
+
+			double seconds = (System.nanoTime() - start) / 1e9;
+			Console.write(String.format("%d sessions, %d reads, %d commits, %d rollbacks, %d failures in %.1f s (%.0f operations/s)",
+				sessions, reads.get(), committed.get(), abandoned.get(), failures.get(), seconds, (reads.get() + committed.get() + abandoned.get()) / seconds));
+
+			ServerDatabaseImpl database = new ServerDatabaseImpl(pool, 500, 10000, null, null, null, null);
+			ResultSet count = database.execute("SELECT COUNT(*) FROM parameter WHERE rec_timestamp >= '" + START + "';");
+			count.next();
+
+			ParameterStats stats = aggregates.get(geonameID, centerID, category);
+
+			check("recordings in the database", committed.get(), count.getLong(1));
+			check("recordings in the aggregates", committed.get(), stats.getCount() - before);
+			check("connections still leased", 0, pool.getActiveCount());
+			check("failed operations", 0, failures.get());
+			Console.write(pool.toString());
+			Console.write(cache.toString());
+		}
+
+		finally {
+
+			new ServerDatabaseImpl(pool, 500, 10000, null, null, null, null).execute("DELETE FROM parameter WHERE rec_timestamp >= '" + START + "';");
+			pool.close();
+		}
+	}
+
+	private static void check(String what, long expected, long actual) {
+
+		if (expected == actual)
+			Console.write(String.format("OK     %-30s %d", what, actual));
+		else
+			Console.error(String.format("FAILED %-30s expected %d, found %d", what, expected, actual));
+	}
+
+	/**
+	 * Far enough in the future not to mix with real recordings
+	 */
+	private static final LocalDateTime START = LocalDateTime.of(2998, 1, 1, 0, 0);
+}
@@ -0,0 +1,414 @@
+/*
+
+Alessandro della Frattina 753073 VA
+Cristian Capiferri 752918 VA
+Francesco Lops 753175 VA
+Dariia Sniezhko 753057 VA
+
+*/
+
+package server;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import climatemonitoring.core.headless.Console;
+
+/**
+ * A bounded pool of JDBC connections shared by every client session.
+ * Connections are created lazily through the DriverManager, so any JDBC URL
+ * can be used. Connections that have been idle for a while get validated before
+ * being leased again and a housekeeping thread reports the leases that have been
+ * held for too long. Every connection keeps its prepared statements (see {@link #prepare(Connection, String)})
+ *
+ * @author ccapiferri
+ * @version 1.0-SNAPSHOT
+ */
+public class ConnectionPool {
+
+	/**
+	 * Creates the pool. No connection is opened until the first lease
+	 *
+	 * @param url Database URL address
+	 * @param username Username to log into the database
+	 * @param password Password to log into the database
+	 * @param max_size The maximum number of connections that can be open at the same time
+	 * @param timeout The maximum time (in milliseconds) a lease can wait for a free connection
+	 * @param leak_threshold The time (in milliseconds) after which a lease is reported as a possible leak
+	 * @param statement_cache The number of statements kept prepared by every connection (0 to prepare them on every request)
+	 */
+	public ConnectionPool(String url, String username, String password, int max_size, long timeout, long leak_threshold, int statement_cache) {
+
+		m_url = url;
+		m_username = username;
+		m_password = password;
+		m_maxSize = max_size;
+		m_timeout = timeout;
+		m_leakThreshold = leak_threshold;
+		m_statementCache = statement_cache;
+		m_permits = new Semaphore(max_size, true);
+
+		m_housekeeper = new Thread("ConnectionPool-housekeeper") {
+
+			@Override
+			public void run() {
+
+				while (!m_closed) {
+
+					try {
+
+						Thread.sleep(HOUSEKEEPING_INTERVAL);
+					}
+
+					catch (InterruptedException e) {
+
+						return;
+					}
+
+					detectLeaks();
+				}
+			}
+		};
+
+		m_housekeeper.setDaemon(true);
+		m_housekeeper.start();
+	}
+
+	/**
+	 * Leases a connection. The connection must be given back through {@link #release(Connection)}
+	 *
+	 * @return A valid connection with auto-commit enabled
+	 * @throws SQLException If no connection gets available within the timeout or the database refuses a new connection
+	 */
+	public Connection acquire() throws SQLException {
+
+		if (m_closed)
+			throw new SQLException("The connection pool has been closed");
+
+		long start = System.nanoTime();
+
+		try {
+
+			if (!m_permits.tryAcquire(m_timeout, TimeUnit.MILLISECONDS)) {
+
+				m_timeouts.incrementAndGet();
+				throw new SQLException("Timed out after " + m_timeout + "ms waiting for a database connection (pool size: " + m_maxSize + ")");
+			}
+		}
+
+		catch (InterruptedException e) {
+
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for a database connection");
+		}
+
+		m_leases.incrementAndGet();
+		m_waitTime.addAndGet(System.nanoTime() - start);
+
+		try {
+
+			Connection connection = null;
+
+			while ((connection = m_idle.pollFirst()) != null) {
+
+				Long idleSince = m_idleSince.remove(connection);
+				if ((idleSince != null && System.currentTimeMillis() - idleSince < VALIDATION_INTERVAL) || validate(connection))
+					break;
+
+				discard(connection);
+			}
+
+			if (connection == null) {
+
+				connection = DriverManager.getConnection(m_url, m_username, m_password);
+				m_created.incrementAndGet();
+			}
+
+			m_leased.put(connection, new Lease(Thread.currentThread().getName(), System.currentTimeMillis()));
+			return connection;
+		}
+
+		catch (SQLException | RuntimeException e) {
+
+			m_permits.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * Prepares a statement on a leased connection, or reuses the one the connection
+	 * prepared for the same SQL. The statement is closed by the pool: callers only
+	 * close their result sets, the ones left open get closed on release
+	 *
+	 * @param connection The connection returned by {@link #acquire()}
+	 * @param sql The statement
+	 * @return The prepared statement, with no parameters set
+	 * @throws SQLException If the statement can not be prepared
+	 */
+	public PreparedStatement prepare(Connection connection, String sql) throws SQLException {
+
+		m_executed.incrementAndGet();
+
+		StatementCache statements = m_statements.get(connection);
+
+		if (statements == null) {
+
+			statements = new StatementCache(connection, m_statementCache, m_prepared, m_queryLog);
+			m_statements.put(connection, statements);
+		}
+
+		return statements.prepare(sql);
+	}
+
+	/**
+	 * Times the statements prepared from now on (see {@link QueryLog})
+	 *
+	 * @param log The query log, null to stop timing the new statements
+	 */
+	public void setQueryLog(QueryLog log) {
+
+		m_queryLog = log;
+	}
+
+	/**
+	 * Gives a leased connection back to the pool. Any pending transaction gets rolled back
+	 *
+	 * @param connection The connection returned by {@link #acquire()}
+	 */
+	public void release(Connection connection) {
+
+		if (connection == null || m_leased.remove(connection) == null)
+			return;
+
+		StatementCache statements = m_statements.get(connection);
+
+		if (statements != null)
+			statements.release();
+
+		try {
+
+			if (!connection.getAutoCommit()) {
+
+				connection.rollback();
+				connection.setAutoCommit(true);
+			}
+
+			if (m_closed)
+				discard(connection);
+
+			else {
+
+				m_idleSince.put(connection, System.currentTimeMillis());
+				m_idle.offerFirst(connection);
+			}
+		}
+
+		catch (SQLException e) {
+
+			discard(connection);
+		}
+
+		finally {
+
+			m_permits.release();
+		}
+	}
+
+	/**
+	 * Closes every idle connection and refuses new leases.
+	 * Connections that are still leased get closed when released
+	 */
+	public void close() {
+
+		m_closed = true;
+		m_housekeeper.interrupt();
+
+		Connection connection = null;
+		while ((connection = m_idle.pollFirst()) != null)
+			discard(connection);
+	}
+
+	/**
+	 *
+	 * @return The maximum number of connections
+	 */
+	public int getMaxSize() {
+
+		return m_maxSize;
+	}
+
+	/**
+	 *
+	 * @return The number of open connections (leased and idle)
+	 */
+	public int getSize() {
+
+		return m_leased.size() + m_idle.size();
+	}
+
+	/**
+	 *
+	 * @return The number of connections currently leased
+	 */
+	public int getActiveCount() {
+
+		return m_leased.size();
+	}
+
+	/**
+	 *
+	 * @return The number of open connections waiting to be leased
+	 */
+	public int getIdleCount() {
+
+		return m_idle.size();
+	}
+
+	/**
+	 *
+	 * @return The average time (in milliseconds) spent waiting for a connection
+	 */
+	public double getAverageWaitTime() {
+
+		long leases = m_leases.get();
+		return leases == 0 ? 0.0 : m_waitTime.get() / 1_000_000.0 / leases;
+	}
+
+	/**
+	 *
+	 * @return The number of leases that exceeded the leak threshold
+	 */
+	public long getLeakCount() {
+
+		return m_leaks.get();
+	}
+
+	/**
+	 *
+	 * @return The number of statements actually prepared
+	 */
+	public long getPrepareCount() {
+
+		return m_prepared.get();
+	}
+
+	/**
+	 *
+	 * @return The number of statements executed through {@link #prepare(Connection, String)}
+	 */
+	public long getExecuteCount() {
+
+		return m_executed.get();
+	}
+
+	/**
+	 *
+	 * @return A one line summary of the pool usage
+	 */
+	@Override
+	public String toString() {
+
+		return String.format("pool: %d/%d open, %d active, %d idle, %d created, %d leases, %.3fms avg wait, %d timeouts, %d leaks, %d statements prepared for %d executions",
+			getSize(), m_maxSize, getActiveCount(), getIdleCount(), m_created.get(), m_leases.get(), getAverageWaitTime(), m_timeouts.get(), m_leaks.get(), m_prepared.get(), m_executed.get());
+	}
+
+	private boolean validate(Connection connection) {
+
+		try {
+
+			return connection.isValid(VALIDATION_TIMEOUT);
+		}
+
+		catch (SQLException e) {
+
+			return false;
+		}
+	}
+
+	private void discard(Connection connection) {
+
+		m_idleSince.remove(connection);
+		m_statements.remove(connection);
+
+		try {
+
+			// Closes the cached statements too
+			connection.close();
+		}
+
+		catch (SQLException e) {
+
+			Console.error("Failed to close connection: " + e.getMessage());
+		}
+	}
+
+	private void detectLeaks() {
+
+		long now = System.currentTimeMillis();
+
+		for (Map.Entry<Connection, Lease> entry : m_leased.entrySet()) {
+
+			Lease lease = entry.getValue();
+
+			if (!lease.reported && now - lease.time > m_leakThreshold) {
+
+				lease.reported = true;
+				m_leaks.incrementAndGet();
+				Console.warn("Possible connection leak: leased by " + lease.owner + " " + (now - lease.time) + "ms ago");
+			}
+		}
+	}
+
+	/**
+	 * Keeps track of who leased a connection and when
+	 */
+	private static class Lease {
+
+		Lease(String owner, long time) {
+
+			this.owner = owner;
+			this.time = time;
+		}
+
+		final String owner;
+		final long time;
+		volatile boolean reported = false;
+	}
+
+	private static final long HOUSEKEEPING_INTERVAL = 5000;
+	private static final long VALIDATION_INTERVAL = 30000;
+	private static final int VALIDATION_TIMEOUT = 2;
+
+	private final String m_url;
+	private final String m_username;
+	private final String m_password;
+	private final int m_maxSize;
+	private final long m_timeout;
+	private final long m_leakThreshold;
+	private final int m_statementCache;
+	private volatile QueryLog m_queryLog;
+
+	private final Semaphore m_permits;
+	private final ConcurrentLinkedDeque<Connection> m_idle = new ConcurrentLinkedDeque<Connection>();
+	private final Map<Connection, Long> m_idleSince = new ConcurrentHashMap<Connection, Long>();
+	private final Map<Connection, Lease> m_leased = new ConcurrentHashMap<Connection, Lease>();
+	private final Map<Connection, StatementCache> m_statements = new ConcurrentHashMap<Connection, StatementCache>();
+	private final Thread m_housekeeper;
+	private volatile boolean m_closed = false;
+
+	private final AtomicLong m_created = new AtomicLong();
+	private final AtomicLong m_leases = new AtomicLong();
+	private final AtomicLong m_waitTime = new AtomicLong();
+	private final AtomicLong m_timeouts = new AtomicLong();
+	private final AtomicLong m_leaks = new AtomicLong();
+	private final AtomicLong m_prepared = new AtomicLong();
+	private final AtomicLong m_executed = new AtomicLong();
+}
@@ -0,0 +1,128 @@
+/*
+
+Alessandro della Frattina 753073 VA
+Cristian Capiferri 752918 VA
+Francesco Lops 753175 VA
+Dariia Sniezhko 753057 VA
+
+*/
+
+package server;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import climatemonitoring.core.DatabaseRequestException;
+
+/**
+ * Encodes the keyset of a paged search into an opaque string for the client.
+ * The cursor carries the kind of the search and its argument too, so that
+ * it can not be replayed against a different search
+ *
+ * @author ccapiferri
+ * @version 1.0-SNAPSHOT
+ */
+final class Cursor {
+
+	private Cursor() {
+
+	}
+
+	/**
+	 * Builds a cursor
+	 *
+	 * @param kind The kind of the search
+	 * @param argument The argument of the search
+	 * @param key The sort key of the last row of the page
+	 * @return The cursor of the following page
+	 */
+	static String encode(String kind, String argument, Object... key) {
+
+		StringBuilder builder = new StringBuilder(kind).append(SEPARATOR).append(argument);
+
+		for (Object field : key)
+			builder.append(SEPARATOR).append(field);
+
+		return s_encoder.encodeToString(builder.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Reads the sort key out of a cursor
+	 *
+	 * @param cursor The cursor sent by the client
+	 * @param kind The kind of the search
+	 * @param argument The argument of the search
+	 * @param fields The number of fields of the sort key
+	 * @return The fields of the sort key
+	 * @throws DatabaseRequestException If the cursor does not belong to this search
+	 */
+	static String[] decode(String cursor, String kind, String argument, int fields) throws DatabaseRequestException {
+
+		String[] values = null;
+
+		try {
+
+			values = new String(s_decoder.decode(cursor), StandardCharsets.UTF_8).split(SEPARATOR, -1);
+		}
+
+		catch (IllegalArgumentException e) {
+
+			throw new DatabaseRequestException("Invalid cursor");
+		}
+
+		if (values.length != fields + 2 || !values[0].equals(kind) || !values[1].equals(argument))
+			throw new DatabaseRequestException("Invalid cursor");
+
+		String[] key = new String[fields];
+		System.arraycopy(values, 2, key, 0, fields);
+		return key;
+	}
+
+	/**
+	 * Parses a numeric field of a sort key
+	 *
+	 * @param field The field
+	 * @return Its value
+	 * @throws DatabaseRequestException If the field is not a number
+	 */
+	static int parseInt(String field) throws DatabaseRequestException {
+
+		try {
+
+			return Integer.parseInt(field);
+		}
+
+		catch (NumberFormatException e) {
+
+			throw new DatabaseRequestException("Invalid cursor");
+		}
+	}
+
+	/**
+	 * Parses a decimal field of a sort key
+	 *
+	 * @param field The field
+	 * @return Its value
+	 * @throws DatabaseRequestException If the field is not a number
+	 */
+	static double parseDouble(String field) throws DatabaseRequestException {
+
+		try {
+
+			return Double.parseDouble(field);
+		}
+
+		catch (NumberFormatException e) {
+
+			throw new DatabaseRequestException("Invalid cursor");
+		}
+	}
+
+	/**
+	 * PostgreSQL text can not hold the NUL character, so it can not appear in a key
+	 */
+	private static final String SEPARATOR = "\u0000";
+
+	private static final Base64.Encoder s_encoder = Base64.getUrlEncoder().withoutPadding();
+	private static final Base64.Decoder s_decoder = Base64.getUrlDecoder();
+}
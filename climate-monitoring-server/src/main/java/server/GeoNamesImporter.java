@@ -0,0 +1,418 @@
+/*
+
+Alessandro della Frattina 753073 VA
+Cristian Capiferri 752918 VA
+Francesco Lops 753175 VA
+Dariia Sniezhko 753057 VA
+
+*/
+
+package server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import climatemonitoring.core.Area;
+import climatemonitoring.core.headless.Console;
+
+/**
+ * Loads a GeoNames dump (allCountries.txt, cities500.txt, ...) into the area table.
+ * The file is streamed one line at a time and the areas are upserted in batches,
+ * each one committed in its own transaction. After every commit the position in
+ * the file is saved next to it (file.checkpoint), so an interrupted import resumes
+ * from the last committed batch. The country names are read from the GeoNames
+ * countryInfo.txt, the country code is used when it is not given.
+ * Usage: GeoNamesImporter file [countryInfo] [--batch=N]
+ *
+ * @author ccapiferri
+ * @version 1.0-SNAPSHOT
+ */
+public class GeoNamesImporter {
+
+	public static void main(String[] args) throws Exception {
+
+		String file = null;
+		String countries = null;
+		int batch = 5000;
+
+		for (String arg : args) {
+
+			if (arg.startsWith("--batch="))
+				batch = Integer.parseInt(arg.substring(arg.indexOf('=') + 1));
+			else if (file == null)
+				file = arg;
+			else if (countries == null)
+				countries = arg;
+			else
+				Console.warn("Ignoring argument: " + arg);
+		}
+
+		if (file == null) {
+
+			Console.error("Usage: GeoNamesImporter file [countryInfo] [--batch=N]");
+			return;
+		}
+
+		String url = Console.read("Database URL > ");
+		String username = Console.read("Username > ");
+		String password = Console.read("Password > ");
+
+		ConnectionPool pool = new ConnectionPool(url, username, password, 1, 5000, 60000, 64);
+
+		try {
+
+			run(pool, file, countries, batch);
+		}
+
+		finally {
+
+			pool.close();
+		}
+	}
+
+	/**
+	 * Imports a GeoNames dump, resuming from its checkpoint if there is one.
+	 * The server reads the areas into its indexes at startup, so the running
+	 * servers see the imported areas once restarted
+	 *
+	 * @param pool The connection pool
+	 * @param file The GeoNames dump
+	 * @param countries The GeoNames countryInfo.txt (may be null)
+	 * @param batch_size The number of areas upserted in a transaction
+	 * @return The number of areas upserted
+	 * @throws IOException If the files can not be read or the checkpoint can not be saved
+	 * @throws SQLException If a batch can not be upserted, the batches committed until then are kept
+	 */
+	public static long run(ConnectionPool pool, String file, String countries, int batch_size) throws IOException, SQLException {
+
+		Path path = Paths.get(file);
+		Path checkpoint = Paths.get(file + ".checkpoint");
+		Map<String, String> countryNames = countries != null ? readCountries(Paths.get(countries)) : new HashMap<String, String>();
+
+		long size = Files.size(path);
+		long modified = Files.getLastModifiedTime(path).toMillis();
+		long offset = 0;
+		long rows = 0;
+		long skipped = 0;
+
+		if (Files.exists(checkpoint)) {
+
+			Properties properties = new Properties();
+
+			try (InputStream in = Files.newInputStream(checkpoint)) {
+
+				properties.load(in);
+			}
+
+			if (Long.parseLong(properties.getProperty("size", "-1")) == size && Long.parseLong(properties.getProperty("modified", "-1")) == modified) {
+
+				offset = Long.parseLong(properties.getProperty("offset", "0"));
+				rows = Long.parseLong(properties.getProperty("rows", "0"));
+				skipped = Long.parseLong(properties.getProperty("skipped", "0"));
+				Console.info("Resuming " + file + " from byte " + offset + " (" + rows + " areas already imported)");
+			}
+
+			else {
+
+				Console.warn("The checkpoint of " + file + " belongs to another version of the file, importing it from the start");
+			}
+		}
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+
+			channel.position(offset);
+
+			LineReader reader = new LineReader(new BufferedInputStream(Channels.newInputStream(channel), 1 << 16), offset);
+			Area[] batch = new Area[batch_size];
+			int pending = 0;
+
+			long start = System.nanoTime();
+			long resumed = rows;
+			long report = start + PROGRESS_INTERVAL;
+			String line;
+
+			while ((line = reader.readLine()) != null) {
+
+				Area area = parse(line, countryNames);
+
+				if (area == null) {
+
+					skipped++;
+					continue;
+				}
+
+				batch[pending++] = area;
+
+				if (pending == batch_size) {
+
+					upsert(pool, batch, pending);
+					rows += pending;
+					pending = 0;
+
+					save(checkpoint, size, modified, reader.getOffset(), rows, skipped);
+
+					long now = System.nanoTime();
+
+					if (now >= report) {
+
+						progress(rows, resumed, reader.getOffset(), size, now - start);
+						report = now + PROGRESS_INTERVAL;
+					}
+				}
+			}
+
+			if (pending > 0) {
+
+				upsert(pool, batch, pending);
+				rows += pending;
+			}
+
+			Files.deleteIfExists(checkpoint);
+
+			progress(rows, resumed, size, size, System.nanoTime() - start);
+			Console.info("Imported " + rows + " areas from " + file + ", " + skipped + " lines skipped");
+		}
+
+		return rows;
+	}
+
+	/**
+	 * Upserts a batch of areas in one transaction
+	 */
+	private static void upsert(ConnectionPool pool, Area[] batch, int count) throws SQLException {
+
+		Connection connection = pool.acquire();
+
+		try {
+
+			connection.setAutoCommit(false);
+
+			PreparedStatement pst = pool.prepare(connection, UPSERT);
+
+			for (int i = 0; i < count; i++) {
+
+				Area area = batch[i];
+
+				pst.setInt(1, area.getGeonameID());
+				pst.setString(2, area.getName());
+				pst.setString(3, area.getAsciiName());
+				pst.setString(4, area.getCountryCode());
+				pst.setString(5, area.getCountryName());
+				pst.setDouble(6, area.getLatitude());
+				pst.setDouble(7, area.getLongitude());
+				pst.addBatch();
+			}
+
+			pst.executeBatch();
+
+			connection.commit();
+		}
+
+		catch (SQLException e) {
+
+			connection.rollback();
+			throw e;
+		}
+
+		finally {
+
+			Arrays.fill(batch, 0, count, null);
+			pool.release(connection);
+		}
+	}
+
+	/**
+	 * Converts a line of a GeoNames dump to an area
+	 *
+	 * @return The area, null if the line is a comment, is malformed or does not fit the area table
+	 */
+	private static Area parse(String line, Map<String, String> country_names) {
+
+		if (line.isEmpty() || line.charAt(0) == '#')
+			return null;
+
+		// geonameid, name, asciiname, alternatenames, latitude, longitude, feature class, feature code, country code, ...
+		String[] fields = line.split("\t", 10);
+
+		if (fields.length < 9 || fields[8].isEmpty())
+			return null;
+
+		try {
+
+			int geonameID = Integer.parseInt(fields[0]);
+			double latitude = Double.parseDouble(fields[4]);
+			double longitude = Double.parseDouble(fields[5]);
+			String countryCode = fields[8];
+			String countryName = country_names.getOrDefault(countryCode, countryCode);
+			String asciiName = fields[2].isEmpty() ? fields[1] : fields[2];
+
+			// A value the area table can not hold would fail the whole batch, and every resume with it
+			if (countryCode.length() != 2 || !fits(fields[1]) || !fits(asciiName) || !fits(countryName)) {
+
+				Console.warn("Skipping area " + geonameID + ", its names or country code do not fit the area table");
+				return null;
+			}
+
+			return new Area(geonameID, fields[1], asciiName, countryCode, countryName, latitude, longitude);
+		}
+
+		catch (NumberFormatException e) {
+
+			return null;
+		}
+	}
+
+	/**
+	 *
+	 * @return True if the name fits a VARCHAR(100) column, whose length is in characters
+	 */
+	private static boolean fits(String name) {
+
+		return name.codePointCount(0, name.length()) <= MAX_NAME_LENGTH;
+	}
+
+	/**
+	 * Reads the country names by ISO code from the GeoNames countryInfo.txt
+	 */
+	private static Map<String, String> readCountries(Path path) throws IOException {
+
+		Map<String, String> names = new HashMap<String, String>();
+
+		try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+
+			String line;
+
+			while ((line = reader.readLine()) != null) {
+
+				if (line.isEmpty() || line.charAt(0) == '#')
+					continue;
+
+				// ISO, ISO3, ISO-Numeric, fips, Country, ...
+				String[] fields = line.split("\t", 6);
+
+				if (fields.length >= 5)
+					names.put(fields[0], fields[4]);
+			}
+		}
+
+		return names;
+	}
+
+	/**
+	 * Saves the position after the last committed batch, replacing the previous checkpoint at once
+	 */
+	private static void save(Path checkpoint, long size, long modified, long offset, long rows, long skipped) throws IOException {
+
+		Properties properties = new Properties();
+		properties.setProperty("size", Long.toString(size));
+		properties.setProperty("modified", Long.toString(modified));
+		properties.setProperty("offset", Long.toString(offset));
+		properties.setProperty("rows", Long.toString(rows));
+		properties.setProperty("skipped", Long.toString(skipped));
+
+		Path temporary = Paths.get(checkpoint + ".tmp");
+
+		try (OutputStream out = Files.newOutputStream(temporary)) {
+
+			properties.store(out, "GeoNames import checkpoint");
+		}
+
+		Files.move(temporary, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private static void progress(long rows, long resumed, long offset, long size, long nanos) {
+
+		double seconds = nanos / 1e9;
+		Console.info(String.format("%d areas imported (%.1f%%), %.0f areas/s", rows, size == 0 ? 100.0 : 100.0 * offset / size, seconds > 0 ? (rows - resumed) / seconds : 0.0));
+	}
+
+	/**
+	 * Reads UTF-8 lines and keeps track of the byte offset of the next one,
+	 * which a BufferedReader can not tell because it decodes ahead
+	 */
+	private static class LineReader {
+
+		LineReader(InputStream in, long offset) {
+
+			m_in = in;
+			m_offset = offset;
+		}
+
+		/**
+		 *
+		 * @return The next line without its terminator, null at the end of the file
+		 */
+		String readLine() throws IOException {
+
+			int length = 0;
+			int b;
+
+			while ((b = m_in.read()) != -1) {
+
+				m_offset++;
+
+				if (b == '\n')
+					break;
+
+				if (length == m_buffer.length)
+					m_buffer = Arrays.copyOf(m_buffer, m_buffer.length * 2);
+
+				m_buffer[length++] = (byte) b;
+			}
+
+			if (b == -1 && length == 0)
+				return null;
+
+			if (length > 0 && m_buffer[length - 1] == '\r')
+				length--;
+
+			return new String(m_buffer, 0, length, StandardCharsets.UTF_8);
+		}
+
+		/**
+		 *
+		 * @return The byte offset of the next line
+		 */
+		long getOffset() {
+
+			return m_offset;
+		}
+
+		private final InputStream m_in;
+		private byte[] m_buffer = new byte[1024];
+		private long m_offset;
+	}
+
+	private static final long PROGRESS_INTERVAL = 5_000_000_000L;
+	private static final int MAX_NAME_LENGTH = 100;
+
+	private static final String UPSERT = """
+		INSERT INTO area (geoname_id, area_name, area_ascii_name, country_code, country_name, latitude, longitude)
+		VALUES (?, ?, ?, ?, ?, ?, ?)
+		ON CONFLICT (geoname_id) DO UPDATE SET
+			area_name = EXCLUDED.area_name,
+			area_ascii_name = EXCLUDED.area_ascii_name,
+			country_code = EXCLUDED.country_code,
+			country_name = EXCLUDED.country_name,
+			latitude = EXCLUDED.latitude,
+			longitude = EXCLUDED.longitude;
+	""";
+}
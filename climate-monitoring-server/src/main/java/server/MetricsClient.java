@@ -0,0 +1,60 @@
+/*
+
+Alessandro della Frattina 753073 VA
+Cristian Capiferri 752918 VA
+Francesco Lops 753175 VA
+Dariia Sniezhko 753057 VA
+
+*/
+
+package server;
+
+import java.io.ObjectInput;
+
+import climatemonitoring.core.DatabaseRequestException;
+import climatemonitoring.core.RequestType;
+import climatemonitoring.core.headless.Console;
+import climatemonitoring.core.network.Channel;
+
+/**
+ * Prints the request metrics of a server running on the same machine
+ * (see {@link RequestMetrics}), optionally every few seconds.
+ * Usage: MetricsClient [port] [seconds]
+ *
+ * @author ccapiferri
+ * @version 1.0-SNAPSHOT
+ */
+public class MetricsClient {
+
+	public static void main(String[] args) throws Exception {
+
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : new ServerSpecification().port;
+		int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+
+		Channel channel = new Channel("localhost", port);
+
+		try {
+
+			do {
+
+				ObjectInput in = channel.send(channel.request(RequestType.GET_SERVER_METRICS));
+
+				if ((Boolean) in.readObject())
+					Console.write((String) in.readObject());
+				else
+					Console.error(((DatabaseRequestException) in.readObject()).getMessage());
+
+				if (seconds > 0)
+					Thread.sleep(seconds * 1000L);
+
+			} while (seconds > 0);
+
+			channel.send(channel.request(RequestType.DISCONNECT)).readObject();
+		}
+
+		finally {
+
+			channel.close();
+		}
+	}
+}
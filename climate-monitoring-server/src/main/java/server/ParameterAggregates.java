@@ -0,0 +1,432 @@
+/*
+
+Alessandro della Frattina 753073 VA
+Cristian Capiferri 752918 VA
+Francesco Lops 753175 VA
+Dariia Sniezhko 753057 VA
+
+*/
+
+package server;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import climatemonitoring.core.Parameter;
+import climatemonitoring.core.ParameterBucket;
+import climatemonitoring.core.ParameterStats;
+
+/**
+ * The statistics of the recordings of every (area, center, category), kept in memory
+ * so that the average and the other statistics are answered without reading the
+ * recordings, together with their hourly, daily and monthly summaries to draw the
+ * trends. They are built once at startup from the parameter table, with a single
+ * grouped query, and kept current by addParameter when its recording is committed,
+ * so they are shared by every session.
+ * The center and the category are compared ignoring the case like the queries do
+ *
+ * @author ccapiferri
+ * @version 1.0-SNAPSHOT
+ */
+public class ParameterAggregates {
+
+	/**
+	 * Reads the statistics of every (area, center, category) from the parameter table
+	 *
+	 * @param pool The connection pool
+	 * @param fetch_size The number of rows fetched at a time
+	 * @return The aggregates
+	 * @throws SQLException If the recordings can not be read
+	 */
+	public static ParameterAggregates load(ConnectionPool pool, int fetch_size) throws SQLException {
+
+		ParameterAggregates aggregates = new ParameterAggregates();
+		Connection connection = pool.acquire();
+
+		try {
+
+			// Fetching in batches needs a transaction, the pool rolls it back on release
+			connection.setAutoCommit(false);
+
+			PreparedStatement pst = connection.prepareStatement(GROUPED_QUERY + ";", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			pst.setFetchSize(fetch_size);
+
+			try (ResultSet query = pst.executeQuery()) {
+
+				while (query.next())
+					aggregates.aggregate(query.getInt("geoname_id"), query.getString("center_id"), query.getString("category_id")).add(query);
+			}
+		}
+
+		finally {
+
+			pool.release(connection);
+		}
+
+		return aggregates;
+	}
+
+	/**
+	 * Computes the statistics of a single (area, center, category) with the same grouped
+	 * query used to load the aggregates, for when they are not available
+	 *
+	 * @param connection The connection to use
+	 * @param geoname_id The area's ID
+	 * @param center_id The center's ID
+	 * @param category The parameter's category
+	 * @return The statistics
+	 * @throws SQLException If the recordings can not be read
+	 */
+	public static ParameterStats query(Connection connection, int geoname_id, String center_id, String category) throws SQLException {
+
+		Aggregate aggregate = new Aggregate();
+
+		try (PreparedStatement pst = connection.prepareStatement("SELECT * FROM (" + GROUPED_QUERY + ") S WHERE geoname_id = ? AND center_id = LOWER(?) AND category_id = LOWER(?);")) {
+
+			pst.setInt(1, geoname_id);
+			pst.setString(2, center_id);
+			pst.setString(3, category);
+
+			try (ResultSet query = pst.executeQuery()) {
+
+				while (query.next())
+					aggregate.add(query);
+			}
+		}
+
+		return aggregate.toStats(geoname_id, center_id, category);
+	}
+
+	/**
+	 * Adds a committed recording to the statistics
+	 *
+	 * @param parameter The recording
+	 */
+	public void add(Parameter parameter) {
+
+		m_lock.writeLock().lock();
+
+		try {
+
+			aggregate(parameter.getGeonameID(), parameter.getCenterID(), parameter.getCategory()).add(parameter.getScore(), 1, parameter.getTimestamp());
+		}
+
+		finally {
+
+			m_lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * The statistics of the recordings of a center about a category of an area
+	 *
+	 * @param geoname_id The area's ID
+	 * @param center_id The center's ID
+	 * @param category The parameter's category
+	 * @return The statistics, with a count of 0 if there are no recordings
+	 */
+	public ParameterStats get(int geoname_id, String center_id, String category) {
+
+		m_lock.readLock().lock();
+
+		try {
+
+			Aggregate aggregate = find(geoname_id, center_id, category);
+			return aggregate != null ? aggregate.toStats(geoname_id, center_id, category) : new Aggregate().toStats(geoname_id, center_id, category);
+		}
+
+		finally {
+
+			m_lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * The average score of the recordings of a center about a category of an area
+	 *
+	 * @param geoname_id The area's ID
+	 * @param center_id The center's ID
+	 * @param category The parameter's category
+	 * @return The average, 0 if there are no recordings
+	 */
+	public double getAverage(int geoname_id, String center_id, String category) {
+
+		m_lock.readLock().lock();
+
+		try {
+
+			Aggregate aggregate = find(geoname_id, center_id, category);
+			return aggregate == null || aggregate.count == 0 ? 0.0 : (double) aggregate.sum / aggregate.count;
+		}
+
+		finally {
+
+			m_lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * The hourly, daily or monthly summaries of the recordings of a center about an area
+	 *
+	 * @param geoname_id The area's ID
+	 * @param center_id The center's ID
+	 * @param category The parameter's category, or null for every category
+	 * @param size ParameterBucket.HOUR, DAY or MONTH
+	 * @param from The beginning of the range, its bucket included (null for no beginning)
+	 * @param to The end of the range, excluded (null for no end)
+	 * @param limit The maximum number of buckets returned (0 for no limit)
+	 * @return The buckets, ordered by category and by time
+	 * @throws IllegalArgumentException If the size is not valid
+	 */
+	public List<ParameterBucket> getTrend(int geoname_id, String center_id, String category, String size, LocalDateTime from, LocalDateTime to, int limit) {
+
+		LocalDateTime start = from == null ? null : ParameterBucket.truncate(size, from);
+		List<ParameterBucket> buckets = new ArrayList<ParameterBucket>();
+
+		m_lock.readLock().lock();
+
+		try {
+
+			NavigableMap<String, Aggregate> categories = m_series.get(new Key(geoname_id, center_id));
+
+			if (categories == null)
+				return buckets;
+
+			if (category != null) {
+
+				Aggregate aggregate = categories.get(category.toLowerCase(Locale.ROOT));
+				categories = new TreeMap<String, Aggregate>();
+
+				if (aggregate != null)
+					categories.put(category.toLowerCase(Locale.ROOT), aggregate);
+			}
+
+			for (Map.Entry<String, Aggregate> entry : categories.entrySet()) {
+
+				NavigableMap<LocalDateTime, Summary> rollup = entry.getValue().rollup(size);
+
+				if (start != null)
+					rollup = rollup.tailMap(start, true);
+
+				if (to != null)
+					rollup = rollup.headMap(to, false);
+
+				for (Map.Entry<LocalDateTime, Summary> bucket : rollup.entrySet()) {
+
+					if (limit > 0 && buckets.size() >= limit)
+						return buckets;
+
+					buckets.add(bucket.getValue().toBucket(entry.getKey(), bucket.getKey()));
+				}
+			}
+
+			return buckets;
+		}
+
+		finally {
+
+			m_lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * A summary of the size of the aggregates
+	 */
+	@Override
+	public String toString() {
+
+		m_lock.readLock().lock();
+
+		try {
+
+			long recordings = 0;
+			long series = 0;
+			long buckets = 0;
+
+			for (Map<String, Aggregate> categories : m_series.values()) {
+
+				for (Aggregate aggregate : categories.values()) {
+
+					recordings += aggregate.count;
+					buckets += aggregate.hours.size() + aggregate.days.size() + aggregate.months.size();
+					series++;
+				}
+			}
+
+			return String.format("Parameter aggregates: %d recordings in %d (area, center, category), %d hourly, daily and monthly buckets, %.1f MB",
+				recordings, series, buckets, (series * AGGREGATE + buckets * BUCKET) / MEGABYTE);
+		}
+
+		finally {
+
+			m_lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * An area and a center, whose categories are kept in alphabetical order
+	 */
+	private static final class Key {
+
+		Key(int geoname_id, String center_id) {
+
+			this.geonameID = geoname_id;
+			this.center = center_id == null ? null : center_id.toLowerCase(Locale.ROOT);
+		}
+
+		@Override
+		public boolean equals(Object object) {
+
+			if (!(object instanceof Key))
+				return false;
+
+			Key other = (Key) object;
+			return geonameID == other.geonameID && Objects.equals(center, other.center);
+		}
+
+		@Override
+		public int hashCode() {
+
+			return Objects.hash(geonameID, center);
+		}
+
+		final int geonameID;
+		final String center;
+	}
+
+	/**
+	 * The count, the sum, the lowest and the highest score of the recordings of a bucket
+	 */
+	private static final class Summary {
+
+		void add(int score, int recordings) {
+
+			min = count == 0 ? score : Math.min(min, score);
+			max = count == 0 ? score : Math.max(max, score);
+			count += recordings;
+			sum += (long) score * recordings;
+		}
+
+		ParameterBucket toBucket(String category, LocalDateTime start) {
+
+			return new ParameterBucket(category, start, count, sum, min, max);
+		}
+
+		int count;
+		long sum;
+		int min;
+		int max;
+	}
+
+	/**
+	 * The running statistics of a (area, center, category)
+	 */
+	private static final class Aggregate {
+
+		/**
+		 * Adds a row of the grouped query: the recordings with the same score
+		 */
+		void add(ResultSet query) throws SQLException {
+
+			Timestamp latest = query.getTimestamp("latest_timestamp");
+			add(query.getInt("score"), query.getInt("recordings"), latest == null ? null : latest.toLocalDateTime());
+		}
+
+		void add(int score, int recordings, LocalDateTime timestamp) {
+
+			min = count == 0 ? score : Math.min(min, score);
+			max = count == 0 ? score : Math.max(max, score);
+			count += recordings;
+			sum += (long) score * recordings;
+
+			if (score >= ParameterStats.MIN_SCORE && score <= ParameterStats.MAX_SCORE)
+				histogram[score - ParameterStats.MIN_SCORE] += recordings;
+
+			if (timestamp == null)
+				return;
+
+			if (latestTimestamp == null || !timestamp.isBefore(latestTimestamp)) {
+
+				latestTimestamp = timestamp;
+				latestScore = score;
+			}
+
+			hours.computeIfAbsent(ParameterBucket.truncate(ParameterBucket.HOUR, timestamp), (LocalDateTime start) -> new Summary()).add(score, recordings);
+			days.computeIfAbsent(ParameterBucket.truncate(ParameterBucket.DAY, timestamp), (LocalDateTime start) -> new Summary()).add(score, recordings);
+			months.computeIfAbsent(ParameterBucket.truncate(ParameterBucket.MONTH, timestamp), (LocalDateTime start) -> new Summary()).add(score, recordings);
+		}
+
+		NavigableMap<LocalDateTime, Summary> rollup(String size) {
+
+			switch (size) {
+
+				case ParameterBucket.HOUR: return hours;
+				case ParameterBucket.DAY: return days;
+				case ParameterBucket.MONTH: return months;
+				default: throw new IllegalArgumentException("Invalid bucket size: " + size);
+			}
+		}
+
+		ParameterStats toStats(int geoname_id, String center_id, String category) {
+
+			return new ParameterStats(geoname_id, center_id, category, count, sum, min, max, latestScore, latestTimestamp, histogram.clone());
+		}
+
+		int count;
+		long sum;
+		int min;
+		int max;
+		int latestScore;
+		LocalDateTime latestTimestamp;
+		final int[] histogram = new int[ParameterStats.MAX_SCORE - ParameterStats.MIN_SCORE + 1];
+		final NavigableMap<LocalDateTime, Summary> hours = new TreeMap<LocalDateTime, Summary>();
+		final NavigableMap<LocalDateTime, Summary> days = new TreeMap<LocalDateTime, Summary>();
+		final NavigableMap<LocalDateTime, Summary> months = new TreeMap<LocalDateTime, Summary>();
+	}
+
+	private Aggregate aggregate(int geoname_id, String center_id, String category) {
+
+		NavigableMap<String, Aggregate> categories = m_series.computeIfAbsent(new Key(geoname_id, center_id), (Key key) -> new TreeMap<String, Aggregate>());
+		return categories.computeIfAbsent(category.toLowerCase(Locale.ROOT), (String name) -> new Aggregate());
+	}
+
+	private Aggregate find(int geoname_id, String center_id, String category) {
+
+		NavigableMap<String, Aggregate> categories = m_series.get(new Key(geoname_id, center_id));
+		return categories == null || category == null ? null : categories.get(category.toLowerCase(Locale.ROOT));
+	}
+
+	private final ReadWriteLock m_lock = new ReentrantReadWriteLock();
+	private final Map<Key, NavigableMap<String, Aggregate>> m_series = new HashMap<Key, NavigableMap<String, Aggregate>>();
+
+	/**
+	 * The recordings grouped by hour and by score, every row gives the count and the
+	 * most recent time of a score within an hour, which is enough to rebuild all the
+	 * statistics and the hourly, daily and monthly summaries
+	 */
+	private static final String GROUPED_QUERY = """
+		SELECT geoname_id, LOWER(center_id) AS center_id, LOWER(category_id) AS category_id, score,
+		COUNT(*) AS recordings, MAX(rec_timestamp) AS latest_timestamp
+		FROM parameter
+		GROUP BY geoname_id, LOWER(center_id), LOWER(category_id), date_trunc('hour', rec_timestamp), score
+	""";
+
+	// Rough sizes of a 64-bit JVM with compressed references: the map entry, the key and its strings, the aggregate and its histogram
+	private static final long AGGREGATE = 36 + 2 * (12 + 4 + 2 * 4) + 2 * 40 + 12 + 4 * 4 + 8 + 5 * 4 + 16 + 4 * 5 + 48 + 3 * 48;
+	private static final long BUCKET = 40 + 48 + 12 + 3 * 4 + 8;
+	private static final double MEGABYTE = 1024.0 * 1024.0;
+}
@@ -0,0 +1,101 @@
+/*
+
+Alessandro della Frattina 753073 VA
+Cristian Capiferri 752918 VA
+Francesco Lops 753175 VA
+Dariia Sniezhko 753057 VA
+
+*/
+
+package server;
+
+import java.time.LocalDateTime;
+
+import climatemonitoring.core.Parameter;
+import climatemonitoring.core.headless.Console;
+
+/**
+ * Compares the rows per second added by addParameter, one request per row, with
+ * the ones added by addParameters, one transaction and JDBC batches for all of them.
+ * The recordings are made for an existing area, center, operator and category, far
+ * in the future, and deleted at the end.
+ * Usage: ParameterBatchBenchmark [rows]
+ *
+ * @author ccapiferri
+ * @version 1.0-SNAPSHOT
+ */
+public class ParameterBatchBenchmark {
+
+	public static void main(String[] args) throws Exception {
+
+		int rows = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+
+		String url = Console.read("Database URL > ");
+		String username = Console.read("Username > ");
+		String password = Console.read("Password > ");
+		int geonameID = Integer.parseInt(Console.read("Geoname ID of a monitored area > ").trim());
+		String centerID = Console.read("Center ID that monitors it > ").trim();
+		String userID = Console.read("User ID of an operator of the center > ").trim();
+		String category = Console.read("Category > ").trim();
+
+		ConnectionPool pool = new ConnectionPool(url, username, password, 2, 5000, 60000, 64);
+		ServerDatabaseImpl database = new ServerDatabaseImpl(pool, 500, 10000, null, null, null, null);
+
+		try {
+
+			Parameter[] single = generate(rows, geonameID, centerID, userID, category, START);
+			Parameter[] batch = generate(rows, geonameID, centerID, userID, category, START.plusYears(1));
+
+			long start = System.nanoTime();
+
+			for (Parameter parameter : single)
+				database.addParameter(parameter);
+
+			report("addParameter", rows, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			String[] errors = database.addParameters(batch);
+			report("addParameters", rows, System.nanoTime() - start);
+
+			int failed = 0;
+
+			for (String error : errors) {
+
+				if (error != null && failed++ == 0)
+					Console.warn("Row rejected: " + error);
+			}
+
+			if (failed > 0)
+				Console.warn(failed + " rows rejected by addParameters");
+		}
+
+		finally {
+
+			database.execute("DELETE FROM parameter WHERE rec_timestamp >= '" + START + "';");
+			pool.close();
+		}
+	}
+
+	/**
+	 * One recording a minute
+	 */
+	private static Parameter[] generate(int rows, int geoname_id, String center_id, String user_id, String category, LocalDateTime start) {
+
+		Parameter[] parameters = new Parameter[rows];
+
+		for (int i = 0; i < rows; i++)
+			parameters[i] = new Parameter(geoname_id, center_id, user_id, category, start.plusMinutes(i), 1 + i % 5, "Benchmark");
+
+		return parameters;
+	}
+
+	private static void report(String path, int rows, long nanos) {
+
+		Console.write(String.format("%-14s %7d rows in %7.0f ms, %9.0f rows/s", path, rows, nanos / 1e6, rows / (nanos / 1e9)));
+	}
+
+	/**
+	 * Far enough in the future not to mix with real recordings
+	 */
+	private static final LocalDateTime START = LocalDateTime.of(2999, 1, 1, 0, 0);
+}
@@ -0,0 +1,332 @@
+/*
+
+Alessandro della Frattina 753073 VA
+Cristian Capiferri 752918 VA
+Francesco Lops 753175 VA
+Dariia Sniezhko 753057 VA
+
+*/
+
+package server;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+import climatemonitoring.core.headless.Console;
+
+/**
+ * Times the statements prepared through the pool, per SQL template: the time the
+ * database takes to execute a statement and the time spent fetching its rows, until
+ * its result set gets closed. The statements slower than a threshold are logged with
+ * their parameters and, optionally, the plan the database chose for them.
+ * The statements are timed by wrapping them, and their result sets, in proxies
+ * (see {@link #wrap(PreparedStatement, String)})
+ *
+ * @author ccapiferri
+ * @version 1.0-SNAPSHOT
+ */
+public class QueryLog {
+
+	/**
+	 * @param threshold The time (in milliseconds) after which a statement is logged as slow
+	 * @param explain Whether the plan of the slow queries is logged too
+	 */
+	public QueryLog(long threshold, boolean explain) {
+
+		m_threshold = threshold * 1_000_000L;
+		m_explain = explain;
+	}
+
+	/**
+	 * Wraps a statement so that its executions get timed
+	 *
+	 * @param pst The statement
+	 * @param sql The SQL of the statement
+	 * @return The timed statement
+	 */
+	PreparedStatement wrap(PreparedStatement pst, String sql) {
+
+		return (PreparedStatement) Proxy.newProxyInstance(QueryLog.class.getClassLoader(), new Class<?>[] { PreparedStatement.class }, new TimedStatement(pst, sql));
+	}
+
+	/**
+	 * Describes the statements that took the most time overall
+	 *
+	 * @param count The number of statements
+	 * @return The statements as text, one per line
+	 */
+	public String top(int count) {
+
+		List<Map.Entry<String, Template>> templates = new ArrayList<Map.Entry<String, Template>>(m_templates.entrySet());
+		templates.sort((a, b) -> Long.compare(b.getValue().total(), a.getValue().total()));
+
+		StringBuilder text = new StringBuilder();
+		text.append(String.format("%-10s %10s %10s %10s %10s %10s %8s  %s%n", "total ms", "count", "mean ms", "exec ms", "fetch ms", "max ms", "slow", "statement"));
+
+		for (Map.Entry<String, Template> entry : templates.subList(0, Math.min(count, templates.size()))) {
+
+			Template template = entry.getValue();
+			long executions = template.count.sum();
+
+			text.append(String.format("%10.1f %10d %10.3f %10.1f %10.1f %10.1f %8d  %s%n",
+				template.total() / 1e6, executions, executions == 0 ? 0.0 : template.total() / 1e6 / executions,
+				template.execute.sum() / 1e6, template.fetch.sum() / 1e6, template.max.get() / 1e6, template.slow.sum(), compact(entry.getKey())));
+		}
+
+		return text.toString();
+	}
+
+	/**
+	 * Counts an execution of a statement and logs it if it is slow
+	 */
+	private void record(String sql, Object[] parameters, long execute, long fetch, long rows, Connection connection) {
+
+		Template template = m_templates.computeIfAbsent(sql, s -> new Template());
+		long total = execute + fetch;
+
+		template.count.increment();
+		template.execute.add(execute);
+		template.fetch.add(fetch);
+		template.max.accumulateAndGet(total, Math::max);
+
+		if (total < m_threshold)
+			return;
+
+		template.slow.increment();
+
+		StringBuilder message = new StringBuilder();
+		message.append(String.format("Slow statement (%.1f ms execute, %.1f ms fetch, %d rows): %s -- parameters: %s",
+			execute / 1e6, fetch / 1e6, rows, compact(sql), Arrays.toString(masked(parameters))));
+
+		if (m_explain && rows >= 0)
+			message.append(explain(connection, sql, parameters));
+
+		Console.warn(message.toString());
+	}
+
+	/**
+	 * Asks the database for the plan of a query, without running it
+	 */
+	private static String explain(Connection connection, String sql, Object[] parameters) {
+
+		StringBuilder plan = new StringBuilder();
+
+		try (PreparedStatement pst = connection.prepareStatement("EXPLAIN " + sql.trim().replaceAll(";$", ""))) {
+
+			for (int i = 1; i < parameters.length; i++)
+				pst.setObject(i, parameters[i]);
+
+			try (ResultSet query = pst.executeQuery()) {
+
+				while (query.next())
+					plan.append(System.lineSeparator()).append("    ").append(query.getString(1));
+			}
+		}
+
+		catch (SQLException e) {
+
+			plan.append(System.lineSeparator()).append("    (no plan: ").append(e.getMessage()).append(")");
+		}
+
+		return plan.toString();
+	}
+
+	private static String compact(String sql) {
+
+		return WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+	}
+
+	/**
+	 * Hides the password hashes, the only secrets the statements are given
+	 */
+	private static Object[] masked(Object[] parameters) {
+
+		Object[] masked = Arrays.copyOfRange(parameters, 1, parameters.length);
+
+		for (int i = 0; i < masked.length; i++)
+			if (masked[i] instanceof String && HASH.matcher((String) masked[i]).matches())
+				masked[i] = "***";
+
+		return masked;
+	}
+
+	/**
+	 * The timings of a SQL template
+	 */
+	private static class Template {
+
+		long total() {
+
+			return execute.sum() + fetch.sum();
+		}
+
+		final LongAdder count = new LongAdder();
+		final LongAdder execute = new LongAdder();
+		final LongAdder fetch = new LongAdder();
+		final LongAdder slow = new LongAdder();
+		final AtomicLong max = new AtomicLong();
+	}
+
+	/**
+	 * Keeps the parameters bound to a statement and times its executions.
+	 * A query is recorded when its result set gets closed, an update right away
+	 */
+	private class TimedStatement implements InvocationHandler {
+
+		TimedStatement(PreparedStatement pst, String sql) {
+
+			m_pst = pst;
+			m_sql = sql;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+			String name = method.getName();
+
+			if (name.equals("setNull"))
+				bind((Integer) args[0], null);
+			else if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer)
+				bind((Integer) args[0], args[1]);
+			else if (name.equals("clearParameters"))
+				Arrays.fill(m_parameters, null);
+			else if (name.equals("getResultSet"))
+				return m_result;
+
+			if (!name.startsWith("execute"))
+				return call(method, args);
+
+			// The rows of the previous execution are not read anymore
+			if (m_result != null)
+				m_result.close();
+
+			long start = System.nanoTime();
+			Object result = call(method, args);
+			long execute = System.nanoTime() - start;
+
+			ResultSet rows = result instanceof ResultSet ? (ResultSet) result : name.equals("execute") && Boolean.TRUE.equals(result) ? m_pst.getResultSet() : null;
+
+			if (rows != null) {
+
+				m_result = (ResultSet) Proxy.newProxyInstance(QueryLog.class.getClassLoader(), new Class<?>[] { ResultSet.class }, new TimedResult(rows, execute, m_parameters.clone()));
+				return result instanceof ResultSet ? m_result : result;
+			}
+
+			m_result = null;
+			record(m_sql, m_parameters.clone(), execute, 0, -1, m_pst.getConnection());
+			return result;
+		}
+
+		private void bind(int index, Object value) {
+
+			if (index >= m_parameters.length)
+				m_parameters = Arrays.copyOf(m_parameters, index + 1);
+
+			m_parameters[index] = value;
+		}
+
+		private Object call(Method method, Object[] args) throws Throwable {
+
+			try {
+
+				return method.invoke(m_pst, args);
+			}
+
+			catch (InvocationTargetException e) {
+
+				throw e.getCause();
+			}
+		}
+
+		/**
+		 * Times the rows fetched from a result set until it gets closed
+		 */
+		private class TimedResult implements InvocationHandler {
+
+			TimedResult(ResultSet result, long execute, Object[] parameters) {
+
+				m_rs = result;
+				m_execute = execute;
+				m_bound = parameters;
+			}
+
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+				String name = method.getName();
+
+				if (name.equals("next")) {
+
+					long start = System.nanoTime();
+					Object more = call(method, args);
+					m_fetch += System.nanoTime() - start;
+
+					if ((Boolean) more)
+						m_rows++;
+
+					return more;
+				}
+
+				if (name.equals("close") && !m_closed) {
+
+					m_closed = true;
+					Object result = call(method, args);
+					record(m_sql, m_bound, m_execute, m_fetch, m_rows, m_pst.getConnection());
+					return result;
+				}
+
+				return call(method, args);
+			}
+
+			private Object call(Method method, Object[] args) throws Throwable {
+
+				try {
+
+					return method.invoke(m_rs, args);
+				}
+
+				catch (InvocationTargetException e) {
+
+					throw e.getCause();
+				}
+			}
+
+			private final ResultSet m_rs;
+			private final long m_execute;
+			private final Object[] m_bound;
+			private long m_fetch;
+			private long m_rows;
+			private boolean m_closed;
+		}
+
+		private final PreparedStatement m_pst;
+		private final String m_sql;
+
+		/**
+		 * Indexed from 1, like the JDBC parameters
+		 */
+		private Object[] m_parameters = new Object[1];
+		private ResultSet m_result;
+	}
+
+	private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+	private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+
+	private final long m_threshold;
+	private final boolean m_explain;
+	private final Map<String, Template> m_templates = new ConcurrentHashMap<String, Template>();
+}
@@ -0,0 +1,226 @@
+/*
+
+Alessandro della Frattina 753073 VA
+Cristian Capiferri 752918 VA
+Francesco Lops 753175 VA
+Dariia Sniezhko 753057 VA
+
+*/
+
+package server;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import climatemonitoring.core.RequestType;
+
+/**
+ * The metrics of the requests served since the server started, shared by all
+ * the sessions and kept for every request type: how many requests there have
+ * been, how many failed, how long they took, how many are in progress and how
+ * many bytes they received and sent. Recording a request takes no lock and
+ * allocates nothing: the counters are LongAdders and the latencies go to a
+ * histogram of atomic counters, whose buckets keep 4 significant bits
+ * (an error of at most 6.25%)
+ *
+ * @author ccapiferri
+ * @version 1.0-SNAPSHOT
+ */
+final class RequestMetrics {
+
+	private RequestMetrics() {
+
+	}
+
+	/**
+	 * Marks the start of a request
+	 *
+	 * @param request The request type
+	 * @return The start time, to give back to {@link #end(RequestType, long)}
+	 */
+	static long begin(RequestType request) {
+
+		s_meters[request.ordinal()].inFlight.increment();
+		return System.nanoTime();
+	}
+
+	/**
+	 * Marks the end of a request, successful or not
+	 *
+	 * @param request The request type
+	 * @param start The time returned by {@link #begin(RequestType)}
+	 */
+	static void end(RequestType request, long start) {
+
+		long nanos = System.nanoTime() - start;
+		Meter meter = s_meters[request.ordinal()];
+
+		meter.inFlight.decrement();
+		meter.requests.increment();
+		meter.nanos.add(nanos);
+		meter.max.accumulateAndGet(nanos, Math::max);
+		meter.histogram.incrementAndGet(bucket(nanos));
+	}
+
+	/**
+	 * Counts a request that the database failed to process
+	 *
+	 * @param request The request type
+	 */
+	static void failed(RequestType request) {
+
+		s_meters[request.ordinal()].errors.increment();
+	}
+
+	/**
+	 * Counts the size of a request and of its response
+	 *
+	 * @param request The request type
+	 * @param received The bytes of the request
+	 * @param sent The bytes of the response
+	 */
+	static void transferred(RequestType request, long received, long sent) {
+
+		Meter meter = s_meters[request.ordinal()];
+		meter.received.add(received);
+		meter.sent.add(sent);
+	}
+
+	/**
+	 * Describes the metrics of every request type that has been used, one per line.
+	 * The latencies are in milliseconds, the throughput is averaged since the server started
+	 *
+	 * @return The metrics as text
+	 */
+	static String dump() {
+
+		double uptime = (System.nanoTime() - s_start) / 1e9;
+		StringBuilder text = new StringBuilder();
+
+		text.append(String.format("Requests since %s (%.0f s)%n", START_TIME, uptime));
+		text.append(String.format("%-28s %10s %9s %7s %8s %10s %10s %9s %9s %9s %9s %9s%n",
+			"request", "count", "req/s", "errors", "running", "in KB", "out KB", "mean", "p50", "p90", "p99", "max"));
+
+		long requests = 0;
+		long errors = 0;
+		long running = 0;
+
+		for (RequestType type : RequestType.values()) {
+
+			Meter meter = s_meters[type.ordinal()];
+			long count = meter.requests.sum();
+			long inFlight = meter.inFlight.sum();
+
+			if (count == 0 && inFlight == 0)
+				continue;
+
+			long[] histogram = new long[BUCKETS];
+			for (int i = 0; i < BUCKETS; i++)
+				histogram[i] = meter.histogram.get(i);
+
+			text.append(String.format("%-28s %10d %9.1f %6.2f%% %8d %10d %10d %9.3f %9.3f %9.3f %9.3f %9.3f%n",
+				type, count, count / uptime, count == 0 ? 0.0 : 100.0 * meter.errors.sum() / count, inFlight,
+				meter.received.sum() / 1024, meter.sent.sum() / 1024, count == 0 ? 0.0 : meter.nanos.sum() / 1e6 / count,
+				percentile(histogram, 0.50) / 1e6, percentile(histogram, 0.90) / 1e6, percentile(histogram, 0.99) / 1e6, meter.max.get() / 1e6));
+
+			requests += count;
+			errors += meter.errors.sum();
+			running += inFlight;
+		}
+
+		text.append(String.format("%-28s %10d %9.1f %6.2f%% %8d%n", "total", requests, requests / uptime, requests == 0 ? 0.0 : 100.0 * errors / requests, running));
+		return text.toString();
+	}
+
+	/**
+	 * The bucket of a latency: values below 16 ns have their own bucket,
+	 * the others are grouped by their highest bit and the 4 bits that follow
+	 */
+	static int bucket(long nanos) {
+
+		if (nanos < SUB_BUCKETS)
+			return (int) Math.max(nanos, 0);
+
+		int exponent = Math.min(63 - Long.numberOfLeadingZeros(nanos), MAX_EXPONENT);
+		int sub = (int) (Math.min(nanos, (2L << MAX_EXPONENT) - 1) >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+
+		return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+	/**
+	 * The highest latency of a bucket
+	 */
+	static long highest(int bucket) {
+
+		if (bucket < SUB_BUCKETS)
+			return bucket;
+
+		int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+		long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BITS);
+
+		return lowest + (1L << (exponent - SUB_BITS)) - 1;
+	}
+
+	/**
+	 * The latency below which the given fraction of the requests fall
+	 */
+	private static long percentile(long[] histogram, double fraction) {
+
+		long total = 0;
+		for (long count : histogram)
+			total += count;
+
+		if (total == 0)
+			return 0;
+
+		long rank = (long) Math.ceil(total * fraction);
+		long seen = 0;
+
+		for (int i = 0; i < histogram.length; i++) {
+
+			seen += histogram[i];
+
+			if (seen >= rank)
+				return highest(i);
+		}
+
+		return highest(histogram.length - 1);
+	}
+
+	/**
+	 * The metrics of a request type
+	 */
+	private static class Meter {
+
+		final LongAdder requests = new LongAdder();
+		final LongAdder errors = new LongAdder();
+		final LongAdder inFlight = new LongAdder();
+		final LongAdder received = new LongAdder();
+		final LongAdder sent = new LongAdder();
+		final LongAdder nanos = new LongAdder();
+		final AtomicLong max = new AtomicLong();
+		final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+	}
+
+	private static final int SUB_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+	/**
+	 * Latencies above 2^41 ns (about 36 minutes) share the last buckets
+	 */
+	private static final int MAX_EXPONENT = 41;
+	private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_BUCKETS;
+
+	private static final long s_start = System.nanoTime();
+	private static final String START_TIME = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+	private static final Meter[] s_meters = new Meter[RequestType.values().length];
+
+	static {
+
+		for (int i = 0; i < s_meters.length; i++)
+			s_meters[i] = new Meter();
+	}
+}
@@ -0,0 +1,546 @@
+/*
+
+Alessandro della Frattina 753073 VA
+Cristian Capiferri 752918 VA
+Francesco Lops 753175 VA
+Dariia Sniezhko 753057 VA
+
+*/
+
+package server;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import climatemonitoring.core.AreaDashboard;
+import climatemonitoring.core.Category;
+import climatemonitoring.core.Center;
+import climatemonitoring.core.ConnectionLostException;
+import climatemonitoring.core.DatabaseRequestException;
+import climatemonitoring.core.Parameter;
+import climatemonitoring.core.RequestType;
+
+/**
+ * Keeps the results of the hot read queries about an area (the parameters, their
+ * average, the latest center and category, the dashboard), shared by every session.
+ * A result is identified by its request type and its arguments, the center and the
+ * category are compared ignoring the case like the queries do.
+ *
+ * The results stay until a write makes them stale: a new recording only drops the
+ * results of its own area whose center and category match it (or are not given,
+ * since the latest center and category may have changed). A query that was running
+ * while its area got written does not store its result, so a stale result can not
+ * be put back after the invalidation.
+ * The reads do not lock: a hit only stamps its result with the current tick of the
+ * cache. Once the estimated memory goes over the limit, the results with the oldest
+ * stamps are evicted in a batch, so the eviction order is an approximate LRU.
+ * The cached values are shared, they must not be modified
+ *
+ * @author ccapiferri
+ * @version 1.0-SNAPSHOT
+ */
+public class ResultCache {
+
+	/**
+	 * Creates an empty cache
+	 *
+	 * @param max_bytes The estimated memory the results can use, in bytes
+	 */
+	public ResultCache(long max_bytes) {
+
+		m_maxBytes = max_bytes;
+	}
+
+	/**
+	 * A query that reads a result from the database
+	 */
+	@FunctionalInterface
+	public interface Query<T> {
+
+		public T run() throws ConnectionLostException, DatabaseRequestException;
+	}
+
+	/**
+	 * Returns the cached result of a request, or runs the query and caches what it returns.
+	 * Failed queries are not cached
+	 *
+	 * @param type The request
+	 * @param geoname_id The area of the request
+	 * @param center_id The center of the request, null if not given
+	 * @param category The category of the request, null if not given
+	 * @param query Reads the result from the database
+	 * @return The result
+	 * @throws ConnectionLostException If the query loses connection to the database
+	 * @throws DatabaseRequestException If the query fails
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T get(RequestType type, int geoname_id, String center_id, String category, Query<T> query) throws ConnectionLostException, DatabaseRequestException {
+
+		Key key = new Key(type, geoname_id, center_id, category);
+		Entry entry = m_entries.get(key);
+
+		if (entry != null) {
+
+			long tick = m_tick;
+
+			// Rewriting the same stamp would only bounce the entry between the cores
+			if (entry.access != tick)
+				entry.access = tick;
+
+			m_hits.increment();
+			return (T) entry.value;
+		}
+
+		m_misses.increment();
+
+		// Read after the miss: a write that removed the result has already moved the generation
+		long generation = m_generations.get(stripe(geoname_id));
+		T value = query.run();
+		store(key, value, generation);
+		return value;
+	}
+
+	/**
+	 * Drops the results made stale by a new recording
+	 *
+	 * @param geoname_id The area of the recording
+	 * @param center_id The center of the recording
+	 * @param category The category of the recording
+	 */
+	public void invalidate(int geoname_id, String center_id, String category) {
+
+		String center = lower(center_id);
+		String lowerCategory = lower(category);
+
+		invalidate(geoname_id, (Key key) -> (key.center == null || key.center.equals(center)) && (key.category == null || key.category.equals(lowerCategory)));
+	}
+
+	/**
+	 * Drops every result of a request about an area, for example the dashboards
+	 * of an area when a center starts monitoring it
+	 *
+	 * @param type The request
+	 * @param geoname_id The area
+	 */
+	public void invalidate(RequestType type, int geoname_id) {
+
+		invalidate(geoname_id, (Key key) -> key.type == type);
+	}
+
+	/**
+	 * Drops every result
+	 */
+	public void clear() {
+
+		m_lock.lock();
+
+		try {
+
+			for (int i = 0; i < m_generations.length(); i++)
+				m_generations.incrementAndGet(i);
+
+			m_invalidations += m_entries.size();
+			m_entries.clear();
+			m_areas.clear();
+			m_bytes = 0;
+		}
+
+		finally {
+
+			m_lock.unlock();
+		}
+	}
+
+	/**
+	 *
+	 * @return The number of requests answered from the cache
+	 */
+	public long getHits() {
+
+		return m_hits.sum();
+	}
+
+	/**
+	 *
+	 * @return The number of requests that had to query the database
+	 */
+	public long getMisses() {
+
+		return m_misses.sum();
+	}
+
+	/**
+	 *
+	 * @return The share of the requests answered from the cache, between 0 and 1
+	 */
+	public double getHitRatio() {
+
+		long hits = m_hits.sum();
+		long requests = hits + m_misses.sum();
+		return requests == 0 ? 0.0 : (double) hits / requests;
+	}
+
+	/**
+	 *
+	 * @return An estimate of the memory used by the cached results, in bytes
+	 */
+	public long getMemory() {
+
+		m_lock.lock();
+
+		try {
+
+			return m_bytes;
+		}
+
+		finally {
+
+			m_lock.unlock();
+		}
+	}
+
+	/**
+	 * A summary of the cache usage
+	 */
+	@Override
+	public String toString() {
+
+		m_lock.lock();
+
+		try {
+
+			long hits = m_hits.sum();
+			long misses = m_misses.sum();
+			long requests = hits + misses;
+			double ratio = requests == 0 ? 0.0 : 100.0 * hits / requests;
+
+			return String.format("Result cache: %d results, %.1f MB of %.1f MB, %d hits, %d misses (%.1f%% hit ratio), %d evictions, %d invalidations, %d stale results discarded",
+				m_entries.size(), m_bytes / MEGABYTE, m_maxBytes / MEGABYTE, hits, misses, ratio, m_evictions, m_invalidations, m_discarded);
+		}
+
+		finally {
+
+			m_lock.unlock();
+		}
+	}
+
+	/**
+	 * The request type and the arguments of a cached result
+	 */
+	private static final class Key {
+
+		Key(RequestType type, int geoname_id, String center_id, String category) {
+
+			this.type = type;
+			this.geonameID = geoname_id;
+			this.center = lower(center_id);
+			this.category = lower(category);
+			this.hash = Objects.hash(type, geoname_id, center, this.category);
+		}
+
+		@Override
+		public boolean equals(Object object) {
+
+			if (!(object instanceof Key))
+				return false;
+
+			Key other = (Key) object;
+			return type == other.type && geonameID == other.geonameID && Objects.equals(center, other.center) && Objects.equals(category, other.category);
+		}
+
+		@Override
+		public int hashCode() {
+
+			return hash;
+		}
+
+		final RequestType type;
+		final int geonameID;
+		final String center;
+		final String category;
+		final int hash;
+	}
+
+	private static final class Entry {
+
+		Entry(Key key, Object value, long bytes, long access) {
+
+			this.key = key;
+			this.value = value;
+			this.bytes = bytes;
+			this.access = access;
+		}
+
+		final Key key;
+		final Object value;
+		final long bytes;
+
+		/**
+		 * The tick of the cache when the result was last read
+		 */
+		volatile long access;
+	}
+
+	private interface Match {
+
+		boolean test(Key key);
+	}
+
+	private void store(Key key, Object value, long generation) {
+
+		long bytes = ENTRY + string(key.center) + string(key.category) + sizeOf(value);
+
+		// A single result that would take a good part of the cache is not worth keeping
+		if (bytes > m_maxBytes / 8)
+			return;
+
+		m_lock.lock();
+
+		try {
+
+			// The area was written while the query ran, the result may already be stale
+			if (m_generations.get(stripe(key.geonameID)) != generation) {
+
+				m_discarded++;
+				return;
+			}
+
+			Entry previous = m_entries.put(key, new Entry(key, value, bytes, ++m_tick));
+
+			if (previous != null)
+				m_bytes -= previous.bytes;
+			else
+				m_areas.computeIfAbsent(key.geonameID, (Integer id) -> new HashSet<Key>()).add(key);
+
+			m_bytes += bytes;
+
+			if (m_bytes > m_maxBytes)
+				evict();
+		}
+
+		finally {
+
+			m_lock.unlock();
+		}
+	}
+
+	private void invalidate(int geoname_id, Match match) {
+
+		m_lock.lock();
+
+		try {
+
+			m_generations.incrementAndGet(stripe(geoname_id));
+			Set<Key> keys = m_areas.get(geoname_id);
+
+			if (keys == null)
+				return;
+
+			Iterator<Key> iterator = keys.iterator();
+
+			while (iterator.hasNext()) {
+
+				Key key = iterator.next();
+
+				if (!match.test(key))
+					continue;
+
+				m_bytes -= m_entries.remove(key).bytes;
+				iterator.remove();
+				m_invalidations++;
+			}
+
+			if (keys.isEmpty())
+				m_areas.remove(geoname_id);
+		}
+
+		finally {
+
+			m_lock.unlock();
+		}
+	}
+
+	/**
+	 * Evicts the least recently read results until the memory is back under 7/8 of the
+	 * limit, so the scan is paid once for a batch of stores. The stamps are sorted to find
+	 * the oldest one worth keeping, the entries are not. Called holding the lock
+	 */
+	private void evict() {
+
+		long target = m_maxBytes - m_maxBytes / 8;
+		long[] stamps = new long[m_entries.size()];
+		int count = 0;
+
+		for (Entry entry : m_entries.values()) {
+
+			if (count == stamps.length)
+				break;
+
+			stamps[count++] = entry.access;
+		}
+
+		if (count == 0)
+			return;
+
+		Arrays.sort(stamps, 0, count);
+
+		// The share of the results to evict is taken as the share of the memory to free
+		int index = (int) Math.min(count - 1, (double) (m_bytes - target) / m_bytes * count);
+		long newest = stamps[index];
+
+		Iterator<Entry> iterator = m_entries.values().iterator();
+
+		while (iterator.hasNext() && m_bytes > target) {
+
+			Entry entry = iterator.next();
+
+			if (entry.access > newest)
+				continue;
+
+			remove(entry);
+			m_evictions++;
+		}
+	}
+
+	/**
+	 * Removes an entry from the results and from the results of its area
+	 */
+	private void remove(Entry entry) {
+
+		m_entries.remove(entry.key);
+		m_bytes -= entry.bytes;
+
+		Set<Key> keys = m_areas.get(entry.key.geonameID);
+		keys.remove(entry.key);
+
+		if (keys.isEmpty())
+			m_areas.remove(entry.key.geonameID);
+	}
+
+	private static int stripe(int geoname_id) {
+
+		return (geoname_id ^ (geoname_id >>> 16)) & (STRIPES - 1);
+	}
+
+	private static String lower(String str) {
+
+		return str == null ? null : str.toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * An estimate of the heap used by a result
+	 */
+	private static long sizeOf(Object value) {
+
+		if (value instanceof Parameter[]) {
+
+			Parameter[] parameters = (Parameter[]) value;
+			long bytes = ARRAY + REFERENCE * parameters.length;
+
+			for (Parameter parameter : parameters)
+				bytes += sizeOf(parameter);
+
+			return bytes;
+		}
+
+		if (value instanceof Parameter) {
+
+			Parameter parameter = (Parameter) value;
+			return OBJECT + 2 * 4 + 5 * REFERENCE + DATE_TIME + string(parameter.getCenterID()) + string(parameter.getUserID()) + string(parameter.getCategory()) + string(parameter.getNotes());
+		}
+
+		if (value instanceof Center) {
+
+			Center center = (Center) value;
+			return OBJECT + 3 * 4 + 3 * REFERENCE + string(center.getCenterID()) + string(center.getStreet()) + string(center.getDistrict());
+		}
+
+		if (value instanceof Category) {
+
+			Category category = (Category) value;
+			return OBJECT + 2 * REFERENCE + string(category.getCategory()) + string(category.getExplanation());
+		}
+
+		if (value instanceof AreaDashboard) {
+
+			// The latest and the selected center and category are also in the arrays
+			AreaDashboard dashboard = (AreaDashboard) value;
+			long bytes = OBJECT + 8 + 7 * REFERENCE + 2 * ARRAY + sizeOf(dashboard.getParameters());
+
+			for (Center center : dashboard.getCenters())
+				bytes += REFERENCE + sizeOf(center);
+
+			for (Category category : dashboard.getCategories())
+				bytes += REFERENCE + sizeOf(category);
+
+			return bytes;
+		}
+
+		return value == null ? 0 : OBJECT + 8;
+	}
+
+	private static long string(String str) {
+
+		return str == null ? 0 : OBJECT + 8 + ARRAY + str.length();
+	}
+
+	private final long m_maxBytes;
+
+	/**
+	 * Taken by the stores, the invalidations and the evictions, never by a hit
+	 */
+	private final ReentrantLock m_lock = new ReentrantLock();
+
+	/**
+	 * The results, read without the lock and changed only holding it
+	 */
+	private final ConcurrentHashMap<Key, Entry> m_entries = new ConcurrentHashMap<Key, Entry>(256);
+
+	/**
+	 * The keys of the cached results of every area, to invalidate them without scanning the cache
+	 */
+	private final Map<Integer, Set<Key>> m_areas = new HashMap<Integer, Set<Key>>();
+
+	/**
+	 * Incremented by every write, a query stores its result only if the
+	 * generation of its area did not change while it was running
+	 */
+	private final AtomicLongArray m_generations = new AtomicLongArray(STRIPES);
+
+	/**
+	 * Advanced by every store, the hits stamp their result with it
+	 */
+	private volatile long m_tick;
+
+	private final LongAdder m_hits = new LongAdder();
+	private final LongAdder m_misses = new LongAdder();
+	private long m_bytes;
+	private long m_evictions;
+	private long m_invalidations;
+	private long m_discarded;
+
+	private static final int STRIPES = 1024;
+
+	// Rough sizes of a 64-bit JVM with compressed references
+	private static final long OBJECT = 12;
+	private static final long ARRAY = 16;
+	private static final long REFERENCE = 4;
+	private static final long DATE_TIME = 3 * OBJECT + 2 * REFERENCE + 4 + 2 * 2 + 4 + 4;
+	private static final long MAP_ENTRY = 32 + REFERENCE;
+
+	/**
+	 * The entry of the results, its key and its value holder, and the key in the set of its area
+	 */
+	private static final long ENTRY = 2 * MAP_ENTRY + 2 * OBJECT + 4 + 4 * REFERENCE + 4 + OBJECT + 2 * REFERENCE + 8 + 8;
+	private static final double MEGABYTE = 1024.0 * 1024.0;
+}
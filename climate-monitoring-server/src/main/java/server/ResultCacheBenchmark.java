@@ -0,0 +1,231 @@
+/*
+
+Alessandro della Frattina 753073 VA
+Cristian Capiferri 752918 VA
+Francesco Lops 753175 VA
+Dariia Sniezhko 753057 VA
+
+*/
+
+package server;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import climatemonitoring.core.Parameter;
+import climatemonitoring.core.RequestType;
+import climatemonitoring.core.headless.Console;
+
+/**
+ * Replays a Zipfian load of area reads mixed with new recordings against the
+ * {@link ResultCache}, and compares the number of database queries and the
+ * throughput with the same load sent straight to the database.
+ * The database is simulated by queries that take a fixed time, so no database is needed.
+ * Usage: ResultCacheBenchmark [--areas=N] [--requests=N] [--threads=N] [--skew=S] [--writes=PERCENT] [--cache=MB] [--queryMicros=N]
+ *
+ * @author ccapiferri
+ * @version 1.0-SNAPSHOT
+ */
+public class ResultCacheBenchmark {
+
+	public static void main(String[] args) throws Exception {
+
+		int areas = 100000;
+		int requests = 1000000;
+		int threads = 16;
+		double skew = 1.0;
+		double writes = 1.0;
+		int cache = 64;
+		int queryMicros = 200;
+
+		for (String arg : args) {
+
+			String name = arg.substring(0, Math.max(arg.indexOf('='), 0));
+			String value = arg.substring(arg.indexOf('=') + 1);
+
+			switch (name) {
+
+				case "--areas": areas = Integer.parseInt(value); break;
+				case "--requests": requests = Integer.parseInt(value); break;
+				case "--threads": threads = Integer.parseInt(value); break;
+				case "--skew": skew = Double.parseDouble(value); break;
+				case "--writes": writes = Double.parseDouble(value); break;
+				case "--cache": cache = Integer.parseInt(value); break;
+				case "--queryMicros": queryMicros = Integer.parseInt(value); break;
+				default: Console.warn("Ignoring argument: " + arg);
+			}
+		}
+
+		Console.write(String.format("%d areas, %d requests on %d threads, Zipf skew %.2f, %.1f%% writes, %d MB cache, %d us per query",
+			areas, requests, threads, skew, writes, cache, queryMicros));
+
+		double[] distribution = zipf(areas, skew);
+		Load load = new Load(distribution, requests, threads, writes / 100.0, queryMicros * 1000L);
+
+		Run direct = load.run(null);
+		report("database", direct, requests);
+
+		ResultCache resultCache = new ResultCache(cache * 1024L * 1024L);
+		Run cached = load.run(resultCache);
+		report("cache", cached, requests);
+
+		Console.write(resultCache.toString());
+		Console.write(String.format("Database queries reduced by %.1f%%, throughput x%.1f",
+			100.0 * (direct.queries - cached.queries) / direct.queries, (double) direct.nanos / cached.nanos));
+	}
+
+	/**
+	 * The outcome of a load
+	 */
+	private static class Run {
+
+		long queries;
+		long nanos;
+	}
+
+	/**
+	 * The same sequence of requests, sent to the database or through a cache
+	 */
+	private static class Load {
+
+		Load(double[] distribution, int requests, int threads, double writes, long query_nanos) {
+
+			m_distribution = distribution;
+			m_requests = requests;
+			m_threads = threads;
+			m_writes = writes;
+			m_queryNanos = query_nanos;
+		}
+
+		Run run(ResultCache cache) throws InterruptedException {
+
+			AtomicLong queries = new AtomicLong();
+			Thread[] workers = new Thread[m_threads];
+			long start = System.nanoTime();
+
+			for (int t = 0; t < m_threads; t++) {
+
+				final Random random = new Random(t);
+				final int count = m_requests / m_threads;
+
+				workers[t] = new Thread(() -> {
+
+					try {
+
+						for (int i = 0; i < count; i++)
+							request(cache, random, queries);
+					}
+
+					catch (Exception e) {
+
+						Console.error("Benchmark request failed: " + e.getMessage());
+					}
+				});
+
+				workers[t].start();
+			}
+
+			for (Thread worker : workers)
+				worker.join();
+
+			Run run = new Run();
+			run.queries = queries.get();
+			run.nanos = System.nanoTime() - start;
+			return run;
+		}
+
+		private void request(ResultCache cache, Random random, AtomicLong queries) throws Exception {
+
+			int geonameID = area(random);
+			String centerID = CENTERS[random.nextInt(CENTERS.length)];
+			String category = CATEGORIES[random.nextInt(CATEGORIES.length)];
+
+			if (random.nextDouble() < m_writes) {
+
+				queries.incrementAndGet();
+				simulate();
+
+				if (cache != null)
+					cache.invalidate(geonameID, centerID, category);
+
+				return;
+			}
+
+			RequestType type = READS[random.nextInt(READS.length)];
+			ResultCache.Query<Object> query = () -> {
+
+				queries.incrementAndGet();
+				simulate();
+				return type == RequestType.GET_PARAMETERS ? parameters(geonameID, centerID, category) : Double.valueOf(geonameID % 5);
+			};
+
+			if (cache == null)
+				query.run();
+			else if (type == RequestType.GET_LATEST_CENTER)
+				cache.get(type, geonameID, null, null, query);
+			else
+				cache.get(type, geonameID, centerID, category, query);
+		}
+
+		private int area(Random random) {
+
+			int index = Arrays.binarySearch(m_distribution, random.nextDouble());
+			return index >= 0 ? index : Math.min(-index - 1, m_distribution.length - 1);
+		}
+
+		private void simulate() {
+
+			if (m_queryNanos > 0)
+				LockSupport.parkNanos(m_queryNanos);
+		}
+
+		private final double[] m_distribution;
+		private final int m_requests;
+		private final int m_threads;
+		private final double m_writes;
+		private final long m_queryNanos;
+	}
+
+	/**
+	 * The cumulative probabilities of the areas, the area of rank k being requested proportionally to 1 / k^skew
+	 */
+	private static double[] zipf(int areas, double skew) {
+
+		double[] distribution = new double[areas];
+		double sum = 0.0;
+
+		for (int i = 0; i < areas; i++) {
+
+			sum += 1.0 / Math.pow(i + 1, skew);
+			distribution[i] = sum;
+		}
+
+		for (int i = 0; i < areas; i++)
+			distribution[i] /= sum;
+
+		return distribution;
+	}
+
+	private static Parameter[] parameters(int geoname_id, String center_id, String category) {
+
+		Parameter[] parameters = new Parameter[RECORDINGS];
+
+		for (int i = 0; i < parameters.length; i++)
+			parameters[i] = new Parameter(geoname_id, center_id, "operator", category, LocalDateTime.of(2024, 1, 1 + i, 12, 0), 1 + i % 5, null);
+
+		return parameters;
+	}
+
+	private static void report(String path, Run run, int requests) {
+
+		Console.write(String.format("%-8s %8d queries, %8.0f requests/s", path, run.queries, requests / (run.nanos / 1e9)));
+	}
+
+	private static final RequestType[] READS = { RequestType.GET_PARAMETERS, RequestType.GET_PARAMETERS_AVERAGE, RequestType.GET_LATEST_CENTER };
+	private static final String[] CENTERS = { "insubria", "varese", "como" };
+	private static final String[] CATEGORIES = { "wind", "humidity", "pressure", "temperature", "rainfall", "glacier_altitude", "glacier_mass" };
+	private static final int RECORDINGS = 12;
+}
@@ -0,0 +1,230 @@
+/*
+
+Alessandro della Frattina 753073 VA
+Cristian Capiferri 752918 VA
+Francesco Lops 753175 VA
+Dariia Sniezhko 753057 VA
+
+*/
+
+package server;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import climatemonitoring.core.ConnectionLostException;
+import climatemonitoring.core.DatabaseRequestException;
+import climatemonitoring.core.headless.Console;
+
+/**
+ * Measures the latency of the parameter, center and operator lookups on a generated
+ * dataset, with the base schema only and then with every migration applied.
+ * The dataset is generated in its own schema (climate_benchmark), which is dropped
+ * at the end: areas monitored by one center each, an operator per center and the
+ * parameter table filled with recordings of every category for every monitored area.
+ * Usage: SchemaMigrationBenchmark [--rows=N] [--areas=N] [--centers=N] [--runs=N] [--keep]
+ *
+ * @author ccapiferri
+ * @version 1.0-SNAPSHOT
+ */
+public class SchemaMigrationBenchmark {
+
+	public static void main(String[] args) throws Exception {
+
+		int rows = 1000000;
+		int areas = 2000;
+		int centers = 200;
+		int runs = 50;
+		boolean keep = false;
+
+		for (String arg : args) {
+
+			String name = arg.substring(0, arg.indexOf('=') < 0 ? arg.length() : arg.indexOf('='));
+			String value = arg.substring(arg.indexOf('=') + 1);
+
+			switch (name) {
+
+				case "--rows": rows = Integer.parseInt(value); break;
+				case "--areas": areas = Integer.parseInt(value); break;
+				case "--centers": centers = Integer.parseInt(value); break;
+				case "--runs": runs = Integer.parseInt(value); break;
+				case "--keep": keep = true; break;
+				default: Console.warn("Ignoring argument: " + arg);
+			}
+		}
+
+		String url = Console.read("Database URL > ");
+		String username = Console.read("Username > ");
+		String password = Console.read("Password > ");
+		String benchmarkUrl = url + (url.contains("?") ? "&" : "?") + "currentSchema=" + SCHEMA;
+
+		ConnectionPool admin = new ConnectionPool(url, username, password, 1, 5000, 600000, 0);
+
+		try {
+
+			execute(admin, "DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE; CREATE SCHEMA " + SCHEMA + ";");
+
+			List<String> before = measure(benchmarkUrl, username, password, 1, rows, areas, centers, runs);
+			List<String> after = measure(benchmarkUrl, username, password, SchemaMigrations.getLatestVersion(), rows, areas, centers, runs);
+
+			Console.write(String.format("%-22s %-7s %12s %12s %12s", "lookup", "schema", "mean ms", "median ms", "p99 ms"));
+
+			for (int i = 0; i < before.size(); i++) {
+
+				Console.write(before.get(i));
+				Console.write(after.get(i));
+			}
+		}
+
+		finally {
+
+			if (!keep)
+				execute(admin, "DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE;");
+
+			admin.close();
+		}
+	}
+
+	/**
+	 * Migrates the benchmark schema to a version, generating the dataset on the first
+	 * call, and measures the lookups through a pool of its own, so no plan prepared
+	 * before the migration gets reused
+	 *
+	 * @return The report of every lookup
+	 */
+	private static List<String> measure(String url, String username, String password, int version, int rows, int areas, int centers, int runs) throws SQLException, ConnectionLostException, DatabaseRequestException {
+
+		ConnectionPool pool = new ConnectionPool(url, username, password, 1, 5000, 600000, 64);
+
+		try {
+
+			Connection connection = pool.acquire();
+
+			try {
+
+				long start = System.nanoTime();
+				SchemaMigrations.migrate(connection, version);
+				Console.info("Schema at version " + SchemaMigrations.getVersion(connection) + " in " + (System.nanoTime() - start) / 1000000 + " ms");
+
+				if (version == 1)
+					generate(connection, rows, areas, centers);
+			}
+
+			finally {
+
+				pool.release(connection);
+			}
+
+			ServerDatabaseImpl database = new ServerDatabaseImpl(pool, 500, Integer.MAX_VALUE, null, null, null, null);
+			String schema = version == 1 ? "base" : "v" + version;
+			Random random = new Random(42);
+			List<String> reports = new ArrayList<String>();
+
+			reports.add(report("getParameters", schema, run(runs, random, areas, centers, (area, center, category) -> database.getParameters(area, center, category))));
+			reports.add(report("getParametersAverage", schema, run(runs, random, areas, centers, (area, center, category) -> database.getParametersAverage(area, center, category))));
+			reports.add(report("getParametersInRange", schema, run(runs, random, areas, centers, (area, center, category) -> database.getParametersInRange(area, center, category, START.plusHours(24), START.plusHours(48)))));
+			reports.add(report("getLatestCenter", schema, run(runs, random, areas, centers, (area, center, category) -> database.getLatestCenter(area))));
+			reports.add(report("getLatestCategory", schema, run(runs, random, areas, centers, (area, center, category) -> database.getLatestCategory(area, center))));
+			reports.add(report("getMonitoredAreas", schema, run(runs, random, areas, centers, (area, center, category) -> database.getMonitoredAreas(center))));
+			reports.add(report("getOperatorByEmail", schema, run(runs, random, areas, centers, (area, center, category) -> database.getOperatorByEmail(center.replace("center", "operator") + "@example.com"))));
+
+			return reports;
+		}
+
+		finally {
+
+			pool.close();
+		}
+	}
+
+	/**
+	 * Fills the base schema. Area g is monitored by center (g mod centers) + 1,
+	 * whose only operator records every category of it once an hour in turn
+	 */
+	private static void generate(Connection connection, int rows, int areas, int centers) throws SQLException {
+
+		int recordings = Math.max(1, rows / areas);
+		long start = System.nanoTime();
+
+		try (Statement statement = connection.createStatement()) {
+
+			statement.execute("INSERT INTO area SELECT g, 'Area ' || g, 'Area ' || g, 'IT', 'Italy', 36 + (g % 100) / 10.0, 6 + (g / 100 % 100) / 10.0 FROM generate_series(1, " + areas + ") g;");
+			statement.execute("INSERT INTO center (center_id, city, street, house_number, postal_code, district) SELECT 'center' || c, c, 'via ' || c, c, 21100, NULL FROM generate_series(1, " + centers + ") c;");
+			statement.execute("INSERT INTO monitors (center_id, geoname_id) SELECT 'center' || ((g - 1) % " + centers + " + 1), g FROM generate_series(1, " + areas + ") g;");
+			statement.execute("INSERT INTO category (category_id, explanation) SELECT unnest(" + CATEGORIES + "), 'Generated category';");
+			statement.execute("INSERT INTO operator (user_id, ssid, operator_surname, operator_name, email, password, center_id) SELECT 'operator' || c, LPAD(c::text, 16, '0'), 'Surname', 'Name', 'operator' || c || '@example.com', REPEAT('0', 64), 'center' || c FROM generate_series(1, " + centers + ") c;");
+			statement.execute("INSERT INTO parameter (geoname_id, center_id, rec_timestamp, category_id, user_id, score, notes) "
+				+ "SELECT M.geoname_id, M.center_id, TIMESTAMP '" + START + "' + (i / " + CATEGORY_COUNT + ") * INTERVAL '1 hour', (" + CATEGORIES + ")[i % " + CATEGORY_COUNT + " + 1], "
+				+ "REPLACE(M.center_id, 'center', 'operator'), 1 + (M.geoname_id + i) % 5, '' "
+				+ "FROM monitors M CROSS JOIN generate_series(0, " + (recordings - 1) + ") i;");
+			statement.execute("ANALYZE area, center, monitors, category, operator, parameter;");
+		}
+
+		Console.info("Generated " + (long) recordings * areas + " parameters in " + (System.nanoTime() - start) / 1000000 + " ms");
+	}
+
+	private static void execute(ConnectionPool pool, String sql) throws SQLException {
+
+		Connection connection = pool.acquire();
+
+		try (Statement statement = connection.createStatement()) {
+
+			statement.execute(sql);
+		}
+
+		finally {
+
+			pool.release(connection);
+		}
+	}
+
+	private interface Lookup {
+
+		Object run(int area, String center, String category) throws ConnectionLostException, DatabaseRequestException;
+	}
+
+	/**
+	 * Runs a lookup on random monitored areas, after a warmup run
+	 *
+	 * @return The latency of every run in nanoseconds, sorted
+	 */
+	private static long[] run(int runs, Random random, int areas, int centers, Lookup lookup) throws ConnectionLostException, DatabaseRequestException {
+
+		long[] times = new long[runs];
+
+		for (int i = -WARMUP; i < runs; i++) {
+
+			int area = 1 + random.nextInt(areas);
+			String center = "center" + ((area - 1) % centers + 1);
+			String category = CATEGORY_NAMES[random.nextInt(CATEGORY_NAMES.length)];
+
+			long start = System.nanoTime();
+			lookup.run(area, center, category);
+
+			if (i >= 0)
+				times[i] = System.nanoTime() - start;
+		}
+
+		Arrays.sort(times);
+		return times;
+	}
+
+	private static String report(String lookup, String schema, long[] times) {
+
+		return String.format("%-22s %-7s %12.3f %12.3f %12.3f", lookup, schema,
+			Arrays.stream(times).average().orElse(0) / 1e6, times[times.length / 2] / 1e6, times[times.length * 99 / 100] / 1e6);
+	}
+
+	private static final String SCHEMA = "climate_benchmark";
+	private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+	private static final String[] CATEGORY_NAMES = { "Wind", "Humidity", "Pressure", "Temperature", "Precipitation", "Glacier Altitude", "Glacier Mass" };
+	private static final int CATEGORY_COUNT = CATEGORY_NAMES.length;
+	private static final String CATEGORIES = "ARRAY['" + String.join("', '", CATEGORY_NAMES) + "']";
+	private static final int WARMUP = 5;
+}
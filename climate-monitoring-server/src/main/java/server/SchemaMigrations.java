@@ -0,0 +1,353 @@
+/*
+
+Alessandro della Frattina 753073 VA
+Cristian Capiferri 752918 VA
+Francesco Lops 753175 VA
+Dariia Sniezhko 753057 VA
+
+*/
+
+package server;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import climatemonitoring.core.headless.Console;
+
+/**
+ * Brings the database schema up to date at startup. The migrations are applied in
+ * order of version, each one in its own transaction, and recorded in the
+ * schema_version table with a checksum of their SQL, so a migration is applied once
+ * and editing it afterwards gets noticed. An advisory lock keeps two servers starting
+ * at the same time from applying the same migration.
+ * New migrations are appended to {@link #MIGRATIONS}: an applied migration must never change.
+ * The server applies them up to {@link #DEFAULT_VERSION} unless asked for a later version,
+ * a migration becomes part of the default once it has been run on a real database
+ *
+ * @author ccapiferri
+ * @version 1.0-SNAPSHOT
+ */
+public final class SchemaMigrations {
+
+	private SchemaMigrations() {
+
+	}
+
+	/**
+	 * Applies the pending migrations up to a version
+	 *
+	 * @param pool The connection pool
+	 * @param target The last version to apply
+	 * @return The number of migrations applied
+	 * @throws SQLException If a migration fails, the migrations applied before it are kept
+	 */
+	public static int migrate(ConnectionPool pool, int target) throws SQLException {
+
+		Connection connection = pool.acquire();
+
+		try {
+
+			return migrate(connection, target);
+		}
+
+		finally {
+
+			pool.release(connection);
+		}
+	}
+
+	/**
+	 * Applies the pending migrations up to a version, in the schema of the connection's search path
+	 *
+	 * @param connection The connection
+	 * @param target The last version to apply
+	 * @return The number of migrations applied
+	 * @throws SQLException If a migration fails, the migrations applied before it are kept
+	 */
+	public static int migrate(Connection connection, int target) throws SQLException {
+
+		boolean autoCommit = connection.getAutoCommit();
+		int applied = 0;
+
+		connection.setAutoCommit(false);
+
+		try {
+
+			try (Statement statement = connection.createStatement()) {
+
+				lock(statement);
+				statement.execute(VERSION_TABLE);
+			}
+
+			connection.commit();
+
+			for (Migration migration : MIGRATIONS) {
+
+				if (migration.version > target)
+					break;
+
+				if (apply(connection, migration))
+					applied++;
+			}
+		}
+
+		catch (SQLException e) {
+
+			connection.rollback();
+			throw e;
+		}
+
+		finally {
+
+			connection.setAutoCommit(autoCommit);
+		}
+
+		return applied;
+	}
+
+	/**
+	 *
+	 * @param connection The connection
+	 * @return The version of the schema, 0 if no migration has been applied
+	 * @throws SQLException If the version can not be read
+	 */
+	public static int getVersion(Connection connection) throws SQLException {
+
+		try (Statement statement = connection.createStatement(); ResultSet query = statement.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version;")) {
+
+			query.next();
+			return query.getInt(1);
+		}
+	}
+
+	/**
+	 *
+	 * @return The version of the last migration
+	 */
+	public static int getLatestVersion() {
+
+		return MIGRATIONS[MIGRATIONS.length - 1].version;
+	}
+
+	/**
+	 * Applies a migration if it has not been applied yet
+	 *
+	 * @return True if the migration has been applied now
+	 */
+	private static boolean apply(Connection connection, Migration migration) throws SQLException {
+
+		try (Statement statement = connection.createStatement()) {
+
+			lock(statement);
+
+			String checksum = null;
+
+			try (PreparedStatement pst = connection.prepareStatement("SELECT checksum FROM schema_version WHERE version = ?;")) {
+
+				pst.setInt(1, migration.version);
+
+				try (ResultSet query = pst.executeQuery()) {
+
+					if (query.next())
+						checksum = query.getString("checksum");
+				}
+			}
+
+			if (checksum != null) {
+
+				if (!checksum.equals(migration.checksum))
+					Console.warn("Migration " + migration.version + " (" + migration.description + ") has been changed after it was applied");
+
+				connection.commit();
+				return false;
+			}
+
+			Console.info("Applying migration " + migration.version + ": " + migration.description);
+			long start = System.nanoTime();
+
+			statement.execute(migration.sql);
+			long duration = (System.nanoTime() - start) / 1000000;
+
+			try (PreparedStatement pst = connection.prepareStatement("INSERT INTO schema_version (version, description, checksum, duration_ms) VALUES (?, ?, ?, ?);")) {
+
+				pst.setInt(1, migration.version);
+				pst.setString(2, migration.description);
+				pst.setString(3, migration.checksum);
+				pst.setLong(4, duration);
+				pst.executeUpdate();
+			}
+
+			connection.commit();
+			Console.info("Applied migration " + migration.version + " in " + duration + " ms");
+			return true;
+		}
+	}
+
+	/**
+	 * Waits for the other servers to finish their migration, the lock is released on commit
+	 */
+	private static void lock(Statement statement) throws SQLException {
+
+		statement.execute("SELECT pg_advisory_xact_lock(" + LOCK + ");");
+	}
+
+	private static class Migration {
+
+		Migration(int version, String description, String sql) {
+
+			this.version = version;
+			this.description = description;
+			this.sql = sql;
+			this.checksum = sha256(sql);
+		}
+
+		private static String sha256(String sql) {
+
+			try {
+
+				byte[] hash = MessageDigest.getInstance("SHA-256").digest(sql.getBytes(StandardCharsets.UTF_8));
+				StringBuilder hex = new StringBuilder();
+
+				for (byte b : hash)
+					hex.append(String.format("%02x", b));
+
+				return hex.toString();
+			}
+
+			catch (NoSuchAlgorithmException e) {
+
+				throw new RuntimeException("Cannot find hashing algorithm", e);
+			}
+		}
+
+		final int version;
+		final String description;
+		final String sql;
+		final String checksum;
+	}
+
+	private static final String VERSION_TABLE = """
+		CREATE TABLE IF NOT EXISTS schema_version (
+			version INTEGER PRIMARY KEY,
+			description VARCHAR(100) NOT NULL,
+			checksum CHAR(64) NOT NULL,
+			applied_on TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+			duration_ms BIGINT NOT NULL
+		);
+	""";
+
+	/**
+	 * The last version applied at startup by default. Migration 4 rewrites the center IDs,
+	 * cascading them to every table that refers to a center, and has not been run on a
+	 * real database yet, so it is only applied when asked for
+	 */
+	public static final int DEFAULT_VERSION = 3;
+
+	/**
+	 * The key of the advisory lock taken while migrating
+	 */
+	private static final long LOCK = 0x436c696d617465L;
+
+	private static final Migration[] MIGRATIONS = {
+
+		// The schema of the technical manual, a database created from it is left as it is
+		new Migration(1, "Base schema", """
+			CREATE TABLE IF NOT EXISTS area (
+				geoname_id INTEGER PRIMARY KEY,
+				area_name VARCHAR(100) NOT NULL,
+				area_ascii_name VARCHAR(100) NOT NULL,
+				country_code CHAR(2) NOT NULL,
+				country_name VARCHAR(100) NOT NULL,
+				latitude DECIMAL(9,5) NOT NULL,
+				longitude DECIMAL(9,5) NOT NULL
+			);
+
+			CREATE TABLE IF NOT EXISTS center (
+				center_id VARCHAR(100) PRIMARY KEY,
+				city INTEGER REFERENCES area (geoname_id) ON UPDATE CASCADE ON DELETE NO ACTION,
+				street VARCHAR(100) NOT NULL,
+				house_number INTEGER NOT NULL,
+				postal_code INTEGER NOT NULL,
+				district VARCHAR(100),
+				CONSTRAINT address UNIQUE (city, street, house_number)
+			);
+
+			CREATE UNIQUE INDEX IF NOT EXISTS unique_center_id_lower ON center (LOWER(center_id));
+
+			CREATE TABLE IF NOT EXISTS monitors (
+				center_id VARCHAR(100) REFERENCES center ON UPDATE CASCADE ON DELETE NO ACTION,
+				geoname_id INTEGER REFERENCES area ON UPDATE CASCADE ON DELETE NO ACTION,
+				PRIMARY KEY (center_id, geoname_id)
+			);
+
+			CREATE TABLE IF NOT EXISTS operator (
+				user_id VARCHAR(50) PRIMARY KEY,
+				ssid VARCHAR(16) NOT NULL,
+				operator_surname VARCHAR(50) NOT NULL,
+				operator_name VARCHAR(50) NOT NULL,
+				email VARCHAR(100) NOT NULL,
+				password VARCHAR(64) NOT NULL,
+				center_id VARCHAR(100) REFERENCES center ON UPDATE CASCADE ON DELETE NO ACTION,
+				UNIQUE (ssid, email),
+				CONSTRAINT ssid_length_16 CHECK (LENGTH(ssid) = 16)
+			);
+
+			CREATE TABLE IF NOT EXISTS category (
+				category_id VARCHAR(20) PRIMARY KEY,
+				explanation VARCHAR(256) NOT NULL
+			);
+
+			CREATE TABLE IF NOT EXISTS parameter (
+				geoname_id INTEGER,
+				center_id VARCHAR(100),
+				rec_timestamp TIMESTAMP,
+				category_id VARCHAR(20) REFERENCES category ON UPDATE CASCADE ON DELETE NO ACTION,
+				user_id VARCHAR(50) REFERENCES operator ON UPDATE CASCADE ON DELETE NO ACTION,
+				score INTEGER NOT NULL,
+				notes VARCHAR(256) DEFAULT '',
+				FOREIGN KEY (center_id, geoname_id) REFERENCES monitors ON UPDATE CASCADE ON DELETE NO ACTION,
+				PRIMARY KEY (rec_timestamp, category_id, user_id, geoname_id, center_id),
+				CONSTRAINT valid_score CHECK (score BETWEEN 1 AND 5)
+			);
+		"""),
+
+		// The primary key starts with the timestamp, so every lookup by area scanned the whole table.
+		// The expressions match the queries, so the planner can use the indexes for the
+		// LOWER() filters and read the rows already ordered by timestamp
+		new Migration(2, "Indexes of the parameter lookups", """
+			CREATE INDEX IF NOT EXISTS parameter_area_center_category ON parameter (geoname_id, LOWER(center_id), LOWER(category_id), rec_timestamp);
+			CREATE INDEX IF NOT EXISTS parameter_area_center ON parameter (geoname_id, LOWER(center_id), rec_timestamp);
+			CREATE INDEX IF NOT EXISTS parameter_area_latest ON parameter (geoname_id, rec_timestamp);
+			CREATE INDEX IF NOT EXISTS parameter_monitor_category ON parameter (geoname_id, center_id, category_id, rec_timestamp);
+			ANALYZE parameter;
+		"""),
+
+		// The lookups of an operator by SSID use the unique (ssid, email) constraint
+		new Migration(3, "Indexes of the center, monitor and operator lookups", """
+			CREATE INDEX IF NOT EXISTS monitors_center_lower ON monitors (LOWER(center_id), geoname_id);
+			CREATE INDEX IF NOT EXISTS monitors_area ON monitors (geoname_id);
+			CREATE INDEX IF NOT EXISTS center_address_lower ON center (city, LOWER(street), house_number);
+			CREATE INDEX IF NOT EXISTS operator_email ON operator (email);
+			CREATE INDEX IF NOT EXISTS operator_center ON operator (center_id);
+			ANALYZE monitors;
+			ANALYZE center;
+			ANALYZE operator;
+		"""),
+
+		// The server stores the center IDs and the streets in lower case, the rows written
+		// before it did are converted too (the foreign keys cascade the new IDs), so the
+		// queries that compare the IDs as they are agree with the ones that compare them with LOWER()
+		new Migration(4, "Case-normalized center IDs and streets", """
+			UPDATE center SET center_id = LOWER(center_id) WHERE center_id <> LOWER(center_id);
+			UPDATE center SET street = LOWER(street) WHERE street <> LOWER(street);
+			ALTER TABLE center ADD CONSTRAINT center_id_lower CHECK (center_id = LOWER(center_id));
+			ALTER TABLE center ADD CONSTRAINT street_lower CHECK (street = LOWER(street));
+		""")
+	};
+}
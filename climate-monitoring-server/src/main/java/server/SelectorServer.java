@@ -0,0 +1,634 @@
+/*
+
+Alessandro della Frattina 753073 VA
+Cristian Capiferri 752918 VA
+Francesco Lops 753175 VA
+Dariia Sniezhko 753057 VA
+
+*/
+
+package server;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import climatemonitoring.core.ConnectionLostException;
+import climatemonitoring.core.headless.Console;
+import climatemonitoring.core.network.Protocol;
+
+/**
+ * The non-blocking front end of the server. A single selector thread accepts
+ * the clients and reads their request frames, a small pool of workers decodes
+ * the requests and forwards them to the database. Clients that support
+ * pipelining (protocol version 3) can have several requests processed at the
+ * same time and get the responses in completion order, the requests of older
+ * clients are processed one at a time and in order.
+ *
+ * Clients that speak the legacy unframed protocol are handed off to a
+ * dedicated thread running a blocking {@link Skeleton}
+ *
+ * @author ccapiferri
+ * @version 1.0-SNAPSHOT
+ */
+public class SelectorServer implements Runnable {
+
+	/**
+	 * Binds the server socket. The server starts accepting clients when {@link #start()} gets called
+	 *
+	 * @param port The port the server listens to
+	 * @param workers The number of threads that process the requests
+	 * @param databases Creates the database of every new session
+	 * @param threads The factory of the threads that serve the legacy clients
+	 * @throws IOException If the port cannot be bound
+	 */
+	public SelectorServer(int port, int workers, Supplier<ServerDatabase> databases, ThreadFactory threads) throws IOException {
+
+		m_databases = databases;
+		m_threads = threads;
+		m_selector = Selector.open();
+
+		m_server = ServerSocketChannel.open();
+		m_server.bind(new InetSocketAddress(port), BACKLOG);
+		m_server.configureBlocking(false);
+		m_server.register(m_selector, SelectionKey.OP_ACCEPT);
+
+		AtomicInteger count = new AtomicInteger();
+		m_workers = Executors.newFixedThreadPool(workers, (Runnable task) -> {
+
+			Thread thread = new Thread(task, "SelectorServer-worker-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		m_thread = new Thread(this, "SelectorServer");
+	}
+
+	/**
+	 * Starts the selector thread
+	 */
+	public void start() {
+
+		m_thread.start();
+	}
+
+	/**
+	 * Stops accepting clients and closes every session
+	 */
+	public void close() {
+
+		m_running = false;
+		m_selector.wakeup();
+
+		try {
+
+			m_thread.join(CLOSE_TIMEOUT);
+			m_workers.shutdown();
+			m_workers.awaitTermination(CLOSE_TIMEOUT, TimeUnit.MILLISECONDS);
+		}
+
+		catch (InterruptedException e) {
+
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 *
+	 * @return The number of connected clients
+	 */
+	public int getSessionCount() {
+
+		return m_sessions.get();
+	}
+
+	/**
+	 *
+	 * @return The port the server listens to, the one picked by the system if it was bound to port 0
+	 * @throws IOException If the server socket has been closed
+	 */
+	public int getPort() throws IOException {
+
+		return ((InetSocketAddress) m_server.getLocalAddress()).getPort();
+	}
+
+	/**
+	 * The selector loop
+	 */
+	@Override
+	public void run() {
+
+		ByteBuffer buffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+
+		while (m_running) {
+
+			try {
+
+				m_selector.select();
+			}
+
+			catch (IOException e) {
+
+				Console.error("Selector failure: " + e.getMessage());
+				break;
+			}
+
+			Session session = null;
+			while ((session = m_pending.poll()) != null)
+				flush(session);
+
+			Iterator<SelectionKey> keys = m_selector.selectedKeys().iterator();
+
+			while (keys.hasNext()) {
+
+				SelectionKey key = keys.next();
+				keys.remove();
+
+				if (!key.isValid())
+					continue;
+
+				if (key.isAcceptable()) {
+
+					accept();
+					continue;
+				}
+
+				session = (Session) key.attachment();
+
+				try {
+
+					if (key.isReadable())
+						read(session, buffer);
+
+					if (key.isValid() && key.isWritable())
+						flush(session);
+				}
+
+				catch (IOException e) {
+
+					close(session, false);
+				}
+			}
+
+			if (!m_handoffs.isEmpty())
+				handoff();
+		}
+
+		for (SelectionKey key : m_selector.keys())
+			if (key.attachment() instanceof Session)
+				close((Session) key.attachment(), true);
+
+		try {
+
+			m_server.close();
+			m_selector.close();
+		}
+
+		catch (IOException e) {
+
+			Console.error("Failed to close the server socket: " + e.getMessage());
+		}
+	}
+
+	private void accept() {
+
+		try {
+
+			SocketChannel channel = m_server.accept();
+			if (channel == null)
+				return;
+
+			channel.configureBlocking(false);
+			channel.socket().setTcpNoDelay(true);
+
+			Session session = new Session(channel, channel.socket().getInetAddress() + ":" + channel.socket().getPort());
+			session.key = channel.register(m_selector, SelectionKey.OP_READ, session);
+			m_sessions.incrementAndGet();
+
+			Console.info("New client connected: " + channel.socket().getInetAddress());
+		}
+
+		catch (IOException e) {
+
+			Console.error("Client binding failed");
+		}
+	}
+
+	private void read(Session session, ByteBuffer buffer) throws IOException {
+
+		buffer.clear();
+		int read = session.channel.read(buffer);
+
+		if (read < 0) {
+
+			close(session, session.skeleton != null && !session.skeleton.isRunning());
+			return;
+		}
+
+		buffer.flip();
+
+		if (session.skeleton == null && !handshake(session, buffer))
+			return;
+
+		while (buffer.hasRemaining()) {
+
+			if (session.payload == null) {
+
+				transfer(buffer, session.length);
+				if (session.length.hasRemaining())
+					break;
+
+				int length = session.length.getInt(0);
+				session.length.clear();
+
+				if (length < 0 || length > Protocol.MAX_REQUEST_SIZE)
+					throw new IOException("Invalid frame length: " + length);
+
+				session.payload = ByteBuffer.allocate(length);
+			}
+
+			transfer(buffer, session.payload);
+
+			if (!session.payload.hasRemaining()) {
+
+				schedule(session, session.payload.array());
+				session.payload = null;
+			}
+		}
+
+		updateInterest(session);
+	}
+
+	/**
+	 * Reads the protocol header sent by the client
+	 *
+	 * @return True if the client speaks the framed protocol and the header is complete
+	 */
+	private boolean handshake(Session session, ByteBuffer buffer) throws IOException {
+
+		transfer(buffer, session.handshake);
+
+		if (session.handshake.position() < Integer.BYTES)
+			return false;
+
+		int magic = session.handshake.getInt(0);
+
+		if (magic == Protocol.STREAM_MAGIC) {
+
+			byte[] prefix = new byte[session.handshake.position() + buffer.remaining()];
+			session.handshake.flip();
+			session.handshake.get(prefix, 0, session.handshake.limit());
+			buffer.get(prefix, session.handshake.limit(), buffer.remaining());
+
+			session.key.cancel();
+			m_handoffs.add(new Handoff(session, prefix));
+			return false;
+		}
+
+		if (magic != Protocol.MAGIC)
+			throw new IOException("Unknown protocol");
+
+		if (session.handshake.hasRemaining())
+			return false;
+
+		int version = Math.max(1, Math.min(session.handshake.getInt(Integer.BYTES), Protocol.VERSION));
+		session.skeleton = new Skeleton(session.name, session.channel.socket().getInetAddress().isLoopbackAddress(), version, m_databases.get());
+
+		ByteBuffer response = ByteBuffer.allocate(Integer.BYTES);
+		response.putInt(version).flip();
+		session.outbound.add(response);
+		flush(session);
+
+		return true;
+	}
+
+	private void schedule(Session session, byte[] frame) {
+
+		synchronized (session) {
+
+			session.inbound.add(frame);
+		}
+
+		pump(session);
+	}
+
+	/**
+	 * Hands the pending requests of a session to the workers, in order.
+	 * Exclusive requests wait for the ones in flight and run alone
+	 */
+	private void pump(Session session) {
+
+		synchronized (session) {
+
+			while (!session.closed && !session.exclusive) {
+
+				byte[] frame = session.inbound.peek();
+				if (frame == null)
+					break;
+
+				boolean exclusive = session.skeleton.isExclusive(frame);
+				if (exclusive ? session.inFlight > 0 : session.inFlight >= MAX_CONCURRENT_REQUESTS)
+					break;
+
+				session.inbound.poll();
+				session.inFlight++;
+				session.exclusive = exclusive;
+
+				m_workers.execute(() -> process(session, frame, exclusive));
+			}
+		}
+	}
+
+	/**
+	 * Processes a request of a session (worker thread)
+	 */
+	private void process(Session session, byte[] frame, boolean exclusive) {
+
+		try {
+
+			if (!session.closed) {
+
+				try {
+
+					byte[] response = session.skeleton.process(frame);
+
+					ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + response.length);
+					buffer.putInt(response.length).put(response).flip();
+
+					session.outbound.add(buffer);
+
+					if (!session.skeleton.isRunning())
+						session.closing = true;
+				}
+
+				catch (IOException | ClassNotFoundException | ConnectionLostException | RuntimeException e) {
+
+					Console.warn("Client [" + session.name + "] sent an invalid request: " + e);
+					session.closing = true;
+				}
+
+				// An error leaves the session in an unknown state, it gets closed as well
+				catch (Throwable e) {
+
+					Console.error("Client [" + session.name + "] request failed: " + e);
+					session.closing = true;
+				}
+
+				m_pending.add(session);
+				m_selector.wakeup();
+			}
+		}
+
+		finally {
+
+			boolean closed = false;
+
+			synchronized (session) {
+
+				session.inFlight--;
+
+				if (exclusive)
+					session.exclusive = false;
+
+				closed = session.closed && session.inFlight == 0;
+			}
+
+			// The session has been closed while its requests were in flight
+			if (closed)
+				session.skeleton.close();
+			else
+				pump(session);
+		}
+	}
+
+	/**
+	 * Writes the pending responses of a session (selector thread)
+	 */
+	private void flush(Session session) {
+
+		if (!session.key.isValid())
+			return;
+
+		try {
+
+			ByteBuffer buffer = null;
+
+			while ((buffer = session.outbound.peek()) != null) {
+
+				session.channel.write(buffer);
+
+				if (buffer.hasRemaining())
+					break;
+
+				session.outbound.poll();
+			}
+
+			if (session.outbound.isEmpty() && session.closing)
+				close(session, true);
+
+			else
+				updateInterest(session);
+		}
+
+		catch (IOException e) {
+
+			close(session, false);
+		}
+	}
+
+	private void updateInterest(Session session) {
+
+		if (!session.key.isValid())
+			return;
+
+		int interest = 0;
+
+		synchronized (session) {
+
+			if (session.inbound.size() < MAX_PENDING_REQUESTS)
+				interest |= SelectionKey.OP_READ;
+		}
+
+		if (!session.outbound.isEmpty())
+			interest |= SelectionKey.OP_WRITE;
+
+		session.key.interestOps(interest);
+	}
+
+	private void close(Session session, boolean clean) {
+
+		boolean busy = false;
+
+		synchronized (session) {
+
+			if (session.closed)
+				return;
+
+			session.closed = true;
+			busy = session.inFlight > 0;
+		}
+
+		session.key.cancel();
+
+		try {
+
+			session.channel.close();
+		}
+
+		catch (IOException e) {
+
+			Console.error("I/O stream closure failed");
+		}
+
+		// A busy session gets closed by its last worker
+		if (session.skeleton != null && !busy)
+			session.skeleton.close();
+
+		m_sessions.decrementAndGet();
+
+		if (clean)
+			Console.info("Client [" + session.name + "] has disconnected");
+		else
+			Console.warn("Client [" + session.name + "] has disconnected unexpectedly");
+	}
+
+	/**
+	 * Moves the legacy clients to a blocking skeleton. The keys of the channels
+	 * must be deregistered before switching back to blocking mode
+	 */
+	private void handoff() {
+
+		try {
+
+			m_selector.selectNow();
+		}
+
+		catch (IOException e) {
+
+			Console.error("Selector failure: " + e.getMessage());
+		}
+
+		Handoff handoff = null;
+		while ((handoff = m_handoffs.poll()) != null) {
+
+			Session session = handoff.session;
+
+			try {
+
+				session.channel.configureBlocking(true);
+
+				InputStream input = new SequenceInputStream(new ByteArrayInputStream(handoff.prefix), session.channel.socket().getInputStream());
+				Skeleton skeleton = new Skeleton(session.channel.socket(), input, m_databases.get());
+
+				m_threads.newThread(() -> {
+
+					try {
+
+						skeleton.run();
+					}
+
+					finally {
+
+						m_sessions.decrementAndGet();
+					}
+
+				}).start();
+			}
+
+			catch (IOException e) {
+
+				close(session, false);
+			}
+		}
+	}
+
+	private static void transfer(ByteBuffer src, ByteBuffer dst) {
+
+		int count = Math.min(src.remaining(), dst.remaining());
+
+		ByteBuffer slice = src.slice();
+		slice.limit(count);
+		dst.put(slice);
+		src.position(src.position() + count);
+	}
+
+	/**
+	 * The state of a client connected to the selector
+	 */
+	private static class Session {
+
+		Session(SocketChannel channel, String name) {
+
+			this.channel = channel;
+			this.name = name;
+		}
+
+		final SocketChannel channel;
+		final String name;
+		SelectionKey key;
+		Skeleton skeleton;
+
+		final ByteBuffer handshake = ByteBuffer.allocate(2 * Integer.BYTES);
+		final ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+		ByteBuffer payload;
+
+		// Guarded by the session lock
+		final Queue<byte[]> inbound = new ArrayDeque<byte[]>();
+		int inFlight = 0;
+		boolean exclusive = false;
+		volatile boolean closed = false;
+
+		final Queue<ByteBuffer> outbound = new ConcurrentLinkedQueue<ByteBuffer>();
+		volatile boolean closing = false;
+	}
+
+	/**
+	 * A legacy client waiting to be moved to a blocking skeleton
+	 */
+	private static class Handoff {
+
+		Handoff(Session session, byte[] prefix) {
+
+			this.session = session;
+			this.prefix = prefix;
+		}
+
+		final Session session;
+		final byte[] prefix;
+	}
+
+	private static final int BACKLOG = 1024;
+	private static final int READ_BUFFER_SIZE = 64 * 1024;
+	private static final int MAX_PENDING_REQUESTS = 64;
+	private static final int MAX_CONCURRENT_REQUESTS = 8;
+	private static final long CLOSE_TIMEOUT = 5000;
+
+	private final Supplier<ServerDatabase> m_databases;
+	private final Selector m_selector;
+	private final ServerSocketChannel m_server;
+	private final ExecutorService m_workers;
+	private final ThreadFactory m_threads;
+	private final Thread m_thread;
+
+	private final Queue<Session> m_pending = new ConcurrentLinkedQueue<Session>();
+	private final Queue<Handoff> m_handoffs = new ArrayDeque<Handoff>();
+	private final AtomicInteger m_sessions = new AtomicInteger();
+	private volatile boolean m_running = true;
+}
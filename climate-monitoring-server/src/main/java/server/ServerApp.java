@@ -9,9 +9,12 @@ Dariia Sniezhko 753057 VA
 
 package server;
 
+import java.io.IOException;
+
 import climatemonitoring.core.Application;
 import climatemonitoring.core.ApplicationSpecification;
 import climatemonitoring.core.headless.ApplicationHeadless;
+import climatemonitoring.core.headless.Console;
 
 /**
  * The application's entry point
@@ -27,9 +30,33 @@ public class ServerApp {
 		ApplicationSpecification serverSpec = new ApplicationSpecification();
 		serverApp = new ApplicationHeadless(serverSpec);
 
-		serverApp.pushLayer(new ServerLayer());
+		ServerSpecification spec = ServerSpecification.fromArgs(args);
+		configureLog(spec);
+
+		serverApp.pushLayer(new ServerLayer(spec));
 		serverApp.run();
 
 		serverApp.shutdown();
 	}
+
+	private static void configureLog(ServerSpecification spec) {
+
+		Console.setLogLevel(spec.logLevel);
+
+		if (spec.logFile != null) {
+
+			try {
+
+				Console.setLogFile(spec.logFile, spec.logFileSize * 1024L * 1024L, spec.logFiles);
+			}
+
+			catch (IOException e) {
+
+				Console.error("Cannot open the log file " + spec.logFile + ": " + e.getMessage());
+			}
+		}
+
+		if (spec.logBuffer > 0)
+			Console.setAsync(spec.logBuffer, spec.logPolicy.equals("drop"));
+	}
 }
@@ -12,21 +12,41 @@ package server;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Savepoint;
 import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetProvider;
 
 import climatemonitoring.core.Area;
+import climatemonitoring.core.AreaDashboard;
 import climatemonitoring.core.Category;
 import climatemonitoring.core.Center;
 import climatemonitoring.core.ConnectionLostException;
 import climatemonitoring.core.DatabaseRequestException;
 import climatemonitoring.core.Operator;
+import climatemonitoring.core.Page;
 import climatemonitoring.core.Parameter;
+import climatemonitoring.core.ParameterBucket;
+import climatemonitoring.core.ParameterStats;
+import climatemonitoring.core.RequestType;
 import climatemonitoring.core.headless.Console;
+import climatemonitoring.core.network.Protocol;
+
+import server.SpatialIndex.Bounds;
 
 /**
  * The actual ServerDatabase implementation
@@ -38,79 +58,127 @@ import climatemonitoring.core.headless.Console;
 public class ServerDatabaseImpl implements ServerDatabase {
 
 	/**
-	 * The constructor is responsible for the database connection
+	 * The constructor binds the session to the shared connection pool.
+	 * A connection gets leased for every request, or for the whole duration
+	 * of a transaction
 	 * 
-	 * @param url Database URL address
-	 * @param username Username to log into the database
-	 * @param password Password to log into the database
+	 * @param pool The connection pool shared by all the sessions
+	 * @param fetch_size The number of rows fetched at a time by the queries
+	 * @param max_rows The maximum number of rows returned by a query (0 for no limit)
+	 * @param area_index The index that serves the area searches, null to always query the database
+	 * @param spatial_index The index that serves the searches by coordinates, null to always query the database
+	 * @param result_cache The cache of the hot read queries, null to always query the database
+	 * @param parameter_aggregates The statistics of the recordings, null to always compute them from the recordings
+	 */
+	public ServerDatabaseImpl(ConnectionPool pool, int fetch_size, int max_rows, AreaIndex area_index, SpatialIndex spatial_index, ResultCache result_cache, ParameterAggregates parameter_aggregates) {
+
+		m_pool = pool;
+		m_fetchSize = fetch_size;
+		m_maxRows = max_rows;
+		m_areaIndex = area_index;
+		m_spatialIndex = spatial_index;
+		m_resultCache = result_cache;
+		m_parameterAggregates = parameter_aggregates;
+	}
+
+	/**
+	 * Gives back to the pool the connection held by an unterminated transaction
 	 */
-	public ServerDatabaseImpl(String url, String username, String password) {
+	public void shutdown() {
+
+		m_lock.lock();
 
 		try {
 
-			m_connection = DriverManager.getConnection(url, username, password);
-			if (m_connection != null) Console.info("Connected");
+			Transaction transaction = m_transaction;
+
+			if (transaction != null) {
+
+				Console.warn("Session closed during a transaction, rolling back");
+				transaction.close();
+				m_transaction = null;
+			}
 		}
 
-		catch (SQLException e) {
+		finally {
 
-			Console.error("Invalid credentials: " + e.getMessage());
+			m_lock.unlock();
 		}
 	}
 
 	/**
-	 * Closes the connection between the application and the database
+	 * Executes an SQL statement and
+	 * @throws SQLException If the query fails to execute
+	 * @return The query's rows as a disconnected ResultSet
 	 */
-	public synchronized void shutdown() {
+	public ResultSet execute(String statement) throws SQLException {
 
-		if (m_connection != null)
+		Connection connection = null;
 
-			try {
+		try {
 
-				m_connection.close();
-			}
+			connection = acquire();
 
-			catch (SQLException e) {
+			// Free-form statements are not worth caching
+			try (PreparedStatement pst = connection.prepareStatement(statement)) {
+
+				Console.debug(() -> "Issued query: " + statement);
+				boolean isQuery = pst.execute();
+
+				if (isQuery) {
 
-				Console.error("Failed to close connection: " + e.getMessage());
+					CachedRowSet result = RowSetProvider.newFactory().createCachedRowSet();
+					result.populate(pst.getResultSet());
+					return result;
+				}
+
+				else
+					return null;
 			}
-	}
+		}
 
-	/**
-	 * Executes an SQL statement and
-	 * @throws SQLException If the query fails to execute
-	 * @return The query's rows as a ResultSet
-	 */
-	public synchronized ResultSet execute(String statement) throws SQLException {
+		catch (DatabaseRequestException e) {
 
-		PreparedStatement pst = m_connection.prepareStatement(statement, ResultSet.TYPE_SCROLL_SENSITIVE, ResultSet.CONCUR_UPDATABLE);
-		Console.debug("Issued query: " + statement);
-		boolean isQuery = pst.execute();
+			throw new SQLException(e.getMessage(), e);
+		}
 
-		if (isQuery)
-			return pst.getResultSet();
+		finally {
 
-		else
-			return null;
+			release(connection);
+		}
 	}
 
 	/**
-	 * To start a transaction
+	 * To start a transaction. The session keeps the same connection
+	 * until the transaction ends
 	 * 
 	 * @throws ConnectionLostException If the client loses connection during the operation
 	 * @throws DatabaseRequestException If the database fails to process the given request
 	 */
 	@Override
-	public synchronized void begin() throws ConnectionLostException, DatabaseRequestException {
+	public void begin() throws ConnectionLostException, DatabaseRequestException {
+
+		m_lock.lock();
 
 		try {
 
-			m_connection.setAutoCommit(false);
+			if (m_transaction != null)
+				throw new DatabaseRequestException("A transaction is already in progress");
+
+			try {
+
+				m_transaction = new Transaction(m_pool);
+			}
+
+			catch (SQLException e) {
+
+				throw new DatabaseRequestException(e.getMessage());
+			}
 		}
 
-		catch (SQLException e) {
+		finally {
 
-			throw new DatabaseRequestException(e.getMessage());
+			m_lock.unlock();
 		}
 	}
 
@@ -121,38 +189,79 @@ public class ServerDatabaseImpl implements ServerDatabase {
 	 * @throws DatabaseRequestException If the database fails to process the given request
 	 */
 	@Override
-	public synchronized void end() throws ConnectionLostException, DatabaseRequestException {
+	public void end() throws ConnectionLostException, DatabaseRequestException {
+
+		m_lock.lock();
 
 		try {
 
-			m_connection.commit();
-			m_connection.setAutoCommit(true);
-		}
+			Transaction transaction = m_transaction;
 
-		catch (SQLException e) {
+			if (transaction == null)
+				throw new DatabaseRequestException("There is no transaction in progress");
 
 			try {
 
-				m_connection.rollback();
-				m_connection.setAutoCommit(true);
+				// The indexes and the clients only see the changes once they are committed
+				transaction.commit();
 			}
 
-			catch (SQLException ex) {
+			catch (SQLException e) {
 
-				try {
+				throw new DatabaseRequestException(e.getMessage());
+			}
 
-					m_connection.setAutoCommit(true);
-				}
+			// Cleared after the commit, which waits for the request using the connection
+			finally {
+
+				m_transaction = null;
+			}
+		}
 
-				catch (SQLException exc) {
+		finally {
 
-					throw new DatabaseRequestException(exc.getMessage());
-				}
+			m_lock.unlock();
+		}
+	}
+
+	/**
+	 * To abandon a transaction. Its changes are undone and
+	 * the shared state never sees them
+	 * 
+	 * @throws ConnectionLostException If the client loses connection during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request
+	 */
+	@Override
+	public void rollback() throws ConnectionLostException, DatabaseRequestException {
+
+		m_lock.lock();
+
+		try {
+
+			Transaction transaction = m_transaction;
+
+			if (transaction == null)
+				throw new DatabaseRequestException("There is no transaction in progress");
+
+			try {
+
+				transaction.rollback();
+			}
+
+			catch (SQLException e) {
 
 				throw new DatabaseRequestException(e.getMessage());
 			}
 
-			throw new DatabaseRequestException(e.getMessage());
+			finally {
+
+				m_transaction = null;
+			}
+		}
+
+		finally {
+
+			m_lock.unlock();
 		}
 	}
 
@@ -176,11 +285,16 @@ public class ServerDatabaseImpl implements ServerDatabase {
 	 * @throws DatabaseRequestException If the database fails to process the given request
 	 */
 	@Override
-	public synchronized Area[] searchAreasByName(String str) throws ConnectionLostException, DatabaseRequestException {
+	public Area[] searchAreasByName(String str) throws ConnectionLostException, DatabaseRequestException {
+
+		if (m_areaIndex != null && AreaIndex.supports(str))
+			return toArray(m_areaIndex.searchByName(str, m_maxRows), new Area[0]);
+
+		Connection connection = acquire();
 
 		try {
 
-			PreparedStatement pst = prepareStatement("""
+			PreparedStatement pst = prepareQuery(connection, """
 				SELECT *
 				FROM area
 				WHERE LOWER(area_name)
@@ -197,7 +311,7 @@ public class ServerDatabaseImpl implements ServerDatabase {
 			pst.setString(3, str);
 			
 			ResultSet query = pst.executeQuery();
-			Area[] result = new Area[getRowCount(query)];
+			List<Area> result = new ArrayList<Area>();
 
 			while (query.next()) {
 
@@ -209,16 +323,21 @@ public class ServerDatabaseImpl implements ServerDatabase {
 				double coordsLatitude = query.getDouble("latitude");
 				double coordsLongitude = query.getDouble("longitude");
 
-				result[query.getRow() - 1] = new Area(geonameID, areaName, areaAsciiName, countryCode, countryName, coordsLatitude, coordsLongitude);
+				result.add(new Area(geonameID, areaName, areaAsciiName, countryCode, countryName, coordsLatitude, coordsLongitude));
 			}
 
-			return result;
+			return toArray(result, new Area[0]);
 		}
 
 		catch (SQLException e) {
 
 			throw new DatabaseRequestException(e.getMessage());
 		}
+
+		finally {
+
+			release(connection);
+		}
 	}
 
 	/**
@@ -231,11 +350,16 @@ public class ServerDatabaseImpl implements ServerDatabase {
 	 * @throws DatabaseRequestException If the database fails to process the given request
 	 */
 	@Override
-	public synchronized Area[] searchAreasByCountry(String str) throws ConnectionLostException, DatabaseRequestException {
+	public Area[] searchAreasByCountry(String str) throws ConnectionLostException, DatabaseRequestException {
+
+		if (m_areaIndex != null && AreaIndex.supports(str))
+			return toArray(m_areaIndex.searchByCountry(str, m_maxRows), new Area[0]);
+
+		Connection connection = acquire();
 
 		try {
 			
-			PreparedStatement pst = prepareStatement("""
+			PreparedStatement pst = prepareQuery(connection, """
 				SELECT *
 				FROM area
 				WHERE LOWER(country_name)
@@ -252,7 +376,7 @@ public class ServerDatabaseImpl implements ServerDatabase {
 			pst.setString(3, str);
 			
 			ResultSet query = pst.executeQuery();
-			Area[] result = new Area[getRowCount(query)];
+			List<Area> result = new ArrayList<Area>();
 
 			while (query.next()) {
 
@@ -264,22 +388,27 @@ public class ServerDatabaseImpl implements ServerDatabase {
 				double coordsLatitude = query.getDouble("latitude");
 				double coordsLongitude = query.getDouble("longitude");
 
-				result[query.getRow() - 1] = new Area(geonameID, areaName, areaAsciiName, countryCode, countryName, coordsLatitude, coordsLongitude);
+				result.add(new Area(geonameID, areaName, areaAsciiName, countryCode, countryName, coordsLatitude, coordsLongitude));
 			}
 
-			return result;
+			return toArray(result, new Area[0]);
 		}
 
 		catch (SQLException e) {
 
 			throw new DatabaseRequestException(e.getMessage());
 		}
+
+		finally {
+
+			release(connection);
+		}
 	}
 
 	/**
-	 * Returns in alphabetical order an array of areas which can be
-	 * found around the specified coordinates. The around is about 0.5
-	 * degrees for both latitude and longitude
+	 * Returns an array of areas which can be found around the specified
+	 * coordinates, from the nearest. The around is about 0.5 degrees for
+	 * both latitude and longitude
 	 * 
 	 * @param latitude Value between -90 and 90
 	 * @param longitude Value between -180 and 180
@@ -288,51 +417,11 @@ public class ServerDatabaseImpl implements ServerDatabase {
 	 * @throws DatabaseRequestException If the database fails to process the given request
 	 */
 	@Override
-	public synchronized Area[] searchAreasByCoords(double latitude, double longitude)
+	public Area[] searchAreasByCoords(double latitude, double longitude)
 			throws ConnectionLostException, DatabaseRequestException {
 
-		try {
-
-			PreparedStatement pst = prepareStatement("""
-					SELECT *
-					FROM area
-					WHERE latitude
-					BETWEEN ?
-					AND ?
-					AND longitude
-					BETWEEN ?
-					AND ?
-					ORDER BY area_name;
-			""");
-
-			pst.setDouble(1, latitude - 0.5);
-			pst.setDouble(2, latitude + 0.5);
-			pst.setDouble(3, longitude - 0.5);
-			pst.setDouble(4, longitude + 0.5);
-
-			ResultSet query = pst.executeQuery();
-			Area[] result = new Area[getRowCount(query)];
-
-			while (query.next()) {
-		
-				int geonameID = query.getInt("geoname_id");
-				String areaName = query.getString("area_name");
-				String areaAsciiName = query.getString("area_ascii_name");
-				String countryCode = query.getString("country_code");
-				String countryName = query.getString("country_name");
-				double coordsLatitude = query.getDouble("latitude");
-				double coordsLongitude = query.getDouble("longitude");
-
-				result[query.getRow() - 1] = new Area(geonameID, areaName, areaAsciiName, countryCode, countryName, coordsLatitude, coordsLongitude);
-			}
-
-			return result;
-		}
-
-		catch (SQLException e) {
-
-			throw new DatabaseRequestException(e.getMessage());
-		}
+		Bounds bounds = Bounds.box(latitude, longitude, COORDS_BOX);
+		return toArray(searchByDistance(latitude, longitude, bounds, SpatialIndex.MAX_DISTANCE, -1, 0, m_maxRows, null), new Area[0]);
 	}
 
 	/**
@@ -355,11 +444,13 @@ public class ServerDatabaseImpl implements ServerDatabase {
 	 * @throws DatabaseRequestException If the database fails to process the given request
 	 */
 	@Override
-	public synchronized Center[] searchCentersByName(String str) throws ConnectionLostException, DatabaseRequestException {
+	public Center[] searchCentersByName(String str) throws ConnectionLostException, DatabaseRequestException {
+
+		Connection connection = acquire();
 
 		try {
 
-			PreparedStatement pst = prepareStatement("""
+			PreparedStatement pst = prepareQuery(connection, """
 				SELECT *
 				FROM center
 				WHERE LOWER(center_id)
@@ -376,7 +467,7 @@ public class ServerDatabaseImpl implements ServerDatabase {
 			pst.setString(3, str);
 
 			ResultSet query = pst.executeQuery();
-			Center[] result = new Center[getRowCount(query)];
+			List<Center> result = new ArrayList<Center>();
 
 			while (query.next()) {
 
@@ -387,137 +478,236 @@ public class ServerDatabaseImpl implements ServerDatabase {
 				int postalCode = query.getInt("postal_code");
 				String district = query.getString("district");
 
-				result[query.getRow() - 1] = new Center(centerID, street, houseNumber, postalCode, city, district);
+				result.add(new Center(centerID, street, houseNumber, postalCode, city, district));
 			}
 
-			return result;
+			return toArray(result, new Center[0]);
 		}
 
 		catch (SQLException e) {
 
 			throw new DatabaseRequestException(e.getMessage());
 		}
+
+		finally {
+
+			release(connection);
+		}
 	}
 
 	/**
-	 * To get an area by its geoname id
+	 * Returns one page of the results of {@link #searchAreasByName(String)}.
+	 * The pages are read with a keyset: every page starts right after the
+	 * sort key of the last area of the previous page, so no rows get skipped
+	 * or scanned twice however deep the client scrolls
 	 * 
-	 * @param geoname_id The geoname id of the area to be searched
-	 * @return The area that corresponds to the given geoname id
-	 * @throws ConnectionLostException If the client loses connection during the operation
-	 * @throws DatabaseRequestException If the database fails to process the given request
+	 * @param str The input string the search is based on
+	 * @param page_size The maximum number of areas in the page
+	 * @param cursor The cursor returned with the previous page, null for the first page
+	 * @return A page of the results of the search
+	 * @throws ConnectionLostException If the server loses connection to the database during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request or the cursor is not valid
 	 */
 	@Override
-	public synchronized Area getArea(int geoname_id) throws ConnectionLostException, DatabaseRequestException {
+	public Page<Area> searchAreasByName(String str, int page_size, String cursor) throws ConnectionLostException, DatabaseRequestException {
 
-		try {
+		if (m_areaIndex != null && AreaIndex.supports(str))
+			return m_areaIndex.searchByName(str, pageSize(page_size), cursor);
 
-			PreparedStatement pst = prepareStatement("""
-				SELECT *
-				FROM area
-				WHERE geoname_id = ?;
-			""");
+		return searchAreasPage("name", "area_name", str, page_size, cursor);
+	}
 
-			pst.setInt(1, geoname_id);
+	/**
+	 * Returns one page of the results of {@link #searchAreasByCountry(String)}
+	 * 
+	 * @param str The input string the search is based on
+	 * @param page_size The maximum number of areas in the page
+	 * @param cursor The cursor returned with the previous page, null for the first page
+	 * @return A page of the results of the search
+	 * @throws ConnectionLostException If the server loses connection to the database during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request or the cursor is not valid
+	 */
+	@Override
+	public Page<Area> searchAreasByCountry(String str, int page_size, String cursor) throws ConnectionLostException, DatabaseRequestException {
 
-			ResultSet query = pst.executeQuery();
-			Area result = null;
+		if (m_areaIndex != null && AreaIndex.supports(str))
+			return m_areaIndex.searchByCountry(str, pageSize(page_size), cursor);
 
-			if (query.next()) {
+		return searchAreasPage("country", "country_name", str, page_size, cursor);
+	}
 
-				int geonameID = query.getInt("geoname_id");
-				String areaName = query.getString("area_name");
-				String areaAsciiName = query.getString("area_ascii_name");
-				String countryCode = query.getString("country_code");
-				String countryName = query.getString("country_name");
-				double coordsLatitude = query.getDouble("latitude");
-				double coordsLongitude = query.getDouble("longitude");
+	/**
+	 * Returns one page of the results of {@link #searchAreasByCoords(double, double)}
+	 * 
+	 * @param latitude Value between -90 and 90
+	 * @param longitude Value between -180 and 180
+	 * @param page_size The maximum number of areas in the page
+	 * @param cursor The cursor returned with the previous page, null for the first page
+	 * @return A page of the results of the search
+	 * @throws ConnectionLostException If the server loses connection to the database during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request or the cursor is not valid
+	 */
+	@Override
+	public Page<Area> searchAreasByCoords(double latitude, double longitude, int page_size, String cursor) throws ConnectionLostException, DatabaseRequestException {
 
-				result = new Area(geonameID, areaName, areaAsciiName, countryCode, countryName, coordsLatitude, coordsLongitude);
-			}
+		String argument = latitude + "," + longitude;
+		double lastDistance = -1;
+		int lastGeonameID = 0;
 
-			return result;
+		if (cursor != null) {
+
+			String[] key = Cursor.decode(cursor, "coords", argument, 2);
+			lastDistance = Cursor.parseDouble(key[0]);
+			lastGeonameID = Cursor.parseInt(key[1]);
 		}
 
-		catch (SQLException e) {
+		int size = pageSize(page_size);
+		List<Double> distances = new ArrayList<Double>();
+		Bounds bounds = Bounds.box(latitude, longitude, COORDS_BOX);
+		List<Area> result = searchByDistance(latitude, longitude, bounds, SpatialIndex.MAX_DISTANCE, lastDistance, lastGeonameID, size + 1, distances);
+		String next = null;
 
-			throw new DatabaseRequestException(e.getMessage());
+		if (result.size() > size) {
+
+			next = Cursor.encode("coords", argument, distances.get(size - 1), result.get(size - 1).getGeonameID());
+			result = result.subList(0, size);
 		}
+
+		return new Page<Area>(result.toArray(new Area[0]), next);
 	}
 
 	/**
-	 * To get all the areas monitored by a specified center
+	 * Returns the areas inside a box, from the nearest to its center
 	 * 
-	 * @param center_id The id of the center the search is based on
-	 * @return The areas monitored as an array of areas
-	 * @throws ConnectionLostException If the client loses connection during the operation
+	 * @param min_latitude The southern latitude
+	 * @param max_latitude The northern latitude
+	 * @param west The western longitude, if greater than the eastern one the box crosses the antimeridian
+	 * @param east The eastern longitude
+	 * @return The result of the search as an array of areas
+	 * @throws ConnectionLostException If the server loses connection to the database during the operation
 	 * @throws DatabaseRequestException If the database fails to process the given request
 	 */
 	@Override
-	public synchronized Area[] getMonitoredAreas(String center_id) throws ConnectionLostException, DatabaseRequestException {
-
-		try {
+	public Area[] searchAreasInBox(double min_latitude, double max_latitude, double west, double east) throws ConnectionLostException, DatabaseRequestException {
 
-			PreparedStatement pst = prepareStatement("""
-				SELECT A.*
-				FROM area A
-				JOIN monitors M
-				ON A.geoname_id = M.geoname_id
-				WHERE LOWER(center_id) = LOWER(?);
-			""");
+		Bounds bounds = Bounds.box(min_latitude, max_latitude, west, east);
+		double[] center = bounds.getCenter();
 
-			pst.setString(1, center_id);
+		return toArray(searchByDistance(center[0], center[1], bounds, SpatialIndex.MAX_DISTANCE, -1, 0, m_maxRows, null), new Area[0]);
+	}
 
-			ResultSet query = pst.executeQuery();
-			Area[] result = new Area[getRowCount(query)];
+	/**
+	 * Returns the areas within a distance from a point, from the nearest
+	 * 
+	 * @param latitude Value between -90 and 90
+	 * @param longitude Value between -180 and 180
+	 * @param radius The distance in kilometers
+	 * @return The result of the search as an array of areas
+	 * @throws ConnectionLostException If the server loses connection to the database during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request
+	 */
+	@Override
+	public Area[] searchAreasInRadius(double latitude, double longitude, double radius) throws ConnectionLostException, DatabaseRequestException {
 
-			while (query.next()) {
+		if (radius < 0)
+			return new Area[0];
 
-				int geonameID = query.getInt("geoname_id");
-				String areaName = query.getString("area_name");
-				String areaAsciiName = query.getString("area_ascii_name");
-				String countryCode = query.getString("country_code");
-				String countryName = query.getString("country_name");
-				double coordsLatitude = query.getDouble("latitude");
-				double coordsLongitude = query.getDouble("longitude");
+		Bounds bounds = Bounds.around(latitude, longitude, radius);
+		return toArray(searchByDistance(latitude, longitude, bounds, radius, -1, 0, m_maxRows, null), new Area[0]);
+	}
 
-				result[query.getRow() - 1] = new Area(geonameID, areaName, areaAsciiName, countryCode, countryName, coordsLatitude, coordsLongitude);
-			}
+	/**
+	 * Returns the nearest areas to a point, from the nearest
+	 * 
+	 * @param latitude Value between -90 and 90
+	 * @param longitude Value between -180 and 180
+	 * @param count The number of areas
+	 * @return The result of the search as an array of areas
+	 * @throws ConnectionLostException If the server loses connection to the database during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request
+	 */
+	@Override
+	public Area[] searchNearestAreas(double latitude, double longitude, int count) throws ConnectionLostException, DatabaseRequestException {
 
-			return result;
-		}
+		int size = pageSize(count);
 
-		catch (SQLException e) {
+		if (m_spatialIndex != null)
+			return m_spatialIndex.searchNearest(latitude, longitude, size).toArray(new Area[0]);
 
-			throw new DatabaseRequestException(e.getMessage());
-		}
+		Bounds bounds = Bounds.box(-90, 90, -180, 180);
+		return searchByDistance(latitude, longitude, bounds, SpatialIndex.MAX_DISTANCE, -1, 0, size, null).toArray(new Area[0]);
 	}
 
 	/**
-	 * To get a center by its center id
+	 * Returns one page of the results of {@link #searchCentersByName(String)}
 	 * 
-	 * @param center_id The center id of the center to be searched
-	 * @return The center that corresponds to the given center id
-	 * @throws ConnectionLostException If the client loses connection during the operation
-	 * @throws DatabaseRequestException If the database fails to process the given request
+	 * @param str The input string the search is based on
+	 * @param page_size The maximum number of centers in the page
+	 * @param cursor The cursor returned with the previous page, null for the first page
+	 * @return A page of the results of the search
+	 * @throws ConnectionLostException If the server loses connection to the database during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request or the cursor is not valid
 	 */
 	@Override
-	public synchronized Center getCenter(String center_id) throws ConnectionLostException, DatabaseRequestException {
+	public Page<Center> searchCentersByName(String str, int page_size, String cursor) throws ConnectionLostException, DatabaseRequestException {
+
+		int lastRank = -1;
+		int lastPosition = -1;
+		String lastCenterID = "";
+
+		if (cursor != null) {
+
+			String[] key = Cursor.decode(cursor, "center", str, 3);
+			lastRank = Cursor.parseInt(key[0]);
+			lastPosition = Cursor.parseInt(key[1]);
+			lastCenterID = key[2];
+		}
+
+		int size = pageSize(page_size);
+		Connection connection = acquire();
 
 		try {
 
-			PreparedStatement pst = prepareStatement("""
+			PreparedStatement pst = prepareQuery(connection, """
 				SELECT *
-				FROM center
-				WHERE LOWER(center_id) = LOWER(?);
+				FROM (
+					SELECT *,
+					CASE
+					WHEN LOWER(center_id) LIKE ? THEN 0
+					ELSE 1
+					END AS match_rank,
+					POSITION(? IN LOWER(center_id)) AS match_position
+					FROM center
+					WHERE LOWER(center_id)
+					LIKE ?
+				) AS matches
+				WHERE (match_rank, match_position, center_id) > (?, ?, ?)
+				ORDER BY match_rank, match_position, center_id
+				LIMIT ?;
 			""");
 
-			pst.setString(1, center_id);
+			pst.setMaxRows(0);
+			pst.setString(1, str + "%");
+			pst.setString(2, str);
+			pst.setString(3, "%" + str + "%");
+			pst.setInt(4, lastRank);
+			pst.setInt(5, lastPosition);
+			pst.setString(6, lastCenterID);
+			pst.setInt(7, size + 1);
 
 			ResultSet query = pst.executeQuery();
-			Center result = null;
+			List<Center> result = new ArrayList<Center>();
+			String next = null;
+			int rank = 0;
+			int position = 0;
 
-			if (query.next()) {
+			while (query.next()) {
+
+				if (result.size() == size) {
+
+					next = Cursor.encode("center", str, rank, position, result.get(size - 1).getCenterID());
+					break;
+				}
 
 				String centerID = query.getString("center_id");
 				int city = query.getInt("city");
@@ -525,38 +715,207 @@ public class ServerDatabaseImpl implements ServerDatabase {
 				int houseNumber = query.getInt("house_number");
 				int postalCode = query.getInt("postal_code");
 				String district = query.getString("district");
+				rank = query.getInt("match_rank");
+				position = query.getInt("match_position");
 
-				result = new Center(centerID, street, houseNumber, postalCode, city, district);
+				result.add(new Center(centerID, street, houseNumber, postalCode, city, district));
 			}
 
-			return result;
+			return new Page<Center>(result.toArray(new Center[0]), next);
 		}
 
 		catch (SQLException e) {
 
 			throw new DatabaseRequestException(e.getMessage());
 		}
+
+		finally {
+
+			release(connection);
+		}
 	}
 
 	/**
-	 * To get all the available centers
+	 * To get an area by its geoname id
 	 * 
-	 * @return All the centers as an array of centers
+	 * @param geoname_id The geoname id of the area to be searched
+	 * @return The area that corresponds to the given geoname id
+	 * @throws ConnectionLostException If the client loses connection during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request
+	 */
+	@Override
+	public Area getArea(int geoname_id) throws ConnectionLostException, DatabaseRequestException {
+
+		Connection connection = acquire();
+
+		try {
+
+			PreparedStatement pst = prepareQuery(connection, """
+				SELECT *
+				FROM area
+				WHERE geoname_id = ?;
+			""");
+
+			pst.setInt(1, geoname_id);
+
+			ResultSet query = pst.executeQuery();
+			Area result = null;
+
+			if (query.next()) {
+
+				int geonameID = query.getInt("geoname_id");
+				String areaName = query.getString("area_name");
+				String areaAsciiName = query.getString("area_ascii_name");
+				String countryCode = query.getString("country_code");
+				String countryName = query.getString("country_name");
+				double coordsLatitude = query.getDouble("latitude");
+				double coordsLongitude = query.getDouble("longitude");
+
+				result = new Area(geonameID, areaName, areaAsciiName, countryCode, countryName, coordsLatitude, coordsLongitude);
+			}
+
+			return result;
+		}
+
+		catch (SQLException e) {
+
+			throw new DatabaseRequestException(e.getMessage());
+		}
+
+		finally {
+
+			release(connection);
+		}
+	}
+
+	/**
+	 * To get all the areas monitored by a specified center
+	 * 
+	 * @param center_id The id of the center the search is based on
+	 * @return The areas monitored as an array of areas
+	 * @throws ConnectionLostException If the client loses connection during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request
+	 */
+	@Override
+	public Area[] getMonitoredAreas(String center_id) throws ConnectionLostException, DatabaseRequestException {
+
+		Connection connection = acquire();
+
+		try {
+
+			PreparedStatement pst = prepareQuery(connection, """
+				SELECT A.*
+				FROM area A
+				JOIN monitors M
+				ON A.geoname_id = M.geoname_id
+				WHERE LOWER(center_id) = LOWER(?);
+			""");
+
+			pst.setString(1, center_id);
+
+			ResultSet query = pst.executeQuery();
+			List<Area> result = new ArrayList<Area>();
+
+			while (query.next()) {
+
+				int geonameID = query.getInt("geoname_id");
+				String areaName = query.getString("area_name");
+				String areaAsciiName = query.getString("area_ascii_name");
+				String countryCode = query.getString("country_code");
+				String countryName = query.getString("country_name");
+				double coordsLatitude = query.getDouble("latitude");
+				double coordsLongitude = query.getDouble("longitude");
+
+				result.add(new Area(geonameID, areaName, areaAsciiName, countryCode, countryName, coordsLatitude, coordsLongitude));
+			}
+
+			return toArray(result, new Area[0]);
+		}
+
+		catch (SQLException e) {
+
+			throw new DatabaseRequestException(e.getMessage());
+		}
+
+		finally {
+
+			release(connection);
+		}
+	}
+
+	/**
+	 * To get a center by its center id
+	 * 
+	 * @param center_id The center id of the center to be searched
+	 * @return The center that corresponds to the given center id
+	 * @throws ConnectionLostException If the client loses connection during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request
+	 */
+	@Override
+	public Center getCenter(String center_id) throws ConnectionLostException, DatabaseRequestException {
+
+		Connection connection = acquire();
+
+		try {
+
+			PreparedStatement pst = prepareQuery(connection, """
+				SELECT *
+				FROM center
+				WHERE LOWER(center_id) = LOWER(?);
+			""");
+
+			pst.setString(1, center_id);
+
+			ResultSet query = pst.executeQuery();
+			Center result = null;
+
+			if (query.next()) {
+
+				String centerID = query.getString("center_id");
+				int city = query.getInt("city");
+				String street = query.getString("street");
+				int houseNumber = query.getInt("house_number");
+				int postalCode = query.getInt("postal_code");
+				String district = query.getString("district");
+
+				result = new Center(centerID, street, houseNumber, postalCode, city, district);
+			}
+
+			return result;
+		}
+
+		catch (SQLException e) {
+
+			throw new DatabaseRequestException(e.getMessage());
+		}
+
+		finally {
+
+			release(connection);
+		}
+	}
+
+	/**
+	 * To get all the available centers
+	 * 
+	 * @return All the centers as an array of centers
 	 * @throws ConnectionLostException If the client loses connection during the operation
 	 * @throws DatabaseRequestException If the database fails to process the given request
 	 */
 	@Override
 	public Center[] getCenters() throws ConnectionLostException, DatabaseRequestException {
 
+		Connection connection = acquire();
+
 		try {
 
-			PreparedStatement pst = prepareStatement("""
+			PreparedStatement pst = prepareQuery(connection, """
 				SELECT *
 				FROM center;
 			""");
 
 			ResultSet query = pst.executeQuery();
-			Center[] result = new Center[getRowCount(query)];
+			List<Center> result = new ArrayList<Center>();
 
 			while (query.next()) {
 
@@ -567,16 +926,21 @@ public class ServerDatabaseImpl implements ServerDatabase {
 				int postalCode = query.getInt("postal_code");
 				String district = query.getString("district");
 
-				result[query.getRow() - 1] = new Center(centerID, street, houseNumber, postalCode, city, district);
+				result.add(new Center(centerID, street, houseNumber, postalCode, city, district));
 			}
 
-			return result;
+			return toArray(result, new Center[0]);
 		}
 
 		catch (SQLException e) {
 
 			throw new DatabaseRequestException(e.getMessage());
 		}
+
+		finally {
+
+			release(connection);
+		}
 	}
 
 	/**
@@ -591,9 +955,11 @@ public class ServerDatabaseImpl implements ServerDatabase {
 	 */
 	public Center getCenterByAddress(int city, String street, int house_number) throws ConnectionLostException, DatabaseRequestException {
 
+		Connection connection = acquire();
+
 		try {
 
-			PreparedStatement pst = prepareStatement("""
+			PreparedStatement pst = prepareQuery(connection, """
 				SELECT *
 				FROM center
 				WHERE city = ?
@@ -627,6 +993,11 @@ public class ServerDatabaseImpl implements ServerDatabase {
 
 			throw new DatabaseRequestException(e.getMessage());
 		}
+
+		finally {
+
+			release(connection);
+		}
 	}
 
 	/**
@@ -640,9 +1011,16 @@ public class ServerDatabaseImpl implements ServerDatabase {
 	@Override
 	public Center getLatestCenter(int geoname_id) throws ConnectionLostException, DatabaseRequestException {
 
+		return cached(RequestType.GET_LATEST_CENTER, geoname_id, null, null, () -> queryLatestCenter(geoname_id));
+	}
+
+	private Center queryLatestCenter(int geoname_id) throws ConnectionLostException, DatabaseRequestException {
+
+		Connection connection = acquire();
+
 		try {
 
-			PreparedStatement pst = prepareStatement("""
+			PreparedStatement pst = prepareQuery(connection, """
 				SELECT C.*
 				FROM center C
 				JOIN parameter P
@@ -675,7 +1053,12 @@ public class ServerDatabaseImpl implements ServerDatabase {
 		catch (SQLException e) {
 
 			throw new DatabaseRequestException(e.getMessage());
-		} 
+		}
+
+		finally {
+
+			release(connection);
+		}
 	}
 
 	/**
@@ -688,9 +1071,11 @@ public class ServerDatabaseImpl implements ServerDatabase {
 	 */
 	public Center[] getAssociatedCenters(int geoname_id) throws ConnectionLostException, DatabaseRequestException {
 
+		Connection connection = acquire();
+
 		try {
 
-			PreparedStatement pst = prepareStatement("""
+			PreparedStatement pst = prepareQuery(connection, """
 				SELECT C.*
 				FROM monitors M
 				JOIN center C
@@ -701,7 +1086,7 @@ public class ServerDatabaseImpl implements ServerDatabase {
 			pst.setInt(1, geoname_id);
 			
 			ResultSet query = pst.executeQuery();
-			Center[] result = new Center[getRowCount(query)];
+			List<Center> result = new ArrayList<Center>();
 
 			while (query.next()) {
 
@@ -712,16 +1097,21 @@ public class ServerDatabaseImpl implements ServerDatabase {
 				int postalCode = query.getInt("postal_code");
 				String district = query.getString("district");
 
-				result[query.getRow() - 1] = new Center(centerID, centerStreet, houseNumber, postalCode, centerCity, district);
+				result.add(new Center(centerID, centerStreet, houseNumber, postalCode, centerCity, district));
 			}
 
-			return result;
+			return toArray(result, new Center[0]);
 		}
 
 		catch (SQLException e) {
 
 			throw new DatabaseRequestException(e.getMessage());
 		}
+
+		finally {
+
+			release(connection);
+		}
 	}
 
 	/**
@@ -734,9 +1124,11 @@ public class ServerDatabaseImpl implements ServerDatabase {
 	 */
 	public Operator getOperator(String user_id) throws ConnectionLostException, DatabaseRequestException {
 
+		Connection connection = acquire();
+
 		try {
 
-			PreparedStatement pst = prepareStatement("""
+			PreparedStatement pst = prepareQuery(connection, """
 				SELECT *
 				FROM operator
 				WHERE user_id = ?;
@@ -767,6 +1159,11 @@ public class ServerDatabaseImpl implements ServerDatabase {
 
 			throw new DatabaseRequestException(e.getMessage());
 		}
+
+		finally {
+
+			release(connection);
+		}
 	}
 
 	/**
@@ -779,9 +1176,11 @@ public class ServerDatabaseImpl implements ServerDatabase {
 	 */
 	public Operator getOperatorBySSID(String ssid) throws ConnectionLostException, DatabaseRequestException {
 
+		Connection connection = acquire();
+
 		try {
 
-			PreparedStatement pst = prepareStatement("""
+			PreparedStatement pst = prepareQuery(connection, """
 				SELECT *
 				FROM operator
 				WHERE ssid = ?;
@@ -812,6 +1211,11 @@ public class ServerDatabaseImpl implements ServerDatabase {
 
 			throw new DatabaseRequestException(e.getMessage());
 		}
+
+		finally {
+
+			release(connection);
+		}
 	}
 
 	/**
@@ -824,9 +1228,11 @@ public class ServerDatabaseImpl implements ServerDatabase {
 	 */
 	public Operator getOperatorByEmail(String email) throws ConnectionLostException, DatabaseRequestException {
 
+		Connection connection = acquire();
+
 		try {
 
-			PreparedStatement pst = prepareStatement("""
+			PreparedStatement pst = prepareQuery(connection, """
 				SELECT *
 				FROM operator
 				WHERE email = ?;
@@ -857,6 +1263,11 @@ public class ServerDatabaseImpl implements ServerDatabase {
 
 			throw new DatabaseRequestException(e.getMessage());
 		}
+
+		finally {
+
+			release(connection);
+		}
 	}
 
 	/**
@@ -871,11 +1282,18 @@ public class ServerDatabaseImpl implements ServerDatabase {
 	 * @throws DatabaseRequestException If the database fails to process the given request
 	 */
 	@Override
-	public synchronized Parameter[] getParameters(int geoname_id, String center_id, String category) throws ConnectionLostException, DatabaseRequestException {
+	public Parameter[] getParameters(int geoname_id, String center_id, String category) throws ConnectionLostException, DatabaseRequestException {
+
+		return cached(RequestType.GET_PARAMETERS, geoname_id, center_id, category, () -> queryParameters(geoname_id, center_id, category));
+	}
+
+	private Parameter[] queryParameters(int geoname_id, String center_id, String category) throws ConnectionLostException, DatabaseRequestException {
+
+		Connection connection = acquire();
 
 		try {
 
-			PreparedStatement pst = prepareStatement("""
+			PreparedStatement pst = prepareQuery(connection, """
 				SELECT *
 				FROM parameter
 				WHERE geoname_id = ?
@@ -888,7 +1306,7 @@ public class ServerDatabaseImpl implements ServerDatabase {
 			pst.setString(3, category);
 			
 			ResultSet query = pst.executeQuery();
-			Parameter[] result = new Parameter[getRowCount(query)];
+			List<Parameter> result = new ArrayList<Parameter>();
 
 			while (query.next()) {
 
@@ -900,16 +1318,21 @@ public class ServerDatabaseImpl implements ServerDatabase {
 				int score = query.getInt("score");
 				String notes = query.getString("notes");
 
-				result[query.getRow() - 1] = new Parameter(geonameID, centerID, userID, categoryID, timestamp.toLocalDateTime(), score, notes);
+				result.add(new Parameter(geonameID, centerID, userID, categoryID, timestamp.toLocalDateTime(), score, notes));
 			}
 
-			return result;
+			return toArray(result, new Parameter[0]);
 		}
 
 		catch (SQLException e) {
 
 			throw new DatabaseRequestException(e.getMessage());
 		}
+
+		finally {
+
+			release(connection);
+		}
 	}
 
 	/**
@@ -924,11 +1347,22 @@ public class ServerDatabaseImpl implements ServerDatabase {
 	 * @throws DatabaseRequestException If the database fails to process the given request
 	 */
 	@Override
-	public synchronized double getParametersAverage(int geoname_id, String center_id, String category) throws ConnectionLostException, DatabaseRequestException {
+	public double getParametersAverage(int geoname_id, String center_id, String category) throws ConnectionLostException, DatabaseRequestException {
+
+		// The aggregates do not have the recordings of the transaction in progress
+		if (m_parameterAggregates != null && m_transaction == null)
+			return m_parameterAggregates.getAverage(geoname_id, center_id, category);
+
+		return cached(RequestType.GET_PARAMETERS_AVERAGE, geoname_id, center_id, category, () -> queryParametersAverage(geoname_id, center_id, category));
+	}
+
+	private double queryParametersAverage(int geoname_id, String center_id, String category) throws ConnectionLostException, DatabaseRequestException {
+
+		Connection connection = acquire();
 
 		try {
 
-			PreparedStatement pst = prepareStatement("""
+			PreparedStatement pst = prepareQuery(connection, """
 				SELECT AVG(score)
 				FROM parameter
 				WHERE geoname_id = ?
@@ -953,94 +1387,595 @@ public class ServerDatabaseImpl implements ServerDatabase {
 
 			throw new DatabaseRequestException(e.getMessage());
 		}
+
+		finally {
+
+			release(connection);
+		}
 	}
 
 	/**
-	 * Get all the categories and their explanation
+	 * Returns the statistics of the recordings of the specified center about a category of an area.
+	 * They are read from the in-memory aggregates, or computed by the database when
+	 * the aggregates are not available or a transaction is in progress
 	 * 
-	 * @return An array of all categories with relative descriptions
+	 * @param geoname_id The area's ID
+	 * @param center_id The center's ID
+	 * @param category The parameter's category
+	 * @return The count, the sum, the lowest, the highest and the latest score and the score histogram
 	 * @throws ConnectionLostException If the server loses connection to the database during the operation
 	 * @throws DatabaseRequestException If the database fails to process the given request
 	 */
 	@Override
-	public synchronized Category[] getCategories() throws ConnectionLostException, DatabaseRequestException {
-
-		try {
+	public ParameterStats getParameterStats(int geoname_id, String center_id, String category) throws ConnectionLostException, DatabaseRequestException {
 
-			PreparedStatement pst = prepareStatement("""
-				SELECT *
-				FROM category;
-			""");
-			
-			ResultSet query = pst.executeQuery();
-			Category[] result = new Category[getRowCount(query)];
-		
-			while (query.next()) {
+		if (m_parameterAggregates != null && m_transaction == null)
+			return m_parameterAggregates.get(geoname_id, center_id, category);
 
-				String categoryID = query.getString("category_id");
-				String explanation = query.getString("explanation");
+		Connection connection = acquire();
 
-				result[query.getRow() - 1] = new Category(categoryID, explanation);
-			}
+		try {
 
-			return result;
+			return ParameterAggregates.query(connection, geoname_id, center_id, category);
 		}
 
 		catch (SQLException e) {
 
 			throw new DatabaseRequestException(e.getMessage());
 		}
+
+		finally {
+
+			release(connection);
+		}
 	}
 
 	/**
-	 * To get the category with the most recent recording about the specified area in the specified center
+	 * Returns the recordings of a specified area by the desired center about a specific category,
+	 * from the oldest, recorded within a time range
 	 * 
 	 * @param geoname_id The area's ID
 	 * @param center_id The center's ID
-	 * @return The latest category of the given center for the given area
-	 * @throws ConnectionLostException If the client loses connection during the operation
+	 * @param category The parameter's category
+	 * @param from The beginning of the range, included (null for no beginning)
+	 * @param to The end of the range, excluded (null for no end)
+	 * @return The result of the search as an array of parameters
+	 * @throws ConnectionLostException If the server loses connection to the database during the operation
 	 * @throws DatabaseRequestException If the database fails to process the given request
 	 */
 	@Override
-	public Category getLatestCategory(int geoname_id, String center_id) throws ConnectionLostException, DatabaseRequestException {
+	public Parameter[] getParametersInRange(int geoname_id, String center_id, String category, LocalDateTime from, LocalDateTime to) throws ConnectionLostException, DatabaseRequestException {
+
+		Connection connection = acquire();
 
 		try {
 
-			PreparedStatement pst = prepareStatement("""
+			PreparedStatement pst = prepareQuery(connection, """
 				SELECT *
-				FROM parameter P
-				JOIN category C
-				ON C.category_id = P.category_id
-				WHERE P.geoname_id = ?
-				AND LOWER(P.center_id) = LOWER(?)
-				ORDER BY P.rec_timestamp DESC
-				LIMIT 1;
-			""");
+				FROM parameter
+				WHERE geoname_id = ?
+				AND LOWER(center_id) = LOWER(?)
+				AND LOWER(category_id) = LOWER(?)
+			""" + (from != null ? "AND rec_timestamp >= ?\n" : "") + (to != null ? "AND rec_timestamp < ?\n" : "") + "ORDER BY rec_timestamp;");
+
+			int index = 1;
+			pst.setInt(index++, geoname_id);
+			pst.setString(index++, center_id);
+			pst.setString(index++, category);
+
+			if (from != null)
+				pst.setTimestamp(index++, Timestamp.valueOf(from));
+
+			if (to != null)
+				pst.setTimestamp(index++, Timestamp.valueOf(to));
 
-			pst.setInt(1, geoname_id);
-			pst.setString(2, center_id);
-			
 			ResultSet query = pst.executeQuery();
-			Category result = null;
-		
-			if (query.next()) {
+			List<Parameter> result = new ArrayList<Parameter>();
+
+			while (query.next()) {
 
+				int geonameID = query.getInt("geoname_id");
+				String centerID = query.getString("center_id");
+				Timestamp timestamp = query.getTimestamp("rec_timestamp");
 				String categoryID = query.getString("category_id");
-				String explanation = query.getString("explanation");
+				String userID = query.getString("user_id");
+				int score = query.getInt("score");
+				String notes = query.getString("notes");
 
-				result = new Category(categoryID, explanation);
+				result.add(new Parameter(geonameID, centerID, userID, categoryID, timestamp.toLocalDateTime(), score, notes));
 			}
 
-			return result;
+			return toArray(result, new Parameter[0]);
 		}
 
 		catch (SQLException e) {
 
 			throw new DatabaseRequestException(e.getMessage());
 		}
-	}
 
-	/**
+		finally {
+
+			release(connection);
+		}
+	}
+
+	/**
+	 * Returns the summaries (count, average, lowest and highest score) of the recordings
+	 * of a specified area by the desired center, one for every hour, day or month with
+	 * recordings, ordered by category and by time. They are read from the in-memory
+	 * aggregates, or grouped by the database when the aggregates are not available
+	 * or a transaction is in progress
+	 * 
+	 * @param geoname_id The area's ID
+	 * @param center_id The center's ID
+	 * @param category The parameter's category, or null for every category
+	 * @param size The size of the buckets: ParameterBucket.HOUR, DAY or MONTH
+	 * @param from The beginning of the range, its bucket included (null for no beginning)
+	 * @param to The end of the range, excluded (null for no end)
+	 * @return The buckets
+	 * @throws ConnectionLostException If the server loses connection to the database during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request, or the size is not valid
+	 */
+	@Override
+	public ParameterBucket[] getParameterTrend(int geoname_id, String center_id, String category, String size, LocalDateTime from, LocalDateTime to) throws ConnectionLostException, DatabaseRequestException {
+
+		if (!ParameterBucket.HOUR.equals(size) && !ParameterBucket.DAY.equals(size) && !ParameterBucket.MONTH.equals(size))
+			throw new DatabaseRequestException("Invalid bucket size: " + size);
+
+		if (m_parameterAggregates != null && m_transaction == null)
+			return toArray(m_parameterAggregates.getTrend(geoname_id, center_id, category, size, from, to, m_maxRows), new ParameterBucket[0]);
+
+		Connection connection = acquire();
+
+		try {
+
+			// The size is one of the three constants, date_trunc takes it as a parameter
+			PreparedStatement pst = prepareQuery(connection, """
+				SELECT LOWER(category_id) AS category_id, date_trunc(?, rec_timestamp) AS bucket,
+				COUNT(*) AS recordings, SUM(score) AS total, MIN(score) AS lowest, MAX(score) AS highest
+				FROM parameter
+				WHERE geoname_id = ?
+				AND LOWER(center_id) = LOWER(?)
+			""" + (category != null ? "AND LOWER(category_id) = LOWER(?)\n" : "")
+				+ (from != null ? "AND rec_timestamp >= date_trunc(?, ?::timestamp)\n" : "")
+				+ (to != null ? "AND date_trunc(?, rec_timestamp) < ?\n" : "")
+				+ "GROUP BY 1, 2 ORDER BY 1, 2;");
+
+			int index = 1;
+			pst.setString(index++, size);
+			pst.setInt(index++, geoname_id);
+			pst.setString(index++, center_id);
+
+			if (category != null)
+				pst.setString(index++, category);
+
+			if (from != null) {
+
+				pst.setString(index++, size);
+				pst.setTimestamp(index++, Timestamp.valueOf(from));
+			}
+
+			if (to != null) {
+
+				pst.setString(index++, size);
+				pst.setTimestamp(index++, Timestamp.valueOf(to));
+			}
+
+			ResultSet query = pst.executeQuery();
+			List<ParameterBucket> result = new ArrayList<ParameterBucket>();
+
+			while (query.next()) {
+
+				String categoryID = query.getString("category_id");
+				Timestamp bucket = query.getTimestamp("bucket");
+				int count = query.getInt("recordings");
+				long sum = query.getLong("total");
+				int min = query.getInt("lowest");
+				int max = query.getInt("highest");
+
+				result.add(new ParameterBucket(categoryID, bucket.toLocalDateTime(), count, sum, min, max));
+			}
+
+			return toArray(result, new ParameterBucket[0]);
+		}
+
+		catch (SQLException e) {
+
+			throw new DatabaseRequestException(e.getMessage());
+		}
+
+		finally {
+
+			release(connection);
+		}
+	}
+
+	/**
+	 * Returns everything needed to show the parameters of an area.
+	 * The three queries (centers, categories and recordings) run within a single
+	 * repeatable read transaction, so they all see the same snapshot
+	 * 
+	 * @param geoname_id The area's ID
+	 * @param center_id The center's ID, or null for the center with the most recent recording
+	 * @param category The parameter's category, or null for the category with the most recent recording
+	 * @return The area dashboard
+	 * @throws ConnectionLostException If the server loses connection to the database during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request, or the center or the category are not valid
+	 */
+	@Override
+	public AreaDashboard getAreaDashboard(int geoname_id, String center_id, String category) throws ConnectionLostException, DatabaseRequestException {
+
+		return cached(RequestType.GET_AREA_DASHBOARD, geoname_id, center_id, category, () -> queryAreaDashboard(geoname_id, center_id, category));
+	}
+
+	private AreaDashboard queryAreaDashboard(int geoname_id, String center_id, String category) throws ConnectionLostException, DatabaseRequestException {
+
+		Connection connection = acquire();
+		boolean transaction = false;
+		int isolation = Connection.TRANSACTION_READ_COMMITTED;
+
+		try {
+
+			// A transaction started by the client already covers the whole request
+			if (connection.getAutoCommit()) {
+
+				isolation = connection.getTransactionIsolation();
+				connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+				connection.setAutoCommit(false);
+				transaction = true;
+			}
+
+			// Centers
+			PreparedStatement pst = prepareQuery(connection, """
+				SELECT C.*, (
+					SELECT MAX(P.rec_timestamp)
+					FROM parameter P
+					WHERE P.geoname_id = M.geoname_id
+					AND P.center_id = C.center_id
+				) AS latest_timestamp
+				FROM monitors M
+				JOIN center C
+				ON M.center_id = C.center_id
+				WHERE M.geoname_id = ?;
+			""");
+
+			pst.setInt(1, geoname_id);
+
+			ResultSet query = pst.executeQuery();
+			List<Center> centers = new ArrayList<Center>();
+			Center latestCenter = null;
+			Center selectedCenter = null;
+			Timestamp latestTimestamp = null;
+
+			while (query.next()) {
+
+				String centerID = query.getString("center_id");
+				int centerCity = query.getInt("city");
+				String centerStreet = query.getString("street");
+				int houseNumber = query.getInt("house_number");
+				int postalCode = query.getInt("postal_code");
+				String district = query.getString("district");
+				Timestamp timestamp = query.getTimestamp("latest_timestamp");
+
+				Center center = new Center(centerID, centerStreet, houseNumber, postalCode, centerCity, district);
+				centers.add(center);
+
+				if (timestamp != null && (latestTimestamp == null || timestamp.after(latestTimestamp))) {
+
+					latestTimestamp = timestamp;
+					latestCenter = center;
+				}
+
+				if (center_id != null && centerID.equalsIgnoreCase(center_id))
+					selectedCenter = center;
+			}
+
+			query.close();
+
+			if (centers.isEmpty())
+				return new AreaDashboard(new Center[0], null, null, new Category[0], null, null, new Parameter[0], 0.0);
+
+			if (center_id != null && selectedCenter == null)
+				throw new DatabaseRequestException("The center " + center_id + " does not monitor the area " + geoname_id);
+
+			if (selectedCenter == null)
+				selectedCenter = latestCenter != null ? latestCenter : centers.get(0);
+
+			// Categories
+			pst = prepareQuery(connection, """
+				SELECT C.*, (
+					SELECT MAX(P.rec_timestamp)
+					FROM parameter P
+					WHERE P.geoname_id = ?
+					AND P.center_id = ?
+					AND P.category_id = C.category_id
+				) AS latest_timestamp
+				FROM category C;
+			""");
+
+			pst.setInt(1, geoname_id);
+			pst.setString(2, selectedCenter.getCenterID());
+
+			query = pst.executeQuery();
+			List<Category> categories = new ArrayList<Category>();
+			Category latestCategory = null;
+			Category selectedCategory = null;
+			latestTimestamp = null;
+
+			while (query.next()) {
+
+				String categoryID = query.getString("category_id");
+				String explanation = query.getString("explanation");
+				Timestamp timestamp = query.getTimestamp("latest_timestamp");
+
+				Category current = new Category(categoryID, explanation);
+				categories.add(current);
+
+				if (timestamp != null && (latestTimestamp == null || timestamp.after(latestTimestamp))) {
+
+					latestTimestamp = timestamp;
+					latestCategory = current;
+				}
+
+				if (category != null && categoryID.equalsIgnoreCase(category))
+					selectedCategory = current;
+			}
+
+			query.close();
+
+			if (category != null && selectedCategory == null)
+				throw new DatabaseRequestException("The category " + category + " does not exist");
+
+			if (selectedCategory == null && !categories.isEmpty())
+				selectedCategory = latestCategory != null ? latestCategory : categories.get(0);
+
+			// Recordings
+			List<Parameter> parameters = new ArrayList<Parameter>();
+			double average = 0.0;
+
+			if (selectedCategory != null) {
+
+				pst = prepareQuery(connection, """
+					SELECT *
+					FROM parameter
+					WHERE geoname_id = ?
+					AND center_id = ?
+					AND category_id = ?
+					ORDER BY rec_timestamp;
+				""");
+
+				pst.setInt(1, geoname_id);
+				pst.setString(2, selectedCenter.getCenterID());
+				pst.setString(3, selectedCategory.getCategory());
+
+				query = pst.executeQuery();
+
+				while (query.next()) {
+
+					int geonameID = query.getInt("geoname_id");
+					String centerID = query.getString("center_id");
+					Timestamp timestamp = query.getTimestamp("rec_timestamp");
+					String categoryID = query.getString("category_id");
+					String userID = query.getString("user_id");
+					int score = query.getInt("score");
+					String notes = query.getString("notes");
+
+					parameters.add(new Parameter(geonameID, centerID, userID, categoryID, timestamp.toLocalDateTime(), score, notes));
+				}
+
+				query.close();
+
+				// The recordings are capped at the maximum number of rows, the average covers all of them
+				pst = prepareQuery(connection, """
+					SELECT AVG(score)
+					FROM parameter
+					WHERE geoname_id = ?
+					AND LOWER(center_id) = LOWER(?)
+					AND LOWER(category_id) = LOWER(?);
+				""");
+
+				pst.setInt(1, geoname_id);
+				pst.setString(2, selectedCenter.getCenterID());
+				pst.setString(3, selectedCategory.getCategory());
+
+				query = pst.executeQuery();
+
+				if (query.next())
+					average = query.getDouble("avg");
+
+				query.close();
+			}
+
+			if (transaction)
+				connection.commit();
+
+			return new AreaDashboard(centers.toArray(new Center[0]), latestCenter, selectedCenter, categories.toArray(new Category[0]), latestCategory, selectedCategory, toArray(parameters, new Parameter[0]), average);
+		}
+
+		catch (SQLException e) {
+
+			throw new DatabaseRequestException(e.getMessage());
+		}
+
+		finally {
+
+			if (transaction) {
+
+				try {
+
+					connection.rollback();
+					connection.setAutoCommit(true);
+					connection.setTransactionIsolation(isolation);
+				}
+
+				catch (SQLException e) {
+
+					Console.error("Failed to restore the connection state: " + e.getMessage());
+				}
+			}
+
+			release(connection);
+		}
+	}
+
+	/**
+	 * Checks the user id, the email and the SSID of an operator with one query,
+	 * instead of the three round trips of getOperator, getOperatorByEmail and getOperatorBySSID
+	 * 
+	 * @param user_id The operator's user id
+	 * @param email The operator's email
+	 * @param ssid The operator's SSID
+	 * @return The user ids of the operators that already use the user id, the email and the SSID, in this order (null where the value is free)
+	 * @throws ConnectionLostException If the server loses connection to the database during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request
+	 */
+	@Override
+	public String[] validateRegistration(String user_id, String email, String ssid) throws ConnectionLostException, DatabaseRequestException {
+
+		Connection connection = acquire();
+
+		try {
+
+			PreparedStatement pst = prepareQuery(connection, """
+				SELECT
+					(SELECT user_id FROM operator WHERE user_id = ? LIMIT 1) AS user_id_owner,
+					(SELECT user_id FROM operator WHERE email = ? LIMIT 1) AS email_owner,
+					(SELECT user_id FROM operator WHERE ssid = ? LIMIT 1) AS ssid_owner;
+			""");
+
+			pst.setString(1, user_id);
+			pst.setString(2, email);
+			pst.setString(3, ssid);
+
+			ResultSet query = pst.executeQuery();
+			String[] result = new String[3];
+
+			if (query.next()) {
+
+				result[0] = query.getString("user_id_owner");
+				result[1] = query.getString("email_owner");
+				result[2] = query.getString("ssid_owner");
+			}
+
+			return result;
+		}
+
+		catch (SQLException e) {
+
+			throw new DatabaseRequestException(e.getMessage());
+		}
+
+		finally {
+
+			release(connection);
+		}
+	}
+
+	/**
+	 * Get all the categories and their explanation
+	 * 
+	 * @return An array of all categories with relative descriptions
+	 * @throws ConnectionLostException If the server loses connection to the database during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request
+	 */
+	@Override
+	public Category[] getCategories() throws ConnectionLostException, DatabaseRequestException {
+
+		Connection connection = acquire();
+
+		try {
+
+			PreparedStatement pst = prepareQuery(connection, """
+				SELECT *
+				FROM category;
+			""");
+			
+			ResultSet query = pst.executeQuery();
+			List<Category> result = new ArrayList<Category>();
+		
+			while (query.next()) {
+
+				String categoryID = query.getString("category_id");
+				String explanation = query.getString("explanation");
+
+				result.add(new Category(categoryID, explanation));
+			}
+
+			return toArray(result, new Category[0]);
+		}
+
+		catch (SQLException e) {
+
+			throw new DatabaseRequestException(e.getMessage());
+		}
+
+		finally {
+
+			release(connection);
+		}
+	}
+
+	/**
+	 * To get the category with the most recent recording about the specified area in the specified center
+	 * 
+	 * @param geoname_id The area's ID
+	 * @param center_id The center's ID
+	 * @return The latest category of the given center for the given area
+	 * @throws ConnectionLostException If the client loses connection during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request
+	 */
+	@Override
+	public Category getLatestCategory(int geoname_id, String center_id) throws ConnectionLostException, DatabaseRequestException {
+
+		return cached(RequestType.GET_LATEST_CATEGORY, geoname_id, center_id, null, () -> queryLatestCategory(geoname_id, center_id));
+	}
+
+	private Category queryLatestCategory(int geoname_id, String center_id) throws ConnectionLostException, DatabaseRequestException {
+
+		Connection connection = acquire();
+
+		try {
+
+			PreparedStatement pst = prepareQuery(connection, """
+				SELECT *
+				FROM parameter P
+				JOIN category C
+				ON C.category_id = P.category_id
+				WHERE P.geoname_id = ?
+				AND LOWER(P.center_id) = LOWER(?)
+				ORDER BY P.rec_timestamp DESC
+				LIMIT 1;
+			""");
+
+			pst.setInt(1, geoname_id);
+			pst.setString(2, center_id);
+			
+			ResultSet query = pst.executeQuery();
+			Category result = null;
+		
+			if (query.next()) {
+
+				String categoryID = query.getString("category_id");
+				String explanation = query.getString("explanation");
+
+				result = new Category(categoryID, explanation);
+			}
+
+			return result;
+		}
+
+		catch (SQLException e) {
+
+			throw new DatabaseRequestException(e.getMessage());
+		}
+
+		finally {
+
+			release(connection);
+		}
+	}
+
+	/**
 	 * Adds an area to the database
 	 * 
 	 * @param area The area that needs to be added to the database
@@ -1049,7 +1984,9 @@ public class ServerDatabaseImpl implements ServerDatabase {
 	 * @throws DatabaseRequestException If the database fails to process the given request
 	 */
 	@Override
-	public synchronized boolean addArea(Area area) throws ConnectionLostException, DatabaseRequestException {
+	public boolean addArea(Area area) throws ConnectionLostException, DatabaseRequestException {
+
+		Connection connection = acquire();
 
 		try {
 
@@ -1061,7 +1998,7 @@ public class ServerDatabaseImpl implements ServerDatabase {
 			double latitude = area.getLatitude();
 			double longitude = area.getLongitude();
 
-			PreparedStatement pst = prepareStatement("""
+			PreparedStatement pst = prepareStatement(connection, """
 				INSERT INTO area (geoname_id, area_name, area_ascii_name, country_code, country_name, latitude, longitude)
 				VALUES (?, ?, ?, ?, ?, ?, ?);
 			""");
@@ -1075,6 +2012,10 @@ public class ServerDatabaseImpl implements ServerDatabase {
 			pst.setDouble(7, longitude);
 
 			pst.executeUpdate();
+
+			afterCommit(connection, () -> index(area));
+
+			changed(connection, Protocol.AREAS_STAMP);
 			return true;
 		}
 
@@ -1082,6 +2023,11 @@ public class ServerDatabaseImpl implements ServerDatabase {
 
 			throw new DatabaseRequestException(e.getMessage());
 		}
+
+		finally {
+
+			release(connection);
+		}
 	}
 
 	/**
@@ -1093,7 +2039,9 @@ public class ServerDatabaseImpl implements ServerDatabase {
 	 * @throws DatabaseRequestException If the database fails to process the given request
 	 */
 	@Override
-	public synchronized boolean addCenter(Center center) throws ConnectionLostException, DatabaseRequestException {
+	public boolean addCenter(Center center) throws ConnectionLostException, DatabaseRequestException {
+
+		Connection connection = acquire();
 
 		try {
 
@@ -1106,7 +2054,7 @@ public class ServerDatabaseImpl implements ServerDatabase {
 
 			PreparedStatement pst = null;
 
-			pst = prepareStatement("""
+			pst = prepareStatement(connection, """
 				INSERT INTO center (center_id, city, street, house_number, postal_code, district)
 				VALUES (LOWER(?), ?, LOWER(?), ?, ?, ?);
 			""");
@@ -1120,7 +2068,7 @@ public class ServerDatabaseImpl implements ServerDatabase {
 
 			pst.executeUpdate();
 
-			pst = prepareStatement("""
+			pst = prepareStatement(connection, """
 				INSERT INTO monitors (center_id, geoname_id)
 				VALUES (LOWER(?), ?);
 			""");
@@ -1129,6 +2077,10 @@ public class ServerDatabaseImpl implements ServerDatabase {
 			pst.setInt(2, city);
 
 			pst.executeUpdate();
+
+			changed(connection, Protocol.CENTERS_STAMP);
+			changed(connection, Protocol.MONITORS_STAMP);
+			invalidate(connection, () -> m_resultCache.invalidate(RequestType.GET_AREA_DASHBOARD, city));
 			return true;
 		}
 
@@ -1136,6 +2088,11 @@ public class ServerDatabaseImpl implements ServerDatabase {
 
 			throw new DatabaseRequestException(e.getMessage());
 		}
+
+		finally {
+
+			release(connection);
+		}
 	}
 
 	/**
@@ -1147,7 +2104,9 @@ public class ServerDatabaseImpl implements ServerDatabase {
 	 * @throws DatabaseRequestException If the database fails to process the given request
 	 */
 	@Override
-	public synchronized boolean addOperator(Operator operator) throws ConnectionLostException, DatabaseRequestException {
+	public boolean addOperator(Operator operator) throws ConnectionLostException, DatabaseRequestException {
+
+		Connection connection = acquire();
 
 		try {
 
@@ -1159,7 +2118,7 @@ public class ServerDatabaseImpl implements ServerDatabase {
 			String password = hashPassword(operator.getPassword());
 			String centerID = operator.getCenterID();
 
-			PreparedStatement pst = prepareStatement("""
+			PreparedStatement pst = prepareStatement(connection, """
 				INSERT INTO operator (user_id, ssid, operator_surname, operator_name, email, password, center_id)
 				VALUES (?, ?, ?, ?, ?, ?, LOWER(?));
 			""");
@@ -1180,6 +2139,11 @@ public class ServerDatabaseImpl implements ServerDatabase {
 
 			throw new DatabaseRequestException(e.getMessage());
 		}
+
+		finally {
+
+			release(connection);
+		}
 	}
 
 	/**
@@ -1191,7 +2155,9 @@ public class ServerDatabaseImpl implements ServerDatabase {
 	 * @throws DatabaseRequestException If the database fails to process the given request
 	 */
 	@Override
-	public synchronized boolean addParameter(Parameter parameter) throws ConnectionLostException, DatabaseRequestException {
+	public boolean addParameter(Parameter parameter) throws ConnectionLostException, DatabaseRequestException {
+
+		Connection connection = acquire();
 
 		try {
 
@@ -1203,27 +2169,145 @@ public class ServerDatabaseImpl implements ServerDatabase {
 			int score = parameter.getScore();
 			String notes = parameter.getNotes();
 
-			PreparedStatement pst = prepareStatement("""
-				INSERT INTO parameter (geoname_id, center_id, rec_timestamp, category_id, user_id, score, notes)
-				VALUES (?, LOWER(?), ?, ?, ?, ?, ?);
-			""");
+			PreparedStatement pst = prepareStatement(connection, """
+				INSERT INTO parameter (geoname_id, center_id, rec_timestamp, category_id, user_id, score, notes)
+				VALUES (?, LOWER(?), ?, ?, ?, ?, ?);
+			""");
+
+			pst.setInt(1, geonameID);
+			pst.setString(2, centerID);
+			pst.setTimestamp(3, timestamp);
+			pst.setString(4, categoryID);
+			pst.setString(5, userID);
+			pst.setInt(6, score);
+			pst.setString(7, notes);
+
+			pst.executeUpdate();
+
+			added(connection, parameter);
+			return true;
+		}
+
+		catch (SQLException e) {
+
+			throw new DatabaseRequestException(e.getMessage());
+		}
+
+		finally {
+
+			release(connection);
+		}
+	}
+
+	/**
+	 * Adds many parameters with a single transaction. Every parameter is checked first
+	 * (its fields, its category and whether its center monitors its area, with one query
+	 * for the whole batch), then the valid ones are inserted with JDBC batches.
+	 * If the database rejects a batch, the parameters are inserted again one at a time,
+	 * each within its own savepoint, to find out which ones failed
+	 * 
+	 * @param parameters The parameters that need to be added to the database
+	 * @return The error message of every parameter, in the same order (null where the parameter was added)
+	 * @throws ConnectionLostException If the server loses connection to the database during the operation
+	 * @throws DatabaseRequestException If the database fails to process the given request
+	 */
+	@Override
+	public String[] addParameters(Parameter[] parameters) throws ConnectionLostException, DatabaseRequestException {
+
+		String[] errors = new String[parameters.length];
+		boolean valid = false;
+
+		for (int i = 0; i < parameters.length; i++) {
+
+			errors[i] = checkParameter(parameters[i]);
+			valid |= errors[i] == null;
+		}
+
+		if (!valid)
+			return errors;
+
+		Connection connection = acquire();
+
+		try {
+
+			checkReferences(connection, parameters, errors);
+
+			// A transaction started by the client already covers the whole request
+			if (connection.getAutoCommit())
+				connection.setAutoCommit(false);
+
+			Savepoint savepoint = connection.setSavepoint();
+			PreparedStatement pst = prepareStatement(connection, """
+				INSERT INTO parameter (geoname_id, center_id, rec_timestamp, category_id, user_id, score, notes)
+				VALUES (?, LOWER(?), ?, ?, ?, ?, ?);
+			""");
+
+			try {
+
+				int batched = 0;
+
+				for (int i = 0; i < parameters.length; i++) {
+
+					if (errors[i] != null)
+						continue;
+
+					setParameter(pst, parameters[i]);
+					pst.addBatch();
+
+					if (++batched % BATCH_SIZE == 0)
+						pst.executeBatch();
+				}
+
+				pst.executeBatch();
+			}
+
+			catch (BatchUpdateException e) {
+
+				// The batch does not tell which row failed on every driver
+				connection.rollback(savepoint);
+				pst.clearBatch();
+
+				for (int i = 0; i < parameters.length; i++) {
+
+					if (errors[i] != null)
+						continue;
+
+					Savepoint row = connection.setSavepoint();
+
+					try {
+
+						setParameter(pst, parameters[i]);
+						pst.executeUpdate();
+						connection.releaseSavepoint(row);
+					}
 
-			pst.setInt(1, geonameID);
-			pst.setString(2, centerID);
-			pst.setTimestamp(3, timestamp);
-			pst.setString(4, categoryID);
-			pst.setString(5, userID);
-			pst.setInt(6, score);
-			pst.setString(7, notes);
+					catch (SQLException ex) {
 
-			pst.executeUpdate();
-			return true;
+						connection.rollback(row);
+						errors[i] = ex.getMessage();
+					}
+				}
+			}
+
+			if (!inTransaction(connection))
+				connection.commit();
+
+			for (int i = 0; i < parameters.length; i++)
+				if (errors[i] == null)
+					added(connection, parameters[i]);
+
+			return errors;
 		}
 
 		catch (SQLException e) {
 
 			throw new DatabaseRequestException(e.getMessage());
 		}
+
+		finally {
+
+			release(connection);
+		}
 	}
 
 	/**
@@ -1236,9 +2320,11 @@ public class ServerDatabaseImpl implements ServerDatabase {
 	 * @throws DatabaseRequestException If the database fails to process the given request
 	 */
 	@Override
-	public synchronized boolean editOperator(String user_id, Operator operator)
+	public boolean editOperator(String user_id, Operator operator)
 			throws ConnectionLostException, DatabaseRequestException {
 
+		Connection connection = acquire();
+
 		try {
 
 			String SSID = new String(operator.getSSID());
@@ -1248,7 +2334,7 @@ public class ServerDatabaseImpl implements ServerDatabase {
 			String password = hashPassword(operator.getPassword());
 			String centerID = operator.getCenterID();
 
-			PreparedStatement pst = prepareStatement("""
+			PreparedStatement pst = prepareStatement(connection, """
 				UPDATE operator
 				SET ssid = ?,
 				operator_surname = ?,
@@ -1275,6 +2361,11 @@ public class ServerDatabaseImpl implements ServerDatabase {
 
 			throw new DatabaseRequestException(e.getMessage());
 		}
+
+		finally {
+
+			release(connection);
+		}
 	}
 
 	/**
@@ -1288,9 +2379,11 @@ public class ServerDatabaseImpl implements ServerDatabase {
 	 */
 	public boolean includeAreaToCenter(int geoname_id, String center_id) throws ConnectionLostException, DatabaseRequestException {
 
+		Connection connection = acquire();
+
 		try {
 
-			PreparedStatement pst = prepareStatement("""
+			PreparedStatement pst = prepareStatement(connection, """
 				INSERT INTO monitors (center_id, geoname_id)
 				VALUES (LOWER(?), ?);
 			""");
@@ -1299,6 +2392,9 @@ public class ServerDatabaseImpl implements ServerDatabase {
 			pst.setInt(2, geoname_id);
 
 			pst.executeUpdate();
+
+			changed(connection, Protocol.MONITORS_STAMP);
+			invalidate(connection, () -> m_resultCache.invalidate(RequestType.GET_AREA_DASHBOARD, geoname_id));
 			return true;
 		}
 
@@ -1306,6 +2402,11 @@ public class ServerDatabaseImpl implements ServerDatabase {
 
 			throw new DatabaseRequestException(e.getMessage());
 		}
+
+		finally {
+
+			release(connection);
+		}
 	}
 
 	/**
@@ -1319,9 +2420,11 @@ public class ServerDatabaseImpl implements ServerDatabase {
 	 */
 	public boolean monitors(String center_id, int geoname_id) throws ConnectionLostException, DatabaseRequestException {
 
+		Connection connection = acquire();
+
 		try {
 
-			PreparedStatement pst = prepareStatement("""
+			PreparedStatement pst = prepareQuery(connection, """
 				SELECT *
 				FROM monitors
 				WHERE LOWER(center_id) = LOWER(?)
@@ -1333,7 +2436,7 @@ public class ServerDatabaseImpl implements ServerDatabase {
 
 			ResultSet query = pst.executeQuery();
 
-			if (getRowCount(query) == 1) return true;
+			if (query.next()) return true;
 			else return false;
 		}
 
@@ -1341,6 +2444,11 @@ public class ServerDatabaseImpl implements ServerDatabase {
 
 			throw new DatabaseRequestException(e.getMessage());
 		}
+
+		finally {
+
+			release(connection);
+		}
 	}
 
 	/**
@@ -1354,9 +2462,11 @@ public class ServerDatabaseImpl implements ServerDatabase {
 	 */
 	public boolean employs(String center_id, String user_id) throws ConnectionLostException, DatabaseRequestException {
 
+		Connection connection = acquire();
+
 		try {
 
-			PreparedStatement pst = prepareStatement("""
+			PreparedStatement pst = prepareQuery(connection, """
 				SELECT *
 				FROM center C
 				JOIN operator O
@@ -1370,7 +2480,7 @@ public class ServerDatabaseImpl implements ServerDatabase {
 
 			ResultSet query = pst.executeQuery();
 
-			if (getRowCount(query) == 1) return true;
+			if (query.next()) return true;
 			else return false;
 		}
 
@@ -1378,6 +2488,11 @@ public class ServerDatabaseImpl implements ServerDatabase {
 
 			throw new DatabaseRequestException(e.getMessage());
 		}
+
+		finally {
+
+			release(connection);
+		}
 	}
 
 	/**
@@ -1391,12 +2506,14 @@ public class ServerDatabaseImpl implements ServerDatabase {
 	 * @throws DatabaseRequestException If the database fails to process the given request
 	 */
 	@Override
-	public synchronized Operator validateCredentials(String user_id, String password)
+	public Operator validateCredentials(String user_id, String password)
 			throws ConnectionLostException, DatabaseRequestException {
 
+		Connection connection = acquire();
+
 		try {
 
-			PreparedStatement pst = prepareStatement("""
+			PreparedStatement pst = prepareQuery(connection, """
 				SELECT *
 				FROM operator
 				WHERE user_id = ?
@@ -1428,24 +2545,474 @@ public class ServerDatabaseImpl implements ServerDatabase {
 
 			throw new DatabaseRequestException(e.getMessage());
 		}
+
+		finally {
+
+			release(connection);
+		}
+	}
+
+	/**
+	 * Prepares a statement through the statement cache of the connection, the
+	 * statement must not be closed. Its rows are not capped or fetched in batches
+	 */
+	private PreparedStatement prepareStatement(Connection connection, String statement) throws SQLException {
+
+		PreparedStatement pst = m_pool.prepare(connection, statement);
+		pst.setFetchSize(0);
+		pst.setMaxRows(0);
+
+		return pst;
+	}
+
+	/**
+	 * Reads a page of the areas whose column contains the input string, with the
+	 * same order as the unpaged search. The matches are ranked in a subquery so
+	 * that the keyset comparison works on the very same values used to sort them
+	 */
+	private Page<Area> searchAreasPage(String kind, String column, String str, int page_size, String cursor) throws DatabaseRequestException {
+
+		int lastRank = -1;
+		int lastPosition = -1;
+		String lastValue = "";
+		int lastGeonameID = -1;
+
+		if (cursor != null) {
+
+			String[] key = Cursor.decode(cursor, kind, str, 4);
+			lastRank = Cursor.parseInt(key[0]);
+			lastPosition = Cursor.parseInt(key[1]);
+			lastValue = key[2];
+			lastGeonameID = Cursor.parseInt(key[3]);
+		}
+
+		int size = pageSize(page_size);
+		Connection connection = acquire();
+
+		try {
+
+			// The column is one of our own constants, never an input of the client
+			PreparedStatement pst = prepareQuery(connection, """
+				SELECT *
+				FROM (
+					SELECT *,
+					CASE
+					WHEN LOWER(%1$s) LIKE ? THEN 0
+					ELSE 1
+					END AS match_rank,
+					POSITION(? IN LOWER(%1$s)) AS match_position
+					FROM area
+					WHERE LOWER(%1$s)
+					LIKE ?
+				) AS matches
+				WHERE (match_rank, match_position, %1$s, geoname_id) > (?, ?, ?, ?)
+				ORDER BY match_rank, match_position, %1$s, geoname_id
+				LIMIT ?;
+			""".formatted(column));
+
+			pst.setMaxRows(0);
+			pst.setString(1, str + "%");
+			pst.setString(2, str);
+			pst.setString(3, "%" + str + "%");
+			pst.setInt(4, lastRank);
+			pst.setInt(5, lastPosition);
+			pst.setString(6, lastValue);
+			pst.setInt(7, lastGeonameID);
+			pst.setInt(8, size + 1);
+
+			ResultSet query = pst.executeQuery();
+			List<Area> result = new ArrayList<Area>();
+			String next = null;
+			int rank = 0;
+			int position = 0;
+			String value = null;
+
+			while (query.next()) {
+
+				if (result.size() == size) {
+
+					next = Cursor.encode(kind, str, rank, position, value, result.get(size - 1).getGeonameID());
+					break;
+				}
+
+				rank = query.getInt("match_rank");
+				position = query.getInt("match_position");
+				value = query.getString(column);
+
+				result.add(readArea(query));
+			}
+
+			return new Page<Area>(result.toArray(new Area[0]), next);
+		}
+
+		catch (SQLException e) {
+
+			throw new DatabaseRequestException(e.getMessage());
+		}
+
+		finally {
+
+			release(connection);
+		}
+	}
+
+	/**
+	 * Finds the areas in a region and within a distance from a point, from the
+	 * nearest, through the spatial index or through the database. The distances
+	 * of the returned areas get added to the given list, if any, to build the cursors
+	 */
+	private List<Area> searchByDistance(double latitude, double longitude, Bounds bounds, double radius, double after_distance, int after_geoname_id, int limit, List<Double> distances) throws DatabaseRequestException {
+
+		if (m_spatialIndex != null) {
+
+			List<Area> result = m_spatialIndex.search(latitude, longitude, bounds, radius, after_distance, after_geoname_id, limit);
+
+			if (distances != null)
+				for (Area area : result)
+					distances.add(SpatialIndex.distance(latitude, longitude, area.getLatitude(), area.getLongitude()));
+
+			return result;
+		}
+
+		Connection connection = acquire();
+
+		try {
+
+			PreparedStatement pst = prepareQuery(connection, """
+				SELECT *
+				FROM (
+					SELECT *,
+					2 * ? * ASIN(LEAST(1.0, SQRT(
+						POWER(SIN(RADIANS(latitude - ?) / 2), 2) +
+						COS(RADIANS(?)) * COS(RADIANS(latitude)) * POWER(SIN(RADIANS(longitude - ?) / 2), 2)
+					))) AS distance
+					FROM area
+					WHERE latitude
+					BETWEEN ?
+					AND ?
+					AND (longitude BETWEEN ? AND ? OR longitude BETWEEN ? AND ?)
+				) AS candidates
+				WHERE distance <= ?
+				AND (distance, geoname_id) > (?, ?)
+				ORDER BY distance, geoname_id
+				LIMIT ?;
+			""");
+
+			pst.setMaxRows(0);
+			pst.setDouble(1, SpatialIndex.EARTH_RADIUS);
+			pst.setDouble(2, latitude);
+			pst.setDouble(3, latitude);
+			pst.setDouble(4, longitude);
+			pst.setDouble(5, bounds.minLatitude);
+			pst.setDouble(6, bounds.maxLatitude);
+			pst.setDouble(7, bounds.west);
+			pst.setDouble(8, bounds.east);
+			pst.setDouble(9, bounds.otherWest);
+			pst.setDouble(10, bounds.otherEast);
+			pst.setDouble(11, radius);
+			pst.setDouble(12, after_distance);
+			pst.setInt(13, after_geoname_id);
+			pst.setInt(14, limit > 0 ? limit : Integer.MAX_VALUE);
+
+			ResultSet query = pst.executeQuery();
+			List<Area> result = new ArrayList<Area>();
+
+			while (query.next()) {
+
+				result.add(readArea(query));
+
+				if (distances != null)
+					distances.add(query.getDouble("distance"));
+			}
+
+			return result;
+		}
+
+		catch (SQLException e) {
+
+			throw new DatabaseRequestException(e.getMessage());
+		}
+
+		finally {
+
+			release(connection);
+		}
+	}
+
+	/**
+	 * Checks the fields of a parameter like the client does
+	 * 
+	 * @return The error message, null if the parameter is valid
+	 */
+	private static String checkParameter(Parameter parameter) {
+
+		if (parameter == null)
+			return "The parameter is missing";
+
+		if (parameter.getCenterID() == null || parameter.getUserID() == null || parameter.getCategory() == null || parameter.getTimestamp() == null)
+			return "The center, the operator, the category and the time are required";
+
+		if (parameter.getScore() < ParameterStats.MIN_SCORE || parameter.getScore() > ParameterStats.MAX_SCORE)
+			return "The score must be between " + ParameterStats.MIN_SCORE + " and " + ParameterStats.MAX_SCORE;
+
+		if (parameter.getNotes() != null && parameter.getNotes().length() > 256)
+			return "The notes must be less than 256 characters";
+
+		return null;
+	}
+
+	/**
+	 * Marks the parameters whose category does not exist or whose center does not
+	 * monitor their area, reading the categories and the monitored areas of the
+	 * centers of the batch with one query
+	 */
+	private void checkReferences(Connection connection, Parameter[] parameters, String[] errors) throws SQLException {
+
+		Set<String> centers = new HashSet<String>();
+		Set<Integer> areas = new HashSet<Integer>();
+
+		for (int i = 0; i < parameters.length; i++) {
+
+			if (errors[i] == null) {
+
+				centers.add(parameters[i].getCenterID().toLowerCase(Locale.ROOT));
+				areas.add(parameters[i].getGeonameID());
+			}
+		}
+
+		// Not capped by the row limit of the queries, a capped answer would reject valid parameters
+		PreparedStatement pst = prepareStatement(connection, """
+			SELECT 'category' AS kind, LOWER(category_id) AS id, 0 AS geoname_id
+			FROM category
+			UNION ALL
+			SELECT 'monitors', LOWER(center_id), geoname_id
+			FROM monitors
+			WHERE LOWER(center_id) = ANY(?)
+			AND geoname_id = ANY(?);
+		""");
+
+		pst.setArray(1, connection.createArrayOf("text", centers.toArray()));
+		pst.setArray(2, connection.createArrayOf("integer", areas.toArray()));
+
+		Set<String> categories = new HashSet<String>();
+		Set<String> monitored = new HashSet<String>();
+
+		try (ResultSet query = pst.executeQuery()) {
+
+			while (query.next()) {
+
+				if (query.getString("kind").equals("category"))
+					categories.add(query.getString("id"));
+				else
+					monitored.add(query.getInt("geoname_id") + "/" + query.getString("id"));
+			}
+		}
+
+		for (int i = 0; i < parameters.length; i++) {
+
+			if (errors[i] != null)
+				continue;
+
+			Parameter parameter = parameters[i];
+
+			if (!categories.contains(parameter.getCategory().toLowerCase(Locale.ROOT)))
+				errors[i] = "The category " + parameter.getCategory() + " does not exist";
+			else if (!monitored.contains(parameter.getGeonameID() + "/" + parameter.getCenterID().toLowerCase(Locale.ROOT)))
+				errors[i] = "The center " + parameter.getCenterID() + " does not monitor the area " + parameter.getGeonameID();
+		}
+	}
+
+	private static void setParameter(PreparedStatement pst, Parameter parameter) throws SQLException {
+
+		pst.setInt(1, parameter.getGeonameID());
+		pst.setString(2, parameter.getCenterID());
+		pst.setTimestamp(3, Timestamp.valueOf(parameter.getTimestamp()));
+		pst.setString(4, parameter.getCategory());
+		pst.setString(5, parameter.getUserID());
+		pst.setInt(6, parameter.getScore());
+		pst.setString(7, parameter.getNotes());
+	}
+
+	/**
+	 * Brings the aggregates and the result cache up to date with a new parameter, once it is committed
+	 */
+	private void added(Connection connection, Parameter parameter) {
+
+		if (m_parameterAggregates != null)
+			afterCommit(connection, () -> m_parameterAggregates.add(parameter));
+
+		invalidate(connection, () -> m_resultCache.invalidate(parameter.getGeonameID(), parameter.getCenterID(), parameter.getCategory()));
+	}
+
+	/**
+	 * Tells the clients that a kind of reference data changed, once the change is committed
+	 */
+	private void changed(Connection connection, int kind) {
+
+		Transaction transaction = transactionOf(connection);
+
+		if (transaction != null)
+			transaction.changed(kind);
+		else
+			Stamps.bump(kind);
+	}
+
+	/**
+	 * Serves a read query from the result cache. A transaction may read its own
+	 * uncommitted changes, so its queries always go to the database
+	 */
+	private <T> T cached(RequestType type, int geoname_id, String center_id, String category, ResultCache.Query<T> query) throws ConnectionLostException, DatabaseRequestException {
+
+		if (m_resultCache == null || m_transaction != null)
+			return query.run();
+
+		return m_resultCache.get(type, geoname_id, center_id, category, query);
+	}
+
+	/**
+	 * Drops the cached results made stale by a change, once the change is committed
+	 */
+	private void invalidate(Connection connection, Runnable invalidation) {
+
+		if (m_resultCache != null)
+			afterCommit(connection, invalidation);
+	}
+
+	/**
+	 * Applies a change to the state shared by every session, deferring it
+	 * until the commit if the connection belongs to the transaction in progress
+	 */
+	private void afterCommit(Connection connection, Runnable action) {
+
+		Transaction transaction = transactionOf(connection);
+
+		if (transaction != null)
+			transaction.onCommit(action);
+		else
+			action.run();
+	}
+
+	private boolean inTransaction(Connection connection) {
+
+		return transactionOf(connection) != null;
+	}
+
+	/**
+	 *
+	 * @return The transaction in progress if the connection belongs to it, null otherwise
+	 */
+	private Transaction transactionOf(Connection connection) {
+
+		Transaction transaction = m_transaction;
+		return transaction != null && transaction.owns(connection) ? transaction : null;
+	}
+
+	private void index(Area area) {
+
+		if (m_areaIndex != null)
+			m_areaIndex.add(area);
+
+		if (m_spatialIndex != null)
+			m_spatialIndex.add(area);
+	}
+
+	private Area readArea(ResultSet query) throws SQLException {
+
+		int geonameID = query.getInt("geoname_id");
+		String areaName = query.getString("area_name");
+		String areaAsciiName = query.getString("area_ascii_name");
+		String countryCode = query.getString("country_code");
+		String countryName = query.getString("country_name");
+		double coordsLatitude = query.getDouble("latitude");
+		double coordsLongitude = query.getDouble("longitude");
+
+		return new Area(geonameID, areaName, areaAsciiName, countryCode, countryName, coordsLatitude, coordsLongitude);
+	}
+
+	/**
+	 * Limits the requested page size to the row cap of the queries.
+	 * The paged queries are bounded by their own LIMIT, one row past
+	 * the page to know whether there is a following page
+	 */
+	private int pageSize(int page_size) {
+
+		if (page_size < 1)
+			return 1;
+
+		if (m_maxRows > 0 && page_size > m_maxRows)
+			return m_maxRows;
+
+		return page_size;
+	}
+
+	/**
+	 * Prepares a forward-only, read-only query whose rows are fetched in batches
+	 * and capped. PostgreSQL only fetches in batches inside a transaction, so the
+	 * connection leaves auto-commit mode: the read gets rolled back when the
+	 * connection is given back to the pool. The statement comes from the statement
+	 * cache of the connection and must not be closed
+	 */
+	private PreparedStatement prepareQuery(Connection connection, String statement) throws SQLException {
+
+		if (connection.getAutoCommit())
+			connection.setAutoCommit(false);
+
+		PreparedStatement pst = m_pool.prepare(connection, statement);
+		pst.setFetchSize(m_fetchSize);
+		pst.setMaxRows(m_maxRows);
+
+		return pst;
+	}
+
+	/**
+	 * Copies the rows of a query into an array, warning when the row cap has been reached
+	 */
+	private <T> T[] toArray(List<T> rows, T[] array) {
+
+		if (m_maxRows > 0 && rows.size() >= m_maxRows)
+			Console.warn("Query result truncated to " + m_maxRows + " rows");
+
+		return rows.toArray(array);
 	}
 
-	private int getRowCount(ResultSet query) throws SQLException {
+	/**
+	 * Leases the connection for a single request, unless a transaction is in progress.
+	 * The transaction connection is used by one request at a time, until it gets released
+	 */
+	private Connection acquire() throws DatabaseRequestException {
+
+		Transaction transaction = m_transaction;
+
+		if (transaction != null) {
 
-		int rows = 0;
+			Connection connection = transaction.lease();
 
-		if (query.last()) {
+			if (connection != null)
+				return connection;
+		}
+
+		try {
 
-			rows = query.getRow();
-			query.beforeFirst();
+			return m_pool.acquire();
 		}
 
-		return rows;
+		catch (SQLException e) {
+
+			throw new DatabaseRequestException(e.getMessage());
+		}
 	}
 
-	private synchronized PreparedStatement prepareStatement(String statement) throws SQLException {
+	private void release(Connection connection) {
+
+		if (connection == null)
+			return;
 
-		return m_connection.prepareStatement(statement, ResultSet.TYPE_SCROLL_SENSITIVE, ResultSet.CONCUR_UPDATABLE);
+		Transaction transaction = transactionOf(connection);
+
+		if (transaction != null)
+			transaction.giveBack();
+		else
+			m_pool.release(connection);
 	}
 
 	private static String hashPassword(String password) {
@@ -1475,7 +3042,46 @@ public class ServerDatabaseImpl implements ServerDatabase {
 	}
 
 	/**
-	 * The connection estabilished with the database through the JDBC DriverManager
+	 * The pool the connections get leased from
+	 */
+	private ConnectionPool m_pool;
+
+	/**
+	 * The number of rows fetched at a time and the maximum number of rows of a query
+	 */
+	private int m_fetchSize;
+	private int m_maxRows;
+
+	/**
+	 * The transaction in progress of the session, null if there is none.
+	 * It is only changed holding {@link #m_lock}, by BEGIN, END and the shutdown,
+	 * which the session runs with no other request of its own in flight (see
+	 * {@link Skeleton#isExclusive(byte[])}). The requests read it without the lock:
+	 * being volatile, the thread that runs the next request sees the change
+	 */
+	private volatile Transaction m_transaction;
+
+	/**
+	 * The state shared by every session, changed by a transaction once it commits
+	 */
+	private AreaIndex m_areaIndex;
+	private SpatialIndex m_spatialIndex;
+	private ResultCache m_resultCache;
+	private ParameterAggregates m_parameterAggregates;
+
+	/**
+	 * Serializes the changes of the transaction in progress. A ReentrantLock does not pin
+	 * the carrier thread when the session runs on a virtual thread
+	 */
+	private final ReentrantLock m_lock = new ReentrantLock();
+
+	/**
+	 * The number of rows sent to the database at a time by addParameters
+	 */
+	private static final int BATCH_SIZE = 1000;
+
+	/**
+	 * Half of the side of the box searched around the coordinates, in degrees
 	 */
-	private Connection m_connection;
+	private static final double COORDS_BOX = 0.5;
 }
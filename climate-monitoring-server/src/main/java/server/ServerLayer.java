@@ -13,10 +13,13 @@ import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadFactory;
 
 import climatemonitoring.core.Application;
+import climatemonitoring.core.Area;
 import climatemonitoring.core.Layer;
 import climatemonitoring.core.headless.Console;
 
@@ -28,6 +31,16 @@ import climatemonitoring.core.headless.Console;
  */
 public class ServerLayer extends Layer {
 
+	/**
+	 * Initializes the server with the given settings
+	 *
+	 * @param spec The server specification
+	 */
+	public ServerLayer(ServerSpecification spec) {
+
+		m_specification = spec;
+	}
+
 	/**
 	 * Code to be executed as the layer gets created
 	 */
@@ -40,14 +53,61 @@ public class ServerLayer extends Layer {
 
 		try {
 
-			Connection dummy = DriverManager.getConnection(m_url, m_username, m_password);
+			m_pool = new ConnectionPool(m_url, m_username, m_password, m_specification.poolSize, m_specification.poolTimeout, m_specification.leakThreshold, m_specification.statementCache);
+
+			Connection dummy = m_pool.acquire();
 
 			if (dummy != null)
 				Console.info("Server connection estabilished");
 			else
 				Application.close();
 
-			m_server = new ServerSocket(25565);
+			m_pool.release(dummy);
+
+			if (m_specification.slowQuery >= 0) {
+
+				m_queryLog = new QueryLog(m_specification.slowQuery, m_specification.explainSlowQueries);
+				m_pool.setQueryLog(m_queryLog);
+			}
+
+			if (m_specification.migrate)
+				migrate();
+
+			if (m_specification.importAreas != null)
+				importAreas();
+
+			if (m_specification.areaIndex || m_specification.spatialIndex)
+				loadIndexes();
+
+			if (m_specification.parameterAggregates)
+				loadAggregates();
+
+			if (m_specification.resultCache > 0)
+				m_resultCache = new ResultCache(m_specification.resultCache * 1024L * 1024L);
+
+			m_threads = SessionThreads.create(m_specification.virtualThreads);
+
+			if (m_specification.metricsInterval > 0)
+				startMetricsDump(m_specification.metricsInterval * 1000L);
+
+			startCommands();
+
+			if (m_specification.mode.equals("thread")) {
+
+				m_socket = new ServerSocket(m_specification.port);
+				Console.info("Listening on port " + m_specification.port + " with a thread per client");
+			}
+
+			else {
+
+				if (!m_specification.mode.equals("selector"))
+					Console.warn("Unknown server mode " + m_specification.mode + ", using selector");
+
+				m_server = new SelectorServer(m_specification.port, m_specification.workers, this::createDatabase, m_threads);
+				m_server.start();
+
+				Console.info("Listening on port " + m_specification.port + " with " + m_specification.workers + " workers");
+			}
 		}
 
 		catch (IOException e) {
@@ -58,7 +118,7 @@ public class ServerLayer extends Layer {
 
 		catch (SQLException ex) {
 
-			Console.error("Database connection failed");
+			Console.error("Database connection failed: " + ex.getMessage());
 			Application.close();
 		}
 	}
@@ -68,11 +128,15 @@ public class ServerLayer extends Layer {
 	 */
 	public void onUpdate() {
 
+		// In selector mode the clients are accepted by the selector thread
+		if (m_socket == null)
+			return;
+
 		try {
 
-			Socket client = m_server.accept();
+			Socket client = m_socket.accept();
 			Console.info("New client connected: " + client.getInetAddress());
-			new Skeleton(client, new ServerDatabaseImpl(m_url, m_username, m_password));
+			m_threads.newThread(new Skeleton(client, createDatabase())).start();
 		}
 
 		catch (IOException ex) {
@@ -102,10 +166,235 @@ public class ServerLayer extends Layer {
 	 */
 	public void onDetach() {
 
+		if (m_server != null)
+			m_server.close();
+
+		try {
+
+			if (m_socket != null)
+				m_socket.close();
+		}
+
+		catch (IOException e) {
+
+			Console.error("Failed to close the server socket");
+		}
+
+		if (m_metricsDump != null)
+			m_metricsDump.interrupt();
+
+		Console.info(RequestMetrics.dump());
+
+		if (m_queryLog != null)
+			Console.info("Statements that took the most time:" + System.lineSeparator() + m_queryLog.top(10));
+
+		if (m_resultCache != null)
+			Console.info(m_resultCache.toString());
+
+		if (m_pool != null) {
+
+			Console.info(m_pool.toString());
+			m_pool.close();
+		}
+	}
+
+	/**
+	 * Imports the GeoNames dump given at startup, the server starts with the areas imported until a failure
+	 */
+	private void importAreas() {
+
+		try {
+
+			GeoNamesImporter.run(m_pool, m_specification.importAreas, m_specification.importCountries, 5000);
+		}
+
+		catch (IOException | SQLException e) {
+
+			Console.error("Area import failed, it resumes on the next start: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Applies the pending schema migrations, the server keeps working with the schema it finds if it fails
+	 */
+	private void migrate() {
+
+		try {
+
+			int version = Math.min(m_specification.schemaVersion, SchemaMigrations.getLatestVersion());
+			int applied = SchemaMigrations.migrate(m_pool, version);
+			Console.info("Database schema at version " + version + (applied > 0 ? " (" + applied + " migrations applied)" : ""));
+		}
+
+		catch (SQLException e) {
+
+			Console.error("Schema migration failed: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Loads the area indexes, the searches fall back to the database if it fails
+	 */
+	private void loadIndexes() {
+
+		try {
+
+			long start = System.nanoTime();
+			List<Area> areas = AreaIndex.readAreas(m_pool, m_specification.fetchSize);
+			Console.info("Read " + areas.size() + " areas in " + (System.nanoTime() - start) / 1000000 + " ms");
+
+			if (m_specification.areaIndex) {
+
+				start = System.nanoTime();
+				m_areaIndex = new AreaIndex();
+				m_areaIndex.addAll(areas);
+				Console.info("Loaded in " + (System.nanoTime() - start) / 1000000 + " ms. " + m_areaIndex);
+			}
+
+			if (m_specification.spatialIndex) {
+
+				start = System.nanoTime();
+				m_spatialIndex = new SpatialIndex();
+				m_spatialIndex.addAll(areas);
+				Console.info("Loaded in " + (System.nanoTime() - start) / 1000000 + " ms. " + m_spatialIndex);
+			}
+		}
+
+		catch (SQLException e) {
+
+			Console.warn("Area indexes not available, searching the database: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Loads the statistics of the recordings, they are computed by the database if it fails
+	 */
+	private void loadAggregates() {
+
+		try {
+
+			long start = System.nanoTime();
+			m_parameterAggregates = ParameterAggregates.load(m_pool, m_specification.fetchSize);
+			Console.info("Loaded in " + (System.nanoTime() - start) / 1000000 + " ms. " + m_parameterAggregates);
+		}
+
+		catch (SQLException e) {
+
+			Console.warn("Parameter aggregates not available, querying the database: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Writes the request metrics to the console at a fixed interval
+	 */
+	private void startMetricsDump(long interval) {
+
+		m_metricsDump = new Thread("RequestMetrics-dump") {
+
+			@Override
+			public void run() {
+
+				while (true) {
+
+					try {
+
+						Thread.sleep(interval);
+					}
+
+					catch (InterruptedException e) {
+
+						return;
+					}
+
+					Console.info(RequestMetrics.dump());
+				}
+			}
+		};
+
+		m_metricsDump.setDaemon(true);
+		m_metricsDump.start();
+	}
+
+	/**
+	 * Reads the commands typed in the server console once the server has started
+	 */
+	private void startCommands() {
+
+		Thread commands = new Thread(() -> {
+
+			try {
+
+				while (true) {
+
+					try {
+
+						command(Console.read().trim().split("\\s+"));
+					}
+
+					catch (NumberFormatException e) {
+
+						Console.write("Invalid number: " + e.getMessage());
+					}
+				}
+			}
+
+			catch (NoSuchElementException | IllegalStateException e) {
+
+				// The standard input has been closed
+			}
+
+		}, "ServerLayer-commands");
+
+		commands.setDaemon(true);
+		commands.start();
+	}
+
+	private void command(String[] command) {
+
+		switch (command[0]) {
+
+			case "":
+				break;
+
+			case "queries":
+				if (m_queryLog == null)
+					Console.write("The statements are not timed (see --slowQuery)");
+				else
+					Console.write(m_queryLog.top(command.length > 1 ? Integer.parseInt(command[1]) : 10));
+				break;
+
+			case "metrics":
+				Console.write(RequestMetrics.dump());
+				break;
+
+			case "pool":
+				Console.write(m_pool.toString());
+				break;
+
+			default:
+				Console.write("Commands: queries [count], metrics, pool");
+		}
+	}
+
+	/**
+	 * Creates the database of a new client session
+	 */
+	private ServerDatabase createDatabase() {
 
+		return new ServerDatabaseImpl(m_pool, m_specification.fetchSize, m_specification.maxRows, m_areaIndex, m_spatialIndex, m_resultCache, m_parameterAggregates);
 	}
 
-	private ServerSocket m_server;
+	private ServerSpecification m_specification;
+	private SelectorServer m_server;
+	private ServerSocket m_socket;
+	private ThreadFactory m_threads;
+	private Thread m_metricsDump;
+	private ConnectionPool m_pool;
+	private AreaIndex m_areaIndex;
+	private SpatialIndex m_spatialIndex;
+	private ResultCache m_resultCache;
+	private QueryLog m_queryLog;
+	private ParameterAggregates m_parameterAggregates;
 
 	private String m_url;
 	private String m_username;
@@ -0,0 +1,178 @@
+/*
+
+Alessandro della Frattina 753073 VA
+Cristian Capiferri 752918 VA
+Francesco Lops 753175 VA
+Dariia Sniezhko 753057 VA
+
+*/
+
+package server;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ThreadFactory;
+
+import climatemonitoring.core.RequestType;
+import climatemonitoring.core.headless.Console;
+import climatemonitoring.core.network.Protocol;
+
+/**
+ * Compares the two server modes under many open connections: a thread per client,
+ * and the selector thread with its pool of workers. The same clients connect to each
+ * mode in turn and keep their connection open, then send rounds of PING in which every
+ * connection has a request in flight. The report gives the time to connect every client,
+ * the requests per second and the platform threads the server needed.
+ * PING does not reach the database, so the benchmark measures the front end alone and
+ * no database is needed. Every connection uses two file descriptors in this process.
+ * Usage: ServerModeBenchmark [connections] [rounds] [workers]
+ *
+ * @author ccapiferri
+ * @version 1.0-SNAPSHOT
+ */
+public class ServerModeBenchmark {
+
+	public static void main(String[] args) throws Exception {
+
+		int connections = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		int workers = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+
+		Console.setLogLevel(Console.ERROR);
+
+		// The platform threads of the current model, whatever the JVM supports
+		ThreadFactory threads = SessionThreads.create(false);
+		ConnectionPool pool = new ConnectionPool("jdbc:postgresql://localhost/none", "", "", 1, 1000, 60000, 0);
+
+		try {
+
+			Console.write(String.format("%d connections, %d rounds of PING, %d workers", connections, rounds, workers));
+			Console.write(String.format("%-9s %12s %14s %17s", "mode", "connect s", "requests/s", "platform threads"));
+
+			ServerSocket socket = new ServerSocket(0, connections, InetAddress.getLoopbackAddress());
+			Thread acceptor = new Thread(() -> {
+
+				try {
+
+					while (true)
+						threads.newThread(new Skeleton(socket.accept(), new ServerDatabaseImpl(pool, 500, 10000, null, null, null, null))).start();
+				}
+
+				catch (IOException e) {
+
+					// The server socket has been closed
+				}
+			}, "acceptor");
+
+			acceptor.start();
+
+			try {
+
+				Console.write(measure("thread", socket.getLocalPort(), connections, rounds));
+			}
+
+			finally {
+
+				socket.close();
+				acceptor.join();
+			}
+
+			SelectorServer server = new SelectorServer(0, workers, () -> new ServerDatabaseImpl(pool, 500, 10000, null, null, null, null), threads);
+			server.start();
+
+			try {
+
+				Console.write(measure("selector", server.getPort(), connections, rounds));
+			}
+
+			finally {
+
+				server.close();
+			}
+		}
+
+		finally {
+
+			pool.close();
+		}
+	}
+
+	/**
+	 * Connects the clients to a server, sends the rounds of PING and disconnects them
+	 *
+	 * @return The report of the mode
+	 */
+	private static String measure(String mode, int port, int connections, int rounds) throws Exception {
+
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		Socket[] clients = new Socket[connections];
+		int baseline = bean.getThreadCount();
+
+		try {
+
+			long start = System.nanoTime();
+
+			for (int i = 0; i < connections; i++) {
+
+				clients[i] = new Socket(InetAddress.getLoopbackAddress(), port);
+				clients[i].setTcpNoDelay(true);
+
+				DataOutputStream out = SessionLoadCheck.output(clients[i]);
+				out.writeInt(Protocol.MAGIC);
+				out.writeInt(SessionLoadCheck.VERSION);
+				out.flush();
+
+				if (SessionLoadCheck.input(clients[i]).readInt() != SessionLoadCheck.VERSION)
+					throw new IOException("Connection " + i + " did not negotiate version " + SessionLoadCheck.VERSION);
+			}
+
+			double connect = (System.nanoTime() - start) / 1e9;
+
+			// A warmup round, then every connection has a request in flight in every round
+			round(clients);
+			start = System.nanoTime();
+
+			for (int r = 0; r < rounds; r++)
+				round(clients);
+
+			double seconds = (System.nanoTime() - start) / 1e9;
+			int platform = bean.getThreadCount() - baseline;
+
+			for (Socket client : clients)
+				SessionLoadCheck.send(client, RequestType.DISCONNECT);
+
+			for (Socket client : clients)
+				SessionLoadCheck.receive(client);
+
+			// The next mode starts once the session threads of this one have ended
+			long deadline = System.currentTimeMillis() + 30000;
+
+			while (bean.getThreadCount() > baseline && System.currentTimeMillis() < deadline)
+				Thread.sleep(10);
+
+			return String.format("%-9s %12.2f %14.0f %17d", mode, connect, (double) connections * rounds / seconds, platform);
+		}
+
+		finally {
+
+			for (Socket client : clients)
+				if (client != null)
+					client.close();
+		}
+	}
+
+	private static void round(Socket[] clients) throws Exception {
+
+		for (Socket client : clients)
+			SessionLoadCheck.send(client, RequestType.PING);
+
+		for (Socket client : clients)
+			if (SessionLoadCheck.receive(client) != RequestType.PING)
+				throw new IOException("Unexpected response to PING");
+	}
+}
@@ -0,0 +1,255 @@
+/*
+
+Alessandro della Frattina 753073 VA
+Cristian Capiferri 752918 VA
+Francesco Lops 753175 VA
+Dariia Sniezhko 753057 VA
+
+*/
+
+package server;
+
+import java.lang.reflect.Field;
+
+import climatemonitoring.core.headless.Console;
+
+/**
+ * The class that holds the server settings to use during its creation.
+ * Every field can be overwritten from the command line with the
+ * --name=value syntax (for example --poolSize=32)
+ *
+ * @author ccapiferri
+ * @version 1.0-SNAPSHOT
+ * @see ServerLayer
+ */
+public class ServerSpecification {
+
+	/**
+	 * The port the server listens to.
+	 * 25565 by default
+	 */
+	public int port = 25565;
+
+	/**
+	 * The maximum number of database connections shared by all the clients.
+	 * 16 by default
+	 */
+	public int poolSize = 16;
+
+	/**
+	 * Time (in milliseconds) a request can wait for a free database connection.
+	 * 5000 by default
+	 */
+	public long poolTimeout = 5000;
+
+	/**
+	 * Time (in milliseconds) after which a leased database connection is reported as a possible leak.
+	 * 60000 by default
+	 */
+	public long leakThreshold = 60000;
+
+	/**
+	 * The number of rows fetched at a time by the database queries.
+	 * 500 by default
+	 */
+	public int fetchSize = 500;
+
+	/**
+	 * The maximum number of rows returned by a database query (0 for no limit).
+	 * 10000 by default
+	 */
+	public int maxRows = 10000;
+
+	/**
+	 * Whether the area searches by name and by country are served by an
+	 * in-memory index loaded at startup, instead of scanning the area table.
+	 * true by default
+	 */
+	public boolean areaIndex = true;
+
+	/**
+	 * Whether the area searches by coordinates are served by an in-memory
+	 * grid loaded at startup, instead of querying the area table.
+	 * true by default
+	 */
+	public boolean spatialIndex = true;
+
+	/**
+	 * The number of statements kept prepared by every database connection
+	 * (0 to prepare them on every request).
+	 * 64 by default
+	 */
+	public int statementCache = 64;
+
+	/**
+	 * Whether the schema migrations that have not been applied yet are applied at startup
+	 * (see {@link SchemaMigrations}).
+	 * true by default
+	 */
+	public boolean migrate = true;
+
+	/**
+	 * The last schema migration applied at startup, the later ones are left pending
+	 * (see {@link SchemaMigrations}).
+	 * {@link SchemaMigrations#DEFAULT_VERSION} by default
+	 */
+	public int schemaVersion = SchemaMigrations.DEFAULT_VERSION;
+
+	/**
+	 * The time (in milliseconds) after which a statement is logged as slow, with its
+	 * parameters. Every statement is timed per SQL template, and the templates that
+	 * took the most time can be listed with the "queries" console command
+	 * (-1 to not time the statements).
+	 * 200 by default
+	 */
+	public long slowQuery = 200;
+
+	/**
+	 * Whether the slow queries are logged with the plan the database chose for them.
+	 * false by default
+	 */
+	public boolean explainSlowQueries = false;
+
+	/**
+	 * The memory (in megabytes) of the cache of the hot read queries about an area
+	 * shared by all the clients (0 to always query the database).
+	 * 64 by default
+	 */
+	public int resultCache = 64;
+
+	/**
+	 * Whether the statistics of the recordings (the average, the lowest, the highest and
+	 * the latest score) are kept in memory, built at startup from the parameter table,
+	 * instead of being computed from the recordings on every request.
+	 * true by default
+	 */
+	public boolean parameterAggregates = true;
+
+	/**
+	 * A GeoNames dump upserted into the area table at startup, before the area
+	 * indexes are built (see {@link GeoNamesImporter}).
+	 * null by default
+	 */
+	public String importAreas = null;
+
+	/**
+	 * The GeoNames countryInfo.txt the country names of the imported areas are read from.
+	 * null by default
+	 */
+	public String importCountries = null;
+
+	/**
+	 * How often (in seconds) the request metrics are written to the console
+	 * (0 to only write them at shutdown). Local clients can also ask for them
+	 * at any time (see {@link MetricsClient}).
+	 * 300 by default
+	 */
+	public int metricsInterval = 300;
+
+	/**
+	 * The lowest level of the messages written to the console, from 1 (debug) to 5 (none).
+	 * 1 by default
+	 */
+	public int logLevel = Console.DEBUG;
+
+	/**
+	 * The number of log messages that can wait to be written by the background
+	 * writer (0 to write them on the thread that logs them).
+	 * 8192 by default
+	 */
+	public int logBuffer = 8192;
+
+	/**
+	 * What to do with a log message when the buffer is full: "block" waits for
+	 * room, "drop" discards the debug and info messages (and counts them).
+	 * "block" by default
+	 */
+	public String logPolicy = "block";
+
+	/**
+	 * The file the log messages are also written to, rotated when it grows beyond logFileSize.
+	 * null by default
+	 */
+	public String logFile = null;
+
+	/**
+	 * The size (in megabytes) after which the log file is rotated.
+	 * 16 by default
+	 */
+	public int logFileSize = 16;
+
+	/**
+	 * The number of log files kept, the current one included.
+	 * 5 by default
+	 */
+	public int logFiles = 5;
+
+	/**
+	 * The number of threads that process the client requests.
+	 * 16 by default
+	 */
+	public int workers = 16;
+
+	/**
+	 * How the client sessions are served: "selector" multiplexes every client
+	 * on a selector thread and a pool of workers, "thread" runs every session
+	 * on its own blocking thread.
+	 * "selector" by default
+	 */
+	public String mode = "selector";
+
+	/**
+	 * Whether the blocking sessions run on virtual threads, when the JVM supports them.
+	 * true by default
+	 */
+	public boolean virtualThreads = true;
+
+	/**
+	 * Overwrites the default settings with the ones given from the command line
+	 *
+	 * @param args The command line arguments
+	 * @return The server specification
+	 */
+	public static ServerSpecification fromArgs(String[] args) {
+
+		ServerSpecification spec = new ServerSpecification();
+
+		for (String arg : args) {
+
+			if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+
+				Console.warn("Ignoring malformed argument: " + arg);
+				continue;
+			}
+
+			String name = arg.substring(2, arg.indexOf('='));
+			String value = arg.substring(arg.indexOf('=') + 1);
+
+			try {
+
+				Field field = ServerSpecification.class.getField(name);
+
+				if (field.getType() == int.class)
+					field.setInt(spec, Integer.parseInt(value));
+				else if (field.getType() == long.class)
+					field.setLong(spec, Long.parseLong(value));
+				else if (field.getType() == boolean.class)
+					field.setBoolean(spec, Boolean.parseBoolean(value));
+				else
+					field.set(spec, value);
+			}
+
+			catch (NoSuchFieldException e) {
+
+				Console.warn("Unknown server setting: " + name);
+			}
+
+			catch (NumberFormatException | IllegalAccessException e) {
+
+				Console.warn("Invalid value for " + name + ": " + value);
+			}
+		}
+
+		return spec;
+	}
+}
@@ -0,0 +1,208 @@
+/*
+
+Alessandro della Frattina 753073 VA
+Cristian Capiferri 752918 VA
+Francesco Lops 753175 VA
+Dariia Sniezhko 753057 VA
+
+*/
+
+package server;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import climatemonitoring.core.RequestType;
+import climatemonitoring.core.headless.Console;
+import climatemonitoring.core.network.Protocol;
+
+/**
+ * Keeps many blocking sessions open at the same time, the way the server runs them
+ * in thread mode: every accepted socket runs its Skeleton on a thread of
+ * {@link SessionThreads}. Every client connects and negotiates, then all of them
+ * send a PING while every session is blocked on its socket, and finally they all
+ * disconnect. The sessions only answer PING and DISCONNECT, so no database is needed.
+ * With virtual threads the sessions share a few carrier threads, the number of
+ * platform threads reported stays far below the number of sessions.
+ * Every session uses two file descriptors in this process, the limit may need raising.
+ * Usage: SessionLoadCheck [sessions] [virtual]
+ *
+ * @author ccapiferri
+ * @version 1.0-SNAPSHOT
+ */
+public class SessionLoadCheck {
+
+	public static void main(String[] args) throws Exception {
+
+		int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+		boolean virtual = args.length > 1 ? Boolean.parseBoolean(args[1]) : true;
+
+		ThreadFactory threads = SessionThreads.create(virtual);
+		Console.setLogLevel(Console.ERROR);
+
+		// No request of the check reaches the database, so no connection is ever opened
+		ConnectionPool pool = new ConnectionPool("jdbc:postgresql://localhost/none", "", "", 1, 1000, 60000, 0);
+		ServerSocket server = new ServerSocket(0, sessions, InetAddress.getLoopbackAddress());
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		AtomicInteger running = new AtomicInteger();
+		Socket[] clients = new Socket[sessions];
+		long start = System.nanoTime();
+
+		Thread acceptor = new Thread(() -> {
+
+			try {
+
+				for (int i = 0; i < sessions; i++) {
+
+					Skeleton skeleton = new Skeleton(server.accept(), new ServerDatabaseImpl(pool, 500, 10000, null, null, null, null));
+					running.incrementAndGet();
+
+					threads.newThread(() -> {
+
+						try {
+
+							skeleton.run();
+						}
+
+						finally {
+
+							running.decrementAndGet();
+						}
+					}).start();
+				}
+			}
+
+			catch (IOException e) {
+
+				Console.error("Accept failed: " + e.getMessage());
+			}
+		}, "acceptor");
+
+		acceptor.start();
+
+		try {
+
+			for (int i = 0; i < sessions; i++) {
+
+				clients[i] = new Socket(server.getInetAddress(), server.getLocalPort());
+				DataOutputStream out = output(clients[i]);
+				out.writeInt(Protocol.MAGIC);
+				out.writeInt(VERSION);
+				out.flush();
+
+				if (input(clients[i]).readInt() != VERSION)
+					throw new IOException("Session " + i + " did not negotiate version " + VERSION);
+			}
+
+			double connected = (System.nanoTime() - start) / 1e9;
+
+			// Every session is blocked on its socket while the others get their PING
+			for (Socket client : clients)
+				send(client, RequestType.PING);
+
+			int answered = 0;
+
+			for (Socket client : clients)
+				if (receive(client) == RequestType.PING)
+					answered++;
+
+			int concurrent = running.get();
+			int platform = bean.getThreadCount();
+
+			for (Socket client : clients)
+				send(client, RequestType.DISCONNECT);
+
+			for (Socket client : clients)
+				receive(client);
+
+			for (Socket client : clients)
+				client.close();
+
+			acceptor.join();
+			long deadline = System.currentTimeMillis() + 30000;
+
+			while (running.get() > 0 && System.currentTimeMillis() < deadline)
+				Thread.sleep(10);
+
+			double seconds = (System.nanoTime() - start) / 1e9;
+			Console.write(String.format("%d sessions connected in %.1f s, served and closed in %.1f s", sessions, connected, seconds));
+			Console.write(String.format("%d platform threads while the sessions were open, %d at most", platform, bean.getPeakThreadCount()));
+
+			check("sessions open at the same time", sessions, concurrent);
+			check("PING answered", sessions, answered);
+			check("sessions still running", 0, running.get());
+			check("connections leased", 0, pool.getActiveCount());
+		}
+
+		finally {
+
+			for (Socket client : clients)
+				if (client != null)
+					client.close();
+
+			server.close();
+			pool.close();
+		}
+	}
+
+	static void send(Socket client, RequestType request) throws IOException {
+
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		ObjectOutput encoder = Protocol.encoder(VERSION, buffer);
+		encoder.writeObject(request);
+		encoder.flush();
+
+		byte[] payload = buffer.toByteArray();
+		DataOutputStream out = output(client);
+		Protocol.writeFrame(out, payload, payload.length);
+		out.flush();
+	}
+
+	static Object receive(Socket client) throws IOException, ClassNotFoundException {
+
+		byte[] payload = Protocol.readFrame(input(client), Protocol.MAX_RESPONSE_SIZE);
+		int header = Protocol.responseHeaderSize(VERSION);
+		ObjectInput decoder = Protocol.decoder(VERSION, new ByteArrayInputStream(payload, header, payload.length - header));
+
+		return decoder.readObject();
+	}
+
+	/**
+	 * The streams are created for every request, so they must not keep a buffer between two of them
+	 */
+	static DataOutputStream output(Socket client) throws IOException {
+
+		return new DataOutputStream(new BufferedOutputStream(client.getOutputStream()));
+	}
+
+	static DataInputStream input(Socket client) throws IOException {
+
+		return new DataInputStream(client.getInputStream());
+	}
+
+	private static void check(String what, long expected, long actual) {
+
+		if (expected == actual)
+			Console.write(String.format("OK     %-30s %d", what, actual));
+		else
+			Console.error(String.format("FAILED %-30s expected %d, found %d", what, expected, actual));
+	}
+
+	/**
+	 * Requests and responses without the request ID and the stamps of the later versions
+	 */
+	static final int VERSION = Protocol.BINARY_VERSION;
+}
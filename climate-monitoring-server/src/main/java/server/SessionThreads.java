@@ -0,0 +1,66 @@
+/*
+
+Alessandro della Frattina 753073 VA
+Cristian Capiferri 752918 VA
+Francesco Lops 753175 VA
+Dariia Sniezhko 753057 VA
+
+*/
+
+package server;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import climatemonitoring.core.headless.Console;
+
+/**
+ * Creates the threads the blocking client sessions run on.
+ * Virtual threads are looked up at runtime, so the server still
+ * builds and runs on JVMs that do not provide them
+ *
+ * @author ccapiferri
+ * @version 1.0-SNAPSHOT
+ */
+public class SessionThreads {
+
+	/**
+	 * Creates a session thread factory
+	 *
+	 * @param virtual True to prefer virtual threads
+	 * @return A factory of virtual threads if requested and supported, of platform threads otherwise
+	 */
+	public static ThreadFactory create(boolean virtual) {
+
+		if (virtual) {
+
+			try {
+
+				Method ofVirtual = Thread.class.getMethod("ofVirtual");
+				Class<?> builder = Class.forName("java.lang.Thread$Builder");
+
+				Object virtualBuilder = ofVirtual.invoke(null);
+				virtualBuilder = builder.getMethod("name", String.class, long.class).invoke(virtualBuilder, "Skeleton-", 0L);
+				ThreadFactory factory = (ThreadFactory) builder.getMethod("factory").invoke(virtualBuilder);
+
+				Console.info("Client sessions run on virtual threads");
+				return factory;
+			}
+
+			catch (ReflectiveOperationException | RuntimeException e) {
+
+				Console.warn("Virtual threads are not supported by this JVM, falling back to platform threads");
+			}
+		}
+
+		AtomicInteger count = new AtomicInteger();
+
+		return (Runnable task) -> {
+
+			return new Thread(task, "Skeleton-" + count.getAndIncrement());
+		};
+	}
+
+	private SessionThreads() {}
+}
@@ -9,766 +9,1368 @@ Dariia Sniezhko 753057 VA
 
 package server;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInput;
 import java.io.ObjectInputStream;
+import java.io.ObjectOutput;
 import java.io.ObjectOutputStream;
 import java.net.Socket;
+import java.time.LocalDateTime;
 
 import climatemonitoring.core.Area;
+import climatemonitoring.core.AreaDashboard;
 import climatemonitoring.core.Category;
 import climatemonitoring.core.Center;
 import climatemonitoring.core.ConnectionLostException;
 import climatemonitoring.core.DatabaseRequestException;
 import climatemonitoring.core.Operator;
+import climatemonitoring.core.Page;
 import climatemonitoring.core.Parameter;
+import climatemonitoring.core.ParameterBucket;
+import climatemonitoring.core.ParameterStats;
 import climatemonitoring.core.RequestType;
 import climatemonitoring.core.headless.Console;
+import climatemonitoring.core.network.BinaryInput;
+import climatemonitoring.core.network.Protocol;
 
 /**
- * A thread class that gets created every time a new client
+ * A session that gets created every time a new client
  * connects to the server.
  * 
- * Handles the communication between client and server
+ * Handles the communication between client and server. A session
+ * can either own a blocking socket (see {@link #run()}), or receive
+ * the request frames from the {@link SelectorServer} (see {@link #process(byte[])})
  * 
  * @author ccapiferri
  * @version 1.0-SNAPSHOT
  */
-public class Skeleton extends Thread {
+public class Skeleton implements Runnable {
 
-	public Skeleton(Socket socket, ServerDatabase database) {
+	/**
+	 * Creates a session that owns a blocking socket
+	 * 
+	 * @param socket The client socket
+	 * @param database The database the requests are forwarded to
+	 * @throws IOException If the socket input stream is not available
+	 */
+	public Skeleton(Socket socket, ServerDatabase database) throws IOException {
+
+		this(socket, socket.getInputStream(), database);
+	}
+
+	/**
+	 * Creates a session that owns a blocking socket whose first bytes
+	 * may have already been consumed
+	 * 
+	 * @param socket The client socket
+	 * @param input The stream the client requests are read from
+	 * @param database The database the requests are forwarded to
+	 */
+	public Skeleton(Socket socket, InputStream input, ServerDatabase database) {
+
+		m_client = socket;
+		m_input = input;
+		m_name = socket.getInetAddress() + ":" + socket.getPort();
+		m_local = socket.getInetAddress().isLoopbackAddress();
+		m_serverDatabase = database;
+	}
+
+	/**
+	 * Creates a session whose requests are delivered as frames
+	 * 
+	 * @param name The client address, used for logging
+	 * @param local Whether the client runs on the same machine, and so can use the admin requests
+	 * @param version The negotiated protocol version
+	 * @param database The database the requests are forwarded to
+	 */
+	public Skeleton(String name, boolean local, int version, ServerDatabase database) {
+
+		m_name = name;
+		m_local = local;
+		m_version = version;
+		m_serverDatabase = database;
+	}
+
+	/**
+	 * The main loop of this class that manages client-server I/O
+	 * on a blocking socket. The protocol is detected from the first bytes
+	 * sent by the client
+	 */
+	public void run() {
 
 		try {
 
-			m_out = new ObjectOutputStream(socket.getOutputStream());
-			m_in = new ObjectInputStream(socket.getInputStream());
+			DataInputStream in = new DataInputStream(new BufferedInputStream(m_input));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(m_client.getOutputStream()));
+
+			in.mark(Integer.BYTES);
+			int magic = in.readInt();
+			in.reset();
+
+			if (magic == Protocol.MAGIC)
+				runFramed(in, out);
+
+			else
+				runLegacy(in, out);
+
+			Console.info("Client [" + m_name + "] has disconnected");
+		}
+
+		catch (IOException | ConnectionLostException e) {
+
+			Console.warn("Client [" + m_name + "] has disconnected unexpectedly");
+		}
+
+		catch (ClassNotFoundException ex) {
+
+			Console.error("Class of a serialized object cannot be found");
+		}
 
-			m_client = socket;
-			m_serverDatabase = database;
+		finally {
 
-			start();
+			close();
+		}
+	}
+
+	/**
+	 * Decodes a request frame, forwards the request to the database
+	 * and encodes the response. Since protocol version 3 frames can be
+	 * processed concurrently, unless {@link #isExclusive(byte[])} says otherwise
+	 * 
+	 * @param frame The request payload
+	 * @return The response payload
+	 * @throws IOException If the frame cannot be decoded
+	 * @throws ClassNotFoundException If the class of a serialized object cannot be found
+	 * @throws ConnectionLostException If the server loses connection to the database
+	 */
+	public byte[] process(byte[] frame) throws IOException, ClassNotFoundException, ConnectionLostException {
+
+		int offset = m_version >= Protocol.PIPELINED_VERSION ? Integer.BYTES : 0;
+
+		ObjectInput in = Protocol.decoder(m_version, new ByteArrayInputStream(frame, offset, frame.length - offset));
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+		// The response starts with the ID of the request, then the room for the stamps
+		buffer.write(frame, 0, offset);
+		buffer.write(new byte[Protocol.responseHeaderSize(m_version) - offset]);
+		ObjectOutput out = Protocol.encoder(m_version, buffer);
+
+		RequestType request = (RequestType) in.readObject();
+
+		if (!dispatch(request, in, out))
+			m_running = false;
+
+		out.flush();
+
+		// The stamps are read after the request, so that the client sees its own changes
+		byte[] response = buffer.toByteArray();
+		if (m_version >= Protocol.STAMPED_VERSION)
+			Stamps.write(response, offset);
+
+		RequestMetrics.transferred(request, frame.length, response.length);
+
+		return response;
+	}
+
+	/**
+	 * Tells whether a request must run alone: transaction boundaries and
+	 * disconnections wait for the requests in flight and hold back the next ones.
+	 * Before protocol version 3 every request is exclusive
+	 * 
+	 * @param frame The request payload
+	 * @return True if the request cannot run together with other requests of the session
+	 */
+	public boolean isExclusive(byte[] frame) {
+
+		if (m_version < Protocol.PIPELINED_VERSION)
+			return true;
+
+		// Only the request type is read, the selector thread never decodes a payload
+		RequestType request = BinaryInput.peekRequest(frame, Integer.BYTES);
+
+		// Malformed frames are rejected by process()
+		return request == null || request == RequestType.BEGIN || request == RequestType.END || request == RequestType.ROLLBACK || request == RequestType.DISCONNECT;
+	}
+
+	/**
+	 * 
+	 * @return False after the client has requested to disconnect
+	 */
+	public boolean isRunning() {
+
+		return m_running;
+	}
+
+	/**
+	 * 
+	 * @return The client address
+	 */
+	public String getName() {
+
+		return m_name;
+	}
+
+	/**
+	 * Releases the resources held by the session
+	 */
+	public void close() {
+
+		m_serverDatabase.shutdown();
+
+		if (m_client == null)
+			return;
+
+		try {
+
+			m_client.close();
 		}
 
 		catch (IOException e) {
 
-			Console.error("Failed to initialize I/O channels");
+			Console.error("I/O stream closure failed");
 		}
 	}
 
 	/**
-	 * The main loop of this class that manages client-server I/O.
+	 * Serves a client that speaks the framed protocol
 	 */
-	public void run() {
+	private void runFramed(DataInputStream in, DataOutputStream out) throws IOException, ClassNotFoundException, ConnectionLostException {
+
+		in.readInt();
+		m_version = Math.max(1, Math.min(in.readInt(), Protocol.VERSION));
+		out.writeInt(m_version);
+		out.flush();
+
+		while (m_running) {
+
+			byte[] response = process(Protocol.readFrame(in, Protocol.MAX_REQUEST_SIZE));
+			Protocol.writeFrame(out, response, response.length);
+			out.flush();
+		}
+	}
+
+	/**
+	 * Serves a client that speaks the original unframed protocol,
+	 * where requests and responses are written on a single object stream
+	 */
+	private void runLegacy(DataInputStream in, DataOutputStream out) throws IOException, ClassNotFoundException, ConnectionLostException {
+
+		ObjectOutputStream objectOut = new ObjectOutputStream(out);
+		objectOut.flush();
+		ObjectInputStream objectIn = new ObjectInputStream(in);
+
+		while (m_running) {
+
+			RequestType request = (RequestType) objectIn.readObject();
+			m_running = dispatch(request, objectIn, objectOut);
+			objectOut.flush();
+		}
+	}
+
+	/**
+	 * Serves a request and records how long it took (see {@link RequestMetrics})
+	 * 
+	 * @return False if the client requested to disconnect
+	 */
+	private boolean dispatch(RequestType request, ObjectInput in, ObjectOutput out) throws IOException, ClassNotFoundException, ConnectionLostException {
+
+		long start = RequestMetrics.begin(request);
 
 		try {
 
-			while (m_running) {
+			return handle(request, in, out);
+		}
+
+		finally {
+
+			RequestMetrics.end(request, start);
+		}
+	}
 
-				RequestType request = (RequestType) m_in.readObject();
-				Console.debug("Client [" + m_client.getInetAddress() + ":" + m_client.getPort() + "] issued " + request);
+	/**
+	 * Reads the arguments of a request, forwards it to the database and writes the response
+	 * 
+	 * @return False if the client requested to disconnect
+	 */
+	private boolean handle(RequestType request, ObjectInput in, ObjectOutput out) throws IOException, ClassNotFoundException, ConnectionLostException {
 
-				switch (request) {
+		boolean running = true;
+		Console.debug(() -> "Client [" + m_name + "] issued " + request);
 
-					case BEGIN:
+		switch (request) {
 
-						try {
+			case BEGIN:
 
-							m_serverDatabase.begin();
+				try {
 
-							m_out.writeObject(true);
-						}
+					m_serverDatabase.begin();
 
-						catch (DatabaseRequestException e) {
+					out.writeObject(true);
+				}
 
-							m_out.writeObject(false);
-							m_out.writeObject(e);
-							Console.error("Error on request " + request + ": " + e.getMessage());
-						}
+				catch (DatabaseRequestException e) {
 
-						break;
+					out.writeObject(false);
+					out.writeObject(e);
+					Console.error("Error on request " + request + ": " + e.getMessage());
+					RequestMetrics.failed(request);
+				}
 
-					case END:
+				break;
 
-						try {
+			case END:
 
-							m_serverDatabase.end();
+				try {
 
-							m_out.writeObject(true);
-						}
+					m_serverDatabase.end();
 
-						catch (DatabaseRequestException e) {
+					out.writeObject(true);
+				}
 
-							m_out.writeObject(false);
-							m_out.writeObject(e);
-							Console.error("Error on request " + request + ": " + e.getMessage());
-						}
+				catch (DatabaseRequestException e) {
+
+					out.writeObject(false);
+					out.writeObject(e);
+					Console.error("Error on request " + request + ": " + e.getMessage());
+					RequestMetrics.failed(request);
+				}
+
+				break;
+
+			case ROLLBACK:
+
+				try {
+
+					m_serverDatabase.rollback();
+
+					out.writeObject(true);
+				}
+
+				catch (DatabaseRequestException e) {
+
+					out.writeObject(false);
+					out.writeObject(e);
+					Console.error("Error on request " + request + ": " + e.getMessage());
+					RequestMetrics.failed(request);
+				}
 
-						break;
+				break;
 
-					case SEARCH_AREAS_BY_NAME: {
+			case SEARCH_AREAS_BY_NAME: {
 
-						String str = (String) m_in.readObject();
+				String str = (String) in.readObject();
 	
-						try {
+				try {
 	
-							Area[] result = m_serverDatabase.searchAreasByName(str);
+					Area[] result = m_serverDatabase.searchAreasByName(str);
 	
-							m_out.writeObject(true);
-							m_out.writeObject(result);
-						}
+					out.writeObject(true);
+					out.writeObject(result);
+				}
 	
-						catch (DatabaseRequestException e) {
+				catch (DatabaseRequestException e) {
 	
-							m_out.writeObject(false);
-							m_out.writeObject(e);
-							Console.error("Error on request " + request + ": " + e.getMessage());
-						}
+					out.writeObject(false);
+					out.writeObject(e);
+					Console.error("Error on request " + request + ": " + e.getMessage());
+					RequestMetrics.failed(request);
+				}
 	
-						break;
-					}
+				break;
+			}
 
-					case SEARCH_AREAS_BY_COUNTRY: {
+			case SEARCH_AREAS_BY_COUNTRY: {
 
-						String str = (String) m_in.readObject();
+				String str = (String) in.readObject();
 	
-						try {
+				try {
 	
-							Area[] result = m_serverDatabase.searchAreasByCountry(str);
+					Area[] result = m_serverDatabase.searchAreasByCountry(str);
 	
-							m_out.writeObject(true);
-							m_out.writeObject(result);
-						}
+					out.writeObject(true);
+					out.writeObject(result);
+				}
 	
-						catch (DatabaseRequestException e) {
+				catch (DatabaseRequestException e) {
 	
-							m_out.writeObject(false);
-							m_out.writeObject(e);
-							Console.error("Error on request " + request + ": " + e.getMessage());
-						}
+					out.writeObject(false);
+					out.writeObject(e);
+					Console.error("Error on request " + request + ": " + e.getMessage());
+					RequestMetrics.failed(request);
+				}
 	
-						break;
-					}
+				break;
+			}
 
-					case SEARCH_AREAS_BY_COORDS: {
+			case SEARCH_AREAS_BY_COORDS: {
 
-						double latitude = (Double) m_in.readObject();
-						double longitude = (Double) m_in.readObject();
+				double latitude = (Double) in.readObject();
+				double longitude = (Double) in.readObject();
 	
-						try {
+				try {
 	
-							Area[] result = m_serverDatabase.searchAreasByCoords(latitude, longitude);
+					Area[] result = m_serverDatabase.searchAreasByCoords(latitude, longitude);
 	
-							m_out.writeObject(true);
-							m_out.writeObject(result);
-						}
+					out.writeObject(true);
+					out.writeObject(result);
+				}
 	
-						catch (DatabaseRequestException e) {
+				catch (DatabaseRequestException e) {
 	
-							m_out.writeObject(false);
-							m_out.writeObject(e);
-							Console.error("Error on request " + request + ": " + e.getMessage());
-						}
+					out.writeObject(false);
+					out.writeObject(e);
+					Console.error("Error on request " + request + ": " + e.getMessage());
+					RequestMetrics.failed(request);
+				}
 	
-						break;
-					}
+				break;
+			}
 
-					case SEARCH_CENTERS_BY_NAME: {
+			case SEARCH_CENTERS_BY_NAME: {
 
-						String str = (String) m_in.readObject();
+				String str = (String) in.readObject();
 	
-						try {
+				try {
 	
-							Center[] result = m_serverDatabase.searchCentersByName(str);
+					Center[] result = m_serverDatabase.searchCentersByName(str);
 	
-							m_out.writeObject(true);
-							m_out.writeObject(result);
-						}
+					out.writeObject(true);
+					out.writeObject(result);
+				}
 	
-						catch (DatabaseRequestException e) {
+				catch (DatabaseRequestException e) {
 	
-							m_out.writeObject(false);
-							m_out.writeObject(e);
-							Console.error("Error on request " + request + ": " + e.getMessage());
-						}
+					out.writeObject(false);
+					out.writeObject(e);
+					Console.error("Error on request " + request + ": " + e.getMessage());
+					RequestMetrics.failed(request);
+				}
 	
-						break;
-					}
+				break;
+			}
 
-					case GET_AREA: {
+			case SEARCH_AREAS_BY_NAME_PAGED: {
 
-						int geonameID = (Integer) m_in.readObject();
+				String str = (String) in.readObject();
+				int pageSize = (Integer) in.readObject();
+				String cursor = (String) in.readObject();
 	
-						try {
+				try {
 	
-							Area result = m_serverDatabase.getArea(geonameID);
+					Page<Area> result = m_serverDatabase.searchAreasByName(str, pageSize, cursor);
 	
-							m_out.writeObject(true);
-							m_out.writeObject(result);
-						}
+					out.writeObject(true);
+					out.writeObject(result);
+				}
 	
-						catch (DatabaseRequestException e) {
+				catch (DatabaseRequestException e) {
 	
-							m_out.writeObject(false);
-							m_out.writeObject(e);
-							Console.error("Error on request " + request + ": " + e.getMessage());
-						}
+					out.writeObject(false);
+					out.writeObject(e);
+					Console.error("Error on request " + request + ": " + e.getMessage());
+					RequestMetrics.failed(request);
+				}
 	
-						break;
-					}
+				break;
+			}
 
+			case SEARCH_AREAS_BY_COUNTRY_PAGED: {
 
-					case GET_MONITORED_AREAS: {
+				String str = (String) in.readObject();
+				int pageSize = (Integer) in.readObject();
+				String cursor = (String) in.readObject();
+	
+				try {
+	
+					Page<Area> result = m_serverDatabase.searchAreasByCountry(str, pageSize, cursor);
+	
+					out.writeObject(true);
+					out.writeObject(result);
+				}
+	
+				catch (DatabaseRequestException e) {
+	
+					out.writeObject(false);
+					out.writeObject(e);
+					Console.error("Error on request " + request + ": " + e.getMessage());
+					RequestMetrics.failed(request);
+				}
+	
+				break;
+			}
 
-						String centerID = (String) m_in.readObject();
+			case SEARCH_AREAS_BY_COORDS_PAGED: {
 
-						try {
+				double latitude = (Double) in.readObject();
+				double longitude = (Double) in.readObject();
+				int pageSize = (Integer) in.readObject();
+				String cursor = (String) in.readObject();
+	
+				try {
+	
+					Page<Area> result = m_serverDatabase.searchAreasByCoords(latitude, longitude, pageSize, cursor);
+	
+					out.writeObject(true);
+					out.writeObject(result);
+				}
+	
+				catch (DatabaseRequestException e) {
+	
+					out.writeObject(false);
+					out.writeObject(e);
+					Console.error("Error on request " + request + ": " + e.getMessage());
+					RequestMetrics.failed(request);
+				}
+	
+				break;
+			}
 
-							Area[] result = m_serverDatabase.getMonitoredAreas(centerID);
+			case SEARCH_AREAS_IN_BOX: {
 
-							m_out.writeObject(true);
-							m_out.writeObject(result);
-						}
+				double minLatitude = (Double) in.readObject();
+				double maxLatitude = (Double) in.readObject();
+				double west = (Double) in.readObject();
+				double east = (Double) in.readObject();
+	
+				try {
+	
+					Area[] result = m_serverDatabase.searchAreasInBox(minLatitude, maxLatitude, west, east);
+	
+					out.writeObject(true);
+					out.writeObject(result);
+				}
+	
+				catch (DatabaseRequestException e) {
+	
+					out.writeObject(false);
+					out.writeObject(e);
+					Console.error("Error on request " + request + ": " + e.getMessage());
+					RequestMetrics.failed(request);
+				}
+	
+				break;
+			}
 
-						catch (DatabaseRequestException e) {
+			case SEARCH_AREAS_IN_RADIUS: {
 
-							m_out.writeObject(false);
-							m_out.writeObject(e);
-							Console.error("Error on request " + request + ": " + e.getMessage());
-						}
+				double latitude = (Double) in.readObject();
+				double longitude = (Double) in.readObject();
+				double radius = (Double) in.readObject();
+	
+				try {
+	
+					Area[] result = m_serverDatabase.searchAreasInRadius(latitude, longitude, radius);
+	
+					out.writeObject(true);
+					out.writeObject(result);
+				}
+	
+				catch (DatabaseRequestException e) {
+	
+					out.writeObject(false);
+					out.writeObject(e);
+					Console.error("Error on request " + request + ": " + e.getMessage());
+					RequestMetrics.failed(request);
+				}
+	
+				break;
+			}
+
+			case SEARCH_NEAREST_AREAS: {
 
-						break;
-					}
+				double latitude = (Double) in.readObject();
+				double longitude = (Double) in.readObject();
+				int count = (Integer) in.readObject();
+	
+				try {
+	
+					Area[] result = m_serverDatabase.searchNearestAreas(latitude, longitude, count);
+	
+					out.writeObject(true);
+					out.writeObject(result);
+				}
+	
+				catch (DatabaseRequestException e) {
+	
+					out.writeObject(false);
+					out.writeObject(e);
+					Console.error("Error on request " + request + ": " + e.getMessage());
+					RequestMetrics.failed(request);
+				}
+	
+				break;
+			}
 
-					case GET_CENTER: {
+			case SEARCH_CENTERS_BY_NAME_PAGED: {
 
-						String centerID = (String) m_in.readObject();
+				String str = (String) in.readObject();
+				int pageSize = (Integer) in.readObject();
+				String cursor = (String) in.readObject();
 	
-						try {
+				try {
 	
-							Center result = m_serverDatabase.getCenter(centerID);
+					Page<Center> result = m_serverDatabase.searchCentersByName(str, pageSize, cursor);
 	
-							m_out.writeObject(true);
-							m_out.writeObject(result);
-						}
+					out.writeObject(true);
+					out.writeObject(result);
+				}
 	
-						catch (DatabaseRequestException e) {
+				catch (DatabaseRequestException e) {
 	
-							m_out.writeObject(false);
-							m_out.writeObject(e);
-							Console.error("Error on request " + request + ": " + e.getMessage());
-						}
+					out.writeObject(false);
+					out.writeObject(e);
+					Console.error("Error on request " + request + ": " + e.getMessage());
+					RequestMetrics.failed(request);
+				}
 	
-						break;
-					}
+				break;
+			}
 
-					case GET_CENTERS: {
+			case GET_AREA: {
 
-						try {
+				int geonameID = (Integer) in.readObject();
+	
+				try {
+	
+					Area result = m_serverDatabase.getArea(geonameID);
+	
+					out.writeObject(true);
+					out.writeObject(result);
+				}
+	
+				catch (DatabaseRequestException e) {
+	
+					out.writeObject(false);
+					out.writeObject(e);
+					Console.error("Error on request " + request + ": " + e.getMessage());
+					RequestMetrics.failed(request);
+				}
+	
+				break;
+			}
+
+
+			case GET_MONITORED_AREAS: {
+
+				String centerID = (String) in.readObject();
+
+				try {
+
+					Area[] result = m_serverDatabase.getMonitoredAreas(centerID);
+
+					out.writeObject(true);
+					out.writeObject(result);
+				}
+
+				catch (DatabaseRequestException e) {
+
+					out.writeObject(false);
+					out.writeObject(e);
+					Console.error("Error on request " + request + ": " + e.getMessage());
+					RequestMetrics.failed(request);
+				}
+
+				break;
+			}
+
+			case GET_CENTER: {
+
+				String centerID = (String) in.readObject();
+	
+				try {
+	
+					Center result = m_serverDatabase.getCenter(centerID);
+	
+					out.writeObject(true);
+					out.writeObject(result);
+				}
+	
+				catch (DatabaseRequestException e) {
+	
+					out.writeObject(false);
+					out.writeObject(e);
+					Console.error("Error on request " + request + ": " + e.getMessage());
+					RequestMetrics.failed(request);
+				}
+	
+				break;
+			}
+
+			case GET_CENTERS: {
 
-							Center[] result = m_serverDatabase.getCenters();
+				try {
 
-							m_out.writeObject(true);
-							m_out.writeObject(result);
-						}
+					Center[] result = m_serverDatabase.getCenters();
 
-						catch (DatabaseRequestException e) {
+					out.writeObject(true);
+					out.writeObject(result);
+				}
+
+				catch (DatabaseRequestException e) {
 
-							m_out.writeObject(false);
-							m_out.writeObject(e);
-							Console.error("Error on request " + request + ": " + e.getMessage());
-						}
+					out.writeObject(false);
+					out.writeObject(e);
+					Console.error("Error on request " + request + ": " + e.getMessage());
+					RequestMetrics.failed(request);
+				}
 
-						break;
-					}
+				break;
+			}
 
-					case GET_CENTER_BY_ADDRESS: {
+			case GET_CENTER_BY_ADDRESS: {
 
-						int city = (Integer) m_in.readObject();
-						String street = (String) m_in.readObject();
-						int houseNumber = (Integer) m_in.readObject();
+				int city = (Integer) in.readObject();
+				String street = (String) in.readObject();
+				int houseNumber = (Integer) in.readObject();
 	
-						try {
+				try {
 	
-							Center result = m_serverDatabase.getCenterByAddress(city, street, houseNumber);
+					Center result = m_serverDatabase.getCenterByAddress(city, street, houseNumber);
 	
-							m_out.writeObject(true);
-							m_out.writeObject(result);
-						}
+					out.writeObject(true);
+					out.writeObject(result);
+				}
 	
-						catch (DatabaseRequestException e) {
+				catch (DatabaseRequestException e) {
 	
-							m_out.writeObject(false);
-							m_out.writeObject(e);
-							Console.error("Error on request " + request + ": " + e.getMessage());
-						}
+					out.writeObject(false);
+					out.writeObject(e);
+					Console.error("Error on request " + request + ": " + e.getMessage());
+					RequestMetrics.failed(request);
+				}
 	
-						break;
-					}
+				break;
+			}
 
-					case GET_LATEST_CENTER: {
+			case GET_LATEST_CENTER: {
 
-						int geonameID = (Integer) m_in.readObject();
+				int geonameID = (Integer) in.readObject();
 
-						try {
+				try {
 
-							Center result = m_serverDatabase.getLatestCenter(geonameID);
+					Center result = m_serverDatabase.getLatestCenter(geonameID);
 
-							m_out.writeObject(true);
-							m_out.writeObject(result);
-						}
+					out.writeObject(true);
+					out.writeObject(result);
+				}
 
-						catch (DatabaseRequestException e) {
+				catch (DatabaseRequestException e) {
 
-							m_out.writeObject(false);
-							m_out.writeObject(e);
-							Console.error("Error on request " + request + ": " + e.getMessage());
-						}
+					out.writeObject(false);
+					out.writeObject(e);
+					Console.error("Error on request " + request + ": " + e.getMessage());
+					RequestMetrics.failed(request);
+				}
 
-						break;
-					}
+				break;
+			}
 
-					case GET_ASSOCIATED_CENTERS: {
+			case GET_ASSOCIATED_CENTERS: {
 
-						int geonameID = (Integer) m_in.readObject();
+				int geonameID = (Integer) in.readObject();
 
-						try {
+				try {
 
-							Center[] result = m_serverDatabase.getAssociatedCenters(geonameID);
+					Center[] result = m_serverDatabase.getAssociatedCenters(geonameID);
 
-							m_out.writeObject(true);
-							m_out.writeObject(result);
-						}
+					out.writeObject(true);
+					out.writeObject(result);
+				}
 
-						catch (DatabaseRequestException e) {
+				catch (DatabaseRequestException e) {
 
-							m_out.writeObject(false);
-							m_out.writeObject(e);
-							Console.error("Error on request " + request + ": " + e.getMessage());
-						}
+					out.writeObject(false);
+					out.writeObject(e);
+					Console.error("Error on request " + request + ": " + e.getMessage());
+					RequestMetrics.failed(request);
+				}
 
-						break;
-					}
+				break;
+			}
 
-					case GET_OPERATOR: {
+			case GET_OPERATOR: {
 
-						String userID = (String) m_in.readObject();
+				String userID = (String) in.readObject();
 	
-						try {
+				try {
 	
-							Operator result = m_serverDatabase.getOperator(userID);
+					Operator result = m_serverDatabase.getOperator(userID);
 	
-							m_out.writeObject(true);
-							m_out.writeObject(result);
-						}
+					out.writeObject(true);
+					out.writeObject(result);
+				}
 	
-						catch (DatabaseRequestException e) {
+				catch (DatabaseRequestException e) {
 	
-							m_out.writeObject(false);
-							m_out.writeObject(e);
-							Console.error("Error on request " + request + ": " + e.getMessage());
-						}
+					out.writeObject(false);
+					out.writeObject(e);
+					Console.error("Error on request " + request + ": " + e.getMessage());
+					RequestMetrics.failed(request);
+				}
 	
-						break;
-					}
+				break;
+			}
 
-					case GET_OPERATOR_BY_SSID: {
+			case GET_OPERATOR_BY_SSID: {
 
-						String SSID = (String) m_in.readObject();
+				String SSID = (String) in.readObject();
 	
-						try {
+				try {
 	
-							Operator result = m_serverDatabase.getOperatorBySSID(SSID);
+					Operator result = m_serverDatabase.getOperatorBySSID(SSID);
 	
-							m_out.writeObject(true);
-							m_out.writeObject(result);
-						}
+					out.writeObject(true);
+					out.writeObject(result);
+				}
 	
-						catch (DatabaseRequestException e) {
+				catch (DatabaseRequestException e) {
 	
-							m_out.writeObject(false);
-							m_out.writeObject(e);
-							Console.error("Error on request " + request + ": " + e.getMessage());
-						}
+					out.writeObject(false);
+					out.writeObject(e);
+					Console.error("Error on request " + request + ": " + e.getMessage());
+					RequestMetrics.failed(request);
+				}
 	
-						break;
-					}
+				break;
+			}
 
-					case GET_OPERATOR_BY_EMAIL: {
+			case GET_OPERATOR_BY_EMAIL: {
 
-						String email = (String) m_in.readObject();
+				String email = (String) in.readObject();
 	
-						try {
+				try {
 	
-							Operator result = m_serverDatabase.getOperatorByEmail(email);
+					Operator result = m_serverDatabase.getOperatorByEmail(email);
 	
-							m_out.writeObject(true);
-							m_out.writeObject(result);
-						}
+					out.writeObject(true);
+					out.writeObject(result);
+				}
 	
-						catch (DatabaseRequestException e) {
+				catch (DatabaseRequestException e) {
 	
-							m_out.writeObject(false);
-							m_out.writeObject(e);
-							Console.error("Error on request " + request + ": " + e.getMessage());
-						}
+					out.writeObject(false);
+					out.writeObject(e);
+					Console.error("Error on request " + request + ": " + e.getMessage());
+					RequestMetrics.failed(request);
+				}
 	
-						break;
-					}
+				break;
+			}
 
 
-					case GET_PARAMETERS: {
+			case GET_PARAMETERS: {
 
-						int geonameID = (Integer) m_in.readObject();
-						String centerID = (String) m_in.readObject();
-						String category = (String) m_in.readObject();
+				int geonameID = (Integer) in.readObject();
+				String centerID = (String) in.readObject();
+				String category = (String) in.readObject();
 	
-						try {
+				try {
 	
-							Parameter[] result = m_serverDatabase.getParameters(geonameID, centerID, category);
+					Parameter[] result = m_serverDatabase.getParameters(geonameID, centerID, category);
 	
-							m_out.writeObject(true);
-							m_out.writeObject(result);
-						}
+					out.writeObject(true);
+					out.writeObject(result);
+				}
 	
-						catch (DatabaseRequestException e) {
+				catch (DatabaseRequestException e) {
 	
-							m_out.writeObject(false);
-							m_out.writeObject(e);
-							Console.error("Error on request " + request + ": " + e.getMessage());
-						}
+					out.writeObject(false);
+					out.writeObject(e);
+					Console.error("Error on request " + request + ": " + e.getMessage());
+					RequestMetrics.failed(request);
+				}
 	
-						break;
-					}
+				break;
+			}
 
-					case GET_PARAMETERS_AVERAGE: {
+			case GET_PARAMETERS_AVERAGE: {
 
-						int geonameID = (Integer) m_in.readObject();
-						String centerID = (String) m_in.readObject();
-						String category = (String) m_in.readObject();
+				int geonameID = (Integer) in.readObject();
+				String centerID = (String) in.readObject();
+				String category = (String) in.readObject();
 	
-						try {
+				try {
 	
-							double result = m_serverDatabase.getParametersAverage(geonameID, centerID, category);
+					double result = m_serverDatabase.getParametersAverage(geonameID, centerID, category);
 	
-							m_out.writeObject(true);
-							m_out.writeObject(result);
-						}
+					out.writeObject(true);
+					out.writeObject(result);
+				}
 	
-						catch (DatabaseRequestException e) {
+				catch (DatabaseRequestException e) {
 	
-							m_out.writeObject(false);
-							m_out.writeObject(e);
-							Console.error("Error on request " + request + ": " + e.getMessage());
-						}
+					out.writeObject(false);
+					out.writeObject(e);
+					Console.error("Error on request " + request + ": " + e.getMessage());
+					RequestMetrics.failed(request);
+				}
 	
-						break;
-					}
+				break;
+			}
 
-					case GET_CATEGORIES: {
+			case GET_PARAMETER_STATS: {
 
-						try {
+				int geonameID = (Integer) in.readObject();
+				String centerID = (String) in.readObject();
+				String category = (String) in.readObject();
 	
-							Category[] result = m_serverDatabase.getCategories();
+				try {
 	
-							m_out.writeObject(true);
-							m_out.writeObject(result);
-						}
+					ParameterStats result = m_serverDatabase.getParameterStats(geonameID, centerID, category);
 	
-						catch (DatabaseRequestException e) {
+					out.writeObject(true);
+					out.writeObject(result);
+				}
 	
-							m_out.writeObject(false);
-							m_out.writeObject(e);
-							Console.error("Error on request " + request + ": " + e.getMessage());
-						}
+				catch (DatabaseRequestException e) {
 	
-						break;
-					}
-
-					case GET_LATEST_CATEGORY: {
+					out.writeObject(false);
+					out.writeObject(e);
+					Console.error("Error on request " + request + ": " + e.getMessage());
+					RequestMetrics.failed(request);
+				}
+	
+				break;
+			}
 
-						int geonameID = (Integer) m_in.readObject();
-						String centerID = (String) m_in.readObject();
+			case GET_PARAMETERS_IN_RANGE: {
 
-						try {
+				int geonameID = (Integer) in.readObject();
+				String centerID = (String) in.readObject();
+				String category = (String) in.readObject();
+				LocalDateTime from = (LocalDateTime) in.readObject();
+				LocalDateTime to = (LocalDateTime) in.readObject();
 	
-							Category result = m_serverDatabase.getLatestCategory(geonameID, centerID);
+				try {
 	
-							m_out.writeObject(true);
-							m_out.writeObject(result);
-						}
+					Parameter[] result = m_serverDatabase.getParametersInRange(geonameID, centerID, category, from, to);
 	
-						catch (DatabaseRequestException e) {
+					out.writeObject(true);
+					out.writeObject(result);
+				}
 	
-							m_out.writeObject(false);
-							m_out.writeObject(e);
-							Console.error("Error on request " + request + ": " + e.getMessage());
-						}
-
-						break;
-					}
+				catch (DatabaseRequestException e) {
+	
+					out.writeObject(false);
+					out.writeObject(e);
+					Console.error("Error on request " + request + ": " + e.getMessage());
+					RequestMetrics.failed(request);
+				}
+	
+				break;
+			}
 
-					case ADD_AREA: {
+			case GET_PARAMETER_TREND: {
 
-						Area area = (Area) m_in.readObject();
+				int geonameID = (Integer) in.readObject();
+				String centerID = (String) in.readObject();
+				String category = (String) in.readObject();
+				String size = (String) in.readObject();
+				LocalDateTime from = (LocalDateTime) in.readObject();
+				LocalDateTime to = (LocalDateTime) in.readObject();
 	
-						try {
+				try {
 	
-							m_serverDatabase.addArea(area);
+					ParameterBucket[] result = m_serverDatabase.getParameterTrend(geonameID, centerID, category, size, from, to);
 	
-							m_out.writeObject(true);
-						}
+					out.writeObject(true);
+					out.writeObject(result);
+				}
 	
-						catch (DatabaseRequestException e) {
+				catch (DatabaseRequestException e) {
 	
-							m_out.writeObject(false);
-							m_out.writeObject(e);
-							Console.error("Error on request " + request + ": " + e.getMessage());
-						}
+					out.writeObject(false);
+					out.writeObject(e);
+					Console.error("Error on request " + request + ": " + e.getMessage());
+					RequestMetrics.failed(request);
+				}
 	
-						break;
-					}
+				break;
+			}
 
-					case ADD_CENTER: {
+			case GET_AREA_DASHBOARD: {
 
-						Center center = (Center) m_in.readObject();
+				int geonameID = (Integer) in.readObject();
+				String centerID = (String) in.readObject();
+				String category = (String) in.readObject();
 	
-						try {
+				try {
 	
-							m_serverDatabase.addCenter(center);
+					AreaDashboard result = m_serverDatabase.getAreaDashboard(geonameID, centerID, category);
 	
-							m_out.writeObject(true);
-						}
+					out.writeObject(true);
+					out.writeObject(result);
+				}
 	
-						catch (DatabaseRequestException e) {
+				catch (DatabaseRequestException e) {
 	
-							m_out.writeObject(false);
-							m_out.writeObject(e);
-							Console.error("Error on request " + request + ": " + e.getMessage());
-						}
+					out.writeObject(false);
+					out.writeObject(e);
+					Console.error("Error on request " + request + ": " + e.getMessage());
+					RequestMetrics.failed(request);
+				}
 	
-						break;
-					}
+				break;
+			}
+
+			case VALIDATE_REGISTRATION: {
 
+				String userID = (String) in.readObject();
+				String email = (String) in.readObject();
+				String ssid = (String) in.readObject();
+	
+				try {
+	
+					String[] result = m_serverDatabase.validateRegistration(userID, email, ssid);
+	
+					out.writeObject(true);
+					out.writeObject(result);
+				}
+	
+				catch (DatabaseRequestException e) {
+	
+					out.writeObject(false);
+					out.writeObject(e);
+					Console.error("Error on request " + request + ": " + e.getMessage());
+					RequestMetrics.failed(request);
+				}
+	
+				break;
+			}
 
-					case ADD_OPERATOR: {
+			case GET_CATEGORIES: {
 
-						Operator operator = (Operator) m_in.readObject();
+				try {
 	
-						try {
+					Category[] result = m_serverDatabase.getCategories();
 	
-							m_serverDatabase.addOperator(operator);
+					out.writeObject(true);
+					out.writeObject(result);
+				}
 	
-							m_out.writeObject(true);
-						}
+				catch (DatabaseRequestException e) {
 	
-						catch (DatabaseRequestException e) {
+					out.writeObject(false);
+					out.writeObject(e);
+					Console.error("Error on request " + request + ": " + e.getMessage());
+					RequestMetrics.failed(request);
+				}
+	
+				break;
+			}
+
+			case GET_LATEST_CATEGORY: {
+
+				int geonameID = (Integer) in.readObject();
+				String centerID = (String) in.readObject();
+
+				try {
 	
-							m_out.writeObject(false);
-							m_out.writeObject(e);
-							Console.error("Error on request " + request + ": " + e.getMessage());
-						}
+					Category result = m_serverDatabase.getLatestCategory(geonameID, centerID);
 	
-						break;
-					}
+					out.writeObject(true);
+					out.writeObject(result);
+				}
+	
+				catch (DatabaseRequestException e) {
+	
+					out.writeObject(false);
+					out.writeObject(e);
+					Console.error("Error on request " + request + ": " + e.getMessage());
+					RequestMetrics.failed(request);
+				}
 
+				break;
+			}
 
-					case ADD_PARAMETER: {
+			case ADD_AREA: {
 
-						Parameter parameter = (Parameter) m_in.readObject();
+				Area area = (Area) in.readObject();
 	
-						try {
+				try {
 	
-							m_serverDatabase.addParameter(parameter);
+					m_serverDatabase.addArea(area);
 	
-							m_out.writeObject(true);
-						}
+					out.writeObject(true);
+				}
 	
-						catch (DatabaseRequestException e) {
+				catch (DatabaseRequestException e) {
 	
-							m_out.writeObject(false);
-							m_out.writeObject(e);
-							Console.error("Error on request " + request + ": " + e.getMessage());
-						}
+					out.writeObject(false);
+					out.writeObject(e);
+					Console.error("Error on request " + request + ": " + e.getMessage());
+					RequestMetrics.failed(request);
+				}
 	
-						break;
-					}
+				break;
+			}
 
-					case EDIT_OPERATOR: {
+			case ADD_CENTER: {
 
-						String userID = (String) m_in.readObject();
-						Operator operator = (Operator) m_in.readObject();
+				Center center = (Center) in.readObject();
 	
-						try {
+				try {
 	
-							m_serverDatabase.editOperator(userID, operator);
+					m_serverDatabase.addCenter(center);
 	
-							m_out.writeObject(true);
-						}
+					out.writeObject(true);
+				}
 	
-						catch (DatabaseRequestException e) {
+				catch (DatabaseRequestException e) {
 	
-							m_out.writeObject(false);
-							m_out.writeObject(e);
-							Console.error("Error on request " + request + ": " + e.getMessage());
-						}
+					out.writeObject(false);
+					out.writeObject(e);
+					Console.error("Error on request " + request + ": " + e.getMessage());
+					RequestMetrics.failed(request);
+				}
 	
-						break;
-					}
+				break;
+			}
 
-					case INCLUDE_AREA_TO_CENTER: {
 
-						int geonameID = (Integer) m_in.readObject();
-						String centerID = (String) m_in.readObject();
+			case ADD_OPERATOR: {
 
-						try {
+				Operator operator = (Operator) in.readObject();
+	
+				try {
+	
+					m_serverDatabase.addOperator(operator);
+	
+					out.writeObject(true);
+				}
+	
+				catch (DatabaseRequestException e) {
+	
+					out.writeObject(false);
+					out.writeObject(e);
+					Console.error("Error on request " + request + ": " + e.getMessage());
+					RequestMetrics.failed(request);
+				}
+	
+				break;
+			}
 
-							m_serverDatabase.includeAreaToCenter(geonameID, centerID);
 
-							m_out.writeObject(true);
-						}
+			case ADD_PARAMETER: {
 
-						catch (DatabaseRequestException e) {
+				Parameter parameter = (Parameter) in.readObject();
 	
-							m_out.writeObject(false);
-							m_out.writeObject(e);
-							Console.error("Error on request " + request + ": " + e.getMessage());
-						}
-
-						break;
-					}
+				try {
+	
+					m_serverDatabase.addParameter(parameter);
+	
+					out.writeObject(true);
+				}
+	
+				catch (DatabaseRequestException e) {
+	
+					out.writeObject(false);
+					out.writeObject(e);
+					Console.error("Error on request " + request + ": " + e.getMessage());
+					RequestMetrics.failed(request);
+				}
+	
+				break;
+			}
 
-					case MONITORS: {
+			case ADD_PARAMETERS: {
 
-						String centerID = (String) m_in.readObject();
-						int geonameID = (Integer) m_in.readObject();
+				Parameter[] parameters = (Parameter[]) in.readObject();
 	
-						try {
+				try {
 	
-							boolean result = m_serverDatabase.monitors(centerID, geonameID);
+					String[] result = m_serverDatabase.addParameters(parameters);
 	
-							m_out.writeObject(true);
-							m_out.writeObject(result);
-						}
+					out.writeObject(true);
+					out.writeObject(result);
+				}
 	
-						catch (DatabaseRequestException e) {
+				catch (DatabaseRequestException e) {
 	
-							m_out.writeObject(false);
-							m_out.writeObject(e);
-							Console.error("Error on request " + request + ": " + e.getMessage());
-						}
+					out.writeObject(false);
+					out.writeObject(e);
+					Console.error("Error on request " + request + ": " + e.getMessage());
+					RequestMetrics.failed(request);
+				}
 	
-						break;
-					}
+				break;
+			}
 
-					case EMPLOYS: {
+			case EDIT_OPERATOR: {
 
-						String centerID = (String) m_in.readObject();
-						String userID = (String) m_in.readObject();
+				String userID = (String) in.readObject();
+				Operator operator = (Operator) in.readObject();
 	
-						try {
+				try {
 	
-							boolean result = m_serverDatabase.employs(centerID, userID);
+					m_serverDatabase.editOperator(userID, operator);
+	
+					out.writeObject(true);
+				}
 	
-							m_out.writeObject(true);
-							m_out.writeObject(result);
-						}
+				catch (DatabaseRequestException e) {
 	
-						catch (DatabaseRequestException e) {
+					out.writeObject(false);
+					out.writeObject(e);
+					Console.error("Error on request " + request + ": " + e.getMessage());
+					RequestMetrics.failed(request);
+				}
 	
-							m_out.writeObject(false);
-							m_out.writeObject(e);
-							Console.error("Error on request " + request + ": " + e.getMessage());
-						}
+				break;
+			}
+
+			case INCLUDE_AREA_TO_CENTER: {
+
+				int geonameID = (Integer) in.readObject();
+				String centerID = (String) in.readObject();
+
+				try {
+
+					m_serverDatabase.includeAreaToCenter(geonameID, centerID);
+
+					out.writeObject(true);
+				}
+
+				catch (DatabaseRequestException e) {
 	
-						break;
-					}
+					out.writeObject(false);
+					out.writeObject(e);
+					Console.error("Error on request " + request + ": " + e.getMessage());
+					RequestMetrics.failed(request);
+				}
+
+				break;
+			}
 
-					case VALIDATE_CREDENTIALS: {
+			case MONITORS: {
 
-						String userID = (String) m_in.readObject();
-						String password = (String) m_in.readObject();
+				String centerID = (String) in.readObject();
+				int geonameID = (Integer) in.readObject();
 	
-						try {
+				try {
 	
-							Operator result = m_serverDatabase.validateCredentials(userID, password);
+					boolean result = m_serverDatabase.monitors(centerID, geonameID);
 	
-							m_out.writeObject(true);
-							m_out.writeObject(result);
-						}
+					out.writeObject(true);
+					out.writeObject(result);
+				}
 	
-						catch (DatabaseRequestException e) {
+				catch (DatabaseRequestException e) {
 	
-							m_out.writeObject(false);
-							m_out.writeObject(e);
-							Console.error("Error on request " + request + ": " + e.getMessage());
-						}
+					out.writeObject(false);
+					out.writeObject(e);
+					Console.error("Error on request " + request + ": " + e.getMessage());
+					RequestMetrics.failed(request);
+				}
 	
-						break;
-					}
+				break;
+			}
 
-					case PING: {
+			case EMPLOYS: {
 
-						m_out.writeObject(request);
+				String centerID = (String) in.readObject();
+				String userID = (String) in.readObject();
+	
+				try {
+	
+					boolean result = m_serverDatabase.employs(centerID, userID);
 	
-						break;
-					}
+					out.writeObject(true);
+					out.writeObject(result);
+				}
+	
+				catch (DatabaseRequestException e) {
+	
+					out.writeObject(false);
+					out.writeObject(e);
+					Console.error("Error on request " + request + ": " + e.getMessage());
+					RequestMetrics.failed(request);
+				}
+	
+				break;
+			}
 
-					case DISCONNECT: {
+			case VALIDATE_CREDENTIALS: {
 
-						m_running = false;
-						m_out.writeObject(request);
+				String userID = (String) in.readObject();
+				String password = (String) in.readObject();
 	
-						break;
-					}
+				try {
+	
+					Operator result = m_serverDatabase.validateCredentials(userID, password);
+	
+					out.writeObject(true);
+					out.writeObject(result);
+				}
+	
+				catch (DatabaseRequestException e) {
+	
+					out.writeObject(false);
+					out.writeObject(e);
+					Console.error("Error on request " + request + ": " + e.getMessage());
+					RequestMetrics.failed(request);
+				}
+	
+				break;
+			}
 
-					default: {
+			case PING: {
 
-						Console.error("Unhandled request type: " + request);
+				out.writeObject(request);
 	
-						break;
-					}
-				}
+				break;
 			}
 
-			Console.info("Client [" + m_client.getInetAddress() + ":" + m_client.getPort() + "] has disconnected");
-			close();
-		}
+			case GET_SERVER_METRICS: {
 
-		catch (IOException | ConnectionLostException e) {
+				if (m_local) {
 
-			Console.warn("Client [" + m_client.getInetAddress() + ":" + m_client.getPort() + "] has disconnected unexpectedly");
-		}
+					out.writeObject(true);
+					out.writeObject(RequestMetrics.dump());
+				}
 
-		catch (ClassNotFoundException ex) {
+				else {
 
-			Console.error("Class of a serialized object cannot be found");
-		}
-	}
+					out.writeObject(false);
+					out.writeObject(new DatabaseRequestException("The server metrics are only available to local clients"));
+					RequestMetrics.failed(request);
+				}
 
-	/**
-	 * Closes I/O streams after exiting the execution loop
-	 */
-	private void close() {
+				break;
+			}
 
-		try {
+			case DISCONNECT: {
 
-			m_out.flush();
-			m_out.close();
-			m_in.close();
-			m_client.close();
-			m_serverDatabase.shutdown();
-		}
+				running = false;
+				out.writeObject(request);
+	
+				break;
+			}
 
-		catch (IOException e) {
+			default: {
 
-			Console.error("I/O stream closure failed");
+				Console.error("Unhandled request type: " + request);
+	
+				break;
+			}
 		}
-	}
 
-	private ObjectOutputStream m_out;
-	private ObjectInputStream m_in;
+		return running;
+	}
 
 	private Socket m_client;
+	private InputStream m_input;
+	private String m_name;
+	private boolean m_local;
 
-	private boolean m_running = true;
+	private volatile boolean m_running = true;
+	private int m_version = 1;
 	private ServerDatabase m_serverDatabase;
 }
@@ -0,0 +1,423 @@
+/*
+
+Alessandro della Frattina 753073 VA
+Cristian Capiferri 752918 VA
+Francesco Lops 753175 VA
+Dariia Sniezhko 753057 VA
+
+*/
+
+package server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import climatemonitoring.core.Area;
+
+/**
+ * An in-memory uniform grid over the coordinates of the areas. Every cell
+ * covers half a degree of latitude and longitude and holds the areas that
+ * fall in it, so a search only looks at the cells that overlap the region.
+ * The results are ordered by great-circle distance, the regions can cross
+ * the antimeridian and circles can contain the poles.
+ * Like the {@link AreaIndex}, it is loaded once at startup and kept current
+ * by addArea
+ *
+ * @author ccapiferri
+ * @version 1.0-SNAPSHOT
+ */
+public class SpatialIndex {
+
+	/**
+	 * The mean radius of the Earth in kilometers
+	 */
+	public static final double EARTH_RADIUS = 6371.0088;
+
+	/**
+	 * Half of the circumference of the Earth: a circle this large contains every point
+	 */
+	public static final double MAX_DISTANCE = Math.PI * EARTH_RADIUS;
+
+	/**
+	 * Adds an area to the index
+	 *
+	 * @param area The area
+	 */
+	public void add(Area area) {
+
+		m_lock.writeLock().lock();
+
+		try {
+
+			insert(area);
+		}
+
+		finally {
+
+			m_lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Adds many areas at once
+	 *
+	 * @param areas The areas
+	 */
+	public void addAll(List<Area> areas) {
+
+		m_lock.writeLock().lock();
+
+		try {
+
+			for (Area area : areas)
+				insert(area);
+		}
+
+		finally {
+
+			m_lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Finds the areas in a region, from the nearest to the given point
+	 *
+	 * @param latitude The latitude of the point the distances are measured from
+	 * @param longitude The longitude of the point the distances are measured from
+	 * @param bounds The region
+	 * @param radius The maximum distance in kilometers
+	 * @param after_distance Only the areas after this distance (and geoname id) are returned, -1 for all of them
+	 * @param after_geoname_id The geoname id of the last area already returned
+	 * @param limit The maximum number of areas (0 for no limit)
+	 * @return The areas, from the nearest
+	 */
+	public List<Area> search(double latitude, double longitude, Bounds bounds, double radius, double after_distance, int after_geoname_id, int limit) {
+
+		List<Match> matches = new ArrayList<Match>();
+
+		m_lock.readLock().lock();
+
+		try {
+
+			int firstRow = row(bounds.minLatitude);
+			int lastRow = row(bounds.maxLatitude);
+
+			for (int range = 0; range < 2; range++) {
+
+				double west = range == 0 ? bounds.west : bounds.otherWest;
+				double east = range == 0 ? bounds.east : bounds.otherEast;
+
+				if (west > east)
+					continue;
+
+				for (int row = firstRow; row <= lastRow; row++) {
+
+					for (int column = column(west); column <= column(east); column++) {
+
+						int cell = row * COLUMNS + column;
+						int[] ids = m_cells[cell];
+
+						for (int i = 0; i < m_counts[cell]; i++) {
+
+							int id = ids[i];
+							double areaLatitude = m_latitudes[id];
+							double areaLongitude = m_longitudes[id];
+
+							if (areaLatitude < bounds.minLatitude || areaLatitude > bounds.maxLatitude || areaLongitude < west || areaLongitude > east)
+								continue;
+
+							double distance = distance(latitude, longitude, areaLatitude, areaLongitude);
+							if (distance > radius)
+								continue;
+
+							Area area = m_areas.get(id);
+
+							if (distance < after_distance || (distance == after_distance && area.getGeonameID() <= after_geoname_id))
+								continue;
+
+							matches.add(new Match(area, distance));
+						}
+					}
+				}
+			}
+		}
+
+		finally {
+
+			m_lock.readLock().unlock();
+		}
+
+		matches.sort((a, b) -> a.distance != b.distance ? Double.compare(a.distance, b.distance) : Integer.compare(a.area.getGeonameID(), b.area.getGeonameID()));
+
+		int size = limit > 0 ? Math.min(limit, matches.size()) : matches.size();
+		List<Area> result = new ArrayList<Area>(size);
+
+		for (int i = 0; i < size; i++)
+			result.add(matches.get(i).area);
+
+		return result;
+	}
+
+	/**
+	 * Finds the nearest areas to a point. The circle searched gets doubled
+	 * until it holds enough areas, the nearest ones are always inside it
+	 *
+	 * @param latitude The latitude of the point
+	 * @param longitude The longitude of the point
+	 * @param count The number of areas
+	 * @return The areas, from the nearest
+	 */
+	public List<Area> searchNearest(double latitude, double longitude, int count) {
+
+		for (double radius = INITIAL_RADIUS; ; radius *= 2) {
+
+			radius = Math.min(radius, MAX_DISTANCE);
+			List<Area> result = search(latitude, longitude, Bounds.around(latitude, longitude, radius), radius, -1, 0, count);
+
+			if (result.size() >= count || radius == MAX_DISTANCE)
+				return result;
+		}
+	}
+
+	/**
+	 *
+	 * @return The number of indexed areas
+	 */
+	public int size() {
+
+		m_lock.readLock().lock();
+
+		try {
+
+			return m_areas.size();
+		}
+
+		finally {
+
+			m_lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * A summary of the size of the index
+	 */
+	@Override
+	public String toString() {
+
+		m_lock.readLock().lock();
+
+		try {
+
+			long bytes = 2 * (16 + 8L * m_latitudes.length) + 2 * (16 + 4L * m_cells.length) + 4L * m_areas.size();
+			int cells = 0;
+
+			for (int cell = 0; cell < m_cells.length; cell++) {
+
+				if (m_cells[cell] != null) {
+
+					bytes += 16 + 4L * m_cells[cell].length;
+					cells++;
+				}
+			}
+
+			return String.format("Spatial index: %d areas in %d cells, %.1f MB", m_areas.size(), cells, bytes / (1024.0 * 1024.0));
+		}
+
+		finally {
+
+			m_lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * The great-circle distance between two points (haversine formula)
+	 *
+	 * @param latitude1 The latitude of the first point
+	 * @param longitude1 The longitude of the first point
+	 * @param latitude2 The latitude of the second point
+	 * @param longitude2 The longitude of the second point
+	 * @return The distance in kilometers
+	 */
+	public static double distance(double latitude1, double longitude1, double latitude2, double longitude2) {
+
+		double latitude = Math.sin(Math.toRadians(latitude2 - latitude1) / 2);
+		double longitude = Math.sin(Math.toRadians(longitude2 - longitude1) / 2);
+		double h = latitude * latitude + Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2)) * longitude * longitude;
+
+		return 2 * EARTH_RADIUS * Math.asin(Math.min(1.0, Math.sqrt(h)));
+	}
+
+	/**
+	 * A region made of a range of latitudes and up to two ranges of longitudes,
+	 * the second one is only used when the region crosses the antimeridian
+	 * (it is empty otherwise, west greater than east)
+	 */
+	public static final class Bounds {
+
+		private Bounds(double min_latitude, double max_latitude, double west, double east, double other_west, double other_east) {
+
+			minLatitude = Math.max(-90.0, min_latitude);
+			maxLatitude = Math.min(90.0, max_latitude);
+			this.west = west;
+			this.east = east;
+			otherWest = other_west;
+			otherEast = other_east;
+		}
+
+		/**
+		 * A box between two latitudes and two longitudes
+		 *
+		 * @param min_latitude The southern latitude
+		 * @param max_latitude The northern latitude
+		 * @param west The western longitude, if greater than the eastern one the box crosses the antimeridian
+		 * @param east The eastern longitude
+		 * @return The region
+		 */
+		public static Bounds box(double min_latitude, double max_latitude, double west, double east) {
+
+			west = normalize(west);
+			east = normalize(east);
+
+			if (west <= east)
+				return new Bounds(min_latitude, max_latitude, west, east, 1, 0);
+
+			return new Bounds(min_latitude, max_latitude, west, 180, -180, east);
+		}
+
+		/**
+		 * A box centered on a point
+		 *
+		 * @param latitude The latitude of the center
+		 * @param longitude The longitude of the center
+		 * @param degrees Half of the side of the box, in degrees
+		 * @return The region
+		 */
+		public static Bounds box(double latitude, double longitude, double degrees) {
+
+			if (degrees >= 180)
+				return new Bounds(latitude - degrees, latitude + degrees, -180, 180, 1, 0);
+
+			return box(latitude - degrees, latitude + degrees, longitude - degrees, longitude + degrees);
+		}
+
+		/**
+		 * The smallest box that contains a circle. If the circle contains
+		 * a pole every longitude is included
+		 *
+		 * @param latitude The latitude of the center
+		 * @param longitude The longitude of the center
+		 * @param radius The radius in kilometers
+		 * @return The region
+		 */
+		public static Bounds around(double latitude, double longitude, double radius) {
+
+			double angle = radius / EARTH_RADIUS;
+			double degrees = Math.toDegrees(angle);
+
+			if (latitude + degrees >= 90 || latitude - degrees <= -90 || angle >= Math.PI / 2)
+				return new Bounds(latitude - degrees, latitude + degrees, -180, 180, 1, 0);
+
+			double longitudes = Math.toDegrees(Math.asin(Math.sin(angle) / Math.cos(Math.toRadians(latitude))));
+
+			if (Double.isNaN(longitudes) || longitudes >= 180)
+				return new Bounds(latitude - degrees, latitude + degrees, -180, 180, 1, 0);
+
+			return box(latitude - degrees, latitude + degrees, longitude - longitudes, longitude + longitudes);
+		}
+
+		/**
+		 * The center of the box, the point the distances are measured from
+		 *
+		 * @return The latitude and the longitude of the center
+		 */
+		public double[] getCenter() {
+
+			double width = east - west + (otherWest <= otherEast ? otherEast - otherWest : 0);
+			return new double[] { (minLatitude + maxLatitude) / 2, normalize(west + width / 2) };
+		}
+
+		private static double normalize(double longitude) {
+
+			if (longitude >= -180 && longitude <= 180)
+				return longitude;
+
+			double normalized = ((longitude + 180) % 360 + 360) % 360 - 180;
+			return normalized;
+		}
+
+		public final double minLatitude;
+		public final double maxLatitude;
+		public final double west;
+		public final double east;
+		public final double otherWest;
+		public final double otherEast;
+	}
+
+	private void insert(Area area) {
+
+		int id = m_areas.size();
+
+		if (id == m_latitudes.length) {
+
+			m_latitudes = Arrays.copyOf(m_latitudes, id + (id >> 1) + 16);
+			m_longitudes = Arrays.copyOf(m_longitudes, m_latitudes.length);
+		}
+
+		m_areas.add(area);
+		m_latitudes[id] = area.getLatitude();
+		m_longitudes[id] = area.getLongitude();
+
+		int cell = row(area.getLatitude()) * COLUMNS + column(area.getLongitude());
+
+		if (m_cells[cell] == null)
+			m_cells[cell] = new int[4];
+		else if (m_counts[cell] == m_cells[cell].length)
+			m_cells[cell] = Arrays.copyOf(m_cells[cell], m_counts[cell] * 2);
+
+		m_cells[cell][m_counts[cell]++] = id;
+	}
+
+	private static int row(double latitude) {
+
+		return Math.max(0, Math.min(ROWS - 1, (int) Math.floor((latitude + 90) / CELL)));
+	}
+
+	private static int column(double longitude) {
+
+		return Math.max(0, Math.min(COLUMNS - 1, (int) Math.floor((longitude + 180) / CELL)));
+	}
+
+	/**
+	 * An area with its distance from the point of the search
+	 */
+	private static class Match {
+
+		Match(Area area, double distance) {
+
+			this.area = area;
+			this.distance = distance;
+		}
+
+		final Area area;
+		final double distance;
+	}
+
+	private final ReadWriteLock m_lock = new ReentrantReadWriteLock();
+	private final List<Area> m_areas = new ArrayList<Area>();
+	private double[] m_latitudes = new double[0];
+	private double[] m_longitudes = new double[0];
+
+	/**
+	 * The ids of the areas in every cell, allocated only for the cells that are not empty
+	 */
+	private final int[][] m_cells = new int[ROWS * COLUMNS][];
+	private final int[] m_counts = new int[ROWS * COLUMNS];
+
+	private static final double CELL = 0.5;
+	private static final int ROWS = (int) (180 / CELL);
+	private static final int COLUMNS = (int) (360 / CELL);
+	private static final double INITIAL_RADIUS = 50.0;
+}
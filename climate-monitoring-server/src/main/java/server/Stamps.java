@@ -0,0 +1,61 @@
+/*
+
+Alessandro della Frattina 753073 VA
+Cristian Capiferri 752918 VA
+Francesco Lops 753175 VA
+Dariia Sniezhko 753057 VA
+
+*/
+
+package server;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import climatemonitoring.core.network.Protocol;
+
+/**
+ * The version stamps of the reference data, shared by all the sessions.
+ * A stamp is incremented after a change to its kind of data gets committed
+ * and every response sends all of them to the client (see {@link Protocol#STAMPED_VERSION})
+ *
+ * @author ccapiferri
+ * @version 1.0-SNAPSHOT
+ */
+final class Stamps {
+
+	private Stamps() {
+
+	}
+
+	/**
+	 * Marks a kind of reference data as changed
+	 *
+	 * @param kind One of the stamps defined by {@link Protocol}
+	 */
+	static void bump(int kind) {
+
+		s_stamps.incrementAndGet(kind);
+	}
+
+	/**
+	 * Writes the current stamps into a response
+	 *
+	 * @param response The response payload
+	 * @param offset Where the stamps start
+	 */
+	static void write(byte[] response, int offset) {
+
+		for (int kind = 0; kind < Protocol.STAMPS; kind++) {
+
+			int stamp = s_stamps.get(kind);
+			int position = offset + Integer.BYTES * kind;
+
+			response[position] = (byte) (stamp >>> 24);
+			response[position + 1] = (byte) (stamp >>> 16);
+			response[position + 2] = (byte) (stamp >>> 8);
+			response[position + 3] = (byte) stamp;
+		}
+	}
+
+	private static final AtomicIntegerArray s_stamps = new AtomicIntegerArray(Protocol.STAMPS);
+}
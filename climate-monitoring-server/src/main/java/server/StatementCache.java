@@ -0,0 +1,173 @@
+/*
+
+Alessandro della Frattina 753073 VA
+Cristian Capiferri 752918 VA
+Francesco Lops 753175 VA
+Dariia Sniezhko 753057 VA
+
+*/
+
+package server;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import climatemonitoring.core.headless.Console;
+
+/**
+ * The prepared statements of a pooled connection, keyed by their SQL, so every
+ * fixed query is prepared once per connection instead of once per request.
+ * The least recently used statement is closed when the cache is full.
+ * A connection is used by one thread at a time, so the cache is not thread safe.
+ * The result sets left open by a lease are closed when the connection is released
+ *
+ * @author ccapiferri
+ * @version 1.0-SNAPSHOT
+ */
+final class StatementCache {
+
+	/**
+	 * @param connection The pooled connection
+	 * @param capacity The maximum number of statements kept prepared (0 to close every statement on release)
+	 * @param prepared The counter of the statements actually prepared
+	 * @param log Where the statements get timed, null to not time them
+	 */
+	StatementCache(Connection connection, int capacity, AtomicLong prepared, QueryLog log) {
+
+		m_connection = connection;
+		m_capacity = capacity;
+		m_prepared = prepared;
+		m_log = log;
+	}
+
+	/**
+	 * Returns the statement of the SQL, preparing it if it is not cached.
+	 * The statement is reset, and belongs to the cache: it must not be closed
+	 *
+	 * @param sql The statement
+	 * @return The prepared statement
+	 * @throws SQLException If the statement can not be prepared
+	 */
+	PreparedStatement prepare(String sql) throws SQLException {
+
+		PreparedStatement pst = m_statements.get(sql);
+
+		if (pst == null || pst.isClosed()) {
+
+			pst = m_connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			m_prepared.incrementAndGet();
+
+			if (m_log != null)
+				pst = m_log.wrap(pst, sql);
+
+			if (m_capacity > 0) {
+
+				m_statements.put(sql, pst);
+				evict();
+			}
+
+			else
+				m_evicted.add(pst);
+		}
+
+		else {
+
+			pst.clearParameters();
+			pst.clearBatch();
+		}
+
+		m_used.add(pst);
+		return pst;
+	}
+
+	/**
+	 * Closes the result sets of the statements used since the connection was leased
+	 * and the statements that left the cache in the meantime
+	 */
+	void release() {
+
+		for (PreparedStatement pst : m_used) {
+
+			try {
+
+				ResultSet result = pst.getResultSet();
+
+				if (result != null)
+					result.close();
+			}
+
+			catch (SQLException e) {
+
+				Console.debug("Failed to close a result set: " + e.getMessage());
+			}
+		}
+
+		m_used.clear();
+
+		for (PreparedStatement pst : m_evicted)
+			close(pst);
+
+		m_evicted.clear();
+	}
+
+	/**
+	 *
+	 * @return The number of statements kept prepared
+	 */
+	int size() {
+
+		return m_statements.size();
+	}
+
+	/**
+	 * Closes the least recently used statements beyond the capacity. A statement
+	 * used by the current lease may still be read, so it gets closed on release
+	 */
+	private void evict() {
+
+		Iterator<PreparedStatement> iterator = m_statements.values().iterator();
+
+		while (m_statements.size() > m_capacity) {
+
+			PreparedStatement pst = iterator.next();
+			iterator.remove();
+
+			if (m_used.contains(pst))
+				m_evicted.add(pst);
+			else
+				close(pst);
+		}
+	}
+
+	private static void close(PreparedStatement pst) {
+
+		try {
+
+			pst.close();
+		}
+
+		catch (SQLException e) {
+
+			Console.debug("Failed to close a statement: " + e.getMessage());
+		}
+	}
+
+	private final Connection m_connection;
+	private final int m_capacity;
+	private final AtomicLong m_prepared;
+	private final QueryLog m_log;
+	private final Map<String, PreparedStatement> m_statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true);
+	private final Set<PreparedStatement> m_used = Collections.newSetFromMap(new IdentityHashMap<PreparedStatement, Boolean>());
+	private final List<PreparedStatement> m_evicted = new ArrayList<PreparedStatement>();
+}
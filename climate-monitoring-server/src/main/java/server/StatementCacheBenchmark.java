@@ -0,0 +1,97 @@
+/*
+
+Alessandro della Frattina 753073 VA
+Cristian Capiferri 752918 VA
+Francesco Lops 753175 VA
+Dariia Sniezhko 753057 VA
+
+*/
+
+package server;
+
+import java.util.Arrays;
+
+import climatemonitoring.core.ConnectionLostException;
+import climatemonitoring.core.DatabaseRequestException;
+import climatemonitoring.core.headless.Console;
+
+/**
+ * Compares the latency of the area and center lookups by ID when every request
+ * prepares its statement with the one when the connection keeps it prepared.
+ * PostgreSQL switches a statement to a server-side prepared plan after a few
+ * executions, which only happens if the statement object is reused.
+ * Usage: StatementCacheBenchmark [runs]
+ *
+ * @author ccapiferri
+ * @version 1.0-SNAPSHOT
+ */
+public class StatementCacheBenchmark {
+
+	public static void main(String[] args) throws Exception {
+
+		int runs = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+
+		String url = Console.read("Database URL > ");
+		String username = Console.read("Username > ");
+		String password = Console.read("Password > ");
+		int geonameID = Integer.parseInt(Console.read("Geoname ID of an area > ").trim());
+		String centerID = Console.read("Center ID > ").trim();
+
+		ConnectionPool uncached = new ConnectionPool(url, username, password, 1, 5000, 60000, 0);
+		ConnectionPool cached = new ConnectionPool(url, username, password, 1, 5000, 60000, 64);
+
+		try {
+
+			ServerDatabaseImpl prepared = new ServerDatabaseImpl(uncached, 500, 10000, null, null, null, null);
+			ServerDatabaseImpl reused = new ServerDatabaseImpl(cached, 500, 10000, null, null, null, null);
+
+			report("getArea", "prepared", measure(runs, () -> prepared.getArea(geonameID)));
+			report("getArea", "cached", measure(runs, () -> reused.getArea(geonameID)));
+			report("getCenter", "prepared", measure(runs, () -> prepared.getCenter(centerID)));
+			report("getCenter", "cached", measure(runs, () -> reused.getCenter(centerID)));
+
+			Console.write(uncached.toString());
+			Console.write(cached.toString());
+		}
+
+		finally {
+
+			uncached.close();
+			cached.close();
+		}
+	}
+
+	private interface Lookup {
+
+		Object run() throws ConnectionLostException, DatabaseRequestException;
+	}
+
+	/**
+	 * Runs a lookup until it is warm, then returns the latency of every run in nanoseconds
+	 */
+	private static long[] measure(int runs, Lookup lookup) throws ConnectionLostException, DatabaseRequestException {
+
+		for (int i = 0; i < WARMUP; i++)
+			lookup.run();
+
+		long[] times = new long[runs];
+
+		for (int i = 0; i < runs; i++) {
+
+			long start = System.nanoTime();
+			lookup.run();
+			times[i] = System.nanoTime() - start;
+		}
+
+		Arrays.sort(times);
+		return times;
+	}
+
+	private static void report(String lookup, String path, long[] times) {
+
+		Console.write(String.format("%-10s %-9s median %9.1f us   p99 %9.1f us", lookup, path,
+			times[times.length / 2] / 1000.0, times[times.length * 99 / 100] / 1000.0));
+	}
+
+	private static final int WARMUP = 1000;
+}
@@ -0,0 +1,202 @@
+/*
+
+Alessandro della Frattina 753073 VA
+Cristian Capiferri 752918 VA
+Francesco Lops 753175 VA
+Dariia Sniezhko 753057 VA
+
+*/
+
+package server;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import climatemonitoring.core.network.Protocol;
+
+/**
+ * The transaction of a client session: the connection leased from the pool
+ * for its whole duration, and the changes to the state shared by every session
+ * (indexes, aggregates, result cache, stamps) that the other sessions only get
+ * once it commits. The requests that run outside a transaction lease their own
+ * connection, so they never see it.
+ * The requests of the session that run during the transaction lease its connection
+ * one at a time, and the commit waits for the request that is using it
+ *
+ * @author ccapiferri
+ * @version 1.0-SNAPSHOT
+ */
+final class Transaction {
+
+	/**
+	 * Leases a connection and starts the transaction on it
+	 *
+	 * @param pool The connection pool
+	 * @throws SQLException If no connection is available or the transaction can not start
+	 */
+	Transaction(ConnectionPool pool) throws SQLException {
+
+		m_pool = pool;
+		m_connection = pool.acquire();
+
+		try {
+
+			m_connection.setAutoCommit(false);
+		}
+
+		catch (SQLException e) {
+
+			pool.release(m_connection);
+			throw e;
+		}
+	}
+
+	/**
+	 * Leases the connection to a request, waiting for the request that is using it.
+	 * Every lease must be followed by {@link #giveBack()} on the same thread
+	 *
+	 * @return The connection, null if the transaction has already ended
+	 */
+	Connection lease() {
+
+		m_lock.lock();
+
+		if (!m_closed)
+			return m_connection;
+
+		m_lock.unlock();
+		return null;
+	}
+
+	/**
+	 * Ends the lease of the connection taken by {@link #lease()}
+	 */
+	void giveBack() {
+
+		m_lock.unlock();
+	}
+
+	/**
+	 *
+	 * @param connection A connection
+	 * @return True if the connection is the one of the transaction and the transaction has not ended
+	 */
+	boolean owns(Connection connection) {
+
+		return !m_closed && connection == m_connection;
+	}
+
+	/**
+	 * Defers a change to the shared state until the transaction commits
+	 *
+	 * @param action The change, run in the order it was deferred
+	 */
+	void onCommit(Runnable action) {
+
+		m_actions.add(action);
+	}
+
+	/**
+	 * Marks a kind of reference data as changed when the transaction commits,
+	 * after every deferred change has been applied
+	 *
+	 * @param kind One of the stamps defined by {@link Protocol}
+	 */
+	void changed(int kind) {
+
+		m_stamps |= 1 << kind;
+	}
+
+	/**
+	 * Commits the transaction, applies the deferred changes and gives the connection back
+	 *
+	 * @throws SQLException If the commit fails, the transaction gets rolled back
+	 */
+	void commit() throws SQLException {
+
+		m_lock.lock();
+
+		try {
+
+			m_connection.commit();
+			m_connection.setAutoCommit(true);
+
+			for (Runnable action : m_actions)
+				action.run();
+
+			for (int kind = 0; kind < Protocol.STAMPS; kind++)
+				if ((m_stamps & (1 << kind)) != 0)
+					Stamps.bump(kind);
+		}
+
+		finally {
+
+			close();
+			m_lock.unlock();
+		}
+	}
+
+	/**
+	 * Undoes the changes of the transaction, drops the deferred ones and gives the connection back
+	 *
+	 * @throws SQLException If the rollback fails, the connection is given back anyway
+	 */
+	void rollback() throws SQLException {
+
+		m_lock.lock();
+
+		try {
+
+			m_connection.rollback();
+		}
+
+		finally {
+
+			close();
+			m_lock.unlock();
+		}
+	}
+
+	/**
+	 * Gives the connection back to the pool, which rolls back what has not been committed
+	 */
+	void close() {
+
+		m_lock.lock();
+
+		try {
+
+			if (m_closed)
+				return;
+
+			m_closed = true;
+			m_actions.clear();
+			m_stamps = 0;
+			m_pool.release(m_connection);
+		}
+
+		finally {
+
+			m_lock.unlock();
+		}
+	}
+
+	private final ConnectionPool m_pool;
+	private final Connection m_connection;
+	private final List<Runnable> m_actions = new ArrayList<Runnable>();
+
+	/**
+	 * Held by the request that has leased the connection, by the commit and by the close
+	 */
+	private final ReentrantLock m_lock = new ReentrantLock();
+
+	/**
+	 * The stamps to increment, one bit per kind
+	 */
+	private int m_stamps;
+
+	private volatile boolean m_closed;
+}